@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.imgfmt.app.trergn;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import uk.me.parabola.imgfmt.app.Area;
+import uk.me.parabola.imgfmt.app.Coord;
+import uk.me.parabola.imgfmt.app.lbl.LBLFile;
+import uk.me.parabola.imgfmt.app.net.NETFile;
+import uk.me.parabola.imgfmt.app.net.NODFile;
+import uk.me.parabola.mkgmap.benchmark.OsmData;
+import uk.me.parabola.mkgmap.reader.osm.Way;
+
+/**
+ * Create the bit streams of the lines in the RGN file. The lines are
+ * the ways of a file, each in its own subdivision. This is in the package
+ * of the {@link LinePreparer} because it isn't public.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class LinePreparerBenchmark {
+	// the lines are split into parts of at most this size before they are written
+	private static final int MAX_POINTS = 250;
+
+	@Param(OsmData.DEFAULT_FILE)
+	public String file;
+
+	@Param({"24", "20"})
+	public int resolution;
+
+	private List<Polyline> lines;
+
+	private static class NoFiles implements InternalFiles {
+		public RGNFile getRgnFile() {
+			return null;
+		}
+
+		public LBLFile getLblFile() {
+			return null;
+		}
+
+		public TREFile getTreFile() {
+			return null;
+		}
+
+		public NETFile getNetFile() {
+			return null;
+		}
+
+		public NODFile getNodFile() {
+			return null;
+		}
+	}
+
+	@Setup
+	public void setup() throws IOException {
+		InternalFiles files = new NoFiles();
+		Zoom zoom = new Zoom(0, resolution);
+		lines = new ArrayList<>();
+		for (Way way : OsmData.load(file).getWays().values()) {
+			List<Coord> points = way.getPoints();
+			if (points.size() < 2 || points.size() > MAX_POINTS)
+				continue;
+			Subdivision div = Subdivision.topLevelSubdivision(files, Area.getBBox(points), zoom);
+			Polyline line = new Polyline(div);
+			line.addCoords(points);
+			lines.add(line);
+		}
+	}
+
+	@Benchmark
+	public void makeBitStream(Blackhole bh) {
+		for (Polyline line : lines)
+			bh.consume(new LinePreparer(line).makeShortestBitStream(2));
+	}
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compare the results of a benchmark run with a baseline. Both files are
+ * in the CSV format of JMH (option -rf csv). A benchmark is identified by
+ * its name, mode and parameters.
+ *
+ * The program exits with 1 when a benchmark is slower than in the
+ * baseline by more than the allowed percentage.
+ *
+ * Usage: BenchmarkCompare baseline.csv result.csv [percent]
+ */
+public class BenchmarkCompare {
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: BenchmarkCompare baseline.csv result.csv [percent]");
+			System.exit(2);
+		}
+		double allowed = args.length > 2 ? Double.parseDouble(args[2]) : 10;
+
+		Map<String, double[]> baseline = read(args[0]);
+		Map<String, double[]> result = read(args[1]);
+
+		int regressions = 0;
+		for (Map.Entry<String, double[]> entry : result.entrySet()) {
+			String key = entry.getKey();
+			double score = entry.getValue()[0];
+			double error = entry.getValue()[1];
+			double[] base = baseline.get(key);
+			if (base == null) {
+				System.out.println(String.format(Locale.ROOT, "%-70s %12s %12.3f", key, "-", score));
+				continue;
+			}
+			// for the throughput higher is better, for the other modes lower is better
+			boolean throughput = key.contains(" thrpt");
+			double change = 100 * (score - base[0]) / base[0];
+			double slower = throughput ? -change : change;
+			// a difference within the errors of the measurements is not counted
+			boolean regression = slower > allowed && Math.abs(score - base[0]) > error + base[1];
+			if (regression)
+				regressions++;
+			System.out.println(String.format(Locale.ROOT, "%-70s %12.3f %12.3f %+7.1f%%%s",
+					key, base[0], score, change, regression ? "  REGRESSION" : ""));
+		}
+		for (String key : baseline.keySet()) {
+			if (!result.containsKey(key))
+				System.out.println(String.format(Locale.ROOT, "%-70s %12.3f %12s", key, baseline.get(key)[0], "-"));
+		}
+		if (regressions > 0) {
+			System.out.println(regressions + " benchmarks are more than " + allowed + "% slower than the baseline");
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Read a JMH result file.
+	 * @return the score and its error for each benchmark
+	 */
+	private static Map<String, double[]> read(String name) throws IOException {
+		List<String> lines = Files.readAllLines(Paths.get(name), StandardCharsets.UTF_8);
+		Map<String, double[]> results = new LinkedHashMap<>();
+		if (lines.isEmpty())
+			return results;
+		List<String> header = split(lines.get(0));
+		int nameCol = header.indexOf("Benchmark");
+		int modeCol = header.indexOf("Mode");
+		int scoreCol = header.indexOf("Score");
+		int errorCol = header.indexOf("Score Error (99.9%)");
+		int unitCol = header.indexOf("Unit");
+		if (nameCol < 0 || modeCol < 0 || scoreCol < 0)
+			throw new IOException(name + " is not a JMH result in CSV format");
+		for (String line : lines.subList(1, lines.size())) {
+			if (line.trim().isEmpty())
+				continue;
+			List<String> values = split(line);
+			StringBuilder key = new StringBuilder(values.get(nameCol));
+			key.append(' ').append(values.get(modeCol));
+			for (int i = 0; i < header.size(); i++) {
+				if (header.get(i).startsWith("Param: ") && i < values.size() && !values.get(i).isEmpty())
+					key.append(' ').append(header.get(i).substring(7)).append('=').append(values.get(i));
+			}
+			if (unitCol >= 0)
+				key.append(" [").append(values.get(unitCol)).append(']');
+			double score = parseNumber(values.get(scoreCol));
+			double error = errorCol >= 0 ? parseNumber(values.get(errorCol)) : 0;
+			results.put(key.toString(), new double[] { score, Double.isNaN(error) ? 0 : error });
+		}
+		return results;
+	}
+
+	private static double parseNumber(String s) {
+		if (s.isEmpty() || "NaN".equals(s))
+			return Double.NaN;
+		// JMH may write a decimal comma
+		return Double.parseDouble(s.replace(',', '.'));
+	}
+
+	/**
+	 * Split a CSV line, values may be quoted.
+	 */
+	private static List<String> split(String line) {
+		List<String> values = new ArrayList<>();
+		StringBuilder sb = new StringBuilder();
+		boolean quoted = false;
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (quoted) {
+				if (c == '"') {
+					if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+						sb.append('"');
+						i++;
+					} else
+						quoted = false;
+				} else
+					sb.append(c);
+			} else if (c == '"') {
+				quoted = true;
+			} else if (c == ',') {
+				values.add(sb.toString());
+				sb.setLength(0);
+			} else
+				sb.append(c);
+		}
+		values.add(sb.toString());
+		return values;
+	}
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import uk.me.parabola.imgfmt.app.dem.DEMTile;
+
+/**
+ * Encode the heights of DEM tiles. The heights are made up: hills with
+ * some noise, the parameter sets the height of the hills.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class DemTileBenchmark {
+	private static final int TILE_SIZE = 64;
+	private static final int NUM_TILES = 64;
+
+	@Param({"0", "100", "2000"})
+	public int relief;
+
+	private short[][] heights;
+
+	@Setup
+	public void setup() {
+		Random rand = new Random(42);
+		heights = new short[NUM_TILES][];
+		for (int t = 0; t < NUM_TILES; t++) {
+			short[] h = new short[TILE_SIZE * TILE_SIZE];
+			for (int y = 0; y < TILE_SIZE; y++) {
+				for (int x = 0; x < TILE_SIZE; x++) {
+					double hill = Math.sin((x + t * TILE_SIZE) / 17.0) * Math.cos(y / 23.0);
+					h[y * TILE_SIZE + x] = (short) (relief + relief * hill + rand.nextInt(relief / 50 + 1));
+				}
+			}
+			heights[t] = h;
+		}
+	}
+
+	@Benchmark
+	public void encode(Blackhole bh) {
+		for (int t = 0; t < NUM_TILES; t++)
+			bh.consume(new DEMTile(t, 0, TILE_SIZE, TILE_SIZE, heights[t]));
+	}
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import uk.me.parabola.imgfmt.app.Coord;
+import uk.me.parabola.mkgmap.filters.DouglasPeuckerFilter;
+import uk.me.parabola.mkgmap.filters.ShapeMergeFilter;
+import uk.me.parabola.mkgmap.general.MapShape;
+import uk.me.parabola.mkgmap.reader.osm.Way;
+
+/**
+ * The Douglas-Peucker line simplification and the merging of shapes,
+ * with the ways of a file as input.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class FilterBenchmark {
+	private static final String[] SHAPE_KEYS = { "building", "landuse", "natural", "leisure", "amenity" };
+
+	@Param(OsmData.DEFAULT_FILE)
+	public String file;
+
+	@Param({"24", "20", "16"})
+	public int resolution;
+
+	private List<List<Coord>> lines;
+	private List<MapShape> shapes;
+	private List<MapShape> shapeCopies;
+
+	@Setup
+	public void setup() throws IOException {
+		lines = new ArrayList<>();
+		shapes = new ArrayList<>();
+		for (Way way : OsmData.load(file).getWays().values()) {
+			List<Coord> points = way.getPoints();
+			if (points.size() < 3)
+				continue;
+			lines.add(points);
+			if (points.get(0) != points.get(points.size() - 1))
+				continue;
+			for (int i = 0; i < SHAPE_KEYS.length; i++) {
+				if (way.getTag(SHAPE_KEYS[i]) != null) {
+					MapShape shape = new MapShape(way.getId());
+					shape.setType(i + 1);
+					shape.setMinResolution(16);
+					shape.setPoints(points);
+					shapes.add(shape);
+					break;
+				}
+			}
+		}
+	}
+
+	@Setup(Level.Invocation)
+	public void copyShapes() {
+		shapeCopies = new ArrayList<>(shapes.size());
+		for (MapShape shape : shapes) {
+			// a copy has no points
+			MapShape copy = shape.copy();
+			copy.setPoints(new ArrayList<>(shape.getPoints()));
+			shapeCopies.add(copy);
+		}
+	}
+
+	@Benchmark
+	public void douglasPeucker(Blackhole bh) {
+		// the default of --reduce-point-density, scaled like in the DouglasPeuckerFilter
+		double maxErrorDistance = 2.6 * (1 << (24 - resolution));
+		for (List<Coord> points : lines)
+			bh.consume(DouglasPeuckerFilter.reduce(points, maxErrorDistance));
+	}
+
+	@Benchmark
+	public List<MapShape> shapeMerge() {
+		return new ShapeMergeFilter(resolution, false).merge(shapeCopies);
+	}
+}
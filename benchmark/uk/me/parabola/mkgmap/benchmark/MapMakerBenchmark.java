@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.me.parabola.mkgmap.CommandArgs;
+import uk.me.parabola.mkgmap.main.MapMaker;
+import uk.me.parabola.mkgmap.srt.SrtTextReader;
+import uk.me.parabola.util.EnhancedProperties;
+
+/**
+ * Make a whole tile from a file: read, convert with the default style,
+ * build and write the img file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class MapMakerBenchmark {
+	@Param(OsmData.DEFAULT_FILE)
+	public String file;
+
+	/** Comma separated options without the leading --, e.g. "route,index" */
+	@Param({"", "route"})
+	public String options;
+
+	private File outputDir;
+	private CommandArgs args;
+
+	@Setup
+	public void setup() throws IOException {
+		outputDir = Files.createTempDirectory("mkgmap-benchmark").toFile();
+		EnhancedProperties props = new EnhancedProperties();
+		props.setProperty("mapname", "63240001");
+		props.setProperty("output-dir", outputDir.getPath());
+		for (String opt : options.split(",")) {
+			if (opt.isEmpty())
+				continue;
+			int pos = opt.indexOf('=');
+			if (pos > 0)
+				props.setProperty(opt.substring(0, pos), opt.substring(pos + 1));
+			else
+				props.setProperty(opt, "");
+		}
+		args = new CommandArgs(props);
+		args.setSort(SrtTextReader.sortForCodepage(args.getCodePage()));
+	}
+
+	@TearDown
+	public void tearDown() {
+		File[] files = outputDir.listFiles();
+		if (files != null) {
+			for (File f : files)
+				f.delete();
+		}
+		outputDir.delete();
+	}
+
+	@Benchmark
+	public String makeMap() {
+		return new MapMaker(false).makeMap(args, file);
+	}
+}
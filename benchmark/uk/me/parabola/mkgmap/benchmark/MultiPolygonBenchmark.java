@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.me.parabola.imgfmt.FormatException;
+import uk.me.parabola.imgfmt.app.Area;
+import uk.me.parabola.mkgmap.reader.osm.ElementSaver;
+import uk.me.parabola.mkgmap.reader.osm.MultiPolygonRelation;
+import uk.me.parabola.mkgmap.reader.osm.Relation;
+import uk.me.parabola.mkgmap.reader.osm.Way;
+import uk.me.parabola.util.EnhancedProperties;
+
+/**
+ * Process the multipolygon relations of a file. The processing changes
+ * the ways, so the file is parsed again before each invocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class MultiPolygonBenchmark {
+	@Param(OsmData.DEFAULT_FILE)
+	public String file;
+
+	@Param({"false", "true"})
+	public boolean useHoleCutter;
+
+	private byte[] data;
+	private CollectingSaver saver;
+
+	/**
+	 * Keeps the multipolygon relations without processing them.
+	 */
+	private static class CollectingSaver extends ElementSaver {
+		private final List<Relation> relations = new ArrayList<>();
+
+		public CollectingSaver(EnhancedProperties args) {
+			super(args);
+		}
+
+		public Relation createMultiPolyRelation(Relation rel) {
+			relations.add(rel);
+			return rel;
+		}
+	}
+
+	@Setup
+	public void readFile() throws IOException {
+		data = OsmData.readFile(file);
+	}
+
+	@Setup(Level.Invocation)
+	public void parse() throws FormatException {
+		saver = new CollectingSaver(new EnhancedProperties());
+		OsmData.parse(file, data, saver);
+	}
+
+	@Benchmark
+	public Map<Long, Way> process() {
+		Area bbox = saver.getBoundingBox();
+		Map<Long, Way> wayMap = new HashMap<>(saver.getWays());
+		for (Relation rel : saver.relations) {
+			MultiPolygonRelation mpRel = new MultiPolygonRelation(rel, wayMap, bbox);
+			mpRel.setUseHoleCutter(useHoleCutter);
+			mpRel.processElements();
+		}
+		return wayMap;
+	}
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import uk.me.parabola.imgfmt.FormatException;
+import uk.me.parabola.imgfmt.Utils;
+import uk.me.parabola.mkgmap.reader.osm.ElementSaver;
+import uk.me.parabola.mkgmap.reader.osm.OsmHandler;
+import uk.me.parabola.mkgmap.reader.osm.OsmReadingHooksAdaptor;
+import uk.me.parabola.mkgmap.reader.osm.bin.OsmBinHandler;
+import uk.me.parabola.mkgmap.reader.osm.o5m.O5mBinHandler;
+import uk.me.parabola.mkgmap.reader.osm.xml.OsmXmlHandler;
+import uk.me.parabola.util.EnhancedProperties;
+
+/**
+ * Reads the OSM input of the benchmarks. The file is read into memory
+ * once, so that the benchmarks don't measure the disk.
+ */
+public class OsmData {
+	/**
+	 * The default input, it is downloaded by the target obtain-test-input-files.
+	 * The benchmarks that read OSM data take the name of a different file
+	 * (.osm, .o5m or .pbf, optionally gzipped) from the parameter "file".
+	 */
+	public static final String DEFAULT_FILE = "test/resources/in/osm/uk-test-1.osm.gz";
+
+	private OsmData() {
+	}
+
+	/**
+	 * Read the whole file, a gzipped file is uncompressed.
+	 */
+	public static byte[] readFile(String name) throws IOException {
+		try (InputStream is = Utils.openFile(name)) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buf = new byte[65536];
+			int n;
+			while ((n = is.read(buf)) > 0)
+				out.write(buf, 0, n);
+			return out.toByteArray();
+		}
+	}
+
+	/**
+	 * @return the handler for the format of the file
+	 */
+	public static OsmHandler createHandler(String name) {
+		OsmHandler[] handlers = { new OsmBinHandler(), new O5mBinHandler() };
+		for (OsmHandler handler : handlers) {
+			if (handler.isFileSupported(name))
+				return handler;
+		}
+		return new OsmXmlHandler();
+	}
+
+	/**
+	 * Parse the data of a file into the given saver, all tags are kept.
+	 * @param name The file name, used to find the format.
+	 * @param data The content of the file.
+	 * @param saver Receives the elements.
+	 */
+	public static void parse(String name, byte[] data, ElementSaver saver) throws FormatException {
+		OsmHandler handler = createHandler(name);
+		handler.setElementSaver(saver);
+		handler.setHooks(new OsmReadingHooksAdaptor());
+		handler.parse(new ByteArrayInputStream(data));
+	}
+
+	/**
+	 * Read and parse a file, the multipolygons are processed.
+	 */
+	public static ElementSaver load(String name) throws IOException {
+		ElementSaver saver = new ElementSaver(new EnhancedProperties());
+		parse(name, readFile(name), saver);
+		return saver;
+	}
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.me.parabola.imgfmt.FormatException;
+import uk.me.parabola.mkgmap.reader.osm.ElementSaver;
+import uk.me.parabola.util.EnhancedProperties;
+
+/**
+ * Parse an OSM file from memory. The format is taken from the file name,
+ * so o5m and pbf files are measured by passing them as parameter.
+ * The multipolygons are processed while the file is read, as in a
+ * normal run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ParseBenchmark {
+	@Param(OsmData.DEFAULT_FILE)
+	public String file;
+
+	private byte[] data;
+
+	@Setup
+	public void setup() throws IOException {
+		data = OsmData.readFile(file);
+	}
+
+	@Benchmark
+	public ElementSaver parse() throws FormatException {
+		ElementSaver saver = new ElementSaver(new EnhancedProperties());
+		OsmData.parse(file, data, saver);
+		return saver;
+	}
+}
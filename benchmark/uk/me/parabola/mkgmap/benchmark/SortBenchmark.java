@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.me.parabola.imgfmt.app.srt.Sort;
+import uk.me.parabola.imgfmt.app.srt.SortKey;
+import uk.me.parabola.mkgmap.reader.osm.Element;
+import uk.me.parabola.mkgmap.reader.osm.ElementSaver;
+import uk.me.parabola.mkgmap.srt.SrtTextReader;
+
+/**
+ * Create and sort the sort keys of the names in a file, as it is done
+ * for the index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class SortBenchmark {
+	@Param(OsmData.DEFAULT_FILE)
+	public String file;
+
+	@Param({"1252", "65001"})
+	public int codepage;
+
+	private Sort sort;
+	private List<String> names;
+
+	@Setup
+	public void setup() throws IOException {
+		sort = SrtTextReader.sortForCodepage(codepage);
+		ElementSaver saver = OsmData.load(file);
+		names = new ArrayList<>();
+		List<Element> elements = new ArrayList<>(saver.getNodes().values());
+		elements.addAll(saver.getWays().values());
+		for (Element el : elements) {
+			String name = el.getTag("name");
+			if (name != null)
+				names.add(name);
+		}
+	}
+
+	@Benchmark
+	public List<SortKey<String>> createSortKeys() {
+		List<SortKey<String>> keys = new ArrayList<>(names.size());
+		for (String name : names)
+			keys.add(sort.createSortKey(name, name));
+		return keys;
+	}
+
+	@Benchmark
+	public List<SortKey<String>> createAndSort() {
+		List<SortKey<String>> keys = createSortKeys();
+		Collections.sort(keys);
+		return keys;
+	}
+}
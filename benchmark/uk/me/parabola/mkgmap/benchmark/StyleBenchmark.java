@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import uk.me.parabola.mkgmap.osmstyle.StyleImpl;
+import uk.me.parabola.mkgmap.reader.osm.Element;
+import uk.me.parabola.mkgmap.reader.osm.ElementSaver;
+import uk.me.parabola.mkgmap.reader.osm.Node;
+import uk.me.parabola.mkgmap.reader.osm.Rule;
+import uk.me.parabola.mkgmap.reader.osm.Style;
+import uk.me.parabola.mkgmap.reader.osm.Way;
+import uk.me.parabola.util.EnhancedProperties;
+
+/**
+ * Evaluate the rules of a style for the nodes and ways of a file. The
+ * actions of the rules change the elements, so each invocation works
+ * on fresh copies.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class StyleBenchmark {
+	@Param(OsmData.DEFAULT_FILE)
+	public String file;
+
+	@Param("default")
+	public String style;
+
+	private Rule nodeRules;
+	private Rule wayRules;
+	private List<Node> nodes;
+	private List<Way> ways;
+	private List<Element> nodeCopies;
+	private List<Element> wayCopies;
+
+	@Setup
+	public void setup() throws IOException {
+		EnhancedProperties props = new EnhancedProperties();
+		props.setProperty("style", style);
+		Style s = StyleImpl.readStyle(props);
+		nodeRules = s.getNodeRules();
+		wayRules = s.getWayRules();
+
+		ElementSaver saver = OsmData.load(file);
+		nodes = new ArrayList<>();
+		for (Node node : saver.getNodes().values()) {
+			if (node.getTagCount() > 0)
+				nodes.add(node);
+		}
+		ways = new ArrayList<>(saver.getWays().values());
+	}
+
+	@Setup(Level.Invocation)
+	public void copyElements() {
+		nodeCopies = new ArrayList<>(nodes.size());
+		for (Node node : nodes)
+			nodeCopies.add(node.copy());
+		wayCopies = new ArrayList<>(ways.size());
+		for (Way way : ways)
+			wayCopies.add(way.copy());
+	}
+
+	@Benchmark
+	public void nodes(Blackhole bh) {
+		for (Element el : nodeCopies)
+			nodeRules.resolveType(el, (e, type) -> bh.consume(type));
+	}
+
+	@Benchmark
+	public void ways(Blackhole bh) {
+		for (Element el : wayCopies)
+			wayRules.resolveType(el, (e, type) -> bh.consume(type));
+	}
+}
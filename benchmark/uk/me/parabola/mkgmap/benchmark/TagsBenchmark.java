@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import uk.me.parabola.mkgmap.reader.osm.Element;
+import uk.me.parabola.mkgmap.reader.osm.TagDict;
+import uk.me.parabola.mkgmap.reader.osm.Tags;
+
+/**
+ * Access to the tags of the ways of a file: lookups with string and
+ * short keys, iteration, copying and the translation of key strings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class TagsBenchmark {
+	private static final String[] KEYS = { "highway", "name", "building", "oneway", "access", "mkgmap:label:1" };
+
+	@Param(OsmData.DEFAULT_FILE)
+	public String file;
+
+	private List<Element> elements;
+	private List<Tags> tags;
+	private short[] shortKeys;
+	private List<String> tagNames;
+
+	@Setup
+	public void setup() throws IOException {
+		elements = new ArrayList<>(OsmData.load(file).getWays().values());
+		tags = new ArrayList<>();
+		tagNames = new ArrayList<>();
+		for (Element el : elements) {
+			tags.add(el.getCopyOfTags());
+			for (Map.Entry<String, String> entry : el.getTagEntryIterator())
+				tagNames.add(new String(entry.getKey()));
+		}
+		shortKeys = new short[KEYS.length];
+		for (int i = 0; i < KEYS.length; i++)
+			shortKeys[i] = TagDict.getInstance().xlate(KEYS[i]);
+	}
+
+	@Benchmark
+	public void getByString(Blackhole bh) {
+		for (Element el : elements) {
+			for (String key : KEYS)
+				bh.consume(el.getTag(key));
+		}
+	}
+
+	@Benchmark
+	public void getByShort(Blackhole bh) {
+		for (Element el : elements) {
+			for (short key : shortKeys)
+				bh.consume(el.getTag(key));
+		}
+	}
+
+	@Benchmark
+	public void iterate(Blackhole bh) {
+		for (Element el : elements) {
+			for (Map.Entry<Short, String> entry : el.getFastTagEntryIterator())
+				bh.consume(entry.getValue());
+		}
+	}
+
+	@Benchmark
+	public void copyAndPut(Blackhole bh) {
+		for (Tags t : tags) {
+			Tags copy = t.copy();
+			copy.put(shortKeys[0], "residential");
+			bh.consume(copy);
+		}
+	}
+
+	@Benchmark
+	public void xlate(Blackhole bh) {
+		TagDict dict = TagDict.getInstance();
+		for (String name : tagNames)
+			bh.consume(dict.xlate(name));
+	}
+}
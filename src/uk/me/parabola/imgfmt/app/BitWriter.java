@@ -16,31 +16,36 @@
  */
 package uk.me.parabola.imgfmt.app;
 
-import uk.me.parabola.log.Logger;
+import java.util.Arrays;
 
 /**
  * A class to write the bitstream.
  *
+ * The bits are collected in a 64 bit accumulator and stored four bytes
+ * at a time.
+ *
  * @author Steve Ratcliffe
  */
 public class BitWriter {
-	private static final Logger log = Logger.getLogger(BitWriter.class);
-
 	// Choose so that most roads will not fill it.
 	private static final int INITIAL_BUF_SIZE = 20;
+	private static final int BUFSIZE_INC = 50;
 
-	// The byte buffer and its current length (allocated length)
-	private byte[] buf;  // The buffer
-	private int bufsize;  // The allocated size
-	private int buflen; // The actual used length
+	// The byte buffer
+	private byte[] buf;
 
-	// The bit offset into the byte array.
+	// The number of bits written.
 	private int bitoff;
-	private static final int BUFSIZE_INC = 50;
+
+	// The bits that are not yet stored in the buffer, starting at
+	// byte offset bytepos. There are always fewer than 32 of them
+	// between two calls.
+	private long acc;
+	private int accbits;
+	private int bytepos;
 
 	public BitWriter() {
-		bufsize = INITIAL_BUF_SIZE;
-		buf = new byte[bufsize];
+		buf = new byte[INITIAL_BUF_SIZE];
 	}
 
 	/**
@@ -49,24 +54,10 @@ public class BitWriter {
 	 * @param b The bottom bit of the integer is set at the current bit position.
 	 */
 	private void put1(int b) {
-		ensureSize(bitoff + 1);
-
-		int off = getByteOffset(bitoff);
-
-		// Get the remaining bits into the byte.
-		int rem = bitoff - 8 * off;
-
-		// Or it in, we are assuming that the position is never turned back.
-		buf[off] |= (b & 0x1) << rem;
-
-		// Increment position
+		acc |= (long) (b & 0x1) << accbits;
 		bitoff++;
-
-		// If we are in a new byte, increase the byte length.
-		if ((bitoff & 0x7) == 1)
-			buflen++;
-
-		debugPrint(b, 1);
+		if (++accbits == 32)
+			store();
 	}
 	
 	public void put1(boolean b) {
@@ -81,34 +72,28 @@ public class BitWriter {
 	 * @param nb The number of bits.
 	 */
 	public void putn(int bval, int nb) {
-		int val = bval & ((1<<nb) - 1);
-		int n = nb;
-
-		// We need to be able to deal with more than 24 bits, but now we can't yet
-		if (n >= 24)
+		if (nb > 32)
 			throw new IllegalArgumentException();
 
-		ensureSize(bitoff + n);
-
-		// Get each affected byte and set bits into it until we are done.
-		while (n > 0) {
-			int ind = getByteOffset(bitoff);
-			int rem = bitoff - 8*ind;
-
-			buf[ind] |= ((val << rem) & 0xff);
-
-			// Shift down in preparation for next byte.
-			val >>>= 8-rem;
-
-			// Account for change so far
-			int nput = 8 - rem;
-			if (nput > n)
-				nput = n;
-			bitoff += nput;
-			n -= nput;
-		}
+		acc |= (bval & (0xffffffffL >>> (32 - nb))) << accbits;
+		bitoff += nb;
+		accbits += nb;
+		if (accbits >= 32)
+			store();
+	}
 
-		buflen = (bitoff+7)/8;
+	/**
+	 * Store the lower 32 bits of the accumulator.
+	 */
+	private void store() {
+		ensureSize(bytepos + 4);
+		buf[bytepos] = (byte) acc;
+		buf[bytepos + 1] = (byte) (acc >>> 8);
+		buf[bytepos + 2] = (byte) (acc >>> 16);
+		buf[bytepos + 3] = (byte) (acc >>> 24);
+		bytepos += 4;
+		acc >>>= 32;
+		accbits -= 32;
 	}
 	
 	/**
@@ -131,7 +116,17 @@ public class BitWriter {
 		}
 	}
 	
+	/**
+	 * Get the buffer with the bit stream. The buffer is usually larger
+	 * than the bit stream, see {@link #getLength()}. 
+	 * @return the buffer
+	 */
 	public byte[] getBytes() {
+		// copy the pending bits, they are kept in the accumulator
+		int n = (accbits + 7) / 8;
+		ensureSize(bytepos + n);
+		for (int i = 0; i < n; i++)
+			buf[bytepos + i] = (byte) (acc >>> (8 * i));
 		return buf;
 	}
 
@@ -144,47 +139,17 @@ public class BitWriter {
 	 * @return Number of bytes required to hold the output.
 	 */
 	public int getLength() {
-		return buflen;
-	}
-
-	/**
-	 * Get the byte offset for the given bit number.
-	 *
-	 * @param boff The number of the bit in question.
-	 * @return The index into the byte array where the bit resides.
-	 */
-	private int getByteOffset(int boff) {
-		return boff/8;
+		return (bitoff + 7) / 8;
 	}
 
 	/**
 	 * Set everything up so that the given size can be accommodated.
 	 * The buffer is re-sized if necessary.
 	 *
-	 * @param newlen The new length of the bit buffer in bits.
+	 * @param newlen The new length of the buffer in bytes.
 	 */
 	private void ensureSize(int newlen) {
-		if (newlen/8 >= bufsize)
-			reallocBuffer();
+		if (newlen > buf.length)
+			buf = Arrays.copyOf(buf, Math.max(newlen, buf.length + BUFSIZE_INC));
 	}
-
-	/**
-	 * Reallocate the byte buffer.
-	 */
-	private void reallocBuffer() {
-		log.debug("reallocating buffer");
-		bufsize += BUFSIZE_INC;
-		byte[] newbuf = new byte[bufsize];
-
-		System.arraycopy(this.buf, 0, newbuf, 0, this.buf.length);
-		this.buf = newbuf;
-	}
-
-	private void debugPrint(int b, int i) {
-		if (log.isDebugEnabled())
-			log.debug("after put", i, "of", b, " bufsize=", bufsize, ", len=",
-					buflen, ", pos=", bitoff);
-	}
-
-
 }
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.imgfmt.app.labelenc;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Encoded texts shared by all tiles that use the same encoding. Only
+ * texts which are used more than once in a tile are added, and the
+ * number of texts is limited. The {@link EncodedText} objects are never
+ * changed, so they can be used by different threads.
+ */
+public class EncodedTextCache {
+	private static final int MAX_TEXTS = 100000;
+
+	private static final ConcurrentMap<String, EncodedTextCache> caches = new ConcurrentHashMap<>();
+
+	private final ConcurrentMap<String, EncodedText> texts = new ConcurrentHashMap<>();
+
+	/**
+	 * Get the cache for an encoding.
+	 * @param encoding a key which describes the encoder, texts encoded with
+	 * encoders with the same key must be equal.
+	 * @return the cache
+	 */
+	public static EncodedTextCache forEncoding(String encoding) {
+		return caches.computeIfAbsent(encoding, k -> new EncodedTextCache());
+	}
+
+	/**
+	 * @param text the text
+	 * @return the encoded text or null if the text is not known
+	 */
+	public EncodedText get(String text) {
+		return texts.get(text);
+	}
+
+	/**
+	 * Add an encoded text if the cache is not full.
+	 * @param text the text
+	 * @param encodedText the result of the encoder for the text
+	 */
+	public void add(String text, EncodedText encodedText) {
+		if (texts.size() < MAX_TEXTS && !texts.containsKey(text))
+			texts.putIfAbsent(text, encodedText);
+	}
+}
@@ -30,6 +30,7 @@ import uk.me.parabola.imgfmt.app.labelenc.BaseEncoder;
 import uk.me.parabola.imgfmt.app.labelenc.CharacterEncoder;
 import uk.me.parabola.imgfmt.app.labelenc.CodeFunctions;
 import uk.me.parabola.imgfmt.app.labelenc.EncodedText;
+import uk.me.parabola.imgfmt.app.labelenc.EncodedTextCache;
 import uk.me.parabola.imgfmt.app.srt.Sort;
 import uk.me.parabola.imgfmt.app.trergn.Subdivision;
 import uk.me.parabola.imgfmt.fs.ImgChannel;
@@ -51,6 +52,10 @@ public class LBLFile extends ImgFile {
 	private CharacterEncoder textEncoder = CodeFunctions.getDefaultEncoder();
 
 	private final Map<EncodedText, Label> labelCache = new HashMap<>();
+	// The encoded text of each string, so that repeated strings are encoded only once.
+	private final Map<String, EncodedText> textCache = new HashMap<>();
+	// Encoded texts shared with the other tiles that use the same encoding.
+	private EncodedTextCache sharedTextCache;
 
 	private final LBLHeader lblHeader = new LBLHeader();
 
@@ -112,6 +117,7 @@ public class LBLFile extends ImgFile {
 			BaseEncoder baseEncoder = (BaseEncoder) textEncoder;
 			baseEncoder.setUpperCase(true);
 		}
+		setTextCache(forceUpper ? cs + ":upper" : cs);
 	}
 
 	public void setEncoder(int encodingType, int codepage ) {
@@ -119,8 +125,14 @@ public class LBLFile extends ImgFile {
 		
 		lblHeader.setEncodingType(cfuncs.getEncodingType());
 		textEncoder = cfuncs.getEncoder();
+		setTextCache(encodingType == CodeFunctions.ENCODING_FORMAT6 ? "ascii" : "cp" + codepage);
 	}
-	
+
+	private void setTextCache(String encoding) {
+		textCache.clear();
+		sharedTextCache = EncodedTextCache.forEncoding(encoding);
+	}
+
 	/**
 	 * Add a new label with the given text.  Labels are shared, so that identical
 	 * text is always represented by the same label.
@@ -129,7 +141,7 @@ public class LBLFile extends ImgFile {
 	 * @return A reference to the created label.
 	 */
 	public Label newLabel(String text) {
-		EncodedText encodedText = textEncoder.encodeText(text);
+		EncodedText encodedText = encodeText(text);
 
 		Label l = labelCache.get(encodedText);
 		if (l == null) {
@@ -149,6 +161,24 @@ public class LBLFile extends ImgFile {
 		return l;
 	}
 
+	private EncodedText encodeText(String text) {
+		if (text == null)
+			return textEncoder.encodeText(null);
+		EncodedText encodedText = textCache.get(text);
+		if (encodedText != null) {
+			// used more than once, probably also in other tiles
+			if (sharedTextCache != null)
+				sharedTextCache.add(text, encodedText);
+			return encodedText;
+		}
+		if (sharedTextCache != null)
+			encodedText = sharedTextCache.get(text);
+		if (encodedText == null)
+			encodedText = textEncoder.encodeText(text);
+		textCache.put(text, encodedText);
+		return encodedText;
+	}
+
 	/**
 	 * Align for the next label.
 	 *
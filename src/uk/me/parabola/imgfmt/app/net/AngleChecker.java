@@ -18,7 +18,6 @@ import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 
 import uk.me.parabola.log.Logger;
 import uk.me.parabola.util.EnhancedProperties;
@@ -129,11 +128,11 @@ public class AngleChecker {
 		return;
 	}
 
-	public void check(Map<Integer, RouteNode> nodes) {
+	public void check(List<RouteNode> nodes) {
 		if (!ignoreSharpAngles){
 			byte sharpAnglesCheckMask = cycleMap ? (byte) (0xff & ~AccessTagsAndBits.FOOT) : AccessTagsAndBits.BIKE;
 
-			for (RouteNode node : nodes.values()){
+			for (RouteNode node : nodes){
 				mask = 0xf0; // we assume compacted format
 				mrnd = 0x08; // rounding
 				fixSharpAngles(node, sharpAnglesCheckMask);				
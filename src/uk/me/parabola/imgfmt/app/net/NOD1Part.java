@@ -16,6 +16,7 @@
  */
 package uk.me.parabola.imgfmt.app.net;
 
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -94,16 +95,6 @@ public class NOD1Part {
 			empty = true;
 		}
 
-		BBox(Coord co) {
-			empty = false;
-			int lat = co.getLatitude();
-			int lon = co.getLongitude();
-			minLat = lat;
-			maxLat = lat+1;
-			minLon = lon;
-			maxLon = lon+1;
-		}
-
 		BBox(int minLat, int maxLat, int minLon, int maxLon) {
 			empty = false;
 			this.minLat = minLat;
@@ -122,7 +113,12 @@ public class NOD1Part {
 		}
 	
 		boolean contains(Coord co) {
-			return contains(new BBox(co));
+			return contains(co.getLatitude(), co.getLongitude());
+		}
+
+		boolean contains(int lat, int lon) {
+			return minLat <= lat && lat < maxLat
+				&& minLon <= lon && lon < maxLon;
 		}
 
 		void extend(BBox bbox) {
@@ -142,8 +138,19 @@ public class NOD1Part {
 			}
 		}
 
-		void extend(Coord co) {
-			extend(new BBox(co));
+		void extend(int lat, int lon) {
+			if (empty) {
+				empty = false;
+				minLat = lat;
+				maxLat = lat+1;
+				minLon = lon;
+				maxLon = lon+1;
+			} else {
+				minLat = Math.min(minLat, lat);
+				maxLat = Math.max(maxLat, lat+1);
+				minLon = Math.min(minLon, lon);
+				maxLon = Math.max(maxLon, lon+1);
+			}
 		}
 
 		BBox[] splitLat() {
@@ -185,7 +192,9 @@ public class NOD1Part {
 	// The area that actually has nodes.
 	private final BBox bboxActual = new BBox();
 
-	private List<RouteNode> nodes = new ArrayList<RouteNode>();
+	// the road network and the indexes of the nodes of this part in it
+	private final RouteGraph graph;
+	private IntArrayList nodes = new IntArrayList();
 	private TableA tabA = new TableA();
 	private Map<RouteNode,RouteNode> destNodes = new LinkedHashMap<RouteNode, RouteNode>();
 
@@ -195,8 +204,9 @@ public class NOD1Part {
 	 * All nodes will be accepted by addNode and
 	 * all arcs will be considered internal.
 	 */
-	public NOD1Part() {
+	NOD1Part(RouteGraph graph) {
 		log.info("creating new unbounded NOD1Part");
+		this.graph = graph;
 		this.bbox = null;
 	}
 
@@ -206,8 +216,9 @@ public class NOD1Part {
 	 * The bounding box is used to decide which arcs
 	 * are internal.
 	 */
-	private NOD1Part(BBox bbox) {
+	private NOD1Part(RouteGraph graph, BBox bbox) {
 		log.info("creating new NOD1Part:", bbox);
+		this.graph = graph;
 		this.bbox = bbox;
 	}
 
@@ -218,20 +229,25 @@ public class NOD1Part {
 	 * arc points outside the bbox, we know it's not
 	 * an internal arc. It might still turn into an
 	 * external arc at a deeper level of recursion.
+	 * @param index the index of the node in the graph
 	 */
-	public void addNode(RouteNode node) {
-		assert bbox == null || bbox.contains(node.getCoord())
+	void addNode(int index) {
+		int lat = graph.getLatitude(index);
+		int lon = graph.getLongitude(index);
+		RouteNode node = graph.getNode(index);
+		assert bbox == null || bbox.contains(lat, lon)
 			: "trying to add out-of-bounds node: " + node;
 
-		bboxActual.extend(node.getCoord());
-		nodes.add(node);
+		bboxActual.extend(lat, lon);
+		nodes.add(index);
+		int group = graph.getGroup(index);
 		for (RouteArc arc : node.arcsIteration()) {
 			tabA.addArc(arc);
 			RouteNode dest = arc.getDest();
 			if (arc.isInternal() == false){
 				destNodes.put(dest, dest);
 			}
-			else if (bbox != null && !bbox.contains(dest.getCoord()) || dest.getGroup() != node.getGroup()) {
+			else if (bbox != null && !bbox.contains(dest.getCoord()) || dest.getGroup() != group) {
 				arc.setInternal(false);
 				destNodes.put(dest, dest);
 			}
@@ -247,7 +263,7 @@ public class NOD1Part {
 						RouteNode dest = arc.getDest();
 						if (arc.isInternal() == false)
 							destNodes.put(dest, dest);
-						else if (bbox != null && !bbox.contains(dest.getCoord()) || dest.getGroup() != node.getGroup()) {
+						else if (bbox != null && !bbox.contains(dest.getCoord()) || dest.getGroup() != group) {
 							arc.setInternal(false);
 							destNodes.put(dest, dest);
 						} 
@@ -280,8 +296,8 @@ public class NOD1Part {
 		if(depth > 48) {
 			log.error("Region contains too many nodes/arcs (discarding " + nodes.size() + " nodes to be able to continue)");
 			log.error("  Expect the routing to be broken near " + bbox);
-			for (RouteNode node : nodes)
-				node.discard();
+			for (int i = 0; i < nodes.size(); i++)
+				graph.getNode(nodes.getInt(i)).discard();
 			return centers;
 		}
 
@@ -295,12 +311,15 @@ public class NOD1Part {
 		NOD1Part[] parts = new NOD1Part[2];
 
 		for (int i = 0; i < split.length; i++)
-			parts[i] = new NOD1Part(split[i]);
+			parts[i] = new NOD1Part(graph, split[i]);
 		
 		
-		for (RouteNode node : nodes) {
+		for (int n = 0; n < nodes.size(); n++) {
+			int node = nodes.getInt(n);
+			int lat = graph.getLatitude(node);
+			int lon = graph.getLongitude(node);
 			int i = 0;
-			while (!split[i].contains(node.getCoord()))
+			while (!split[i].contains(lat, lon))
 				i++;
 			parts[i].addNode(node);
 		}
@@ -329,7 +348,10 @@ public class NOD1Part {
 	 * be a legal RouteCenter.
 	 */
 	private RouteCenter toRouteCenter() {
-		Collections.sort(nodes, new Comparator<RouteNode>() {
+		List<RouteNode> centerNodes = new ArrayList<RouteNode>(nodes.size());
+		for (int i = 0; i < nodes.size(); i++)
+			centerNodes.add(graph.getNode(nodes.getInt(i)));
+		Collections.sort(centerNodes, new Comparator<RouteNode>() {
 			public int compare(RouteNode n1, RouteNode n2) {
 				return n1.getCoord().compareTo(n2.getCoord());
 			}
@@ -337,6 +359,6 @@ public class NOD1Part {
 		TableB tabB = new TableB();
 		for (RouteNode rn : destNodes.keySet())
 			tabB.addNode(rn);
-		return new RouteCenter(bboxActual.toArea(), nodes, tabA, tabB);
+		return new RouteCenter(bboxActual.toArea(), centerNodes, tabA, tabB);
 	}
 }
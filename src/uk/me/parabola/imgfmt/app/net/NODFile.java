@@ -56,6 +56,7 @@ public class NODFile extends ImgFile {
 	private List<RouteCenter> centers = new ArrayList<RouteCenter>();
 	private List<RoadDef> roads = new ArrayList<RoadDef>();
 	private List<RouteNode> boundary = new ArrayList<RouteNode>();
+	private boolean parallel;
 
 	public NODFile(ImgChannel chan, boolean write) {
 		setHeader(nodHeader);
@@ -97,6 +98,10 @@ public class NODFile extends ImgFile {
 		Section section = nodHeader.getNodeSection();
 		writer = new SectionWriter(writer, section);
 
+		if (parallel) {
+			// the centers are independent until they are written
+			centers.parallelStream().forEach(RouteCenter::prepare);
+		}
 		int[] classBoundaries = nodHeader.getClassBoundaries();
 		for (RouteCenter cp : centers){
 			cp.write(writer, classBoundaries);
@@ -190,4 +195,11 @@ public class NODFile extends ImgFile {
 	public void setDriveOnLeft(boolean dol) {
 		nodHeader.setDriveOnLeft(dol);
 	}
+
+	/**
+	 * @param parallel true: encode the route centers with multiple threads
+	 */
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
 }
@@ -20,12 +20,13 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.TreeMap;
 
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import uk.me.parabola.imgfmt.app.Coord;
 import uk.me.parabola.imgfmt.app.CoordNode;
 import uk.me.parabola.log.Logger;
@@ -42,7 +43,9 @@ public class RoadNetwork {
 	private static final Logger log = Logger.getLogger(RoadNetwork.class);
 
 	private final static int MAX_RESTRICTIONS_ARCS = 7;
-	private final Map<Integer, RouteNode> nodes = new LinkedHashMap<>();
+	// the nodes in the order of creation and their position in that list by node id
+	private final List<RouteNode> nodes = new ArrayList<>();
+	private final Int2IntOpenHashMap nodeIndex = new Int2IntOpenHashMap();
 
 	// boundary nodes
 	// a node should be in here if the nodes boundary flag is set
@@ -56,6 +59,10 @@ public class RoadNetwork {
 	private int maxFlareLengthRatio ;
 	private boolean reportSimilarArcs;
 
+	public RoadNetwork() {
+		nodeIndex.defaultReturnValue(-1);
+	}
+
 	public void config(EnhancedProperties props) {
 		checkRoundabouts = props.getProperty("check-roundabouts", false);
 		checkRoundaboutFlares = props.getProperty("check-roundabout-flares", false);
@@ -213,16 +220,22 @@ public class RoadNetwork {
 	}
 
 	private RouteNode getOrAddNode(int id, Coord coord) {
-		RouteNode node = nodes.get(id);
+		RouteNode node = getNode(id);
 		if (node == null) {
 			node = new RouteNode(coord);
-			nodes.put(id, node);
+			nodeIndex.put(id, nodes.size());
+			nodes.add(node);
 			if (node.isBoundary())
 				boundary.add(node);
 		}
 		return node;
 	}
 
+	private RouteNode getNode(int id) {
+		int pos = nodeIndex.get(id);
+		return pos < 0 ? null : nodes.get(pos);
+	}
+
 	public List<RoadDef> getRoadDefs() {
 		return roadDefs;
 	}
@@ -233,58 +246,69 @@ public class RoadNetwork {
 	 * The resulting centers must satisfy several constraints,
 	 * documented in NOD1Part.
 	 */
-	private void splitCenters() {
-		if (nodes.isEmpty())
+	private void splitCenters(RouteGraph graph) {
+		if (graph.numNodes() == 0)
 			return;
 		assert centers.isEmpty() : "already subdivided into centers";
 
 		// sort nodes by NodeGroup 
-		List<RouteNode> nodeList = new ArrayList<>(nodes.values());
-		nodes.clear(); // return to GC
-		for (int group = 0; group <= 4; group++){
-			NOD1Part nod1 = new NOD1Part();
-			int n = 0;
-			for (RouteNode node : nodeList) {
-				if (node.getGroup() != group)
-					continue;
+		List<IntArrayList> groups = new ArrayList<>();
+		for (int group = 0; group <= 4; group++)
+			groups.add(new IntArrayList());
+		for (int i = 0; i < graph.numNodes(); i++) {
+			if (graph.getGroup(i) >= 0)
+				groups.get(graph.getGroup(i)).add(i);
+		}
+		for (IntArrayList nodeList : groups){
+			if (nodeList.isEmpty())
+				continue;
+			NOD1Part nod1 = new NOD1Part(graph);
+			for (int i = 0; i < nodeList.size(); i++) {
+				int index = nodeList.getInt(i);
+				RouteNode node = graph.getNode(index);
 				if(!node.isBoundary()) {
 					if(checkRoundabouts)
-						node.checkRoundabouts();
+						node.checkRoundabouts(graph, index);
 					if(checkRoundaboutFlares)
 						node.checkRoundaboutFlares(maxFlareLengthRatio);
 					if(reportSimilarArcs)
 						node.reportSimilarArcs();
 				}
 				
-				nod1.addNode(node);
-				n++;
+				nod1.addNode(index);
 			}
-			if (n > 0)
-				centers.addAll(nod1.subdivide());
+			centers.addAll(nod1.subdivide());
 		}
 	}
 
 	public List<RouteCenter> getCenters() {
 		if (centers.isEmpty()){
 			angleChecker.check(nodes);
-			addArcsToMajorRoads();
-			splitCenters();
+			RouteGraph graph = new RouteGraph(nodes);
+			nodes.clear(); // the graph keeps the nodes from now on
+			nodeIndex.clear();
+			calcGroups(graph);
+			addArcsToMajorRoads(graph);
+			splitCenters(graph);
 		}
 		return centers;
 	}
 
+	/**
+	 * Calculate the class group of all nodes with the compact graph.
+	 */
+	private static void calcGroups(RouteGraph graph) {
+		byte[] groups = graph.calcGroups();
+		for (int i = 0; i < groups.length; i++)
+			graph.getNode(i).setGroup(groups[i]);
+	}
+
 	/**
 	 * add indirect arcs for each road class (in descending order)
 	 */
-	private void addArcsToMajorRoads() {
+	private static void addArcsToMajorRoads(RouteGraph graph) {
 		long t1 = System.currentTimeMillis();
-		
-		for (RoadDef rd: roadDefs){
-			if (rd.skipAddToNOD())
-				continue;
-			if (rd.getRoadClass() >= 1)
-				rd.getNode().addArcsToMajorRoads(rd);
-		}
+		graph.addArcsToMajorRoads();
 		log.info(" added major road arcs in " + (System.currentTimeMillis() - t1) + " ms");
 	}
 
@@ -317,7 +341,7 @@ public class RoadNetwork {
 		
 		List<RouteNode> viaNodes = new ArrayList<>();
 		for (CoordNode via : grr.getViaNodes()){
-			RouteNode vn = nodes.get(via.getId());
+			RouteNode vn = getNode(via.getId());
 			if (vn == null){
 				log.error(sourceDesc, "can't locate 'via' RouteNode with id", via.getId());
 				return 0;
@@ -327,8 +351,8 @@ public class RoadNetwork {
 		
 		int firstViaId = grr.getViaNodes().get(0).getId();
 		int lastViaId = grr.getViaNodes().get(grr.getViaNodes().size()-1).getId();
-		RouteNode firstViaNode = nodes.get(firstViaId);
-		RouteNode lastViaNode = nodes.get(lastViaId);
+		RouteNode firstViaNode = getNode(firstViaId);
+		RouteNode lastViaNode = getNode(lastViaId);
 		List<List<RouteArc>> viaArcsList = new ArrayList<>();
 		if (grr.getViaNodes().size() != grr.getViaWayIds().size() + 1){
 			log.error(sourceDesc, "internal error: number of via nodes and via ways doesn't fit");
@@ -351,7 +375,7 @@ public class RoadNetwork {
 		if (grr.getFromNode() != null){
 			fromId = grr.getFromNode().getId();
 			// polish input data provides id
-			fn = nodes.get(fromId);
+			fn = getNode(fromId);
 			if (fn == null ){
 				log.error(sourceDesc, "can't locate 'from' RouteNode with id", fromId);
 				return 0; 
@@ -385,7 +409,7 @@ public class RoadNetwork {
 		if (grr.getToNode() != null){ 
 			// polish input data provides id
 			toId = grr.getToNode().getId();
-			tn = nodes.get(toId);
+			tn = getNode(toId);
 			if (tn == null ){
 				log.error(sourceDesc, "can't locate 'to' RouteNode with id", toId);
 				return 0; 
@@ -591,7 +615,7 @@ public class RoadNetwork {
 		assert grr.getViaNodes() != null;
 		assert grr.getViaNodes().size() == 1;
 		int viaId = grr.getViaNodes().get(0).getId();
-		RouteNode vn = nodes.get(viaId);
+		RouteNode vn = getNode(viaId);
 		if (vn == null){
 			log.error(grr.getSourceDesc(), "can't locate 'via' RouteNode with id", viaId);
 			return 0;
@@ -618,7 +642,7 @@ public class RoadNetwork {
 	}
 	
 	public void addThroughRoute(int junctionNodeId, long roadIdA, long roadIdB) {
-		RouteNode node = nodes.get(junctionNodeId);
+		RouteNode node = getNode(junctionNodeId);
 		assert node != null :  "Can't find node with id " + junctionNodeId;
 
 		node.addThroughRoute(roadIdA, roadIdB);
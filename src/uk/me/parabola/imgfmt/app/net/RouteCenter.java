@@ -14,10 +14,14 @@
  */
 package uk.me.parabola.imgfmt.app.net;
 
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import uk.me.parabola.imgfmt.Utils;
 import uk.me.parabola.imgfmt.app.Area;
+import uk.me.parabola.imgfmt.app.BufferedImgFileWriter;
 import uk.me.parabola.imgfmt.app.Coord;
 import uk.me.parabola.imgfmt.app.ImgFileWriter;
 import uk.me.parabola.log.Logger;
@@ -40,6 +44,9 @@ public class RouteCenter {
 	private final TableB tabB;
 	private final TableC tabC;
 
+	// the nodes encoded by prepare(), offsets are relative to the start of the center
+	private byte[] encodedNodes;
+
 	public RouteCenter(Area area, List<RouteNode> nodes,
 					   TableA tabA, TableB tabB) {
 
@@ -59,34 +66,43 @@ public class RouteCenter {
 	 * update arcs with table indices; populate tabC
 	 */
 	private void updateOffsets(){
+		Set<RouteNode> nodeSet = new HashSet<>(nodes);
 		for (RouteNode node : nodes) {
 			node.setOffsets(centralPoint);
 			for (RouteArc arc : node.arcsIteration()) {
 				arc.setIndexA(tabA.getIndex(arc));
-				arc.setInternal(nodes.contains(arc.getDest()));
+				arc.setInternal(nodeSet.contains(arc.getDest()));
 				if (!arc.isInternal())
 					arc.setIndexB(tabB.getIndex(arc.getDest()));
 			}
 
 			for (RouteRestriction restr : node.getRestrictions()){
-				if (restr.getArcs().size() >= 3){
-					// only restrictions with more than 2 arcs can contain further arcs 
-					for (RouteArc arc : restr.getArcs()){
-						if (arc.getSource() == node)
-							continue;
-						arc.setIndexA(tabA.getIndex(arc));
-						arc.setInternal(nodes.contains(arc.getDest()));
-						if (!arc.isInternal())
-							arc.setIndexB(tabB.getIndex(arc.getDest()));
-					}
-				}
+				restr.setIndexes(tabA, tabB, nodeSet);
 				restr.setOffsetC(tabC.addRestriction(restr));
 			}
 		}
 		// update size of tabC offsets, now that tabC has been populated
 		tabC.propagateSizeBytes();
 	}
-	
+
+	/**
+	 * Calculate the table indices and encode the nodes with the pointers
+	 * of the internal arcs. Only the data of this center is changed and
+	 * the encoded nodes don't depend on the position of the center in
+	 * NOD 1, so this can run for different centers at the same time.
+	 */
+	public void prepare() {
+		assert !nodes.isEmpty(): "RouteCenter without nodes";
+		updateOffsets();
+		BufferedImgFileWriter buffer = new BufferedImgFileWriter(null);
+		for (RouteNode node : nodes)
+			node.write(buffer);
+		// fill in arc pointers
+		for (RouteNode node : nodes)
+			node.writeSecond(buffer);
+		encodedNodes = Arrays.copyOf(buffer.getBuffer().array(), (int) buffer.getSize());
+	}
+
 	/**
 	 * Write a route center.
 	 *
@@ -94,11 +110,13 @@ public class RouteCenter {
 	 * Space for Table A is reserved but not written. See writeTableA.
 	 */
 	public void write(ImgFileWriter writer, int[] classBoundaries) {
-		assert !nodes.isEmpty(): "RouteCenter without nodes";
-		updateOffsets();
+		if (encodedNodes == null)
+			prepare();
 		int centerPos = writer.position();
+		writer.put(encodedNodes);
+		encodedNodes = null;
 		for (RouteNode node : nodes){
-			node.write(writer);
+			node.moveOffsetNod1(centerPos);
 			int group = node.getGroup();
 			if (group == 0)
 				continue;
@@ -126,9 +144,6 @@ public class RouteCenter {
 			writer.position(pos);
 			log.debug("rewrite taba offset", writer.position(), bo);
 			writer.put1u(bo);
-
-			// fill in arc pointers
-			node.writeSecond(writer);
 		}
 
 		writer.position(tablesOffset);
@@ -0,0 +1,363 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.imgfmt.app.net;
+
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import uk.me.parabola.imgfmt.app.Coord;
+
+/**
+ * The direct arcs of the road network in compressed sparse row format.
+ * The nodes are identified by their position in the node list of the
+ * {@link RoadNetwork}, the arcs of node i are stored at the positions
+ * {@code arcStart[i] .. arcStart[i+1]-1} in the same order as in
+ * {@link RouteNode#getArcs()}.
+ *
+ * The graph is built once when the network is split into route centres
+ * and is used for the passes that walk the network. The RouteArc
+ * objects are still kept, they are needed for the NOD file and for
+ * the indirect arcs that are added to the nodes.
+ */
+class RouteGraph {
+	private static final byte FLAG_FORWARD = 0x01;
+	private static final byte FLAG_ROUNDABOUT = 0x02;
+	private static final byte FLAG_SYNTHESISED = 0x04;
+
+	private final RouteNode[] nodes;
+	/** the coordinates of the nodes in map units */
+	private final int[] nodeLat;
+	private final int[] nodeLon;
+	/** the class group of each node, see {@link #calcGroups()} */
+	private final byte[] nodeGroup;
+
+	/** CSR start index of the arcs of each node */
+	private final int[] arcStart;
+	/** the index of the destination node of each arc */
+	private final int[] arcDest;
+	/** the index of the road of each arc */
+	private final int[] arcRoad;
+	/** the road class of each arc */
+	private final byte[] arcClass;
+	private final byte[] arcFlags;
+	private final RouteArc[] arcs;
+
+	private final RoadDef[] roads;
+	/** the index of the first node of each road */
+	private final int[] roadNode;
+
+	/**
+	 * Create the graph. Only the direct arcs are used.
+	 * @param nodeList the nodes, the ids of their coordinates must be unique
+	 */
+	RouteGraph(List<RouteNode> nodeList) {
+		int numNodes = nodeList.size();
+		nodes = nodeList.toArray(new RouteNode[numNodes]);
+		nodeLat = new int[numNodes];
+		nodeLon = new int[numNodes];
+		nodeGroup = new byte[numNodes];
+		Arrays.fill(nodeGroup, (byte) -1);
+		Int2IntOpenHashMap nodeIndex = new Int2IntOpenHashMap();
+		arcStart = new int[numNodes + 1];
+		for (int i = 0; i < numNodes; i++) {
+			Coord co = nodes[i].getCoord();
+			nodeLat[i] = co.getLatitude();
+			nodeLon[i] = co.getLongitude();
+			nodeIndex.put(co.getId(), i);
+			int n = 0;
+			for (RouteArc arc : nodes[i].getArcs()) {
+				if (arc.isDirect())
+					n++;
+			}
+			arcStart[i + 1] = arcStart[i] + n;
+		}
+		int numArcs = arcStart[numNodes];
+		arcDest = new int[numArcs];
+		arcRoad = new int[numArcs];
+		arcClass = new byte[numArcs];
+		arcFlags = new byte[numArcs];
+		arcs = new RouteArc[numArcs];
+		Map<RoadDef, Integer> roadIndex = new IdentityHashMap<>();
+		List<RoadDef> roadList = new ArrayList<>();
+		IntArrayList roadNodeList = new IntArrayList();
+		int pos = 0;
+		for (int i = 0; i < numNodes; i++) {
+			for (RouteArc arc : nodes[i].getArcs()) {
+				if (!arc.isDirect())
+					continue;
+				RoadDef rd = arc.getRoadDef();
+				Integer known = roadIndex.get(rd);
+				int road;
+				if (known == null) {
+					road = roadList.size();
+					roadIndex.put(rd, road);
+					roadList.add(rd);
+					roadNodeList.add(-1);
+				} else {
+					road = known;
+				}
+				if (rd.getNode() == nodes[i])
+					roadNodeList.set(road, i);
+				arcDest[pos] = nodeIndex.get(arc.getDest().getCoord().getId());
+				arcRoad[pos] = road;
+				arcClass[pos] = (byte) rd.getRoadClass();
+				byte flags = 0;
+				if (arc.isForward())
+					flags |= FLAG_FORWARD;
+				if (rd.isRoundabout())
+					flags |= FLAG_ROUNDABOUT;
+				if (rd.isSynthesised())
+					flags |= FLAG_SYNTHESISED;
+				arcFlags[pos] = flags;
+				arcs[pos] = arc;
+				pos++;
+			}
+		}
+		roads = roadList.toArray(new RoadDef[roadList.size()]);
+		roadNode = roadNodeList.toIntArray();
+	}
+
+	int numNodes() {
+		return nodes.length;
+	}
+
+	RouteNode getNode(int node) {
+		return nodes[node];
+	}
+
+	int getLatitude(int node) {
+		return nodeLat[node];
+	}
+
+	int getLongitude(int node) {
+		return nodeLon[node];
+	}
+
+	int getGroup(int node) {
+		return nodeGroup[node];
+	}
+
+	int firstArc(int node) {
+		return arcStart[node];
+	}
+
+	int endArc(int node) {
+		return arcStart[node + 1];
+	}
+
+	int getDest(int arc) {
+		return arcDest[arc];
+	}
+
+	RouteArc getArc(int arc) {
+		return arcs[arc];
+	}
+
+	boolean isForward(int arc) {
+		return (arcFlags[arc] & FLAG_FORWARD) != 0;
+	}
+
+	boolean isRoundabout(int arc) {
+		return (arcFlags[arc] & FLAG_ROUNDABOUT) != 0;
+	}
+
+	boolean isSynthesised(int arc) {
+		return (arcFlags[arc] & FLAG_SYNTHESISED) != 0;
+	}
+
+	/**
+	 * Calculate the class group of all nodes with the rules described in
+	 * {@link RouteNode#getGroup()}.
+	 * @return the group of each node
+	 */
+	byte[] calcGroups() {
+		int[] classes = new int[5];
+		for (int node = 0; node < nodeGroup.length; node++) {
+			Arrays.fill(classes, 0);
+			int start = arcStart[node];
+			int end = arcStart[node + 1];
+			int numClasses = 0;
+			int group = -1;
+			int maxClass = 0;
+			for (int a = start; a < end; a++) {
+				// count each road only once
+				boolean seen = false;
+				for (int b = start; b < a; b++) {
+					if (arcRoad[b] == arcRoad[a]) {
+						seen = true;
+						break;
+					}
+				}
+				if (seen)
+					continue;
+				int cl = arcClass[a];
+				maxClass = Math.max(maxClass, cl);
+				int n = ++classes[cl];
+				if (n == 1)
+					numClasses++;
+				else if (cl > group)
+					group = cl;
+			}
+			if (group < 0) {
+				if (numClasses == 1)
+					group = maxClass;
+				else {
+					// the second highest class
+					int n = 0;
+					for (int cl = 4; cl >= 0; cl--) {
+						if (classes[cl] > 0) {
+							if (n == 1) {
+								group = cl;
+								break;
+							}
+							n++;
+						}
+					}
+				}
+			}
+			nodeGroup[node] = (byte) group;
+		}
+		return nodeGroup;
+	}
+
+	/**
+	 * Add the indirect arcs to major roads for all roads with a road
+	 * class of 1 or higher, see {@link #addArcsToMajorRoads(int)}.
+	 * The groups must have been calculated.
+	 */
+	void addArcsToMajorRoads() {
+		for (int road = 0; road < roads.length; road++) {
+			RoadDef rd = roads[road];
+			if (rd.skipAddToNOD() || rd.getRoadClass() < 1 || roadNode[road] < 0)
+				continue;
+			addArcsToMajorRoads(road);
+		}
+	}
+
+	/**
+	 * For each arc on the road, check if we can add indirect arcs to
+	 * other nodes of the same road. This is done if the other node
+	 * lies on a different road with a higher road class than the
+	 * highest other road of the target node of the arc. We do this
+	 * for both forward and reverse arcs. Multiple indirect arcs
+	 * may be added for each Node. An indirect arc will
+	 * always point to a higher road than the previous arc.
+	 * The length and direct bearing of the additional arc is measured
+	 * from the target node of the preceding arc to the new target node.
+	 * The initial bearing doesn't really matter as it is not written
+	 * for indirect arcs.
+	 * @param road the index of the road
+	 */
+	private void addArcsToMajorRoads(int road) {
+		RoadDef rd = roads[road];
+		// the nodes of this road
+		IntArrayList roadNodes = new IntArrayList();
+		// the forward and reverse arcs between them
+		IntArrayList forwardArcs = new IntArrayList();
+		IntArrayList reverseArcs = new IntArrayList();
+
+		// collect the nodes of the road and remember the arcs between them
+		int current = roadNode[road];
+		roadNodes.add(current);
+		while (current >= 0) {
+			int next = -1;
+			for (int a = arcStart[current]; a < arcStart[current + 1]; a++) {
+				if (arcRoad[a] != road)
+					continue;
+				if (isForward(a)) {
+					next = arcDest[a];
+					roadNodes.add(next);
+					forwardArcs.add(a);
+				} else {
+					reverseArcs.add(a);
+				}
+			}
+			current = next;
+		}
+		if (roadNodes.size() < 3)
+			return;
+
+		int finalClass = rd.getRoadClass();
+		List<RouteArc> newArcs = new ArrayList<>();
+		IntArrayList roadArcs = forwardArcs;
+		for (int dir = 0; dir < 2; dir++) {
+			// forward arcs first
+			for (int i = 0; i + 2 < roadNodes.size(); i++) {
+				int sourceNode = roadNodes.getInt(i); // original source node of direct arc
+				int directArc = roadArcs.getInt(i);
+				assert arcDest[directArc] == roadNodes.getInt(i + 1);
+				int currentClass = Math.min(arcClass[directArc], nodeGroup[arcDest[directArc]]);
+				if (finalClass <= currentClass)
+					continue;
+				newArcs.clear();
+				double partialArcLength = 0;
+				double pathLength = arcs[directArc].getLengthInMeter();
+				for (int j = i + 2; j < roadNodes.size(); j++) {
+					float length = arcs[roadArcs.getInt(j - 1)].getLengthInMeter();
+					partialArcLength += length;
+					pathLength += length;
+					int destNode = roadNodes.getInt(j);
+					int cl = nodeGroup[destNode];
+					if (cl > currentClass) {
+						if (cl > finalClass)
+							cl = finalClass;
+						currentClass = cl;
+						// create indirect arc from node i to node j
+						Coord c1 = nodes[sourceNode].getCoord();
+						Coord c2 = nodes[destNode].getCoord();
+						RouteArc newArc = new RouteArc(rd,
+								nodes[sourceNode],
+								nodes[destNode],
+								arcs[directArc].getInitialHeading(), // not used
+								c1.bearingTo(c2),
+								partialArcLength, // from stepNode to destNode on road
+								pathLength, // from sourceNode to destNode on road
+								c1.distance(c2),
+								c1.hashCode() + c2.hashCode());
+						if (newArcs.isEmpty())
+							arcs[directArc].setMaxDestClass(0);
+						else
+							newArc.setMaxDestClass(cl);
+						if (dir == 0)
+							newArc.setForward();
+						newArc.setIndirect();
+						newArcs.add(newArc);
+
+						partialArcLength = 0;
+						if (cl >= finalClass)
+							break;
+					}
+				}
+				if (!newArcs.isEmpty())
+					nodes[sourceNode].addArcsAfter(arcs[directArc], newArcs);
+			}
+			if (dir > 0)
+				break;
+			// the reverse arcs in the other direction
+			roadNodes = reverse(roadNodes);
+			roadArcs = reverse(reverseArcs);
+		}
+	}
+
+	private static IntArrayList reverse(IntArrayList list) {
+		IntArrayList reversed = new IntArrayList(list.size());
+		for (int i = list.size() - 1; i >= 0; i--)
+			reversed.add(list.getInt(i));
+		return reversed;
+	}
+}
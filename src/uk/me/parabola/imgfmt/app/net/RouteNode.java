@@ -57,8 +57,8 @@ public class RouteNode implements Comparable<RouteNode> {
 
 	// arcs from this node
 	private final List<RouteArc> arcs = new ArrayList<>(4);
-	// restrictions at (via) this node
-	private final List<RouteRestriction> restrictions = new ArrayList<>();
+	// restrictions at (via) this node, most nodes have none
+	private List<RouteRestriction> restrictions = Collections.emptyList();
 
 	private int flags;
 
@@ -105,6 +105,8 @@ public class RouteNode implements Comparable<RouteNode> {
 	}
 
 	public void addRestriction(RouteRestriction restr) {
+		if (restrictions.isEmpty())
+			restrictions = new ArrayList<>(2);
 		restrictions.add(restr);
 		flags |= F_RESTRICTIONS;
 	}
@@ -274,6 +276,16 @@ public class RouteNode implements Comparable<RouteNode> {
 		return offsetNod1;
 	}
 
+	/**
+	 * Used when the node was written to a buffer which is then copied
+	 * into NOD 1.
+	 * @param start the position of the buffer in NOD 1
+	 */
+	void moveOffsetNod1(int start) {
+		offsetNod1 += start;
+		assert offsetNod1 < 0x1000000 : "node offset doesn't fit in 3 bytes";
+	}
+
 	public void setOffsets(Coord centralPoint) {
 		if(log.isDebugEnabled())
 			log.debug("center", centralPoint, ", coord", coord.toDegreeString());
@@ -346,22 +358,25 @@ public class RouteNode implements Comparable<RouteNode> {
 		return coord.compareTo(otherNode.getCoord());
 	}
 
-	public void checkRoundabouts() {
+	/**
+	 * Check the roundabout at this node and log the problems found.
+	 * @param graph the road network
+	 * @param index the index of this node in the graph
+	 */
+	void checkRoundabouts(RouteGraph graph, int index) {
+		assert graph.getNode(index) == this;
 		List<RouteArc> roundaboutArcs = new ArrayList<>();
 		List<RouteArc> nonRoundaboutArcs = new ArrayList<>();
 		int countNonRoundaboutRoads = 0;
 		int countNonRoundaboutOtherHighways = 0;
 		int countHighwaysInsideRoundabout = 0;
-		for(RouteArc ra : arcs) {
-			if (ra.isDirect()) {
-				// ignore ways that have been synthesised by mkgmap
-				RoadDef rd = ra.getRoadDef();
-				if (!rd.isSynthesised()) {
-					if (rd.isRoundabout())
-						roundaboutArcs.add(ra);
-					else
-						nonRoundaboutArcs.add(ra);
-				}
+		for (int a = graph.firstArc(index); a < graph.endArc(index); a++) {
+			// ignore ways that have been synthesised by mkgmap
+			if (!graph.isSynthesised(a)) {
+				if (graph.isRoundabout(a))
+					roundaboutArcs.add(graph.getArc(a));
+				else
+					nonRoundaboutArcs.add(graph.getArc(a));
 			}
 		}
 		if (roundaboutArcs.size() > 0) {
@@ -370,38 +385,37 @@ public class RouteNode implements Comparable<RouteNode> {
 			int maxRoundaboutLat = minRoundaboutLat;
 			int minRoundaboutLon = coord.getHighPrecLon();
 			int maxRoundaboutLon = minRoundaboutLon;
-			List<RouteNode> processedNodes = new ArrayList<>();
-			processedNodes.add(this);
-			for (RouteArc ra : roundaboutArcs) {
-				if (ra.isForward()) {
-					for (RouteArc ra1 : nonRoundaboutArcs) {
-						if ((ra1.getDirectHeading() == ra.getDirectHeading()) && (ra1.getInitialHeading() == ra.getInitialHeading()) && (ra1.getFinalHeading() == ra.getFinalHeading()) && (ra1.getLengthInMeter() == ra.getLengthInMeter())) {
-							// non roundabout highway overlaps roundabout
-							nonRoundaboutArcs.remove(ra1);
-							if(!ra.getRoadDef().messagePreviouslyIssued("roundabout forks/overlaps"))
-								log.warn("Highway",ra1.getRoadDef(), "overlaps roundabout", ra.getRoadDef(), "at",coord.toOSMURL());
-							break;
-						}						
+			IntArrayList processedNodes = new IntArrayList();
+			processedNodes.add(index);
+			for (int a = graph.firstArc(index); a < graph.endArc(index); a++) {
+				if (graph.isSynthesised(a) || !graph.isRoundabout(a) || !graph.isForward(a))
+					continue;
+				RouteArc ra = graph.getArc(a);
+				for (RouteArc ra1 : nonRoundaboutArcs) {
+					if ((ra1.getDirectHeading() == ra.getDirectHeading()) && (ra1.getInitialHeading() == ra.getInitialHeading()) && (ra1.getFinalHeading() == ra.getFinalHeading()) && (ra1.getLengthInMeter() == ra.getLengthInMeter())) {
+						// non roundabout highway overlaps roundabout
+						nonRoundaboutArcs.remove(ra1);
+						if(!ra.getRoadDef().messagePreviouslyIssued("roundabout forks/overlaps"))
+							log.warn("Highway",ra1.getRoadDef(), "overlaps roundabout", ra.getRoadDef(), "at",coord.toOSMURL());
+						break;
 					}
-					RouteNode rn = ra.getDest();
-					while (rn != null && !processedNodes.contains(rn)) {
-						processedNodes.add(rn);
-						int lat = rn.coord.getHighPrecLat();
-						int lon = rn.coord.getHighPrecLon();
-						minRoundaboutLat = Math.min(minRoundaboutLat, lat);
-						maxRoundaboutLat = Math.max(maxRoundaboutLat, lat);
-						minRoundaboutLon = Math.min(minRoundaboutLon, lon);
-						maxRoundaboutLon = Math.max(maxRoundaboutLon, lon);
-						RouteNode nrn = null;
-						for (RouteArc nra : rn.arcs) {
-							if (nra.isDirect() && nra.isForward()) {
-								RoadDef nrd = nra.getRoadDef();
-								if (nrd.isRoundabout() && !nrd.isSynthesised())
-									nrn = nra.getDest();
-							}
-						}
-						rn = nrn;
+				}
+				int rn = graph.getDest(a);
+				while (rn >= 0 && !processedNodes.contains(rn)) {
+					processedNodes.add(rn);
+					Coord co = graph.getNode(rn).coord;
+					int lat = co.getHighPrecLat();
+					int lon = co.getHighPrecLon();
+					minRoundaboutLat = Math.min(minRoundaboutLat, lat);
+					maxRoundaboutLat = Math.max(maxRoundaboutLat, lat);
+					minRoundaboutLon = Math.min(minRoundaboutLon, lon);
+					maxRoundaboutLon = Math.max(maxRoundaboutLon, lon);
+					int nrn = -1;
+					for (int na = graph.firstArc(rn); na < graph.endArc(rn); na++) {
+						if (graph.isForward(na) && graph.isRoundabout(na) && !graph.isSynthesised(na))
+							nrn = graph.getDest(na);
 					}
+					rn = nrn;
 				}
 			}
 			if (nonRoundaboutArcs.size() > 1) {
@@ -416,8 +430,8 @@ public class RouteNode implements Comparable<RouteNode> {
 						// check whether the way is inside the roundabout by seeing if the next point is nearer to the centre of the bounding box than this
 						RouteNode nextNode = ra.getSource().coord == coord ? ra.getDest() : ra.getSource();
 						Coord nextCoord = nextNode.coord;
-						for (RouteNode roundaboutNode : processedNodes) {
-							if (roundaboutNode.coord.equals(nextCoord)) {
+						for (int i = 0; i < processedNodes.size(); i++) {
+							if (graph.getNode(processedNodes.getInt(i)).coord.equals(nextCoord)) {
 								// arc rejoins roundabout, so calculate another point to use half the distance away at the initial bearing
 								double heading1 = ra.getSource().coord == coord ? ra.getInitialHeading() : 180 + ra.getFinalHeading();
 								double distance = coord.distance(nextCoord) / 2;
@@ -729,136 +743,15 @@ public class RouteNode implements Comparable<RouteNode> {
 	}
 
 	/**
-	 * For each arc on the road, check if we can add indirect arcs to 
-	 * other nodes of the same road. This is done if the other node
-	 * lies on a different road with a higher road class than the
-	 * highest other road of the target node of the arc. We do this
-	 * for both forward and reverse arcs. Multiple indirect arcs
-	 * may be added for each Node. An indirect arc will 
-	 * always point to a higher road than the previous arc.
-	 * The length and direct bearing of the additional arc is measured 
-	 * from the target node of the preceding arc to the new target node.
-	 * The initial bearing doesn't really matter as it is not written
-	 * for indirect arcs.  
-	 * @param road
+	 * Insert the indirect arcs directly after the given direct arc.
+	 * @param directArc a direct arc of this node
+	 * @param newArcs the indirect arcs on the same road
 	 */
-	public void addArcsToMajorRoads(RoadDef road){
-		assert road.getNode() == this;
-		RouteNode current = this;
-		// the nodes of this road
-		List<RouteNode> nodes = new ArrayList<>();
-		// the forward arcs of this road
-		List<RouteArc> forwardArcs = new ArrayList<>();
-		// will contain the highest other road of each node 
-		IntArrayList forwardArcPositions = new IntArrayList();
-		List<RouteArc> reverseArcs = new ArrayList<>();
-		IntArrayList reverseArcPositions = new IntArrayList();
-
-		// collect the nodes of the road and remember the arcs between them
-		nodes.add(current);
-		while (current != null){
-			RouteNode next = null;
-			for (int i = 0; i < current.arcs.size(); i++){
-				RouteArc arc = current.arcs.get(i);
-				if (arc.getRoadDef() == road){
-					if (arc.isDirect()){
-						if (arc.isForward()){
-							next = arc.getDest();
-							nodes.add(next);
-							forwardArcs.add(arc);
-							forwardArcPositions.add(i);
-						} else {
-							reverseArcPositions.add(i);
-							reverseArcs.add(arc);
-						}
-					}
-				} 
-			}
-			current = next;
-		}
-		
-		if (nodes.size() < 3)
-			return;
-//		System.out.println(road + " " + nodes.size() + " " + forwardArcs.size());
-		ArrayList<RouteArc> newArcs = new ArrayList<>(); 
-		IntArrayList arcPositions = forwardArcPositions;
-		List<RouteArc> roadArcs = forwardArcs;
-		for (int dir = 0; dir < 2; dir++){
-			// forward arcs first
-			for (int i = 0; i + 2 < nodes.size(); i++){
-				RouteNode sourceNode = nodes.get(i); // original source node of direct arc
-				RouteNode stepNode = nodes.get(i+1); 
-				RouteArc arcToStepNode = roadArcs.get(i);
-				assert arcToStepNode.getDest() == stepNode;
-				int currentClass = arcToStepNode.getArcDestClass();
-				int finalClass = road.getRoadClass();
-				if (finalClass <= currentClass)
-					continue;
-				newArcs.clear();
-				double partialArcLength = 0;
-				double pathLength = arcToStepNode.getLengthInMeter();
-				for (int j = i+2; j < nodes.size(); j++){
-					RouteArc arcToDest = roadArcs.get(j-1);
-					partialArcLength += arcToDest.getLengthInMeter();
-					pathLength += arcToDest.getLengthInMeter();
-					int cl = nodes.get(j).getGroup();
-					if (cl > currentClass){
-						if (cl > finalClass)
-							cl = finalClass;
-						currentClass = cl;
-						// create indirect arc from node i+1 to node j
-						RouteNode destNode = nodes.get(j);
-						Coord c1 = sourceNode.getCoord();
-						Coord c2 = destNode.getCoord();
-						RouteArc newArc = new RouteArc(road, 
-								sourceNode, 
-								destNode, 
-								roadArcs.get(i).getInitialHeading(), // not used
-								c1.bearingTo(c2),
-								partialArcLength, // from stepNode to destNode on road
-								pathLength, // from sourceNode to destNode on road
-								c1.distance(c2), 
-								c1.hashCode() + c2.hashCode());
-						if (arcToStepNode.isDirect())
-							arcToStepNode.setMaxDestClass(0);
-						else 
-							newArc.setMaxDestClass(cl);
-						if (dir == 0)
-							newArc.setForward();
-						newArc.setIndirect();
-						newArcs.add(newArc);
-						arcToStepNode = newArc;
-						stepNode = destNode;
-						
-						partialArcLength = 0;
-						if (cl >= finalClass)
-							break;
-					}
-				}
-				if (newArcs.isEmpty() == false){
-					int directArcPos =  arcPositions.getInt(i);
-					assert nodes.get(i).arcs.get(directArcPos).isDirect();
-					assert nodes.get(i).arcs.get(directArcPos).getRoadDef() == newArcs.get(0).getRoadDef();
-					assert nodes.get(i).arcs.get(directArcPos).isForward() == newArcs.get(0).isForward();
-					nodes.get(i).arcs.addAll(directArcPos + 1, newArcs);
-					if (dir == 0 && i > 0){
-						// check if the inserted arcs change the position of the direct reverse arc
-						int reverseArcPos = reverseArcPositions.get(i-1); // i-1 because first node doesn't have reverse arc 
-						if (directArcPos < reverseArcPos)
-							reverseArcPositions.set(i - 1, reverseArcPos + newArcs.size());
-							
-					}
-				}
-			}
-			if (dir > 0)
-				break;
-			// reverse the arrays for the other direction
-			Collections.reverse(reverseArcs);
-			Collections.reverse(reverseArcPositions);
-			Collections.reverse(nodes);
-			arcPositions = reverseArcPositions;
-			roadArcs = reverseArcs;
-		}
+	void addArcsAfter(RouteArc directArc, List<RouteArc> newArcs) {
+		int pos = 0;
+		while (arcs.get(pos) != directArc)
+			pos++;
+		arcs.addAll(pos + 1, newArcs);
 	}
 
 	/**
@@ -907,6 +800,14 @@ public class RouteNode implements Comparable<RouteNode> {
 		return nodeGroup;
 	}
 
+	/**
+	 * Set the class group, see {@link RouteGraph#calcGroups()}.
+	 * @param group the group
+	 */
+	void setGroup(byte group) {
+		nodeGroup = group;
+	}
+
 	public List<RouteArc> getArcs() {
 		return arcs;
 	}
@@ -17,6 +17,7 @@ package uk.me.parabola.imgfmt.app.net;
 import java.util.ArrayList;
 
 import java.util.List;
+import java.util.Set;
 
 import uk.me.parabola.imgfmt.app.ImgFileWriter;
 import static uk.me.parabola.imgfmt.app.net.AccessTagsAndBits.*;
@@ -52,6 +53,10 @@ public class RouteRestriction {
 	private final List<RouteArc> arcs;
 
 	private final RouteNode viaNode; 
+	// the Table A index of each arc
+	private int[] indexA;
+	// the Table B index of the destination of each arc or -1 for internal arcs
+	private int[] indexB;
 	// offset in Table C
 	private int offsetSize;
 	private int offsetC;
@@ -138,6 +143,24 @@ public class RouteRestriction {
 	public List<RouteArc> getArcs(){
 		return arcs;
 	}
+
+	/**
+	 * Calculate the table indexes of the arcs in the route center of the
+	 * via node. The arcs are not changed because arcs which don't start
+	 * at the via node belong to other nodes, maybe in other centers.
+	 * @param tabA Table A of the center
+	 * @param tabB Table B of the center
+	 * @param centerNodes the nodes of the center
+	 */
+	void setIndexes(TableA tabA, TableB tabB, Set<RouteNode> centerNodes) {
+		indexA = new int[arcs.size()];
+		indexB = new int[arcs.size()];
+		for (int i = 0; i < arcs.size(); i++) {
+			RouteArc arc = arcs.get(i);
+			indexA[i] = tabA.getIndex(arc);
+			indexB[i] = centerNodes.contains(arc.getDest()) ? -1 : tabB.getIndex(arc.getDest());
+		}
+	}
 	
 	/**
 	 * Writes a Table C entry with 3 or more nodes.
@@ -166,10 +189,10 @@ public class RouteRestriction {
 			// if there only two arcs, both will have the via node as source node.
 			// For more n via nodes, the order is like this: 
 			// from <- via(1) <- via(2) <- ... <- this via node -> via( n-1) -> via(n) -> to
-			if (arc.isInternal())
+			if (indexB[i] < 0)
 				offsets[pos++] = calcOffset(arc.getDest(), tableOffset);
 			else 
-				offsets[pos++] = arc.getIndexB();
+				offsets[pos++] = indexB[i];
 			if (arc.getSource() == viaNode){
 				// there will be two nodes with source node = viaNode, but we write the source only once
 				if (!viaWritten){
@@ -182,8 +205,8 @@ public class RouteRestriction {
 		for (int offset : offsets)
 			writer.put2u(offset);
 
-		for (RouteArc arc: arcs)
-			writer.put1u(arc.getIndexA());
+		for (int index : indexA)
+			writer.put1u(index);
 	}
 
 	/**
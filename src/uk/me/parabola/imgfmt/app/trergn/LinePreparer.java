@@ -70,87 +70,167 @@ public class LinePreparer {
 	/**
 	 * Write the bit stream to a BitWriter and return it.
 	 * Try different values for xBase and yBase to find the one
-	 * that results in the shortest bit stream.
+	 * that results in the shortest bit stream. The length of the
+	 * bit stream is calculated for each tried value, only the 
+	 * best one is written. 
 	 * 
 	 * @return A class containing the written byte stream.
 	 */
 	public BitWriter makeShortestBitStream(int minPointsRequired) {
-		BitWriter bsSimple = makeBitStream(minPointsRequired, xBase, yBase);
-		if (bsSimple == null)
-			return bsSimple;
-		BitWriter bsBest = bsSimple; 
+		// collect the deltas which are written
+		int[] dxs = new int[deltas.length / 2];
+		int[] dys = new int[deltas.length / 2];
+		int n = 0;
+		for (int i = 0; i < deltas.length; i += 2) {
+			if (isSkipped(i))
+				continue;
+			dxs[n] = Math.abs(deltas[i]);
+			dys[n] = Math.abs(deltas[i + 1]);
+			n++;
+		}
+		if (n + 1 < minPointsRequired)
+			return null;
+
+		int pointBits = extraBit ? n : 0;
+		long xSimpleBits = deltaBits(dxs, n, xBase, xSameSign);
+		long ySimpleBits = deltaBits(dys, n, yBase, ySameSign);
+		long simpleBits = headerBits(xSameSign, ySameSign) + xSimpleBits + ySimpleBits + pointBits;
+		long bestBits = simpleBits;
 		int xBestBase = xBase;
 		int yBestBase = yBase;
+		boolean xBestSameSign = xSameSign;
+		boolean yBestSameSign = ySameSign;
 		if (xBase > 0 ||  yBase > 0){
 			if (log.isDebugEnabled())
 				log.debug("start opt:", xBase, yBase, xSameSign, xSignNegative, ySameSign, ySignNegative);
 		}
 		if (xBase > 0){
 			int notBetter = 0;
-			boolean xSameSignBak = xSameSign;
-			xSameSign = false;
 			for (int xTestBase = xBase-1; xTestBase >= 0; xTestBase--){
-				BitWriter bstest = makeBitStream(minPointsRequired, xTestBase, yBase);
-//				System.out.println(xBase + " "  + xTestBase + " -> " + bsBest.getBitPosition() + " " + bstest.getBitPosition());
-				if (bstest.getBitPosition() >= bsBest.getBitPosition() ){
+				long bits = headerBits(false, ySameSign) + deltaBits(dxs, n, xTestBase, false) + ySimpleBits + pointBits;
+				if (bits >= bestBits){
 					if (++notBetter >= 2)
 						break; // give up
 				} else {
 					xBestBase = xTestBase;
-					bsBest = bstest;
-					xSameSignBak = false;
+					bestBits = bits;
+					xBestSameSign = false;
 				}
 			}
-			xSameSign = xSameSignBak;
 		}
 		if (yBase > 0){
 			int notBetter = 0;
-			boolean ySameSignBak = ySameSign;
-			ySameSign = false;
+			long xBestBits = deltaBits(dxs, n, xBestBase, xBestSameSign);
 			for (int yTestBase = yBase-1; yTestBase >= 0; yTestBase--){
-				BitWriter bstest = makeBitStream(minPointsRequired, xBestBase, yTestBase);
-//				System.out.println(yBase + " "  + yTestBase + " -> " + bsBest.getBitPosition() + " " + bstest.getBitPosition());
-				if (bstest.getBitPosition() >= bsBest.getBitPosition()){
+				long bits = headerBits(xBestSameSign, false) + xBestBits + deltaBits(dys, n, yTestBase, false) + pointBits;
+				if (bits >= bestBits){
 					if (++notBetter >= 2)
 						break; // give up
 				} else {
 					yBestBase = yTestBase;
-					bsBest = bstest;
-					ySameSignBak = false;
+					bestBits = bits;
+					yBestSameSign = false;
 				}
 			}
-			ySameSign = ySameSignBak;
 		}
+		long simpleLength = (simpleBits + 7) / 8;
+		long bestLength = (bestBits + 7) / 8;
 		if (xBase != xBestBase || yBestBase != yBase){
 			if (log.isInfoEnabled()){
-				if (bsSimple.getLength() > bsBest.getLength())
-					log.info("optimizer reduced bit stream byte length from",bsSimple.getLength(),"->",bsBest.getLength(),"(" + (bsSimple.getLength()-bsBest.getLength()), " byte(s)) for",polyline.getClass().getSimpleName(),"with",polyline.getPoints().size(),"points");
+				if (simpleLength > bestLength)
+					log.info("optimizer reduced bit stream byte length from",simpleLength,"->",bestLength,"(" + (simpleLength-bestLength), " byte(s)) for",polyline.getClass().getSimpleName(),"with",polyline.getPoints().size(),"points");
 				else 
-					log.info("optimizer only reduced bit stream bit length from",bsSimple.getBitPosition(),"->",bsBest.getBitPosition(),"bits for",polyline.getClass().getSimpleName(),"with",polyline.getPoints().size(),"points, using original bit stream");
+					log.info("optimizer only reduced bit stream bit length from",simpleBits,"->",bestBits,"bits for",polyline.getClass().getSimpleName(),"with",polyline.getPoints().size(),"points, using original bit stream");
 			}
 		}
-		if (bsSimple.getLength() == bsBest.getLength()){
+		if (simpleLength == bestLength){
 			// if the (byte) length was not improved, 
 			// prefer the bit stream that doesn't need the special "trick"
 			// to encode large values, it is assumed that this can safe a  
 			// few CPU cycles when reading the map
-			return bsSimple;
+			return makeBitStream(xBase, yBase, xSameSign, ySameSign);
 		}
-		return bsBest;
+		BitWriter bw = makeBitStream(xBestBase, yBestBase, xBestSameSign, yBestSameSign);
+		assert bw.getBitPosition() == bestBits;
+		return bw;
+	}
+
+	/**
+	 * Calculate the number of bits that are written before the deltas.
+	 */
+	private int headerBits(boolean xSame, boolean ySame) {
+		int bits = 4 + 4 + 1 + 1;
+		if (xSame)
+			bits++;
+		if (ySame)
+			bits++;
+		if (extTypeLine)
+			bits++;
+		if (extraBit)
+			bits++;
+		return bits;
+	}
+
+	/**
+	 * Calculate the number of bits that are needed to write the deltas of
+	 * one coordinate.
+	 * @param absDeltas the absolute values of the deltas 
+	 * @param n the number of deltas 
+	 * @param base the base
+	 * @param sameSign true if all deltas have the same sign, so that no
+	 * sign bit is written 
+	 * @return the number of bits
+	 */
+	private static long deltaBits(int[] absDeltas, int n, int base, boolean sameSign) {
+		int nb = base2Bits(base);
+		if (sameSign)
+			return (long) n * nb;
+		nb++;
+		// values that don't fit are written with one or more extra words, see BitWriter.sputn()
+		int mask = (1 << (nb - 1)) - 1;
+		long words = n;
+		for (int i = 0; i < n; i++) {
+			int val = absDeltas[i];
+			if (val > mask)
+				words += (val - 1) / mask;
+		}
+		return words * nb;
+	}
+
+	/**
+	 * Check if the delta at position i in {@link #deltas} is not written.
+	 */
+	private boolean isSkipped(int i) {
+		// don't skip CoordNode
+		return deltas[i] == 0 && deltas[i + 1] == 0 && extraBit && !nodes[i / 2 + 1] && i + 2 != deltas.length;
 	}
+
 	/**
 	 * Write the bit stream to a BitWriter and return it.
 	 *
 	 * @return A class containing the written byte stream.
 	 */
 	public BitWriter makeBitStream(int minPointsRequired, int xb, int yb) {
+		BitWriter bw = makeBitStream(xb, yb, xSameSign, ySameSign);
+		int numPointsEncoded = 1;
+		for (int i = 0; i < deltas.length; i += 2) {
+			if (!isSkipped(i))
+				++numPointsEncoded;
+		}
+		if(numPointsEncoded < minPointsRequired)
+			return null;
+
+		return bw;
+	}
+
+	private BitWriter makeBitStream(int xb, int yb, boolean xSame, boolean ySame) {
 		assert xb >= 0 && yb >= 0;
 		
 		int xbits = base2Bits(xb);
-		if (!xSameSign)
+		if (!xSame)
 			xbits++;
 		int ybits = base2Bits(yb);
-		if (!ySameSign)
+		if (!ySame)
 			ybits++;
 
 			
@@ -165,17 +245,17 @@ public class LinePreparer {
 		bw.putn(xb, 4);
 		bw.putn(yb, 4);
 
-		bw.put1(xSameSign);
-		if (xSameSign)
+		bw.put1(xSame);
+		if (xSame)
 			bw.put1(xSignNegative);
 
-		bw.put1(ySameSign);
-		if (ySameSign)
+		bw.put1(ySame);
+		if (ySame)
 			bw.put1(ySignNegative);
 
 		if (log.isDebugEnabled()) {
-			log.debug("x same is", xSameSign, "sign is", xSignNegative);
-			log.debug("y same is", ySameSign, "sign is", ySignNegative);
+			log.debug("x same is", xSame, "sign is", xSignNegative);
+			log.debug("y same is", ySame, "sign is", ySignNegative);
 		}
 
 		if(extTypeLine) {
@@ -187,19 +267,15 @@ public class LinePreparer {
 		if (extraBit)
 			bw.put1(false);
 
-		int numPointsEncoded = 1;
 		for (int i = 0; i < deltas.length; i+=2) {
+			if (isSkipped(i))
+				continue;
 			int dx = deltas[i];
 			int dy = deltas[i + 1];
-			if (dx == 0 && dy == 0){
-				if (extraBit && nodes[i/2+1] == false && i+2 != deltas.length) // don't skip CoordNode
-					continue;
-			}
-			++numPointsEncoded;
 
 			if (log.isDebugEnabled())
 				log.debug("x delta", dx, "~", xbits);
-			if (xSameSign) {
+			if (xSame) {
 				bw.putn(Math.abs(dx), xbits);
 			} else {
 				bw.sputn(dx, xbits);
@@ -207,7 +283,7 @@ public class LinePreparer {
 
 			if (log.isDebugEnabled())
 				log.debug("y delta", dy, ybits);
-			if (ySameSign) {
+			if (ySame) {
 				bw.putn(Math.abs(dy), ybits);
 			} else {
 				bw.sputn(dy, ybits);
@@ -219,9 +295,6 @@ public class LinePreparer {
 		if (log.isDebugEnabled())
 			log.debug(bw);
 
-		if(numPointsEncoded < minPointsRequired)
-			return null;
-
 		return bw;
 	}
 
@@ -24,8 +24,8 @@ import uk.me.parabola.mkgmap.general.MapPoint;
 import uk.me.parabola.mkgmap.osmstyle.NameFinder;
 import uk.me.parabola.mkgmap.reader.osm.TagDict;
 import uk.me.parabola.mkgmap.reader.osm.Tags;
+import uk.me.parabola.util.ArrayKdTree;
 import uk.me.parabola.util.EnhancedProperties;
-import uk.me.parabola.util.KdTree;
 import uk.me.parabola.util.MultiHashMap;
 
 public class Locator {
@@ -34,7 +34,10 @@ public class Locator {
     /** hash map to collect equally named MapPoints*/ 
 	private final MultiHashMap<String, MapPoint> cityMap = new MultiHashMap<String, MapPoint>();
 	
-	private final KdTree<MapPoint> cityFinder = new KdTree<>();
+	/** the cities for the cityFinder */
+	private final List<MapPoint> cityPoints = new ArrayList<>();
+	/** the kd-tree for the cities, created when it is needed after cities were added */
+	private ArrayKdTree<MapPoint> cityFinder;
 	private final List<MapPoint> placesMap  =  new ArrayList<MapPoint>();
 
 	private final NameFinder nameFinder;
@@ -250,7 +253,13 @@ public class Locator {
 	
 	public MapPoint findNextPoint(MapPoint p)
 	{
-		return cityFinder.findNextPoint(p);
+		return getCityFinder().findNextPoint(p);
+	}
+	
+	private ArrayKdTree<MapPoint> getCityFinder() {
+		if (cityFinder == null)
+			cityFinder = new ArrayKdTree<>(cityPoints);
+		return cityFinder;
 	}
 	
 	public MapPoint findNearbyCityByName(MapPoint p) {
@@ -345,7 +354,7 @@ public class Locator {
 		
 		log.info("Locator City   Map contains", cityMap.size(), "entries");
 		log.info("Locator Places Map contains", placesMap.size(), "entries");
-		log.info("Locator Finder KdTree contains", cityFinder.size(), "entries");
+		log.info("Locator Finder KdTree contains", cityPoints.size(), "entries");
 
 		int runCount = 0;
 		int maxRuns = 2;
@@ -375,7 +384,7 @@ public class Locator {
 					} else if (locationAutofill.contains("nearest") && (runCount + 1) == maxRuns) {
 						// In the last resolve run just take info from the next
 						// known city
-						near = cityFinder.findNextPoint(place);
+						near = getCityFinder().findNextPoint(place);
 						if (near != null && near.getCountry() != null) {
 							if (place.getCity() == null)
 								place.setCity(place.getName());
@@ -431,8 +440,9 @@ public class Locator {
 		{
 			cityMap.add(name, p);
 			
-			// add point to the kd-tree
-			cityFinder.add(p);
+			// add point to the kd-tree, it is created again when it is needed
+			cityPoints.add(p);
+			cityFinder = null;
 		}
 		
 	}
@@ -80,6 +80,8 @@ import uk.me.parabola.mkgmap.filters.LineSplitterFilter;
 import uk.me.parabola.mkgmap.filters.MapFilter;
 import uk.me.parabola.mkgmap.filters.MapFilterChain;
 import uk.me.parabola.mkgmap.filters.PolygonSplitterFilter;
+import uk.me.parabola.mkgmap.filters.ProgressiveSimplifier;
+import uk.me.parabola.mkgmap.filters.ProgressiveSimplifyFilter;
 import uk.me.parabola.mkgmap.filters.RemoveEmpty;
 import uk.me.parabola.mkgmap.filters.RemoveObsoletePointsFilter;
 import uk.me.parabola.mkgmap.filters.RoundCoordsFilter;
@@ -104,6 +106,7 @@ import uk.me.parabola.mkgmap.reader.overview.OverviewMapDataSource;
 import uk.me.parabola.util.Configurable;
 import uk.me.parabola.util.EnhancedProperties;
 import uk.me.parabola.util.Java2DConverter;
+import uk.me.parabola.util.PhaseStats;
 import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 
 /**
@@ -152,12 +155,17 @@ public class MapBuilder implements Configurable {
 	private double reducePointErrorPolygon;
 	private boolean mergeLines;
 	private boolean mergeShapes;
+	private boolean parallelShapeMerge;
+	private boolean progressiveSimplification;
+	private ProgressiveSimplifier lineSimplifier;
+	private ProgressiveSimplifier shapeSimplifier;
 
 	private boolean	poiAddresses;
 	private int		poiDisplayFlags;
 	private boolean enableLineCleanFilters = true;
 	private boolean makePOIIndex;
 	private int routeCenterBoundaryType;
+	private boolean parallelNod;
 	
 	private LBLFile lblFile;
 
@@ -190,6 +198,7 @@ public class MapBuilder implements Configurable {
 		if (reducePointErrorPolygon == -1)
 			reducePointErrorPolygon = reducePointError;
 		mergeLines = props.containsKey("merge-lines");
+		progressiveSimplification = props.getProperty("progressive-simplification", false);
 
 		// undocumented option - usually used for debugging only
 		mergeShapes = props.getProperty("no-mergeshapes", false) == false;
@@ -200,6 +209,7 @@ public class MapBuilder implements Configurable {
 			poiAddresses = true;
 
 		routeCenterBoundaryType = props.getProperty("route-center-boundary", 0);
+		parallelNod = props.getProperty("parallel-nod", false);
 
 		licenseFileName = props.getProperty("license-file", null);
 		
@@ -297,10 +307,14 @@ public class MapBuilder implements Configurable {
 
 		treFile.setLastRgnPos(rgnFile.position() - RGNHeader.HEADER_LEN);
 
-		rgnFile.write();
-		treFile.write(rgnFile.haveExtendedTypes());
-		lblFile.write();
-		lblFile.writePost();
+		PhaseStats.run("rgn-write", () -> {
+			rgnFile.write();
+			treFile.write(rgnFile.haveExtendedTypes());
+		});
+		PhaseStats.run("lbl-write", () -> {
+			lblFile.write();
+			lblFile.writePost();
+		});
 
 		if (netFile != null) {
 			RoadNetwork network = src.getRoadNetwork();
@@ -309,40 +323,20 @@ public class MapBuilder implements Configurable {
 			if (nodFile != null) {
 				nodFile.setNetwork(network.getCenters(), network.getRoadDefs(), network.getBoundary());
 				nodFile.setDriveOnLeft(driveOnLeft);
-				nodFile.write();
+				nodFile.setParallel(parallelNod);
+				PhaseStats.run("nod-write", () -> nodFile.write());
 			}
-			netFile.write(lblFile.numCities(), lblFile.numZips());
+			PhaseStats.run("net-write", () -> netFile.write(lblFile.numCities(), lblFile.numZips()));
 
 			if (nodFile != null) {
-				nodFile.writePost();
+				PhaseStats.run("nod-write", () -> nodFile.writePost());
 			}
-			netFile.writePost(rgnFile.getWriter());
+			PhaseStats.run("net-write", () -> netFile.writePost(rgnFile.getWriter()));
 		}
 		warnAbout3ByteImgRefs();
 		if (demFile != null) {
-			try{
-				long t1 = System.currentTimeMillis();
-				java.awt.geom.Area  demArea = null;
-				if (demPolygon != null) {
-					Area bbox = src.getBounds();
-					// the rectangle is a bit larger to avoid problems at tile boundaries
-					Rectangle2D r = new Rectangle2D.Double(bbox.getMinLong() - 2, bbox.getMinLat() - 2,
-							bbox.getWidth() + 4, bbox.getHeight() + 4);
-					if (demPolygon.intersects(r) && !demPolygon.contains(r)){
-						demArea = demPolygon;
-					}					
-				} 
-				if (demArea == null && src instanceof OverviewMapDataSource) {
-					Path2D demPoly = ((OverviewMapDataSource) src).getTileAreaPath();
-					if (demPoly != null) {
-						demArea = new java.awt.geom.Area(demPoly);
-					}
-				}
-				Area treArea = demFile.calc(src.getBounds(), demArea, pathToHGT, demDists, demOutsidePolygonHeight, demInterpolationMethod);
-				map.setBounds(treArea);
-				long t2 = System.currentTimeMillis();
-				log.info("DEM file calculation for", map.getFilename(), "took", (t2 - t1), "ms");
-				demFile.write();
+			try {
+				PhaseStats.run("dem", () -> makeDemFile(map, src, demFile));
 			} catch (MapFailedException e) {
 				log.error("exception while creating DEM file", e.getMessage());
 				throw new MapFailedException("DEM"); //TODO: better remove DEM file?
@@ -351,6 +345,31 @@ public class MapBuilder implements Configurable {
 		treFile.writePost();
 	}
 
+	private void makeDemFile(Map map, LoadableMapDataSource src, DEMFile demFile) {
+		long t1 = System.currentTimeMillis();
+		java.awt.geom.Area  demArea = null;
+		if (demPolygon != null) {
+			Area bbox = src.getBounds();
+			// the rectangle is a bit larger to avoid problems at tile boundaries
+			Rectangle2D r = new Rectangle2D.Double(bbox.getMinLong() - 2, bbox.getMinLat() - 2,
+					bbox.getWidth() + 4, bbox.getHeight() + 4);
+			if (demPolygon.intersects(r) && !demPolygon.contains(r)){
+				demArea = demPolygon;
+			}					
+		} 
+		if (demArea == null && src instanceof OverviewMapDataSource) {
+			Path2D demPoly = ((OverviewMapDataSource) src).getTileAreaPath();
+			if (demPoly != null) {
+				demArea = new java.awt.geom.Area(demPoly);
+			}
+		}
+		Area treArea = demFile.calc(src.getBounds(), demArea, pathToHGT, demDists, demOutsidePolygonHeight, demInterpolationMethod);
+		map.setBounds(treArea);
+		long t2 = System.currentTimeMillis();
+		log.info("DEM file calculation for", map.getFilename(), "took", (t2 - t1), "ms");
+		demFile.write();
+	}
+
 	private void warnAbout3ByteImgRefs() {
 		String infoMsg = "- more than 65535 might cause indexing problems and excess size. Suggest splitter with lower --max-nodes";
 		int itemCount;
@@ -745,6 +764,8 @@ public class MapBuilder implements Configurable {
 			mergeLines = true;
 			prepShapesForMerge(src.getShapes());
 			mergeShapes = true;
+			// the overview map is built when all tiles are finished, so use all cores 
+			parallelShapeMerge = true;
 			levels = src.mapLevels();
 		}
 		else {
@@ -782,6 +803,13 @@ public class MapBuilder implements Configurable {
 			topdiv = makeTopArea(src, map, zoom);
 		}
 
+		if (progressiveSimplification && enableLineCleanFilters) {
+			lineSimplifier = new ProgressiveSimplifier(levels, reducePointError, doRoads);
+			lineSimplifier.register(src.getLines());
+			shapeSimplifier = new ProgressiveSimplifier(levels, reducePointErrorPolygon, doRoads);
+			shapeSimplifier.register(src.getShapes());
+		}
+
 		// We start with one map data source.
 		List<SourceSubdiv> srcList = Collections.singletonList(new SourceSubdiv(src, topdiv));
 
@@ -794,7 +822,7 @@ public class MapBuilder implements Configurable {
 			for (SourceSubdiv srcDivPair : srcList) {
 
 				MapSplitter splitter = new MapSplitter(srcDivPair.getSource(), zoom);
-				MapArea[] areas = splitter.split(orderByDecreasingArea);
+				MapArea[] areas = PhaseStats.call("map-split", () -> splitter.split(orderByDecreasingArea));
 				log.info("Map region", srcDivPair.getSource().getBounds(), "split into", areas.length, "areas at resolution", zoom.getResolution());
 
 				for (MapArea area : areas) {
@@ -811,6 +839,8 @@ public class MapBuilder implements Configurable {
 			}
 			srcList = nextList;
 		}
+		lineSimplifier = null;
+		shapeSimplifier = null;
 	}
 
 	/**
@@ -886,9 +916,11 @@ public class MapBuilder implements Configurable {
 
 		div.startDivision();
 
-		processPoints(map, div, points);
-		processLines(map, div, lines);
-		processShapes(map, div, shapes);
+		PhaseStats.run("filters", () -> {
+			processPoints(map, div, points);
+			processLines(map, div, lines);
+			processShapes(map, div, shapes);
+		});
 
 		div.endDivision();
 
@@ -1176,10 +1208,15 @@ public class MapBuilder implements Configurable {
 		}
 		LayerFilterChain filters = new LayerFilterChain(config);
 		if (enableLineCleanFilters && (res < 24)) {
-			filters.addFilter(new RoundCoordsFilter());
-			filters.addFilter(new SizeFilter(MIN_SIZE_LINE));
-			if(reducePointError > 0)
-				filters.addFilter(new DouglasPeuckerFilter(reducePointError));
+			if (lineSimplifier != null) {
+				filters.addFilter(new SizeFilter(MIN_SIZE_LINE));
+				filters.addFilter(new ProgressiveSimplifyFilter(lineSimplifier));
+			} else {
+				filters.addFilter(new RoundCoordsFilter());
+				filters.addFilter(new SizeFilter(MIN_SIZE_LINE));
+				if(reducePointError > 0)
+					filters.addFilter(new DouglasPeuckerFilter(reducePointError));
+			}
 		}
 		filters.addFilter(new LineSplitterFilter());
 		filters.addFilter(new RemoveEmpty());
@@ -1217,7 +1254,7 @@ public class MapBuilder implements Configurable {
 		config.setRoutable(doRoads);
 		
 		if (mergeShapes){
-			ShapeMergeFilter shapeMergeFilter = new ShapeMergeFilter(res, orderByDecreasingArea);
+			ShapeMergeFilter shapeMergeFilter = new ShapeMergeFilter(res, orderByDecreasingArea, parallelShapeMerge);
 			List<MapShape> mergedShapes = shapeMergeFilter.merge(shapes);
 			shapes = mergedShapes;
 		}
@@ -1236,14 +1273,20 @@ public class MapBuilder implements Configurable {
 		LayerFilterChain filters = new LayerFilterChain(config);
 		filters.addFilter(new PolygonSplitterFilter());
 		if (enableLineCleanFilters && (res < 24)) {
-			filters.addFilter(new RoundCoordsFilter());
 			int sizefilterVal =  getMinSizePolygonForResolution(res);
-			if (sizefilterVal > 0)
-				filters.addFilter(new SizeFilter(sizefilterVal));
-			//DouglasPeucker behaves at the moment not really optimal at low zooms, but acceptable.
-			//Is there an similar algorithm for polygons?
-			if(reducePointErrorPolygon > 0)
-				filters.addFilter(new DouglasPeuckerFilter(reducePointErrorPolygon));
+			if (shapeSimplifier != null) {
+				if (sizefilterVal > 0)
+					filters.addFilter(new SizeFilter(sizefilterVal));
+				filters.addFilter(new ProgressiveSimplifyFilter(shapeSimplifier));
+			} else {
+				filters.addFilter(new RoundCoordsFilter());
+				if (sizefilterVal > 0)
+					filters.addFilter(new SizeFilter(sizefilterVal));
+				//DouglasPeucker behaves at the moment not really optimal at low zooms, but acceptable.
+				//Is there an similar algorithm for polygons?
+				if(reducePointErrorPolygon > 0)
+					filters.addFilter(new DouglasPeuckerFilter(reducePointErrorPolygon));
+			}
 		}
 		filters.addFilter(new RemoveObsoletePointsFilter());
 		filters.addFilter(new RemoveEmpty());
@@ -60,7 +60,24 @@ public class DouglasPeuckerFilter implements MapFilter {
 		MapLine line = (MapLine) element;
 
 		List<Coord> points = line.getPoints();
+		List<Coord> coords = reduce(points, maxErrorDistance);
+		if (coords.size() == points.size())
+			next.doFilter(line); // nothing changed, no need to copy 
+		else {
+			MapLine newline = line.copy();
+			newline.setPoints(coords);
+			next.doFilter(newline);
+		}
+	}
 
+	/**
+	 * Simplify a list of points with the Douglas-Peucker algorithm. 
+	 * Points which are marked as preserved are kept.
+	 * @param points the points, not modified
+	 * @param maxErrorDistance the maximal allowed error in map units
+	 * @return a new list with the remaining points
+	 */
+	public static List<Coord> reduce(List<Coord> points, double maxErrorDistance) {
 		// Create a new list to rewrite the points into. Don't alter the original one
 		List<Coord> coords = new ArrayList<>(points.size());
 		coords.addAll(points);
@@ -76,13 +93,7 @@ public class DouglasPeuckerFilter implements MapFilter {
 		}
 		// Simplify the rest
 		douglasPeucker(coords, 0, endIndex, maxErrorDistance);
-		if (coords.size() == points.size())
-			next.doFilter(line); // nothing changed, no need to copy 
-		else {
-			MapLine newline = line.copy();
-			newline.setPoints(coords);
-			next.doFilter(newline);
-		}
+		return coords;
 	}
 
 	/**
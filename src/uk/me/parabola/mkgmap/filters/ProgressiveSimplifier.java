@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.filters;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import uk.me.parabola.imgfmt.app.Coord;
+import uk.me.parabola.mkgmap.general.LevelInfo;
+import uk.me.parabola.mkgmap.general.MapLine;
+
+/**
+ * Calculates the rounded and simplified points of lines and shapes for
+ * all resolutions of a map.
+ *
+ * The result for one resolution is used as input for the next lower
+ * resolution, so an element that appears in many levels is simplified
+ * from its full set of points only once. The levels are processed from
+ * the lowest to the highest resolution, so the results for the higher
+ * resolutions are calculated when an element is used for the first time
+ * and kept until they are needed.
+ *
+ * Only the registered elements are cached, other elements (e.g. results
+ * of clipping or merging) are simplified directly from their points.
+ */
+public class ProgressiveSimplifier {
+	/** the resolutions &lt; 24, highest first */
+	private final int[] resolutions;
+	/** the map level for each of the resolutions */
+	private final int[] levels;
+	private final double filterDistance;
+	private final boolean routable;
+
+	private final Set<MapLine> registered = Collections.newSetFromMap(new IdentityHashMap<MapLine, Boolean>());
+	private final IdentityHashMap<MapLine, List<List<Coord>>> cache = new IdentityHashMap<>();
+
+	/**
+	 * @param levelInfos the levels of the map
+	 * @param filterDistance the error distance for the DouglasPeucker
+	 * algorithm, a value &lt;= 0 disables it
+	 * @param routable true if the map is routable
+	 */
+	public ProgressiveSimplifier(LevelInfo[] levelInfos, double filterDistance, boolean routable) {
+		LevelInfo[] sorted = levelInfos.clone();
+		Arrays.sort(sorted, new Comparator<LevelInfo>() {
+			public int compare(LevelInfo o1, LevelInfo o2) {
+				return Integer.compare(o2.getBits(), o1.getBits());
+			}
+		});
+		int[] res = new int[sorted.length];
+		int[] lvl = new int[sorted.length];
+		int n = 0;
+		for (LevelInfo info : sorted) {
+			if (info.getBits() >= 24)
+				continue;
+			if (n > 0 && res[n - 1] == info.getBits())
+				continue;
+			res[n] = info.getBits();
+			lvl[n] = info.getLevel();
+			n++;
+		}
+		this.resolutions = Arrays.copyOf(res, n);
+		this.levels = Arrays.copyOf(lvl, n);
+		this.filterDistance = filterDistance;
+		this.routable = routable;
+	}
+
+	/**
+	 * Register elements for caching.
+	 * @param elements elements that are likely to be used in more than one level
+	 */
+	public void register(List<? extends MapLine> elements) {
+		registered.addAll(elements);
+	}
+
+	/**
+	 * Get the rounded and simplified points of an element.
+	 * @param line the line or shape
+	 * @param res the resolution
+	 * @return the list of points, might contain less than two points
+	 * when the element is too small for this resolution.
+	 */
+	public List<Coord> getPoints(MapLine line, int res) {
+		if (res >= 24)
+			return line.getPoints();
+		int pos = indexOf(res);
+		if (pos < 0 || !registered.contains(line))
+			return simplify(line.getPoints(), res, isRoutingLevel(pos));
+
+		List<List<Coord>> results = cache.get(line);
+		if (results == null) {
+			results = calcAll(line, pos);
+			cache.put(line, results);
+		}
+		List<Coord> points = results.set(pos, null);
+		if (points == null) {
+			// already used, should not happen
+			points = simplify(line.getPoints(), res, isRoutingLevel(pos));
+		}
+		boolean done = true;
+		for (List<Coord> l : results) {
+			if (l != null) {
+				done = false;
+				break;
+			}
+		}
+		if (done) {
+			cache.remove(line);
+			registered.remove(line);
+		}
+		return points;
+	}
+
+	/**
+	 * Calculate the points for all resolutions from the highest resolution
+	 * that is used for the element down to the given one.
+	 * @param line the element
+	 * @param pos the index of the lowest needed resolution
+	 * @return list with the results, indexed like {@link #resolutions}
+	 */
+	private List<List<Coord>> calcAll(MapLine line, int pos) {
+		List<List<Coord>> results = new ArrayList<>(Collections.nCopies(resolutions.length, null));
+		List<Coord> points = line.getPoints();
+		for (int i = 0; i <= pos; i++) {
+			int res = resolutions[i];
+			if (res > line.getMaxResolution() || res < line.getMinResolution())
+				continue;
+			if (points.size() > 1)
+				points = simplify(points, res, isRoutingLevel(i));
+			results.set(i, points);
+		}
+		if (results.get(pos) == null)
+			results.set(pos, simplify(line.getPoints(), resolutions[pos], isRoutingLevel(pos)));
+		return results;
+	}
+
+	private List<Coord> simplify(List<Coord> points, int res, boolean checkRouting) {
+		int shift = 24 - res;
+		List<Coord> rounded = RoundCoordsFilter.round(points, shift, checkRouting);
+		if (filterDistance <= 0 || rounded.size() <= 2)
+			return rounded;
+		return DouglasPeuckerFilter.reduce(rounded, filterDistance * (1 << shift));
+	}
+
+	private boolean isRoutingLevel(int pos) {
+		return routable && pos >= 0 && levels[pos] == 0;
+	}
+
+	private int indexOf(int res) {
+		for (int i = 0; i < resolutions.length; i++) {
+			if (resolutions[i] == res)
+				return i;
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.filters;
+
+import java.util.List;
+
+import uk.me.parabola.imgfmt.app.Coord;
+import uk.me.parabola.mkgmap.general.MapElement;
+import uk.me.parabola.mkgmap.general.MapLine;
+
+/**
+ * Replaces the {@link RoundCoordsFilter} and {@link DouglasPeuckerFilter}
+ * when the points are calculated by a {@link ProgressiveSimplifier}.
+ */
+public class ProgressiveSimplifyFilter implements MapFilter {
+	private final ProgressiveSimplifier simplifier;
+	private int resolution;
+
+	public ProgressiveSimplifyFilter(ProgressiveSimplifier simplifier) {
+		this.simplifier = simplifier;
+	}
+
+	public void init(FilterConfig config) {
+		resolution = config.getResolution();
+	}
+
+	/**
+	 * @param element A map element that will be a line or a polygon.
+	 * @param next This is used to pass the possibly transformed element onward.
+	 */
+	public void doFilter(MapElement element, MapFilterChain next) {
+		MapLine line = (MapLine) element;
+		List<Coord> points = simplifier.getPoints(line, resolution);
+		if (points == line.getPoints()) {
+			next.doFilter(line);
+		} else if (points.size() > 1) {
+			MapLine newLine = line.copy();
+			newLine.setPoints(points);
+			next.doFilter(newLine);
+		}
+	}
+}
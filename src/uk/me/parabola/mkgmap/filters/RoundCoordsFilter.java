@@ -38,46 +38,13 @@ public class RoundCoordsFilter implements MapFilter {
 	 */
 	public void doFilter(MapElement element, MapFilterChain next) {
 		MapLine line = (MapLine) element;
-		int half = 1 << (shift - 1);	// 0.5 shifted
-		int mask = ~((1 << shift) - 1); // to remove fraction bits
 
 		if(shift == 0) {
 			// do nothing
 			next.doFilter(line);
 		}
 		else {
-			// round lat/lon values to nearest for shift
-			List<Coord> newPoints = new ArrayList<Coord>(line.getPoints().size());
-			Coord lastP = null;
-			for(Coord p : line.getPoints()) {
-				int lat = (p.getLatitude() + half) & mask;
-				int lon = (p.getLongitude() + half) & mask;
-				Coord newP;
-				
-				if(p instanceof CoordNode && checkRouting)
-					newP = new CoordNode(lat, lon, p.getId(), p.getOnBoundary(), p.getOnCountryBorder());
-				else
-					newP = new Coord(lat, lon);
-				newP.preserved(p.preserved());
-
-				// only add the new point if it has different
-				// coordinates to the last point or if it's a
-				// CoordNode and the last point wasn't a CoordNode
-				if(lastP == null ||
-				   !lastP.equals(newP) ||
-				   (newP instanceof CoordNode && !(lastP instanceof CoordNode))) {
-					newPoints.add(newP);
-					lastP = newP;
-				}
-				else if(newP.preserved()) {
-					// this point is not going to be used because it
-					// has the same (rounded) coordinates as the last
-					// node but it has been marked as being "preserved" -
-					// transfer that property to the previous point so
-					// that it's not lost
-					lastP.preserved(true);
-				}
-			}
+			List<Coord> newPoints = round(line.getPoints(), shift, checkRouting);
 			if(newPoints.size() > 1) {
 				MapLine newLine = line.copy();
 				newLine.setPoints(newPoints);
@@ -85,4 +52,51 @@ public class RoundCoordsFilter implements MapFilter {
 			}
 		}
 	}
+
+	/**
+	 * Round the lat/lon values of the points to the nearest value for the
+	 * given shift and remove consecutive points which become equal.
+	 * @param points the points to round, not modified
+	 * @param shift the number of fraction bits to remove, must be &gt; 0
+	 * @param checkRouting true if routing nodes must be kept as {@link CoordNode}
+	 * @return a new list with the rounded points 
+	 */
+	public static List<Coord> round(List<Coord> points, int shift, boolean checkRouting) {
+		int half = 1 << (shift - 1);	// 0.5 shifted
+		int mask = ~((1 << shift) - 1); // to remove fraction bits
+
+		// round lat/lon values to nearest for shift
+		List<Coord> newPoints = new ArrayList<Coord>(points.size());
+		Coord lastP = null;
+		for(Coord p : points) {
+			int lat = (p.getLatitude() + half) & mask;
+			int lon = (p.getLongitude() + half) & mask;
+			Coord newP;
+
+			if(p instanceof CoordNode && checkRouting)
+				newP = new CoordNode(lat, lon, p.getId(), p.getOnBoundary(), p.getOnCountryBorder());
+			else
+				newP = new Coord(lat, lon);
+			newP.preserved(p.preserved());
+
+			// only add the new point if it has different
+			// coordinates to the last point or if it's a
+			// CoordNode and the last point wasn't a CoordNode
+			if(lastP == null ||
+			   !lastP.equals(newP) ||
+			   (newP instanceof CoordNode && !(lastP instanceof CoordNode))) {
+				newPoints.add(newP);
+				lastP = newP;
+			}
+			else if(newP.preserved()) {
+				// this point is not going to be used because it
+				// has the same (rounded) coordinates as the last
+				// node but it has been marked as being "preserved" -
+				// transfer that property to the previous point so
+				// that it's not lost
+				lastP.preserved(true);
+			}
+		}
+		return newPoints;
+	}
 }
@@ -13,15 +13,21 @@
 package uk.me.parabola.mkgmap.filters;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import it.unimi.dsi.fastutil.ints.IntArrayList;
+import uk.me.parabola.imgfmt.Utils;
 import uk.me.parabola.imgfmt.app.Coord;
 import uk.me.parabola.log.Logger;
 import uk.me.parabola.mkgmap.general.MapShape;
@@ -41,11 +47,24 @@ public class ShapeMergeFilter{
 	private static final Logger log = Logger.getLogger(ShapeMergeFilter.class);
 	private final int resolution;
 	private final static ShapeHelper DUP_SHAPE = new ShapeHelper(new ArrayList<Coord>(0)); 
+	/** marks merged shapes until they get a fake id */
+	private final static long MERGED_ID = Long.MIN_VALUE;
 	private final boolean orderByDecreasingArea;
+	private final boolean parallel;
 
 	public ShapeMergeFilter(int resolution, boolean orderByDecreasingArea) {
+		this(resolution, orderByDecreasingArea, false);
+	}
+
+	/**
+	 * @param resolution the resolution
+	 * @param orderByDecreasingArea true if option order-by-decreasing-area is used
+	 * @param parallel true if the groups of similar shapes should be merged in parallel
+	 */
+	public ShapeMergeFilter(int resolution, boolean orderByDecreasingArea, boolean parallel) {
 		this.resolution = resolution;
 		this.orderByDecreasingArea = orderByDecreasingArea;
+		this.parallel = parallel;
 	}
 
 	/**
@@ -77,30 +96,40 @@ public class ShapeMergeFilter{
 		
 		Comparator<MapShape> comparator = new MapShapeComparator();
 		usableShapes.sort(comparator);
+		List<List<MapShape>> groups = new ArrayList<>();
 		int p1 = 0;
 		MapShape s1 = usableShapes.get(0);
 		for (int i = 1; i < usableShapes.size(); i++) {
 			if (comparator.compare(s1, usableShapes.get(i)) == 0)
 				continue;
-			mergeSimilar(usableShapes.subList(p1, i), mergedShapes);
+			groups.add(usableShapes.subList(p1, i));
 			s1 = usableShapes.get(i);
 			p1 = i;
 		}
 		if (p1 < usableShapes.size())
-			mergeSimilar(usableShapes.subList(p1, usableShapes.size()), mergedShapes);
+			groups.add(usableShapes.subList(p1, usableShapes.size()));
+		
+		// the merge doesn't modify the Coord instances, so the groups are independent 
+		Stream<List<MapShape>> stream = parallel ? groups.parallelStream() : groups.stream();
+		stream.map(this::mergeSimilar).collect(Collectors.toList()).forEach(mergedShapes::addAll);
+		// assign the ids in a predictable order
+		for (MapShape ms : mergedShapes) {
+			if (ms.getOsmid() == MERGED_ID)
+				ms.setOsmid(FakeIdGenerator.makeFakeId());
+		}
 		return mergedShapes;
 	}
 	
 	/**
 	 * Merge similar shapes.
 	 * @param similar list of similar shapes
-	 * @param mergedShapes list to which the shapes are added 
+	 * @return list of merged shapes 
 	 */
-	private void mergeSimilar(List<MapShape> similar, List<MapShape> mergedShapes) {
+	private List<MapShape> mergeSimilar(List<MapShape> similar) {
 		if (similar.size() == 1) {
-			mergedShapes.addAll(similar);
-			return;
+			return similar;
 		}
+		List<MapShape> mergedShapes = new ArrayList<>();
 		List<ShapeHelper> list = new ArrayList<>();
 		MapShape s1 = similar.get(0);
 		for (MapShape ms : similar) {
@@ -119,17 +148,23 @@ public class ShapeMergeFilter{
 				if (optimizedPoints.isEmpty())
 					continue;
 				newShape.setPoints(optimizedPoints);
-				newShape.setOsmid(FakeIdGenerator.makeFakeId());
+				newShape.setOsmid(MERGED_ID);
 			} else {
 				newShape.setPoints(sh.getPoints());
 				newShape.setOsmid(sh.id);
 			}
 			mergedShapes.add(newShape);
 		}
+		return mergedShapes;
 	}
 
 	/**
-	 * Merge ShapeHelpers. Calls itself recursively.
+	 * Merge ShapeHelpers. An index of the points is used to find the 
+	 * neighbours of a shape, each shape is merged with its neighbours 
+	 * until no more merge is possible. 
+	 * Holes in shapes are connected with the outer lines,
+	 * so no following routine must use {@link Java2DConverter}
+	 * to process these shapes.
 	 * @param pattern a MapShape
 	 * @param similarShapes {@link ShapeHelper} instances created from similar {@link MapShape}.
 	 * This list is modified if shapes were merged.
@@ -137,147 +172,81 @@ public class ShapeMergeFilter{
 	private void tryMerge(MapShape pattern, List<ShapeHelper> similarShapes) {
 		if (similarShapes.size() <= 1)
 			return;
+		int n = similarShapes.size();
+		List<ShapeHelper> shapes = new ArrayList<>(similarShapes);
+		PointIndex index = new PointIndex(n * 8);
+		for (int i = 0; i < n; i++) {
+			index.addShape(shapes.get(i).getPoints(), i);
+		}
 
-		List<ShapeHelper> noMerge = new ArrayList<>();
-		BitSet toMerge = new BitSet(similarShapes.size());
-		
-		// abuse highway count to find identical points in different shapes
-		similarShapes.forEach(sh -> sh.getPoints().forEach(Coord::resetHighwayCount));
-		similarShapes.forEach(sh -> sh.getPoints().forEach(Coord::incHighwayCount));
-		// decrement counter for duplicated start/end node
-		similarShapes.forEach(sh -> sh.getPoints().get(0).decHighwayCount());
-		
-		// points with count > 1 are probably shared by different shapes, collect the shapes
-		IdentityHashMap<Coord, BitSet> coord2Shape = new IdentityHashMap<>();
-		BitSet[] candidates = new BitSet[similarShapes.size()];
-		
-		for (int i = 0; i < similarShapes.size(); i++) {
-			ShapeHelper sh0 = similarShapes.get(i);
-			List<Coord> sharedPoints = new ArrayList<>(); 
-			for (int j = 1; j < sh0.getPoints().size(); j++) {
-				Coord c = sh0.getPoints().get(j);
-				if (c.getHighwayCount() > 1) {
-					sharedPoints.add(c);
-				}
-			}
-			if (sharedPoints.size() == 0 || sh0.getPoints().size() - sharedPoints.size()> PolygonSplitterFilter.MAX_POINT_IN_ELEMENT) {
-				// merge will not work 
-				noMerge.add(sh0);
-				continue;
-			}
-			
-			assert candidates[i] == null;
-			candidates[i] = new BitSet();
-			BitSet curr = candidates[i];
-			curr.set(i);
-			
-			toMerge.set(i);
-			for (Coord c: sharedPoints) { 
-				BitSet set = coord2Shape.get(c);
-				if (set == null) {
-					set = new BitSet();
-					coord2Shape.put(c, set);
-				} else { 
-					for (int j = set.nextSetBit(0); j >= 0; j = set.nextSetBit(j + 1)) {
-						candidates[j].set(i);
-					}
-					curr.or(set);
-				}
-				set.set(i);
+		// find the shapes which share points with other shapes 
+		BitSet alive = new BitSet();
+		for (int i = 0; i < n; i++) {
+			List<Coord> points = shapes.get(i).getPoints();
+			int numShared = 0;
+			for (int j = 1; j < points.size(); j++) {
+				if (index.isShared(points.get(j)))
+					numShared++;
 			}
+			if (numShared > 0 && points.size() - numShared <= PolygonSplitterFilter.MAX_POINT_IN_ELEMENT)
+				alive.set(i);
 		}
-		if (coord2Shape.isEmpty()) {
-			// nothing to do
+		if (alive.cardinality() < 2)
 			return;
-		}
+		BitSet noMerge = new BitSet();
+		noMerge.set(0, n);
+		noMerge.andNot(alive);
 		
-		List<ShapeHelper> next = new ArrayList<>();
-		boolean merged = false;
-		BitSet done = new BitSet();
-		BitSet delayed = new BitSet();  
-
-		for (int i = toMerge.nextSetBit(0); i >= 0; i = toMerge.nextSetBit(i + 1)) {
-			if (done.get(i))
-				continue;
-			BitSet all = candidates[i];
-			if (all.cardinality() <= 1) {
-				if (!all.isEmpty())
-					delayed.set(i);
-				continue;
-			}
-			all.andNot(done);
-			
-			if (all.isEmpty())
-				continue;
-			List<ShapeHelper> result = new ArrayList<>();
-			for (int j = all.nextSetBit(0); j >= 0; j = all.nextSetBit(j + 1)) {
-				ShapeHelper sh = similarShapes.get(j);
-				int oldSize = result.size();
-				result = addWithConnectedHoles(result, sh, pattern.getType());
-				if (result.size() < oldSize + 1) {
-					merged = true;
-					log.debug("shape with id", sh.id, "was merged", (oldSize + 1 - result.size()),
-							" time(s) at resolution", resolution);
+		IntArrayList origin = new IntArrayList(n);
+		for (int i = 0; i < n; i++)
+			origin.add(i);
+		Set<Long> failed = new HashSet<>();
+		for (int i = alive.nextSetBit(0); i >= 0 && i < n; i = alive.nextSetBit(i + 1)) {
+			int cur = i;
+			boolean changed = true;
+			while (changed) {
+				changed = false;
+				for (int other : index.neighbours(shapes.get(cur).getPoints(), cur, alive)) {
+					// two shapes are never tested twice as a merged shape gets a new id
+					if (!failed.add((long) Math.min(cur, other) << 32 | Math.max(cur, other)))
+						continue;
+					ShapeHelper sh1 = shapes.get(cur);
+					ShapeHelper sh2 = shapes.get(other);
+					ShapeHelper res = tryMerge(sh1, sh2);
+					if (res == DUP_SHAPE) {
+						log.warn("ignoring duplicate shape with id", sh2.id, "at", sh2.getPoints().get(0).toOSMURL(),
+								"with type", GType.formatType(pattern.getType()), "for resolution", resolution);
+						alive.clear(other);
+						continue;
+					}
+					if (res == null || res == sh1)
+						continue;
+					log.debug("shape with id", sh2.id, "was merged at resolution", resolution);
+					int m = shapes.size();
+					shapes.add(res);
+					index.addShape(res.getPoints(), m);
+					origin.add(Math.min(origin.getInt(cur), origin.getInt(other)));
+					alive.clear(cur);
+					alive.clear(other);
+					alive.set(m);
+					cur = m;
+					changed = true;
+					break;
 				}
 			}
-			// XXX : not exact, there may be other combinations of shapes which can be merged
-			// e.g. merge of shape 1 + 2 may not work but 2 and 3 could still be candidates.
-			done.or(all);
-			next.addAll(result);
 		}
 		
-		delayed.andNot(done);
-		if (!delayed.isEmpty()) {
-			for (int i = delayed.nextSetBit(0); i >= 0; i = delayed.nextSetBit(i+1)) {
-				noMerge.add(similarShapes.get(i));
-			}
+		// keep the order of the original shapes
+		alive.or(noMerge);
+		ShapeHelper[] ordered = new ShapeHelper[n];
+		for (int i = alive.nextSetBit(0); i >= 0; i = alive.nextSetBit(i + 1)) {
+			ordered[origin.getInt(i)] = shapes.get(i);
 		}
 		similarShapes.clear();
-		similarShapes.addAll(noMerge);
-		
-		if (merged) 
-			tryMerge(pattern, next);
-		
-		// Maybe add final step which calls addWithConnectedHoles for all remaining shapes
-		// this will find a few more merges but is still slow for maps with lots of islands 
-		similarShapes.addAll(next);
-	}
-
-
-	/**
-	 * Try to merge a shape with one or more of the shapes in the list.
-	 *  If it cannot be merged, it is added to the list.
-	 *  Holes in shapes are connected with the outer lines,
-	 *  so no following routine must use {@link Java2DConverter}
-	 *  to process these shapes.
-	 * @param list list of shapes with equal type
-	 * @param toAdd new shape
-	 * @param type garmin type of pattern MapShape
-	 * @return new list of shapes, this might contain fewer (merged) elements
-	 */
-	private List<ShapeHelper> addWithConnectedHoles(List<ShapeHelper> list,
-			final ShapeHelper toAdd, final int type) {
-		assert toAdd.getPoints().size() > 3;
-		List<ShapeHelper> result = new ArrayList<>(list.size() + 1);
-		ShapeHelper shNew = new ShapeHelper(toAdd);
-		for (ShapeHelper shOld : list) {
-			ShapeHelper mergeRes = tryMerge(shOld, shNew);
-			if (mergeRes == shOld){
-				result.add(shOld);
-				continue;
-			} else if (mergeRes != null){
-				shNew = mergeRes;
-			}
-			if (shNew == DUP_SHAPE){
-				log.warn("ignoring duplicate shape with id", toAdd.id, "at",  toAdd.getPoints().get(0).toOSMURL(), "with type", GType.formatType(type), "for resolution", resolution);
-				return list; // nothing to do
-			}
+		for (ShapeHelper sh : ordered) {
+			if (sh != null)
+				similarShapes.add(sh);
 		}
-		if (shNew != null && shNew != DUP_SHAPE)
-			result.add(shNew);
-		if (result.size() > list.size()+1 )
-			log.error("result list size is wrong", list.size(), "->", result.size());
-		return result;
 	}
 
 	/**
@@ -365,20 +334,14 @@ public class ShapeMergeFilter{
 			IntArrayList s2PositionsToCheck) {
 		Map<Coord, Integer> s2PosMap = new IdentityHashMap<>(s2.size() - 1);
 		
-		for (int i = 0; i+1 < s1.size(); i++){
-		    Coord co = s1.get(i);
-		    co.setPartOfShape2(false);
-		}
 		for (int i = 0; i+1 < s2.size(); i++){
-		    Coord co = s2.get(i);
-		    co.setPartOfShape2(true);
-		    s2PosMap.put(co, i); 
+		    s2PosMap.put(s2.get(i), i); 
 		}
 		
 		int start = 0;
 		while(start < s1.size()){
 			Coord co = s1.get(start);
-			if (!co.isPartOfShape2())
+			if (!s2PosMap.containsKey(co))
 				break;
 			start++;
 		}
@@ -390,10 +353,9 @@ public class ShapeMergeFilter{
 			Coord co = s1.get(pos);
 			if (++tested >= s1.size())
 				break;
-			if (co.isPartOfShape2()){
+			Integer posInSh2 = s2PosMap.get(co);
+			if (posInSh2 != null){
 				s1PositionsToCheck.add(pos);
-				Integer posInSh2 = s2PosMap.get(co);
-				assert posInSh2 != null;
 				s2PositionsToCheck.add(posInSh2);
 			}
 			pos++;
@@ -483,6 +445,118 @@ public class ShapeMergeFilter{
 		return merged;
 	}
  	
+	/**
+	 * Maps the high precision position of the points to the ids of the 
+	 * shapes using them. Uses open addressing with primitive arrays, 
+	 * the ids for one position are stored in a linked list.
+	 */
+	private static class PointIndex {
+		private long[] keys;
+		private int[] heads;
+		private int mask;
+		private int numKeys;
+		private int[] entryShape;
+		private int[] entryNext;
+		private int numEntries;
+
+		PointIndex(int expected) {
+			int cap = Integer.highestOneBit(Math.max(16, expected) * 2 - 1) * 2;
+			initTable(cap);
+			entryShape = new int[expected];
+			entryNext = new int[expected];
+		}
+
+		private void initTable(int cap) {
+			keys = new long[cap];
+			heads = new int[cap];
+			Arrays.fill(heads, -1);
+			mask = cap - 1;
+		}
+
+		private int findSlot(long key) {
+			long h = key * 0x9E3779B97F4A7C15L;
+			int slot = (int) (h ^ (h >>> 32)) & mask;
+			while (heads[slot] >= 0 && keys[slot] != key)
+				slot = (slot + 1) & mask;
+			return slot;
+		}
+
+		/**
+		 * Add the points of a shape, the closing point is ignored. 
+		 */
+		void addShape(List<Coord> points, int id) {
+			for (int i = 0; i + 1 < points.size(); i++) {
+				add(Utils.coord2Long(points.get(i)), id);
+			}
+		}
+
+		private void add(long key, int id) {
+			int slot = findSlot(key);
+			int head = heads[slot];
+			if (head >= 0 && entryShape[head] == id)
+				return; // point is used more than once in this shape
+			if (numEntries == entryShape.length) {
+				entryShape = Arrays.copyOf(entryShape, numEntries * 2);
+				entryNext = Arrays.copyOf(entryNext, numEntries * 2);
+			}
+			entryShape[numEntries] = id;
+			entryNext[numEntries] = head;
+			heads[slot] = numEntries++;
+			if (head < 0) {
+				keys[slot] = key;
+				if (++numKeys * 2 > keys.length)
+					rehash();
+			}
+		}
+
+		private void rehash() {
+			long[] oldKeys = keys;
+			int[] oldHeads = heads;
+			initTable(keys.length * 2);
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldHeads[i] >= 0) {
+					int slot = findSlot(oldKeys[i]);
+					keys[slot] = oldKeys[i];
+					heads[slot] = oldHeads[i];
+				}
+			}
+		}
+
+		/**
+		 * @return true if the position of the point is used by more than one shape
+		 */
+		boolean isShared(Coord co) {
+			int e = heads[findSlot(Utils.coord2Long(co))];
+			return e >= 0 && entryNext[e] >= 0;
+		}
+
+		/**
+		 * Find the shapes which use at least one of the positions.
+		 * @param points the points of a shape
+		 * @param id the id of that shape
+		 * @param alive the ids of the shapes which should be returned
+		 * @return the ids in ascending order
+		 */
+		int[] neighbours(List<Coord> points, int id, BitSet alive) {
+			IntArrayList found = new IntArrayList();
+			for (int i = 0; i + 1 < points.size(); i++) {
+				for (int e = heads[findSlot(Utils.coord2Long(points.get(i)))]; e >= 0; e = entryNext[e]) {
+					int other = entryShape[e];
+					if (other != id && alive.get(other))
+						found.add(other);
+				}
+			}
+			int[] ids = found.toIntArray();
+			Arrays.sort(ids);
+			int len = 0;
+			for (int i = 0; i < ids.length; i++) {
+				if (len == 0 || ids[len - 1] != ids[i])
+					ids[len++] = ids[i];
+			}
+			return Arrays.copyOf(ids, len);
+		}
+	}
+
 	private static class ShapeHelper {
 		final private List<Coord> points;
 		long id;
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.general;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * The address information of a map element: country, region, city, zip,
+ * street, house number, phone and is_in.
+ * <p>
+ * Most lines and shapes have no address at all, and many elements of a
+ * tile have the same one. So the address is kept in a separate object
+ * that is immutable and can be shared, elements without address
+ * information don't have one.
+ */
+public final class MapAddress {
+	static final int COUNTRY = 0;
+	static final int REGION = 1;
+	static final int CITY = 2;
+	static final int ZIP = 3;
+	static final int STREET = 4;
+	static final int HOUSE_NUMBER = 5;
+	static final int PHONE = 6;
+	static final int IS_IN = 7;
+	private static final int NUM_FIELDS = 8;
+
+	private final String[] values;
+
+	private MapAddress(String[] values) {
+		this.values = values;
+	}
+
+	String get(int field) {
+		return values[field];
+	}
+
+	/**
+	 * Get an address with one field changed.
+	 * @param address The address to change, may be null.
+	 * @param field The field.
+	 * @param value The new value, may be null.
+	 * @return The changed address or null if no field has a value.
+	 */
+	static MapAddress with(MapAddress address, int field, String value) {
+		String[] values;
+		if (address == null) {
+			if (value == null)
+				return null;
+			values = new String[NUM_FIELDS];
+		} else {
+			if (Objects.equals(address.values[field], value))
+				return address;
+			values = Arrays.copyOf(address.values, NUM_FIELDS);
+		}
+		values[field] = value;
+		for (String v : values) {
+			if (v != null)
+				return new MapAddress(values);
+		}
+		return null;
+	}
+
+	public int hashCode() {
+		return Arrays.hashCode(values);
+	}
+
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof MapAddress))
+			return false;
+		return Arrays.equals(values, ((MapAddress) obj).values);
+	}
+
+	public String toString() {
+		return Arrays.toString(values);
+	}
+}
@@ -28,6 +28,7 @@ import uk.me.parabola.imgfmt.app.trergn.MapObject;
  * @author Steve Ratcliffe.
  */
 public abstract class MapElement {
+	// null until a label is set
 	protected String[] labels;
 	private int type;
 
@@ -35,27 +36,20 @@ public abstract class MapElement {
 	private int maxResolution = 24;
 
 	private ExtTypeAttributes extTypeAttributes;
-	// other attributes
-	private String zip,country,region,city,street,phone,houseNumber,isIn;
+	// other attributes, null if there are none
+	private MapAddress address;
 
 	protected MapElement() {
-		labels = new String[4];
 	}
 
 	protected MapElement(MapElement orig) {
-		labels = Arrays.copyOf(orig.labels, 4);
+		if (orig.labels != null)
+			labels = Arrays.copyOf(orig.labels, 4);
 		type = orig.type;
 		minResolution = orig.minResolution;
 		maxResolution = orig.maxResolution;
 		extTypeAttributes = orig.extTypeAttributes;
-		zip = orig.zip;
-		country = orig.country;
-		region = orig.region;
-		city = orig.city;
-		street = orig.street;
-		phone = orig.phone;
-		houseNumber = orig.houseNumber;
-		isIn = orig.isIn;
+		address = orig.address;
 	}
 
 	/**
@@ -67,18 +61,30 @@ public abstract class MapElement {
 	public abstract MapElement copy();
 
 	public String getName() {
-		return labels[0];
+		return labels == null ? null : labels[0];
 	}
 	
+	/**
+	 * @return the four labels of the element, unused ones are null. When
+	 * no label is set, this is a new array and changes to it are not kept,
+	 * use {@link #setLabels(String[])} to change the labels.
+	 */
 	public String[] getLabels() {
-		return this.labels;
+		return labels == null ? new String[4] : labels;
 	}
 	
 	public void setName(String name) {
+		if (labels == null) {
+			if (name == null)
+				return;
+			labels = new String[4];
+		}
 		this.labels[0] = name;
 	}
 
 	public void add2Name(String name) {
+		if (labels == null)
+			labels = new String[4];
 		for (int i = 1; i < 4; i++) {
 			if (this.labels[i] == null) {
 				this.labels[i] = name;
@@ -92,6 +98,8 @@ public abstract class MapElement {
 	}
 
 	public int numLabels(){
+		if (labels == null)
+			return 0;
 		int count = 0;
 		for (int i = 0; i < 4; i++) {
 			if (this.labels[i] != null) 
@@ -110,48 +118,68 @@ public abstract class MapElement {
 		extTypeAttributes = eta;
 	}
 
+	/**
+	 * @return the address information or null if there is none.
+	 */
+	public MapAddress getAddress() {
+		return address;
+	}
+
+	/**
+	 * Set the address information. Elements with the same address can
+	 * share one object.
+	 * @param address the address, may be null
+	 */
+	public void setAddress(MapAddress address) {
+		this.address = address;
+	}
+
+	private String getAddressField(int field) {
+		return address == null ? null : address.get(field);
+	}
+
 	public String getCity() {
-		return city;
+		return getAddressField(MapAddress.CITY);
 	}
 
 	public void setCity(String city) {
-		this.city = city;
+		address = MapAddress.with(address, MapAddress.CITY, city);
 	}
 	
 	public String getZip() {
-		return zip;
+		return getAddressField(MapAddress.ZIP);
 	}
 
 	public void setZip(String zip) {
-		this.zip = zip;
+		address = MapAddress.with(address, MapAddress.ZIP, zip);
 	}
 
 	public String getCountry() {
-		return country;
+		return getAddressField(MapAddress.COUNTRY);
 	}
 
 	public void setCountry(String country) {
-		this.country = country;
+		address = MapAddress.with(address, MapAddress.COUNTRY, country);
 	}
 	
 	public String getRegion() {
-		return region;
+		return getAddressField(MapAddress.REGION);
 	}
 
 	public void setRegion(String region) {
-		this.region= region;
+		address = MapAddress.with(address, MapAddress.REGION, region);
 	}	
 	
 	public String getStreet() {
-		return street;
+		return getAddressField(MapAddress.STREET);
 	}
 
 	public void setStreet(String street) {
-		this.street = street;	
+		address = MapAddress.with(address, MapAddress.STREET, street);
 	}
 
 	public String getPhone() {
-		return phone;
+		return getAddressField(MapAddress.PHONE);
 	}
 
 	public void setPhone(String phone) {
@@ -159,24 +187,24 @@ public abstract class MapElement {
 		if(phone.startsWith("00")) {
 			phone = phone.replaceFirst("00","+");
 		}
-		this.phone = phone;	
+		address = MapAddress.with(address, MapAddress.PHONE, phone);
 	}
 
 	public String getHouseNumber() {
-		return houseNumber;
+		return getAddressField(MapAddress.HOUSE_NUMBER);
 	}
 
 	public void setHouseNumber(String houseNumber) {
-		this.houseNumber = houseNumber;		
+		address = MapAddress.with(address, MapAddress.HOUSE_NUMBER, houseNumber);
 	}
 	
 	public String getIsIn() {
-		return isIn;
+		return getAddressField(MapAddress.IS_IN);
 	}
 
 	public void setIsIn(String isIn) {
 	  if(isIn != null)
-		this.isIn = isIn.toUpperCase();
+		address = MapAddress.with(address, MapAddress.IS_IN, isIn.toUpperCase());
 	}	
 
 
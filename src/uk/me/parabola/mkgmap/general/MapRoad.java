@@ -174,6 +174,8 @@ public class MapRoad extends MapLine {
 	public boolean addLabel(String label){
 		if (label == null)
 			return false;
+		if (labels == null)
+			labels = new String[4];
 		for (int i = 0; i < labels.length; i++){
 			if (labels[i] == null){
 				labels[i] = label;
@@ -188,6 +190,7 @@ public class MapRoad extends MapLine {
 	public int getLabelPos(String label){
 		if (label == null)
 			return -1;
+		String[] labels = getLabels();
 		for (int i = 0; i < labels.length; i++){
 			if (labels[i] == null){
 				return -1;
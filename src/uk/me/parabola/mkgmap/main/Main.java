@@ -15,15 +15,13 @@ package uk.me.parabola.mkgmap.main;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.PrintStream;
+import java.io.PrintWriter;
 import java.lang.OutOfMemoryError;
-import java.lang.management.ManagementFactory;
-import java.lang.management.MemoryPoolMXBean;
-import java.lang.management.MemoryType;
-import java.lang.management.MemoryUsage;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
@@ -32,17 +30,16 @@ import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -65,11 +62,13 @@ import uk.me.parabola.mkgmap.combiners.OverviewBuilder;
 import uk.me.parabola.mkgmap.combiners.TdbBuilder;
 import uk.me.parabola.mkgmap.osmstyle.StyleFileLoader;
 import uk.me.parabola.mkgmap.osmstyle.StyleImpl;
+import uk.me.parabola.mkgmap.reader.osm.FakeIdGenerator;
 import uk.me.parabola.mkgmap.reader.osm.Style;
 import uk.me.parabola.mkgmap.reader.osm.StyleInfo;
 import uk.me.parabola.mkgmap.scan.SyntaxException;
 import uk.me.parabola.mkgmap.srt.SrtTextReader;
 import uk.me.parabola.util.EnhancedProperties;
+import uk.me.parabola.util.PhaseStats;
 
 /**
  * The new main program.  There can be many file names to process and there can
@@ -89,10 +88,13 @@ public class Main implements ArgumentProcessor {
 	private String styleOption;
 	private boolean verbose;
 
-	private final List<FilenameTask> futures = new LinkedList<>();
-	private ExecutorService threadPool;
+	private final List<FilenameTask> futures = new ArrayList<>();
+	// the jobs in the order in which they finish
+	private final BlockingQueue<FilenameTask> finished = new LinkedBlockingQueue<>();
 	// default number of threads
 	private int maxJobs = 0;
+	// the file for the phase stats of the jobs, null if they are not collected
+	private String timingReport;
 
 	private boolean createTdbFiles = false;
 	private boolean tdbBuilderAdded = false;
@@ -283,11 +285,17 @@ public class Main implements ArgumentProcessor {
 		args.setSort(getSort(args));
 
 		log.info("Submitting job " + filename);
-		FilenameTask task = new FilenameTask(new Callable<String>() {
+		FilenameTask task = new FilenameTask(futures.size(), filename, finished, new Callable<String>() {
 			public String call() {
 				log.threadTag(filename);
 				if (filename.startsWith("test-map:") || new File(filename).exists()){
-					String output = mp.makeMap(args, filename);
+					String output;
+					FakeIdGenerator.startTile();
+					try {
+						output = mp.makeMap(args, filename);
+					} finally {
+						FakeIdGenerator.endTile();
+					}
 					log.debug("adding output name", output);
 					log.threadTag(null);
 					return output;
@@ -298,6 +306,7 @@ public class Main implements ArgumentProcessor {
 			}
 		});
 		task.setArgs(args);
+		task.setInputSize(filename.startsWith("test-map:") ? 0 : new File(filename).length());
 		futures.add(task);
 	}
 
@@ -488,45 +497,28 @@ public class Main implements ArgumentProcessor {
 	}
 
 	public void endOptions(CommandArgs args) {
+		try {
+			processFiles(args);
+		} finally {
+			// the style files may have changed before the next run
+			StyleImpl.clearStyleCache();
+		}
+	}
+
+	private void processFiles(CommandArgs args) {
 		fileOptions(args);
 
+		timingReport = args.getProperties().getProperty("timing-report", null);
+
 		log.info("Start tile processors");
-		int threadCount = maxJobs;
 		int taskCount = futures.size();
 		Runtime runtime = Runtime.getRuntime();
-		if (threadPool == null) {
-			if (threadCount == 0) {
-				threadCount = 1;
-				if (taskCount > 2) {
-					//run one task to see how much memory it uses
-					log.info("Max Memory: " + runtime.maxMemory());
-					futures.get(0).run();
-					long maxMemory = 0;
-					for (MemoryPoolMXBean mxBean : ManagementFactory.getMemoryPoolMXBeans())
-					{
-						if (mxBean.getType() == MemoryType.HEAP) {
-							MemoryUsage memoryUsage = mxBean.getPeakUsage();
-							log.info("Max: " + memoryUsage.getMax());
-							log.info("Used: " + memoryUsage.getUsed());
-							if (memoryUsage.getMax() > maxMemory && memoryUsage.getUsed() != 0) {
-								maxMemory = memoryUsage.getMax();
-								threadCount = (int)(memoryUsage.getMax() / memoryUsage.getUsed());
-							}
-						}
-					}
-					threadCount = Math.max(threadCount, 1);
-					threadCount = Math.min(threadCount, runtime.availableProcessors());
-					System.out.println("Setting max-jobs to " + threadCount);
-				}
-			}
-
-			log.info("Creating thread pool with " + threadCount + " threads");
-			threadPool = Executors.newFixedThreadPool(threadCount);
-		}
-
-		// process all input files
+		log.info("Max Memory: " + runtime.maxMemory());
+		// process all input files, the results are handled as the jobs finish
+		TileScheduler scheduler = new TileScheduler(maxJobs);
 		for (FilenameTask task : futures) {
-			threadPool.execute(task);
+			task.setCollectStats(timingReport != null);
+			scheduler.add(task, task.getInputSize());
 		}
 
 
@@ -534,52 +526,62 @@ public class Main implements ArgumentProcessor {
 		
 		int numMapFailedExceptions = 0;
 		
-		if (threadPool != null) {
-			threadPool.shutdown();
-			while (!futures.isEmpty()) {
+		for (int numFinished = 0; numFinished < taskCount; numFinished++) {
+			try {
+				scheduler.startJobs();
+				FilenameTask future = finished.take();
 				try {
-					try {
-						// don't call get() until a job has finished
-						if (futures.get(0).isDone()) {
-							FilenameTask future = futures.remove(0);
-
-							// Provoke any exceptions by calling get and then
-							// save the result for later use
-							future.setFilename(future.get());
-							filenames.add(future);
-						} else
-							Thread.sleep(100);
-					} catch (ExecutionException e) {
-						// Re throw the underlying exception
-						Throwable cause = e.getCause();
-						if (cause instanceof Exception)
-							//noinspection ProhibitedExceptionThrown
-							throw (Exception) cause;
-						else if (cause instanceof Error)
-							//noinspection ProhibitedExceptionThrown
-							throw (Error) cause;
-						else
-							throw e;
-					}
-				} catch (OutOfMemoryError | ExitException e) {
-					throw e;
-				} catch (MapFailedException mfe) {
-//					System.err.println(mfe.getMessage()); // already printed via log
-					numMapFailedExceptions++;
-					setProgramRC(-1);
-				} catch (Throwable t) {
-					t.printStackTrace();
-					if (!args.getProperties().getProperty("keep-going", false)) {
-						throw new ExitException("Exiting - if you want to carry on regardless, use the --keep-going option");
-					}
+					// Provoke any exceptions by calling get and then
+					// save the result for later use
+					future.setFilename(future.get());
+					filenames.add(future);
+					log.info("Finished job " + (numFinished + 1) + " of " + taskCount + ": " + future.getFilename());
+				} catch (ExecutionException e) {
+					// Re throw the underlying exception
+					Throwable cause = e.getCause();
+					if (cause instanceof Exception)
+						//noinspection ProhibitedExceptionThrown
+						throw (Exception) cause;
+					else if (cause instanceof Error)
+						//noinspection ProhibitedExceptionThrown
+						throw (Error) cause;
+					else
+						throw e;
+				}
+			} catch (OutOfMemoryError | ExitException e) {
+				throw e;
+			} catch (MapFailedException mfe) {
+//				System.err.println(mfe.getMessage()); // already printed via log
+				numMapFailedExceptions++;
+				setProgramRC(-1);
+			} catch (Throwable t) {
+				t.printStackTrace();
+				if (!args.getProperties().getProperty("keep-going", false)) {
+					throw new ExitException("Exiting - if you want to carry on regardless, use the --keep-going option");
 				}
 			}
 		}
+		// the rest doesn't depend on the order in which the jobs finished
+		filenames.sort(Comparator.comparingInt(FilenameTask::getIndex));
 		System.out.println("Number of MapFailedExceptions: " + numMapFailedExceptions);
+		int threadCount = scheduler.getMaxRunning();
+		if (maxJobs == 0)
+			System.out.println("Number of concurrent jobs: " + threadCount);
 		if ((taskCount > threadCount + 1) && (maxJobs == 0) && (threadCount < runtime.availableProcessors())) {
 			System.out.println("To reduce the run time, consider increasing the amnount of memory available for use by mkgmap by using the Java -Xmx flag to set the memory to more than " + 100* (1 + ((runtime.maxMemory() * runtime.availableProcessors()) / (threadCount * 1024 * 1024 * 100))) + " MB, providing this is less than the amount of physical memory installed.");
 		}
 
+		PhaseStats combinerStats = timingReport != null ? PhaseStats.start("combiners") : null;
+		try {
+			combineMaps(args, filenames);
+		} finally {
+			PhaseStats.end();
+		}
+		if (timingReport != null)
+			writeTimingReport(combinerStats);
+	}
+
+	private void combineMaps(CommandArgs args, List<FilenameTask> filenames) {
 		if (combiners.isEmpty())
 			return;
 		boolean hasFiles = false;
@@ -686,6 +688,23 @@ public class Main implements ArgumentProcessor {
 		}
 	}
 
+	/**
+	 * Write the phase stats of all jobs to the file given with --timing-report.
+	 */
+	private void writeTimingReport(PhaseStats combinerStats) {
+		try (PrintWriter pw = new PrintWriter(new FileWriter(timingReport))) {
+			PhaseStats.writeHeader(pw);
+			for (FilenameTask task : futures) {
+				if (task.getStats() != null)
+					task.getStats().write(pw);
+			}
+			combinerStats.write(pw);
+		} catch (IOException e) {
+			log.error("Could not write timing report " + timingReport + ": " + e.getMessage());
+		}
+
+	}
+
 	private void fileOptions(CommandArgs args) {
 		boolean indexOpt = args.exists("index");
 		boolean gmapsuppOpt = args.exists("gmapsupp");
@@ -757,11 +776,52 @@ public class Main implements ArgumentProcessor {
 	}
 
 	private static class FilenameTask extends FutureTask<String> {
+		private final int index;
+		private final String input;
+		private final BlockingQueue<FilenameTask> finished;
+		private boolean collectStats;
+		private PhaseStats stats;
 		private CommandArgs args;
 		private String filename;
-
-		private FilenameTask(Callable<String> callable) {
+		private long inputSize;
+
+		/**
+		 * @param index The position of the job in the input.
+		 * @param input The input file name.
+		 * @param finished The job is added to this queue when it is done.
+		 * @param callable The job.
+		 */
+		private FilenameTask(int index, String input, BlockingQueue<FilenameTask> finished, Callable<String> callable) {
 			super(callable);
+			this.index = index;
+			this.input = input;
+			this.finished = finished;
+		}
+
+		public void run() {
+			if (collectStats)
+				stats = PhaseStats.start(input);
+			try {
+				super.run();
+			} finally {
+				PhaseStats.end();
+			}
+		}
+
+		protected void done() {
+			finished.add(this);
+		}
+
+		public int getIndex() {
+			return index;
+		}
+
+		public void setCollectStats(boolean collectStats) {
+			this.collectStats = collectStats;
+		}
+
+		public PhaseStats getStats() {
+			return stats;
 		}
 
 		public void setArgs(CommandArgs args) {
@@ -780,6 +840,14 @@ public class Main implements ArgumentProcessor {
 			return filename;
 		}
 
+		public void setInputSize(long inputSize) {
+			this.inputSize = inputSize;
+		}
+
+		public long getInputSize() {
+			return inputSize;
+		}
+
 		public String toString() {
 			return filename;
 		}
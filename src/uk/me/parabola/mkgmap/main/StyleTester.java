@@ -58,6 +58,7 @@ import uk.me.parabola.mkgmap.osmstyle.StyledConverter;
 import uk.me.parabola.mkgmap.osmstyle.TypeReader;
 import uk.me.parabola.mkgmap.osmstyle.actions.ActionList;
 import uk.me.parabola.mkgmap.osmstyle.actions.ActionReader;
+import uk.me.parabola.mkgmap.osmstyle.eval.EvalContext;
 import uk.me.parabola.mkgmap.osmstyle.eval.ExpressionReader;
 import uk.me.parabola.mkgmap.osmstyle.eval.Op;
 import uk.me.parabola.mkgmap.reader.osm.Element;
@@ -622,7 +623,7 @@ public class StyleTester implements OsmConverter {
 		 */
 		private class ReferenceRuleSet implements Rule {
 			private final List<Rule> rules = new ArrayList<>();
-			int cacheId;
+			private final EvalContext ctx = new EvalContext();
 			
 			public void add(Rule rule) {
 				rules.add(rule);
@@ -643,7 +644,7 @@ public class StyleTester implements OsmConverter {
 				// Start by literally running through the rules in order.
 				for (Rule rule : rules) {
 					a.reset();
-					cacheId = rule.resolveType(cacheId, el, a);
+					rule.resolveType(ctx, el, a);
 					
 					if (showMatches) {
 						if (a.isFound()) {
@@ -660,9 +661,8 @@ public class StyleTester implements OsmConverter {
 			}
 
 			@Override
-			public int resolveType(int cacheId, Element el, TypeResult result) {
+			public void resolveType(EvalContext ctx, Element el, TypeResult result) {
 				resolveType(el, result);
-				return cacheId;
 			}
 
 
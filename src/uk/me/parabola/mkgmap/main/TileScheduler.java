@@ -0,0 +1,255 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.main;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+
+import uk.me.parabola.log.Logger;
+
+/**
+ * Decides when the tile jobs are started. The jobs are started largest
+ * first, the heap that a job needs is estimated from the size of its
+ * input file.
+ * <p>
+ * With a fixed number of jobs all of them are handed to a thread pool of
+ * that size. Otherwise a job is only started while the estimated heap of
+ * the running jobs stays below a budget. When the next job doesn't fit,
+ * a smaller one that fits is started instead. Until the first job has
+ * finished a conservative heap per byte of input is assumed, after that
+ * it is calculated from the peak heap usage of the finished and running
+ * jobs. The heap that is in use after the last garbage collection is
+ * checked too, when it is higher than estimated fewer jobs are started.
+ */
+class TileScheduler {
+	private static final Logger log = Logger.getLogger(TileScheduler.class);
+
+	// the part of the heap that may be used by the running jobs
+	private static final double HEAP_BUDGET = 0.8;
+
+	// the heap per byte of input until it has been measured, this is more
+	// than a tile of a compressed file usually needs
+	static final double INITIAL_HEAP_PER_BYTE = 40;
+
+	/**
+	 * Reports the heap usage of the JVM.
+	 */
+	interface HeapMonitor {
+		/** @return the heap that was in use after the last garbage collection */
+		long getLiveHeap();
+
+		/** @return the highest heap usage since the last reset */
+		long getPeakHeap();
+
+		void resetPeak();
+	}
+
+	private final int maxJobs;
+	private final int maxThreads;
+	private final long budget;
+	private final HeapMonitor heapMonitor;
+	private final ExecutorService threadPool;
+	private final List<Job> waiting = new ArrayList<>();
+	private final List<Job> running = new ArrayList<>();
+
+	private double heapPerByte = INITIAL_HEAP_PER_BYTE;
+	private boolean measured;
+	// the heap that was in use before the jobs were started
+	private long baseHeap = -1;
+	// the input size of the jobs that were running since the peak usage was reset
+	private long windowInput;
+	private int maxRunning;
+
+	private static class Job {
+		private final FutureTask<?> task;
+		private final long inputSize;
+		private long heap;
+
+		private Job(FutureTask<?> task, long inputSize) {
+			this.task = task;
+			this.inputSize = Math.max(inputSize, 1);
+		}
+	}
+
+	/**
+	 * @param maxJobs The number of jobs that run at the same time. If 0,
+	 * the number is chosen from the available heap.
+	 */
+	TileScheduler(int maxJobs) {
+		this(maxJobs, Runtime.getRuntime().availableProcessors(),
+				(long) (Runtime.getRuntime().maxMemory() * HEAP_BUDGET), new PoolHeapMonitor());
+	}
+
+	/**
+	 * @param maxJobs The number of jobs that run at the same time. If 0,
+	 * the number is chosen from the available heap.
+	 * @param processors The highest number of jobs if maxJobs is 0.
+	 * @param budget The heap that may be used by the running jobs.
+	 * @param heapMonitor Reports the heap usage.
+	 */
+	TileScheduler(int maxJobs, int processors, long budget, HeapMonitor heapMonitor) {
+		this.maxJobs = maxJobs;
+		this.budget = budget;
+		this.heapMonitor = heapMonitor;
+		maxThreads = maxJobs > 0 ? maxJobs : processors;
+		log.info("Creating thread pool with " + maxThreads + " threads");
+		threadPool = Executors.newFixedThreadPool(maxThreads);
+	}
+
+	/**
+	 * Add a job.
+	 * @param task The job.
+	 * @param inputSize The size of the input file in bytes.
+	 */
+	void add(FutureTask<?> task, long inputSize) {
+		waiting.add(new Job(task, inputSize));
+	}
+
+	/**
+	 * Start the jobs that may run now. This is called after all jobs are
+	 * added and then each time a job has finished.
+	 */
+	void startJobs() {
+		if (waiting.isEmpty())
+			return;
+		waiting.sort(Comparator.comparingLong((Job j) -> j.inputSize).reversed());
+		if (maxJobs > 0) {
+			for (Job job : waiting)
+				threadPool.execute(job.task);
+			maxRunning = Math.min(maxJobs, waiting.size());
+			waiting.clear();
+			threadPool.shutdown();
+			return;
+		}
+
+		if (baseHeap < 0) {
+			baseHeap = heapMonitor.getLiveHeap();
+			heapMonitor.resetPeak();
+		}
+		boolean finished = false;
+		for (Iterator<Job> iter = running.iterator(); iter.hasNext();) {
+			if (iter.next().task.isDone()) {
+				iter.remove();
+				finished = true;
+			}
+		}
+		if (finished)
+			measure();
+
+		long reserved = baseHeap;
+		for (Job job : running)
+			reserved += job.heap;
+		// back off when the running jobs need more heap than estimated
+		reserved = Math.max(reserved, heapMonitor.getLiveHeap());
+		for (Iterator<Job> iter = waiting.iterator(); iter.hasNext() && running.size() < maxThreads;) {
+			Job job = iter.next();
+			long heap = estimate(job);
+			if (running.isEmpty() || reserved + heap <= budget) {
+				iter.remove();
+				reserved += heap;
+				start(job);
+			}
+		}
+		if (waiting.isEmpty())
+			threadPool.shutdown();
+	}
+
+	private void start(Job job) {
+		job.heap = estimate(job);
+		running.add(job);
+		windowInput += job.inputSize;
+		maxRunning = Math.max(maxRunning, running.size());
+		threadPool.execute(job.task);
+	}
+
+	private long estimate(Job job) {
+		return (long) (heapPerByte * job.inputSize);
+	}
+
+	/**
+	 * Calculate the heap per byte of input from the peak usage of the jobs
+	 * that ran since the last measurement. The jobs that are still running
+	 * have not reached their peak yet, so the highest value is kept.
+	 */
+	private void measure() {
+		long peak = heapMonitor.getPeakHeap() - baseHeap;
+		if (peak > 0 && windowInput > 0) {
+			double perByte = (double) peak / windowInput;
+			heapPerByte = measured ? Math.max(heapPerByte, perByte) : perByte;
+			measured = true;
+			log.info("Heap used by the jobs: " + peak + ", input size: " + windowInput);
+		}
+		heapMonitor.resetPeak();
+		windowInput = 0;
+		for (Job job : running)
+			windowInput += job.inputSize;
+	}
+
+	/**
+	 * @return the highest number of jobs that were running at the same time
+	 */
+	int getMaxRunning() {
+		return maxRunning;
+	}
+
+	boolean isShutdown() {
+		return threadPool.isShutdown();
+	}
+
+	/**
+	 * Uses the heap memory pools of the JVM.
+	 */
+	private static class PoolHeapMonitor implements HeapMonitor {
+		private final List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+
+		PoolHeapMonitor() {
+			for (MemoryPoolMXBean mxBean : ManagementFactory.getMemoryPoolMXBeans()) {
+				if (mxBean.getType() == MemoryType.HEAP)
+					heapPools.add(mxBean);
+			}
+		}
+
+		public long getLiveHeap() {
+			long live = 0;
+			for (MemoryPoolMXBean mxBean : heapPools) {
+				MemoryUsage usage = mxBean.getCollectionUsage();
+				if (usage != null)
+					live += usage.getUsed();
+			}
+			return live;
+		}
+
+		public long getPeakHeap() {
+			long peak = 0;
+			for (MemoryPoolMXBean mxBean : heapPools) {
+				MemoryUsage usage = mxBean.getPeakUsage();
+				if (usage != null)
+					peak += usage.getUsed();
+			}
+			return peak;
+		}
+
+		public void resetPeak() {
+			heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+		}
+	}
+}
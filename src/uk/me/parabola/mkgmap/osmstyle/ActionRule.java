@@ -17,9 +17,11 @@
 package uk.me.parabola.mkgmap.osmstyle;
 
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 
 import uk.me.parabola.log.Logger;
 import uk.me.parabola.mkgmap.osmstyle.actions.Action;
+import uk.me.parabola.mkgmap.osmstyle.eval.EvalContext;
 import uk.me.parabola.mkgmap.osmstyle.eval.Op;
 import uk.me.parabola.mkgmap.reader.osm.Element;
 import uk.me.parabola.mkgmap.reader.osm.GType;
@@ -42,8 +44,9 @@ public class ActionRule implements Rule {
 	private final List<Action> actions;
 	private final GType type;
 	private Rule finalizeRule;
-	private long numEval; // count how often the expression was evaluated 
-	private long numTrue; // count how often the evaluation returned true
+	// the counters are only used when the stats are logged
+	private final LongAdder numEval = new LongAdder(); // count how often the expression was evaluated 
+	private final LongAdder numTrue = new LongAdder(); // count how often the evaluation returned true
 
 	/** Finalize rules must not have an element type definition so the add method must never be called. */
 	private final static TypeResult finalizeTypeResult = new TypeResult() {
@@ -67,13 +70,14 @@ public class ActionRule implements Rule {
 	}
 	
 	
-	public int resolveType(int cacheId, Element el, TypeResult result) {
+	public void resolveType(EvalContext ctx, Element el, TypeResult result) {
 		Element element = el;
 		if (expression != null) {
-			numEval++;
-			if (!expression.eval(cacheId, element))
-				return cacheId;
-			numTrue++;
+			if (!expression.eval(ctx, element)) {
+				countEval(false);
+				return;
+			}
+			countEval(true);
 			// If this is a continue and we are not to propagate the effects
 			// of the action on the element to further rules, then make
 			// a copy of the element so that the original is unsullied.
@@ -92,7 +96,7 @@ public class ActionRule implements Rule {
 			}
 		}
 		if (invalidate_cache)
-			cacheId++;
+			ctx.invalidate();
 		
 		if (type != null && finalizeRule != null) {
 			if (el == element && type.isContinueSearch())
@@ -102,21 +106,21 @@ public class ActionRule implements Rule {
 			// there is a type so first execute the finalize rules
 			if (type.getDefaultName() != null)
 				element.addTag("mkgmap:default_name", type.getDefaultName());
-			cacheId = finalizeRule.resolveType(cacheId, element, finalizeTypeResult);
+			finalizeRule.resolveType(ctx, element, finalizeTypeResult);
 		}
 		
 		result.add(element, type);
-		return cacheId;
 	}
 	
 	
 	public void resolveType(Element el, TypeResult result) {
 		Element element = el;
 		if (expression != null) {
-			numEval++;
-			if (!expression.eval(element))
+			if (!expression.eval(element)) {
+				countEval(false);
 				return;
-			numTrue++;
+			}
+			countEval(true);
 			// If this is a continue and we are not to propagate the effects
 			// of the action on the element to further rules, then make
 			// a copy of the element so that the original is unsullied.
@@ -171,6 +175,10 @@ public class ActionRule implements Rule {
 		return finalizeRule;
 	}
 
+	public GType getType() {
+		return type;
+	}
+
 	public Op getOp(){
 		return expression;
 	}
@@ -179,10 +187,21 @@ public class ActionRule implements Rule {
 		this.expression = expression;
 	}
 	
+	/**
+	 * Count the evaluations of the expression if the stats are logged.
+	 */
+	private void countEval(boolean matches) {
+		if (statsLog.isInfoEnabled()) {
+			numEval.increment();
+			if (matches)
+				numTrue.increment();
+		}
+	}
+
 	@Override
 	public void printStats(String header) {
 		if (statsLog.isInfoEnabled())
-			statsLog.info(header,"stats (rule/evals/true)", this.toString() + "/" + numEval + "/" + numTrue);
+			statsLog.info(header,"stats (rule/evals/true)", this.toString() + "/" + numEval.sum() + "/" + numTrue.sum());
 	}
 
 	@Override
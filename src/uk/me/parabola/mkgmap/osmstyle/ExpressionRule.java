@@ -16,7 +16,10 @@
  */
 package uk.me.parabola.mkgmap.osmstyle;
 
+import java.util.concurrent.atomic.LongAdder;
+
 import uk.me.parabola.log.Logger;
+import uk.me.parabola.mkgmap.osmstyle.eval.EvalContext;
 import uk.me.parabola.mkgmap.osmstyle.eval.Op;
 import uk.me.parabola.mkgmap.reader.osm.Element;
 import uk.me.parabola.mkgmap.reader.osm.GType;
@@ -35,8 +38,9 @@ public class ExpressionRule implements Rule {
 	private Op expression;
 	private final GType gtype;
 	private Rule finalizeRule;
-	private long numEval; // count how often the expression was evaluated 
-	private long numTrue; // count how often the evaluation returned true
+	// the counters are only used when the stats are logged
+	private final LongAdder numEval = new LongAdder(); // count how often the expression was evaluated 
+	private final LongAdder numTrue = new LongAdder(); // count how often the evaluation returned true
 
 	/** Finalize rules must not have an element type definition so the add method must never be called. */
 	private final static TypeResult finalizeTypeResult = new TypeResult() {
@@ -52,9 +56,9 @@ public class ExpressionRule implements Rule {
 
 	
 	public void resolveType(Element el, TypeResult result) {
-		numEval++;
-		if (expression.eval(el)) {
-			numTrue++;
+		boolean matches = expression.eval(el);
+		countEval(matches);
+		if (matches) {
 			// expression matches
 			if (finalizeRule != null) {
 				if (gtype.isContinueSearch()) {
@@ -69,10 +73,10 @@ public class ExpressionRule implements Rule {
 		}
 	}
 
-	public int resolveType(int cacheId, Element el, TypeResult result) {
-		numEval++;
-		if (expression.eval(cacheId, el)){
-			numTrue++;
+	public void resolveType(EvalContext ctx, Element el, TypeResult result) {
+		boolean matches = expression.eval(ctx, el);
+		countEval(matches);
+		if (matches) {
 			if (finalizeRule != null) {
 				if (gtype.isContinueSearch()) {
 					el = el.copy();
@@ -80,11 +84,10 @@ public class ExpressionRule implements Rule {
 				// run the finalize rules
 				if (gtype.getDefaultName() != null)
 					el.addTag("mkgmap:default_name", gtype.getDefaultName());
-				cacheId = finalizeRule.resolveType(cacheId, el, finalizeTypeResult);
+				finalizeRule.resolveType(ctx, el, finalizeTypeResult);
 			}
 			result.add(el, gtype);
 		}
-		return cacheId;
 	}
 
 	public String toString() {
@@ -108,10 +111,21 @@ public class ExpressionRule implements Rule {
 		this.expression = expression;
 	}
 
+	/**
+	 * Count the evaluations of the expression if the stats are logged.
+	 */
+	private void countEval(boolean matches) {
+		if (statsLog.isInfoEnabled()) {
+			numEval.increment();
+			if (matches)
+				numTrue.increment();
+		}
+	}
+
 	@Override
 	public void printStats(String header) {
 		if (statsLog.isInfoEnabled())
-			statsLog.info(header,"stats (rule/evals/true)", this.toString() + "/" + numEval + "/" + numTrue);
+			statsLog.info(header,"stats (rule/evals/true)", this.toString() + "/" + numEval.sum() + "/" + numTrue.sum());
 	}
 
 	@Override
@@ -226,6 +226,7 @@ public class PrefixSuffixFilter {
 		
 		// perform brute force search, seems to be fast enough
 		String[] labels = road.getLabels();
+		boolean changed = false;
 		for (int i = 0; i < labels.length; i++) {
 			String label = labels[i];
 			if (label == null || label.length() == 0)
@@ -262,10 +263,16 @@ public class PrefixSuffixFilter {
 				}
 			}
 			if (modified) {
+				if (!changed) {
+					labels = Arrays.copyOf(labels, labels.length);
+					changed = true;
+				}
 				labels[i] = label;
 				log.debug("modified",label,country,road.getRoadDef());
 			}
 		}
+		if (changed)
+			road.setLabels(labels);
 	}
 	
 	/**
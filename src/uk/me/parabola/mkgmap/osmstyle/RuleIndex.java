@@ -155,6 +155,24 @@ public class RuleIndex {
 		return th.getBitSet(tagVal);
 	}
 
+	/**
+	 * Get a list of rules that might be matched by tags whose key starts with
+	 * the given prefix. The index must be prepared.
+	 * @param prefix The start of the tag keys, eg mkgmap:
+	 * @return A BitSet of rule numbers.
+	 */
+	public BitSet getRulesForKeyPrefix(String prefix) {
+		BitSet rules = new BitSet();
+		for (RuleDetails rd : ruleDetails) {
+			String keystring = rd.getKeystring();
+			int ind = keystring.indexOf('=');
+			if (ind >= 0 && keystring.startsWith(prefix)) {
+				short tagKey = TagDict.getInstance().xlate(keystring.substring(0, ind));
+				rules.or(getRulesForTag(tagKey, keystring.substring(ind + 1)));
+			}
+		}
+		return rules;
+	}
 	
 	/**
 	 * Prepare the index for use.  This involves merging in all the possible
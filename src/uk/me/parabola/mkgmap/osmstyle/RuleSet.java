@@ -28,6 +28,7 @@ import java.util.Set;
 import uk.me.parabola.log.Logger;
 import uk.me.parabola.mkgmap.osmstyle.eval.AbstractBinaryOp;
 import uk.me.parabola.mkgmap.osmstyle.eval.AbstractOp;
+import uk.me.parabola.mkgmap.osmstyle.eval.EvalContext;
 import uk.me.parabola.mkgmap.osmstyle.eval.LinkedBinaryOp;
 import uk.me.parabola.mkgmap.osmstyle.eval.LinkedOp;
 import uk.me.parabola.mkgmap.osmstyle.eval.Op;
@@ -49,9 +50,8 @@ public class RuleSet implements Rule, Iterable<Rule> {
 	private Rule[] rules;
 	private Rule finalizeRule;
 
-	// identifies cached values 
-	int cacheId;
-	boolean compiled = false;
+	private volatile boolean compiled = false;
+	private boolean prepared;
 
 	private final static short executeFinalizeRulesTagKey = TagDict.getInstance().xlate("mkgmap:execute_finalize_rules");
 
@@ -60,7 +60,7 @@ public class RuleSet implements Rule, Iterable<Rule> {
 	
 	@Override
 	public void resolveType(Element el, TypeResult result) {
-		cacheId = resolveType(cacheId, el, result);
+		resolveType(EvalContext.get(), el, result);
 	}
 	
 	
@@ -70,18 +70,19 @@ public class RuleSet implements Rule, Iterable<Rule> {
 	 * This is a very performance critical part of the style system as parts
 	 * of the code are run for every tag in the input file.
 	 *
+	 * @param ctx Holds the cached values of the current thread.
 	 * @param el The element as read from an OSM xml file in 'tag' format.
 	 * @param result A GType describing the Garmin type of the first rule that
 	 * matches is returned here.  If continue types are used then more than
 	 * one type may be saved here.  If there are no matches then nothing will
 	 * be saved.
 	 */
-	public int resolveType(int cacheId, Element el, TypeResult result) {
+	public void resolveType(EvalContext ctx, Element el, TypeResult result) {
 		WatchableTypeResult a = new WatchableTypeResult(result);
-		if (!compiled || cacheId == Integer.MAX_VALUE)
+		if (!compiled)
 			compile();
 		// new element, invalidate all caches
-		cacheId++;
+		ctx.invalidate();
 		
 		// Get all the rules that could match from the index.  
 		BitSet candidates = new BitSet();
@@ -94,21 +95,19 @@ public class RuleSet implements Rule, Iterable<Rule> {
 		for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {			
 			a.reset();
 			lastRule = rules[i];
-			cacheId = lastRule.resolveType(cacheId, el, a);
+			lastRule.resolveType(ctx, el, a);
 			if (a.isResolved())
-				return cacheId;
+				return;
 		}
 		if (lastRule != null && lastRule.getFinalizeRule() != null){
 			if ("true".equals(el.getTag(executeFinalizeRulesTagKey))){
-				cacheId = lastRule.getFinalizeRule().resolveType(cacheId, el, a);
+				lastRule.getFinalizeRule().resolveType(ctx, el, a);
 			}
 		}
-		return cacheId;
 	}
 
 	public Iterator<Rule> iterator() {
-		if (rules == null)
-			prepare();
+		prepare();
 		return Arrays.asList(rules).iterator();
 	}
 
@@ -163,6 +162,7 @@ public class RuleSet implements Rule, Iterable<Rule> {
 
 		index = newIndex;
 		rules = newIndex.getRules();
+		prepared = false;
 		//System.out.println("Merging used tags: "
 		//		   + getUsedTags().toString()
 		//		   + " + "
@@ -174,11 +174,15 @@ public class RuleSet implements Rule, Iterable<Rule> {
 
 	/**
 	 * Prepare this rule set for use.  The index is built and and the rules
-	 * are saved to an array for fast access.
+	 * are saved to an array for fast access. The index is only built once,
+	 * so this can be called again and by several threads.
 	 */
-	public void prepare() {
-		index.prepare();
-		rules = index.getRules();
+	public synchronized void prepare() {
+		if (!prepared) {
+			index.prepare();
+			rules = index.getRules();
+			prepared = true;
+		}
 		compile();
 	}
 
@@ -191,11 +195,13 @@ public class RuleSet implements Rule, Iterable<Rule> {
 	}
 
 	/**
-	 * Compile the rules and reset caches. Detect common sub-expressions and
+	 * Compile the rules. Detect common sub-expressions and
 	 * make sure that all rules use the same instance of these common
 	 * sub-expressions.
 	 */
-	private void compile(){
+	private synchronized void compile(){
+		if (compiled)
+			return;
 		HashMap<String, Op> tests = new HashMap<String, Op>();
 
 		for (Rule rule:rules){
@@ -234,7 +240,6 @@ public class RuleSet implements Rule, Iterable<Rule> {
 				continue;
 			}
 		}
-		cacheId = 0;
 		compiled = true;
 	}
 	
@@ -251,8 +256,6 @@ public class RuleSet implements Rule, Iterable<Rule> {
 		String test = op.toString();
 		Op commonOp = tests.get(test);
 		if (commonOp == null){
-			if (op instanceof AbstractOp)
-				((AbstractOp)op).resetCache();
 			tests.put(test, op);
 			commonOp = op;
 		}
@@ -307,11 +310,26 @@ public class RuleSet implements Rule, Iterable<Rule> {
 		return false;
 	}
 
+	/**
+	 * Check if a rule with a type might be matched because of tags whose
+	 * key starts with the given prefix, either directly or after other
+	 * rules have changed tags.
+	 * @param prefix The start of the tag keys, eg mkgmap:
+	 * @return true if such a rule exists.
+	 */
+	public boolean hasTypedRulesForKeyPrefix(String prefix) {
+		prepare();
+		BitSet candidates = index.getRulesForKeyPrefix(prefix);
+		for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+			if (!(rules[i] instanceof ActionRule) || ((ActionRule) rules[i]).getType() != null)
+				return true;
+		}
+		return false;
+	}
+
 	public BitSet getRules(Element el) {
-		if (!compiled || cacheId == Integer.MAX_VALUE)
+		if (!compiled)
 			compile();
-		// new element, invalidate all caches
-		cacheId++;
 
 		// Get all the rules that could match from the index.  
 		BitSet candidates = new BitSet();
@@ -35,6 +35,7 @@ import java.util.ListIterator;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 import uk.me.parabola.imgfmt.ExitException;
@@ -86,6 +87,13 @@ public class StyleImpl implements Style {
 	// Patterns
 	private static final Pattern COMMA_OR_SPACE_PATTERN = Pattern.compile("[,\\s]+");
 
+	// The program options that select a style or may change how it is read
+	private static final List<String> STYLE_OPTIONS = Arrays.asList("style-file", "map-features", "style",
+			"style-option", "levels", "overview-levels");
+
+	// The styles read by readStyle() in this run, keyed by the values of the style options
+	private static final Map<List<String>, Style> styleCache = new ConcurrentHashMap<>();
+
 	// A handle on the style directory or file.
 	private final StyleFileLoader fileLoader;
 	private final String location;
@@ -103,6 +111,8 @@ public class StyleImpl implements Style {
 	private final RuleSet polygons = new RuleSet();
 	private final RuleSet nodes = new RuleSet();
 	private final RuleSet relations = new RuleSet();
+	private RuleSet ways;
+	private boolean prepared;
 
 	private OverlayReader overlays;
 	private final boolean performChecks;
@@ -172,33 +182,49 @@ public class StyleImpl implements Style {
 	}
 
 	public Rule getNodeRules() {
-		nodes.prepare();
+		prepareRules();
 		return nodes;
 	}
 
 	public Rule getWayRules() {
-		RuleSet r = new RuleSet();
-		r.addAll(lines);
-		r.addAll(polygons);
-		r.prepare();
-		return r;
+		prepareRules();
+		return ways;
 	}
 
 	public Rule getLineRules() {
-		lines.prepare();
+		prepareRules();
 		return lines;
 	}
 
 	public Rule getPolygonRules() {
-		polygons.prepare();
+		prepareRules();
 		return polygons;
 	}
 	
 	public Rule getRelationRules() {
-		relations.prepare();
+		prepareRules();
 		return relations;
 	}
 
+	/**
+	 * Prepare all rule sets when they are first used. They are not
+	 * changed after that, so that the style can be used by several
+	 * threads at the same time.
+	 */
+	private synchronized void prepareRules() {
+		if (prepared)
+			return;
+		ways = new RuleSet();
+		ways.addAll(lines);
+		ways.addAll(polygons);
+		ways.prepare();
+		nodes.prepare();
+		lines.prepare();
+		polygons.prepare();
+		relations.prepare();
+		prepared = true;
+	}
+
 	public LineAdder getOverlays(final LineAdder lineAdder) {
 		LineAdder adder = null;
 
@@ -218,7 +244,21 @@ public class StyleImpl implements Style {
 		set.addAll(lines.getUsedTags());
 		set.addAll(polygons.getUsedTags());
 		set.addAll(nodes.getUsedTags());
+		addExtraUsedTags(set);
+		return set;
+	}
 
+	public Set<String> getUsedNodeTags() {
+		prepareRules();
+		// the hooks and the style options add mkgmap: tags to the nodes
+		if (nodes.hasTypedRulesForKeyPrefix("mkgmap:"))
+			return null;
+		Set<String> set = new HashSet<String>(nodes.getUsedTags());
+		addExtraUsedTags(set);
+		return set;
+	}
+
+	private void addExtraUsedTags(Set<String> set) {
 		// this is to allow style authors to say that tags are really used even
 		// if they are not found in the style file.  This is mostly to work
 		// around situations that we haven't thought of - the style is expected
@@ -248,7 +288,6 @@ public class StyleImpl implements Style {
 		} finally {
 			Utils.closeFile(is);
 		}
-		return set;
 	}
 
 	private void readRules() {
@@ -503,7 +542,9 @@ public class StyleImpl implements Style {
 	}
 
 	/**
-	 * Evaluate the style options and try to read the style.
+	 * Evaluate the style options and return the style. A style is only
+	 * read once in a run, the same instance is returned for all tiles that
+	 * use the same style options. See {@link #clearStyleCache()}.
 	 * 
 	 * The option --style-file give the location of an alternate file or
 	 * directory containing styles rather than the default built in ones.
@@ -526,6 +567,24 @@ public class StyleImpl implements Style {
 		if (loc == null && name == null)
 			name = "default";
 
+		List<String> key = new ArrayList<>();
+		for (String option : STYLE_OPTIONS)
+			key.add(props.getProperty(option));
+		String styleLoc = loc;
+		String styleName = name;
+		return styleCache.computeIfAbsent(key, k -> readStyle(styleLoc, styleName, props));
+	}
+
+	/**
+	 * Forget the styles that were read by {@link #readStyle(EnhancedProperties)}.
+	 * This is called at the end of a run, so that the next run in the same
+	 * JVM reads the style files again.
+	 */
+	public static void clearStyleCache() {
+		styleCache.clear();
+	}
+
+	private static Style readStyle(String loc, String name, EnhancedProperties props) {
 		if (name == null){
 			StyleFileLoader loader = null;
 			try {
@@ -51,6 +51,7 @@ import uk.me.parabola.mkgmap.general.AreaClipper;
 import uk.me.parabola.mkgmap.general.Clipper;
 import uk.me.parabola.mkgmap.general.LineAdder;
 import uk.me.parabola.mkgmap.general.LineClipper;
+import uk.me.parabola.mkgmap.general.MapAddress;
 import uk.me.parabola.mkgmap.general.MapCollector;
 import uk.me.parabola.mkgmap.general.MapElement;
 import uk.me.parabola.mkgmap.general.MapExitPoint;
@@ -78,6 +79,7 @@ import uk.me.parabola.mkgmap.reader.osm.Way;
 import uk.me.parabola.util.ElementQuadTree;
 import uk.me.parabola.util.EnhancedProperties;
 import uk.me.parabola.util.MultiHashMap;
+import uk.me.parabola.util.PhaseStats;
 
 /**
  * Convert from OSM to the mkgmap intermediate format using a style.
@@ -268,30 +270,29 @@ public class StyledConverter implements OsmConverter {
 		return styleTags;
 	}	
 
-	/** One type result for ways to avoid recreating one for each way. */ 
-	private final WayTypeResult wayTypeResult = new WayTypeResult();
+	/**
+	 * Collects the types that the style rules return for a way. They are
+	 * added to the map later in the same order.
+	 */
 	private class WayTypeResult implements TypeResult 
 	{
-		private Way way;
-		/** flag if the rule was fired */
-		private boolean matched;
+		private final Way way;
+		private final List<Way> ways = new ArrayList<>(2);
+		private final List<GType> types = new ArrayList<>(2);
 		
-		public void setWay(Way way) {
+		public WayTypeResult(Way way) {
 			this.way = way;
-			this.matched = false;
 		}
 		
 		public void add(Element el, GType type) {
-			this.matched = true;
 			if (type.isContinueSearch()) {
 				// If not already copied, do so now
 				if (el == way) 
 					el = way.copy();
 			}
 			postConvertRules(el, type);
-			if (type.isRoad() == false)
-				housenumberGenerator.addWay((Way)el);
-			addConvertedWay((Way) el, type);
+			ways.add((Way) el);
+			types.add(type);
 		}
 
 		/**
@@ -299,7 +300,24 @@ public class StyledConverter implements OsmConverter {
 		 * @return {@code true} way is converted; {@code false} way is not converted
 		 */
 		public boolean isMatched() {
-			return matched;
+			return !types.isEmpty();
+		}
+
+		/**
+		 * Add the converted ways to the map.
+		 */
+		public void addConvertedWays() {
+			if (!isMatched()) {
+				// no match found but we have to keep it for house number processing
+				housenumberGenerator.addWay(way);
+				return;
+			}
+			for (int i = 0; i < types.size(); i++) {
+				GType type = types.get(i);
+				if (type.isRoad() == false)
+					housenumberGenerator.addWay(ways.get(i));
+				addConvertedWay(ways.get(i), type);
+			}
 		}
 	}
 	
@@ -313,23 +331,30 @@ public class StyledConverter implements OsmConverter {
 	 *
 	 * @param way The OSM way.
 	 */
+	public void convertWay(final Way way) {
+		resolveWay(way).run();
+	}
+
 	private final static short styleFilterTagKey = TagDict.getInstance().xlate("mkgmap:stylefilter");
 	private final static short makeCycleWayTagKey = TagDict.getInstance().xlate("mkgmap:make-cycle-way");
 	private long lastRoadId = 0; 
-	private int lineCacheId = 0;
 	private BitSet routingWarningWasPrinted = new BitSet();
-	public void convertWay(final Way way) {
+
+	/**
+	 * Run the style rules for the way. This doesn't change the state of the
+	 * converter, so it can be called in another thread.
+	 * @param way The OSM way.
+	 * @return the task that adds the results to the map
+	 */
+	@Override
+	public Runnable resolveWay(final Way way) {
 		if (way.getPoints().size() < 2 || way.getTagCount() == 0){
 			// no tags or no points => nothing to convert
-			removeRestrictionsWithWay(Level.WARNING, way, "is ignored");
-			return;
-		}
-		if (addBoundaryNodesAtAdminBoundaries) {
-			// is this a country border ? 
-			if (!FakeIdGenerator.isFakeId(way.getId()) && isNod3Border(way)) {
-				borders.add(way);
-			}
+			return () -> removeRestrictionsWithWay(Level.WARNING, way, "is ignored");
 		}
+		// is this a country border ? 
+		boolean isBorder = addBoundaryNodesAtAdminBoundaries && !FakeIdGenerator.isFakeId(way.getId())
+				&& isNod3Border(way);
 
 		preConvertRules(way);
 
@@ -355,20 +380,25 @@ public class StyledConverter implements OsmConverter {
 			cycleWay = makeCycleWay(way);
 			way.addTag("bicycle", "no"); // make sure that bicycles are using the added bicycle way 
 		}
-		wayTypeResult.setWay(way);
-		lineCacheId = rules.resolveType(lineCacheId, way, wayTypeResult);
-		if (wayTypeResult.isMatched() == false) {
-			// no match found but we have to keep it for house number processing
-			housenumberGenerator.addWay(way);
-		}
+		WayTypeResult wayTypeResult = new WayTypeResult(way);
+		rules.resolveType(way, wayTypeResult);
+		WayTypeResult cycleWayTypeResult = null;
 		if (cycleWay != null){
-			wayTypeResult.setWay(cycleWay);
-			lineCacheId = rules.resolveType(lineCacheId, cycleWay, wayTypeResult);
-			if (wayTypeResult.isMatched() == false) {
-				// no match found but we have to keep it for house number processing
-				housenumberGenerator.addWay(cycleWay);
-			}
+			cycleWayTypeResult = new WayTypeResult(cycleWay);
+			rules.resolveType(cycleWay, cycleWayTypeResult);
 		}
+		final WayTypeResult cycleResult = cycleWayTypeResult;
+		return () -> {
+			if (isBorder)
+				borders.add(way);
+			wayTypeResult.addConvertedWays();
+			if (cycleResult != null)
+				cycleResult.addConvertedWays();
+			checkRoutableWay(way);
+		};
+	}
+
+	private void checkRoutableWay(Way way) {
 		if (lastRoadId != way.getId()){
 			// this way was not added to the roads list
 			removeRestrictionsWithWay(Level.WARNING, way, "is not routable");
@@ -795,7 +825,7 @@ public class StyledConverter implements OsmConverter {
 		}
 		deletedRoads = null;
 		modifiedRoads = null;
-		mergeRoads();
+		PhaseStats.run("road-merge", () -> mergeRoads());
 		
 		resetHighwayCounts();
 		setHighwayCounts();
@@ -814,7 +844,7 @@ public class StyledConverter implements OsmConverter {
 			if (cw.isValid())
 				addRoad(cw);
 		}
-		housenumberGenerator.generate(lineAdder, nextNodeId);
+		PhaseStats.run("housenumbers", () -> housenumberGenerator.generate(lineAdder, nextNodeId));
 		housenumberGenerator = null;
 		
 		if (routable)
@@ -1303,8 +1333,9 @@ public class StyledConverter implements OsmConverter {
 	private static final short housenumberTagKey = TagDict.getInstance().xlate("mkgmap:housenumber");
 	private static final short phoneTagKey = TagDict.getInstance().xlate("mkgmap:phone");
 	private static final short is_inTagKey = TagDict.getInstance().xlate("mkgmap:is_in");
+	private final Map<MapAddress, MapAddress> addresses = new HashMap<>();
 	
-	private static void elementSetup(MapElement ms, GType gt, Element element) {
+	private void elementSetup(MapElement ms, GType gt, Element element) {
 		String[] labels = new String[4];
 		int noLabels = 0;
 		for (int labelNo = 0; labelNo < 4; labelNo++) {
@@ -1366,6 +1397,11 @@ public class StyledConverter implements OsmConverter {
 		if(phone != null)
 			ms.setPhone(phone);
 
+		// elements with the same address share one object
+		MapAddress address = ms.getAddress();
+		if (address != null)
+			ms.setAddress(addresses.computeIfAbsent(address, a -> a));
+
 
 		
 		if(MapObject.hasExtendedType(gt.getType())) {
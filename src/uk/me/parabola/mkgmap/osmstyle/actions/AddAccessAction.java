@@ -26,9 +26,6 @@ import static uk.me.parabola.imgfmt.app.net.AccessTagsAndBits.*;
 public class AddAccessAction extends ValueBuildedAction {
 	private final boolean modify;
 
-	// The tags used to build the value.
-	private Element valueTags;
-
 	/**
 	 * Create an action to add the given value to all mkgmap access tags.
 	 * If the modify flag is false, then only those tags are set that do
@@ -40,11 +37,20 @@ public class AddAccessAction extends ValueBuildedAction {
 	}
 
 	public boolean perform(Element el) {
+		return perform(el, el);
+	}
+
+	/**
+	 * Set the access tags of the element.
+	 * @param el the element that gets the tags
+	 * @param valueTags the tags used to build the value
+	 * @return true if the tags were set
+	 */
+	public boolean perform(Element el, Element valueTags) {
 		// 1st build the value
-		Element tags = valueTags!=null? valueTags: el;
 		String accessValue = null;
 		for (ValueBuilder value : getValueBuilder()) {
-			accessValue = value.build(tags, el);
+			accessValue = value.build(valueTags, el);
 			if (accessValue != null) {
 				break;
 			}
@@ -74,10 +80,6 @@ public class AddAccessAction extends ValueBuildedAction {
 		el.addTag(tagKey, value);
 	}
 
-	public void setValueTags(Element valueTags) {
-		this.valueTags = valueTags;
-	}
-
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
 		sb.append(modify ? "setaccess " : "addaccess ");
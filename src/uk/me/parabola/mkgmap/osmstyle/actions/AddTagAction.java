@@ -32,9 +32,6 @@ public class AddTagAction extends ValueBuildedAction {
 	private final String tag;
 	private final short tagKey;
 
-	// The tags used to build the value.
-	private Element valueTags;
-
 	/**
 	 * Create an action to add the given tag with a value.
 	 * If the modify flag is true, then we change the tag if it
@@ -48,15 +45,24 @@ public class AddTagAction extends ValueBuildedAction {
 	}
 
 	public boolean perform(Element el) {
+		return perform(el, el);
+	}
+
+	/**
+	 * Add the tag to the element.
+	 * @param el the element that gets the tag
+	 * @param valueTags the tags used to build the value
+	 * @return true if the tag was added
+	 */
+	public boolean perform(Element el, Element valueTags) {
 		if (!modify){
 			String tv = el.getTag(tagKey);
 			if (tv != null)
 				return false;
 		}
-		Element tags = valueTags!=null? valueTags: el;
 
 		for (ValueBuilder value : getValueBuilder()) {
-			String newval = value.build(tags, el);
+			String newval = value.build(valueTags, el);
 			if (newval != null) {
 				el.addTag(tagKey, newval);
 				return true;
@@ -66,10 +72,6 @@ public class AddTagAction extends ValueBuildedAction {
 	}
 
 
-	public void setValueTags(Element valueTags) {
-		this.valueTags = valueTags;
-	}
-
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
 		sb.append(modify ? "set " : "add ");
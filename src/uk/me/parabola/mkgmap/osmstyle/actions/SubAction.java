@@ -52,20 +52,22 @@ public class SubAction implements Action {
 	private void performOnSubElements(Relation rel) {
 		List<Map.Entry<String,Element>> elements = rel.getElements();
 
-		for (Action a : actionList)
-			if (a instanceof AddTagAction)
-				((AddTagAction) a).setValueTags(rel);
-			else if (a instanceof AddAccessAction)
-				((AddAccessAction) a).setValueTags(rel);
-
 		HashSet<Element> elems = once ? new HashSet<Element>() : null;
 
 		for (Map.Entry<String,Element> r_el : elements) {
 			if ((role == null || role.equals(r_el.getKey())) &&
 				(!once || elems.add(r_el.getValue()))) {
 
-				for (Action a : actionList)
-					a.perform(r_el.getValue());
+				Element el = r_el.getValue();
+				for (Action a : actionList) {
+					// the values of added tags are built from the tags of the relation
+					if (a instanceof AddTagAction)
+						((AddTagAction) a).perform(el, rel);
+					else if (a instanceof AddAccessAction)
+						((AddAccessAction) a).perform(el, rel);
+					else
+						a.perform(el);
+				}
 			}
 		}
 	}
@@ -19,7 +19,6 @@ package uk.me.parabola.mkgmap.osmstyle.eval;
 import java.util.HashSet;
 import java.util.Set;
 
-import uk.me.parabola.imgfmt.ExitException;
 import uk.me.parabola.mkgmap.osmstyle.function.GetTagFunction;
 import uk.me.parabola.mkgmap.reader.osm.Element;
 import uk.me.parabola.mkgmap.scan.SyntaxException;
@@ -33,8 +32,8 @@ public abstract class AbstractOp implements Op {
 	
 	protected Op first;
 	private NodeType type;
-	protected boolean lastRes;
-	protected int lastCachedId = -1;
+	// the slot of the cached result in the EvalContext
+	protected final int cacheSlot = EvalContext.allocSlot();
 
 	public static Op createOp(String value) {
 		char c = value.charAt(0);
@@ -115,16 +114,12 @@ public abstract class AbstractOp implements Op {
 		}
 	}
 
-	public boolean eval(int cacheId, Element el){
-		if (lastCachedId != cacheId){
-			if (lastCachedId > cacheId){
-				throw new ExitException("fatal error: cache id invalid");
-			}
-			lastRes = eval(el);
-			lastCachedId = cacheId;
-		}
-		return lastRes;
-			
+	public boolean eval(EvalContext ctx, Element el){
+		if (ctx.hasResult(cacheSlot))
+			return ctx.getResult(cacheSlot);
+		boolean res = eval(el);
+		ctx.setResult(cacheSlot, res);
+		return res;
 	}
 
 	/**
@@ -142,7 +137,6 @@ public abstract class AbstractOp implements Op {
 	@SuppressWarnings("unchecked")
 	public <T extends Op> T setFirst(Op first) {
 		this.first = first;
-		lastCachedId = -1;
 		return (T) this;
 	}
 
@@ -188,10 +182,6 @@ public abstract class AbstractOp implements Op {
 		return type == value;
 	}
 
-	public void resetCache(){
-		lastCachedId = -1;
-	}
-
 	@Override
 	public Set<String> getEvaluatedTagKeys() {
 		HashSet<String> set = new HashSet<>();
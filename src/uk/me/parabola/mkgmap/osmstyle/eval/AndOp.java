@@ -16,7 +16,6 @@
  */
 package uk.me.parabola.mkgmap.osmstyle.eval;
 
-import uk.me.parabola.imgfmt.ExitException;
 import uk.me.parabola.mkgmap.reader.osm.Element;
 
 /**
@@ -35,18 +34,12 @@ public class AndOp extends AbstractBinaryOp {
 		return getFirst().eval(el) && getSecond().eval(el);
 	}
 
-	public boolean eval(int cacheId, Element el){
-		if (lastCachedId != cacheId){
-			if (lastCachedId > cacheId){
-				throw new ExitException("fatal error: cache id invalid");
-			}
-			lastRes = getFirst().eval(cacheId, el);
-			if (lastRes == true)
-				lastRes = getSecond().eval(cacheId, el);
-			lastCachedId = cacheId;
-		}
-		//else System.out.println("cached: " + cacheId + " " + toString());
-		return lastRes;
+	public boolean eval(EvalContext ctx, Element el){
+		if (ctx.hasResult(cacheSlot))
+			return ctx.getResult(cacheSlot);
+		boolean res = getFirst().eval(ctx, el) && getSecond().eval(ctx, el);
+		ctx.setResult(cacheSlot, res);
+		return res;
 	}
 
 
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.osmstyle.eval;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import uk.me.parabola.mkgmap.reader.osm.Element;
+
+/**
+ * The state of the rule evaluation for one thread. The rules and the
+ * operations of a style don't change after the style is read, so that
+ * the same style can be used by all threads. The values that are cached
+ * while an element is evaluated are kept here instead.
+ * <p>
+ * Each operation that caches a value gets a slot number when it is
+ * created, the arrays of the context are indexed by this number.
+ */
+public class EvalContext {
+	private static final AtomicInteger nextSlot = new AtomicInteger();
+	private static final ThreadLocal<EvalContext> contexts = ThreadLocal.withInitial(EvalContext::new);
+
+	// identifies cached values, a slot with a different id has no valid value
+	private int cacheId = 1;
+	private int[] cacheIds = new int[0];
+	private boolean[] results = new boolean[0];
+	private Element[] matched = new Element[0];
+
+	/**
+	 * @return the context of the current thread
+	 */
+	public static EvalContext get() {
+		return contexts.get();
+	}
+
+	/**
+	 * @return a new slot number for an operation
+	 */
+	static int allocSlot() {
+		return nextSlot.getAndIncrement();
+	}
+
+	/**
+	 * Invalidate all cached values. This is called for each new element and
+	 * when an action has changed the element.
+	 */
+	public void invalidate() {
+		if (cacheId == Integer.MAX_VALUE) {
+			Arrays.fill(cacheIds, 0);
+			cacheId = 0;
+		}
+		cacheId++;
+	}
+
+	private void ensureCapacity(int slot) {
+		if (slot < cacheIds.length)
+			return;
+		int newLength = Math.max(slot + 1, nextSlot.get());
+		cacheIds = Arrays.copyOf(cacheIds, newLength);
+		results = Arrays.copyOf(results, newLength);
+		matched = Arrays.copyOf(matched, newLength);
+	}
+
+	/**
+	 * @return true if there is a valid result for the slot
+	 */
+	boolean hasResult(int slot) {
+		ensureCapacity(slot);
+		return cacheIds[slot] == cacheId;
+	}
+
+	/**
+	 * @return the result of the slot, only valid if {@link #hasResult(int)}
+	 * returned true
+	 */
+	boolean getResult(int slot) {
+		return results[slot];
+	}
+
+	void setResult(int slot, boolean res) {
+		ensureCapacity(slot);
+		cacheIds[slot] = cacheId;
+		results[slot] = res;
+	}
+
+	/**
+	 * @return the element that was matched by an earlier term of a linked
+	 * OR expression, see {@link LinkedOp}
+	 */
+	Element getMatched(int slot) {
+		ensureCapacity(slot);
+		return matched[slot];
+	}
+
+	void setMatched(int slot, Element el) {
+		ensureCapacity(slot);
+		matched[slot] = el;
+	}
+}
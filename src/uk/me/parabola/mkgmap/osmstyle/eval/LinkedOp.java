@@ -43,7 +43,8 @@ public class LinkedOp implements Op {
 	protected final Op wrapped;
 	private final boolean first;
 	private LinkedOp link;
-	private Element current;
+	// the slot of the matched element in the EvalContext
+	private final int matchSlot = EvalContext.allocSlot();
 
 	protected LinkedOp(Op wrapped, boolean first) {
 		this.wrapped = wrapped;
@@ -51,22 +52,23 @@ public class LinkedOp implements Op {
 	}
 
 	public boolean eval(Element el) {
-		if (el == current)
+		EvalContext ctx = EvalContext.get();
+		if (el == ctx.getMatched(matchSlot))
 			return false;
 
 		boolean b = wrapped.eval(el);
 		if (link != null && b)
-			link.setMatched(el);
+			link.setMatched(ctx, el);
 		return b;
 	}
 
-	public boolean eval(int cacheId, Element el){
-		if (el == current)
+	public boolean eval(EvalContext ctx, Element el){
+		if (el == ctx.getMatched(matchSlot))
 			return false;
 
-		boolean b = wrapped.eval(cacheId, el);
+		boolean b = wrapped.eval(ctx, el);
 		if (link != null && b)
-			link.setMatched(el);
+			link.setMatched(ctx, el);
 		return b;
 	}
 	
@@ -134,12 +136,13 @@ public class LinkedOp implements Op {
 	 * are called to evaluate and find that the element we are given
 	 * has already been matched by an earlier term in the OR then we just
 	 * return without doing anything.
+	 * @param ctx The context of the current thread.
 	 * @param el The element to mark as being matched.
 	 */
-	private void setMatched(Element el) {
-		this.current = el;
+	private void setMatched(EvalContext ctx, Element el) {
+		ctx.setMatched(matchSlot, el);
 		if (link != null)
-			link.setMatched(el);
+			link.setMatched(ctx, el);
 	}
 
 	public void setLink(LinkedOp link) {
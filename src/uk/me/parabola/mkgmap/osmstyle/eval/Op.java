@@ -39,11 +39,11 @@ public interface Op {
 	
 	/**
 	 * Evaluate the expression using a cache.
-	 * @param cacheId used to recognise an invalid cache
+	 * @param ctx holds the cached values of the current thread
 	 * @param el The OSM element to be tested.
 	 * @return True if the expression is true for the given element.
 	 */
-	public boolean eval(int cacheId, Element el);
+	public boolean eval(EvalContext ctx, Element el);
 
 
 	/**
@@ -25,6 +25,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -35,6 +36,7 @@ import java.util.Set;
 import java.util.TreeMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.IntStream;
 
 import uk.me.parabola.imgfmt.MapFailedException;
 import uk.me.parabola.imgfmt.Utils;
@@ -53,8 +55,6 @@ import uk.me.parabola.mkgmap.reader.osm.Relation;
 import uk.me.parabola.mkgmap.reader.osm.TagDict;
 import uk.me.parabola.mkgmap.reader.osm.Way;
 import uk.me.parabola.util.EnhancedProperties;
-import uk.me.parabola.util.KdTree;
-import uk.me.parabola.util.Locatable;
 import uk.me.parabola.util.MultiHashMap;
 
 /**
@@ -72,6 +72,8 @@ public class HousenumberGenerator {
 	public static final double MAX_DISTANCE_SAME_NUM = 100d;
 	
 	private boolean numbersEnabled;
+	/** use multiple threads to match houses to roads and to process the roads */
+	private final boolean parallel;
 
 	// options for handling of unnamed (service?) roads	
 	private int nameSearchDepth = 3;
@@ -102,6 +104,7 @@ public class HousenumberGenerator {
 		this.houseElems = new ArrayList<>();
 		
 		numbersEnabled = props.containsKey("housenumbers");
+		parallel = props.getProperty("parallel-housenumbers", false);
 		int n = props.getProperty("name-service-roads", 3);
 		if (n != nameSearchDepth){
 			nameSearchDepth = Math.min(25, Math.max(0, n));
@@ -690,40 +693,35 @@ public class HousenumberGenerator {
 				roadsInCluster.add(hnr);
 			}
 			
-			for (Entry<String, TreeMap<CityInfo, List<HousenumberRoad>>> streetNameEntry : streetnameCityRoadMap.entrySet()){
-				String streetName = streetNameEntry.getKey();
-				
-				for (Entry<CityInfo, List<HousenumberRoad>> clusterEntry : streetNameEntry.getValue().entrySet()){
-					useInterpolationInfo(streetName, clusterEntry.getValue(), road2HousenumberRoadMap);
-				}
-				
-				for (Entry<CityInfo, List<HousenumberRoad>> clusterEntry : streetNameEntry.getValue().entrySet()){
-					List<HousenumberRoad> roadsInCluster = clusterEntry.getValue();
-					if (log.isDebugEnabled()){
-						log.debug("processing road(s) with name",streetName,"in",clusterEntry.getKey() );
+			if (parallel) {
+				// the interpolation info may add houses to roads in other clusters,
+				// so use it first. The clusters don't share any road, but clusters
+				// whose roads share a point are processed in the same thread.
+				List<List<HousenumberRoad>> clusters = new ArrayList<>();
+				for (Entry<String, TreeMap<CityInfo, List<HousenumberRoad>>> streetNameEntry : streetnameCityRoadMap.entrySet()){
+					String streetName = streetNameEntry.getKey();
+					for (Entry<CityInfo, List<HousenumberRoad>> clusterEntry : streetNameEntry.getValue().entrySet()){
+						useInterpolationInfo(streetName, clusterEntry.getValue(), road2HousenumberRoadMap);
+						clusters.add(clusterEntry.getValue());
 					}
-					for (HousenumberRoad hnr : roadsInCluster){
-						hnr.buildIntervals();
+				}
+				groupBySharedPoints(clusters).parallelStream().forEach(group -> {
+					for (List<HousenumberRoad> cluster : group)
+						processCluster(cluster);
+				});
+			} else {
+				for (Entry<String, TreeMap<CityInfo, List<HousenumberRoad>>> streetNameEntry : streetnameCityRoadMap.entrySet()){
+					String streetName = streetNameEntry.getKey();
+
+					for (Entry<CityInfo, List<HousenumberRoad>> clusterEntry : streetNameEntry.getValue().entrySet()){
+						useInterpolationInfo(streetName, clusterEntry.getValue(), road2HousenumberRoadMap);
 					}
-					boolean optimized = false;
-					for (int loop = 0; loop < 10; loop++){
-						for (HousenumberRoad hnr : roadsInCluster){
-							hnr.checkIntervals();
-						}
-						checkWrongRoadAssignmments(roadsInCluster);
-						boolean changed = hasChanges(roadsInCluster);
-						if (!optimized && !changed){
-							for (HousenumberRoad hnr : roadsInCluster){
-								hnr.improveSearchResults();
-							}
-							changed = hasChanges(roadsInCluster);
-							optimized = true;
+
+					for (Entry<CityInfo, List<HousenumberRoad>> clusterEntry : streetNameEntry.getValue().entrySet()){
+						if (log.isDebugEnabled()){
+							log.debug("processing road(s) with name",streetName,"in",clusterEntry.getKey() );
 						}
-						if (!changed)
-							break;
-					}
-					for (HousenumberRoad hnr : roadsInCluster){
-						hnr.setNumbers();
+						processCluster(clusterEntry.getValue());
 					}
 				}
 			}
@@ -756,6 +754,71 @@ public class HousenumberGenerator {
 		}
 	}
 	
+	/**
+	 * Group the clusters whose roads share a point. The number node flags of
+	 * a shared point are changed and read by the roads of both clusters, so
+	 * these clusters must be processed one after the other.
+	 * @param clusters the clusters
+	 * @return the groups, the clusters of a group keep their order
+	 */
+	private static List<List<List<HousenumberRoad>>> groupBySharedPoints(List<List<HousenumberRoad>> clusters) {
+		int num = clusters.size();
+		int[] groupIds = new int[num];
+		Map<Coord, Integer> firstUsers = new IdentityHashMap<>();
+		for (int i = 0; i < num; i++) {
+			groupIds[i] = i;
+			for (HousenumberRoad hnr : clusters.get(i)) {
+				for (Coord co : hnr.getRoad().getPoints()) {
+					Integer other = firstUsers.putIfAbsent(co, i);
+					if (other != null)
+						groupIds[findGroup(groupIds, i)] = findGroup(groupIds, other);
+				}
+			}
+		}
+		Map<Integer, List<List<HousenumberRoad>>> groups = new LinkedHashMap<>();
+		for (int i = 0; i < num; i++)
+			groups.computeIfAbsent(findGroup(groupIds, i), k -> new ArrayList<>()).add(clusters.get(i));
+		return new ArrayList<>(groups.values());
+	}
+
+	private static int findGroup(int[] groupIds, int i) {
+		while (groupIds[i] != i) {
+			groupIds[i] = groupIds[groupIds[i]];
+			i = groupIds[i];
+		}
+		return i;
+	}
+
+	/**
+	 * Calculate the house number intervals for roads with the same name in the same city.
+	 * @param roadsInCluster the roads
+	 */
+	private static void processCluster(List<HousenumberRoad> roadsInCluster) {
+		for (HousenumberRoad hnr : roadsInCluster){
+			hnr.buildIntervals();
+		}
+		boolean optimized = false;
+		for (int loop = 0; loop < 10; loop++){
+			for (HousenumberRoad hnr : roadsInCluster){
+				hnr.checkIntervals();
+			}
+			checkWrongRoadAssignmments(roadsInCluster);
+			boolean changed = hasChanges(roadsInCluster);
+			if (!optimized && !changed){
+				for (HousenumberRoad hnr : roadsInCluster){
+					hnr.improveSearchResults();
+				}
+				changed = hasChanges(roadsInCluster);
+				optimized = true;
+			}
+			if (!changed)
+				break;
+		}
+		for (HousenumberRoad hnr : roadsInCluster){
+			hnr.setNumbers();
+		}
+	}
+
 	private List<HousenumberRoad> createHousenumberRoads(
 			MultiHashMap<MapRoad, HousenumberMatch> initialHousesForRoads) {
 		List<HousenumberRoad> hnrList = new ArrayList<>();
@@ -783,10 +846,18 @@ public class HousenumberGenerator {
 		log.debug("creation of road index took",t2-t1,"ms");
 		
 		long t3 = System.currentTimeMillis();
+		HousenumberMatch[] bestMatches = new HousenumberMatch[houseElems.size()];
+		if (parallel) {
+			// the index is not modified, the results are merged in the original order
+			IntStream.range(0, bestMatches.length).parallel().forEach(
+					i -> bestMatches[i] = roadSegmentIndex.createHousenumberMatch(houseElems.get(i)));
+		} else {
+			for (int i = 0; i < bestMatches.length; i++)
+				bestMatches[i] = roadSegmentIndex.createHousenumberMatch(houseElems.get(i));
+		}
 		MultiHashMap<MapRoad,HousenumberMatch> initialHousesForRoads = new MultiHashMap<>();
 		for (int i = 0; i < houseElems.size(); i++){
-			HousenumberElem house = houseElems.get(i);
-			HousenumberMatch bestMatch = roadSegmentIndex.createHousenumberMatch(house);
+			HousenumberMatch bestMatch = bestMatches[i];
 			houseElems.set(i, bestMatch);
 			if (bestMatch.getRoad() == null){
 				bestMatch.setIgnored(true); // XXX maybe create a pseudo road with zero length?
@@ -1687,18 +1758,26 @@ public class HousenumberGenerator {
 	/**
 	 * A performance critical part:
 	 * Index all road segments to be able to find all road segments within a given range
-	 * around a point.  
+	 * around a point. The points are stored in a flat grid of cells. 
 	 * @author Gerd Petermann
 	 *
 	 */
 	private static class RoadSegmentIndex {
-		private final KdTree<RoadPoint> kdTree = new KdTree<>();
-		private final Int2ObjectOpenHashMap<Set<RoadPoint>> nodeId2RoadPointMap = new Int2ObjectOpenHashMap<>(); 
 		private final double range;
 		private final double maxSegmentLength;
 		private final double kdSearchRange;
+		/** the square of kdSearchRange, see {@link Coord#distanceInDegreesSquared(Coord)} */
+		private final double maxDistInDegreesSquared;
+
+		/** the points of all indexed roads */
+		private final List<RoadPoint> roadPoints = new ArrayList<>();
+		// the grid, cell sizes are in high precision map units 
+		private int minLat, minLon, cellHeight, cellWidth, rows, cols;
+		/** CSR arrays: the points in cell i are cellPoints[cellStart[i] .. cellStart[i+1]-1] */
+		private int[] cellStart;
+		private int[] cellPoints;
 
-		private static class RoadPoint implements Locatable{
+		private static class RoadPoint {
 			final Coord p;
 			final MapRoad r;
 			final int segment;
@@ -1711,10 +1790,6 @@ public class HousenumberGenerator {
 				this.partOfSeg = part;
 			}
 			@Override
-			public Coord getLocation() {
-				return p;
-			}
-			@Override
 			public String toString() {
 				return r + " " + segment + " " + partOfSeg;
 			}
@@ -1724,6 +1799,7 @@ public class HousenumberGenerator {
 			this.range = rangeInMeter;
 			this.maxSegmentLength = range * 2 / 3;
 			this.kdSearchRange = Math.sqrt(Math.pow(rangeInMeter, 2) + Math.pow(maxSegmentLength/2, 2));
+			this.maxDistInDegreesSquared = Math.pow(kdSearchRange * 360 / Coord.U, 2);
 			build(roads);
 			
 		}
@@ -1736,7 +1812,6 @@ public class HousenumberGenerator {
 				if (points.size() < 2)
 					continue;
 
-				List<RoadPoint> roadPoints = new ArrayList<>();
 				RoadPoint rp;
 				for (int i = 0; i + 1 < points.size(); i++){
 					Coord c1 = points.get(i);
@@ -1759,35 +1834,97 @@ public class HousenumberGenerator {
 				int last = points.size() - 1;
 				rp = new RoadPoint(road, points.get(last) , last, -1);
 				roadPoints.add(rp);
-				
-				Collections.shuffle(roadPoints);
-				for (RoadPoint toAdd : roadPoints){
-					int id = toAdd.p.getId();
-					if (id == 0)
-						kdTree.add(toAdd);
-					else {
-						// Coord node, add only once to KD-tree with all roads
-						Set<RoadPoint> set = nodeId2RoadPointMap.get(id);
-						if (set == null){
-							set = new LinkedHashSet<>();
-							nodeId2RoadPointMap.put(id, set);
-							kdTree.add(toAdd);
-						}
-						set.add(toAdd);
-					}  		
+			}
+			buildGrid();
+		}
+
+		/**
+		 * Sort the road points into a grid of cells which are at least as
+		 * large as the search range.
+		 */
+		private void buildGrid() {
+			int n = roadPoints.size();
+			minLat = minLon = Integer.MAX_VALUE;
+			int maxLat = Integer.MIN_VALUE, maxLon = Integer.MIN_VALUE;
+			for (RoadPoint rp : roadPoints) {
+				minLat = Math.min(minLat, rp.p.getHighPrecLat());
+				maxLat = Math.max(maxLat, rp.p.getHighPrecLat());
+				minLon = Math.min(minLon, rp.p.getHighPrecLon());
+				maxLon = Math.max(maxLon, rp.p.getHighPrecLon());
+			}
+			double rangeInDegrees = kdSearchRange * 360 / Coord.U;
+			cellHeight = (Utils.toMapUnit(rangeInDegrees) << Coord.DELTA_SHIFT) + 1;
+			// longitude degrees are shorter, use the latitude with the smallest scale factor 
+			double maxAbsLat = n == 0 ? 0 : Math.max(Math.abs(Coord.makeHighPrecCoord(minLat, 0).getLatDegrees()),
+					Math.abs(Coord.makeHighPrecCoord(maxLat, 0).getLatDegrees())) + rangeInDegrees;
+			double cos = Math.max(0.01, Math.cos(Math.toRadians(Math.min(90, maxAbsLat))));
+			cellWidth = (int) Math.min(Integer.MAX_VALUE / 4, Math.ceil(cellHeight / cos));
+			if (n == 0) {
+				rows = cols = 1;
+			} else {
+				long height = (long) maxLat - minLat;
+				long width = (long) maxLon - minLon;
+				// limit the number of cells
+				while ((height / cellHeight + 1) * (width / cellWidth + 1) > Math.max(1024, 2L * n)) {
+					cellHeight *= 2;
+					cellWidth *= 2;
 				}
+				rows = (int) (height / cellHeight + 1);
+				cols = (int) (width / cellWidth + 1);
+			}
+			cellStart = new int[rows * cols + 1];
+			int[] cells = new int[n];
+			for (int i = 0; i < n; i++) {
+				RoadPoint rp = roadPoints.get(i);
+				cells[i] = cellOf(rp.p.getHighPrecLat(), rp.p.getHighPrecLon());
+				cellStart[cells[i] + 1]++;
 			}
+			for (int i = 0; i < rows * cols; i++)
+				cellStart[i + 1] += cellStart[i];
+			cellPoints = new int[n];
+			int[] fill = Arrays.copyOf(cellStart, rows * cols);
+			for (int i = 0; i < n; i++)
+				cellPoints[fill[cells[i]]++] = i;
 		}
-		
+
+		private int cellOf(int lat, int lon) {
+			int row = (int) (((long) lat - minLat) / cellHeight);
+			int col = (int) (((long) lon - minLon) / cellWidth);
+			return row * cols + col;
+		}
+
+		private int clampRow(long lat) {
+			return (int) Math.max(0, Math.min(rows - 1, (lat - minLat) / cellHeight));
+		}
+
+		private int clampCol(long lon) {
+			return (int) Math.max(0, Math.min(cols - 1, (lon - minLon) / cellWidth));
+		}
+
+		/**
+		 * Find the road points within the search range. The index is not
+		 * modified, so this can be called by multiple threads.
+		 * @param house the house number element
+		 * @return the road points
+		 */
 		public List<RoadPoint> getCLoseRoadPoints(HousenumberElem house){
-			Set<RoadPoint> closeRoadPoints = kdTree.findNextPoint(house, kdSearchRange);
 			List<RoadPoint> result = new ArrayList<>();
-			for (RoadPoint rp : closeRoadPoints){
-				int id = rp.p.getId();
-				if (id != 0)
-					result.addAll(nodeId2RoadPointMap.get(id));
-				else 
-					result.add(rp);
+			if (roadPoints.isEmpty())
+				return result;
+			Coord co = house.getLocation();
+			long lat = co.getHighPrecLat();
+			long lon = co.getHighPrecLon();
+			int row1 = clampRow(lat - cellHeight), row2 = clampRow(lat + cellHeight);
+			int col1 = clampCol(lon - cellWidth), col2 = clampCol(lon + cellWidth);
+			for (int row = row1; row <= row2; row++) {
+				for (int col = col1; col <= col2; col++) {
+					int cell = row * cols + col;
+					for (int j = cellStart[cell]; j < cellStart[cell + 1]; j++) {
+						RoadPoint rp = roadPoints.get(cellPoints[j]);
+						if (rp.p.distanceInDegreesSquared(co) <= maxDistInDegreesSquared)
+							result.add(rp);
+					}
+				}
 			}
 			return result;
 		}
@@ -527,7 +527,7 @@ public class HousenumberRoad {
 			log.error("found no name for road with housenumbers, implement a move to the next named road ?",road);
 			return;
 		}
-		String[] labels = road.getLabels();
+		String[] labels = Arrays.copyOf(road.getLabels(), 4);
 		boolean found = false;
 		for (String label : labels){
 			if (label == null)
@@ -559,6 +559,7 @@ public class HousenumberRoad {
 					log.info("dropped label",droppedLabel,"for",road,"in preference to correct address search. Labels are now:",Arrays.toString(labels));
 			}
 		}
+		road.setLabels(labels);
 		
 		if (furtherNames != null){
 			boolean changed = false;
@@ -231,6 +231,17 @@ public abstract class Element {
 	public void setFakeId() {
 		id = FakeIdGenerator.makeFakeId();
 	}
+
+	/**
+	 * Replace a temporary id, see {@link FakeIdGenerator#runWithTemporaryIds(Runnable)}.
+	 * @param offset the value returned by {@link FakeIdGenerator#reserveFakeIds(long)}
+	 */
+	protected void replaceTemporaryId(long offset) {
+		if (FakeIdGenerator.isTemporaryId(id))
+			id += offset;
+		if (FakeIdGenerator.isTemporaryId(originalId))
+			originalId += offset;
+	}
 	
 	public String toTagString() {
 		if (tags == null)
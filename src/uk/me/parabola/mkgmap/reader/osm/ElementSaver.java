@@ -25,6 +25,7 @@ import uk.me.parabola.imgfmt.app.Coord;
 import uk.me.parabola.log.Logger;
 import uk.me.parabola.mkgmap.general.LineClipper;
 import uk.me.parabola.util.EnhancedProperties;
+import uk.me.parabola.util.PhaseStats;
 
 /**
  * This is where we save the elements read from any of the file formats that
@@ -65,6 +66,11 @@ public class ElementSaver {
 
 	// Options
 	private final boolean ignoreTurnRestrictions;
+	private final boolean integerMultipolygonCutter;
+	private final boolean pipelinedConversion;
+
+	// the multipolygons that are processed in parallel when the loading is finished
+	private List<MultiPolygonRelation> pendingMultiPolygons;
 
 	/** name of the tag that contains a ;-separated list of tag names that should be removed after all elements have been processed */
 	public static final short MKGMAP_REMOVE_TAG_KEY = TagDict.getInstance().xlate("mkgmap:removetags");
@@ -81,6 +87,10 @@ public class ElementSaver {
 		}
 
 		ignoreTurnRestrictions = args.getProperty("ignore-turn-restrictions", false);
+		integerMultipolygonCutter = args.getProperty("integer-multipolygon-cutter", false);
+		pipelinedConversion = args.getProperty("pipelined-conversion", false);
+		if (args.getProperty("parallel-multipolygons", false))
+			pendingMultiPolygons = new ArrayList<>();
 	}
 
 	/**
@@ -155,7 +165,12 @@ public class ElementSaver {
 			long id = rel.getId();
 			relationMap.put(rel.getId(), rel);
 			
-			rel.processElements();
+			if (rel instanceof MultiPolygonRelation && pendingMultiPolygons != null) {
+				pendingMultiPolygons.add((MultiPolygonRelation) rel);
+			} else if (rel instanceof MultiPolygonRelation) {
+				PhaseStats.run("multipolygon", rel::processElements);
+			} else
+				rel.processElements();
 
 			List<Map.Entry<String,Relation>> entries = deferredRelationMap.remove(id);
 			if (entries != null)
@@ -171,7 +186,9 @@ public class ElementSaver {
 	 * @return A new multi polygon relation, based on the input relation.
 	 */
 	public Relation createMultiPolyRelation(Relation rel) {
-		return new MultiPolygonRelation(rel, wayMap, getBoundingBox());
+		MultiPolygonRelation mpRel = new MultiPolygonRelation(rel, wayMap, getBoundingBox());
+		mpRel.setUseHoleCutter(integerMultipolygonCutter);
+		return mpRel;
 	}
 	
 	public SeaPolygonRelation createSeaPolyRelation(Relation rel) {
@@ -200,6 +217,81 @@ public class ElementSaver {
 	
 	public void finishLoading() {
 		coordMap = null;
+		if (pendingMultiPolygons != null) {
+			PhaseStats.run("multipolygon", () -> processMultiPolygons(pendingMultiPolygons));
+			pendingMultiPolygons = null;
+		}
+	}
+
+	/**
+	 * Process the multipolygons that were saved while loading. Multipolygons
+	 * that have no member ways in common are processed in parallel. The
+	 * created ways are added to the way map in the order in which the
+	 * multipolygons were read, and get the same ids as without the parallel
+	 * processing.
+	 * @param relations the multipolygons in the order in which they were read
+	 */
+	private void processMultiPolygons(List<MultiPolygonRelation> relations) {
+		int num = relations.size();
+		List<List<Integer>> groups = groupBySharedWays(relations);
+		log.info("Processing", num, "multipolygons in", groups.size(), "groups");
+
+		List<Map<Long, Way>> createdWays = new ArrayList<>(num);
+		for (int i = 0; i < num; i++)
+			createdWays.add(new LinkedHashMap<>());
+		long[] numIds = new long[num];
+		groups.parallelStream().forEach(group -> {
+			for (int i : group) {
+				MultiPolygonRelation mpRel = relations.get(i);
+				mpRel.setTileWayMap(createdWays.get(i));
+				numIds[i] = FakeIdGenerator.runWithTemporaryIds(mpRel::processElements);
+			}
+		});
+
+		for (int i = 0; i < num; i++) {
+			long offset = FakeIdGenerator.reserveFakeIds(numIds[i]);
+			for (Way way : createdWays.get(i).values()) {
+				way.replaceTemporaryId(offset);
+				wayMap.put(way.getId(), way);
+			}
+			relations.get(i).setTileWayMap(wayMap);
+		}
+	}
+
+	/**
+	 * Group the relations that share a way. Multipolygons that share a way
+	 * change the tags of the same way, so they must be processed one after
+	 * the other.
+	 * @param relations the relations
+	 * @return the indexes of the relations in each group, in the order of
+	 * the first relation of the group
+	 */
+	static List<List<Integer>> groupBySharedWays(List<? extends Relation> relations) {
+		int num = relations.size();
+		int[] groupIds = new int[num];
+		Map<Long, Integer> firstUsers = new HashMap<>();
+		for (int i = 0; i < num; i++) {
+			groupIds[i] = i;
+			for (Map.Entry<String, Element> member : relations.get(i).getElements()) {
+				if (member.getValue() instanceof Way) {
+					Integer other = firstUsers.putIfAbsent(member.getValue().getId(), i);
+					if (other != null)
+						groupIds[findGroup(groupIds, i)] = findGroup(groupIds, other);
+				}
+			}
+		}
+		Map<Integer, List<Integer>> groups = new LinkedHashMap<>();
+		for (int i = 0; i < num; i++)
+			groups.computeIfAbsent(findGroup(groupIds, i), k -> new ArrayList<>()).add(i);
+		return new ArrayList<>(groups.values());
+	}
+
+	private static int findGroup(int[] groupIds, int i) {
+		while (groupIds[i] != i) {
+			groupIds[i] = groupIds[groupIds[i]];
+			i = groupIds[i];
+		}
+		return i;
 	}
 
 	/**
@@ -219,22 +311,41 @@ public class ElementSaver {
 		for (Relation r : relationMap.values())
 			converter.convertRelation(r);
 
+		// the style rules of the ways can be run while the nodes are converted
+		WayResolver wayResolver = null;
+		if (pipelinedConversion) {
+			wayResolver = new WayResolver(converter, wayMap.values());
+			wayResolver.start();
+		}
+
 		short fixmeTagKey = TagDict.getInstance().xlate("fixme"); 
 		short fixmeTagKey2 = TagDict.getInstance().xlate("FIXME"); 
-		for (Node n : nodeMap.values()){
-			converter.convertNode(n);
-			if (n.getTag(fixmeTagKey) != null || n.getTag(fixmeTagKey2) != null){
-				n.getLocation().setFixme(true);
+		boolean nodesConverted = false;
+		try {
+			for (Node n : nodeMap.values()){
+				converter.convertNode(n);
+				if (n.getTag(fixmeTagKey) != null || n.getTag(fixmeTagKey2) != null){
+					n.getLocation().setFixme(true);
+				}
 			}
+			nodesConverted = true;
+		} finally {
+			// the results of the ways are never taken
+			if (!nodesConverted && wayResolver != null)
+				wayResolver.stop();
 		}
 
 		nodeMap = null;
 
-		Iterator<Way> wayIter = wayMap.values().iterator();
-		while (wayIter.hasNext()){
-			Way way = wayIter.next();
-			converter.convertWay(way);
-			wayIter.remove();
+		if (wayResolver != null) {
+			wayResolver.addResults();
+		} else {
+			Iterator<Way> wayIter = wayMap.values().iterator();
+			while (wayIter.hasNext()){
+				Way way = wayIter.next();
+				converter.convertWay(way);
+				wayIter.remove();
+			}
 		}
 		wayMap = null;
 
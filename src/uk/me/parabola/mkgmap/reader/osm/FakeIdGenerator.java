@@ -19,8 +19,17 @@ public class FakeIdGenerator {
 
 	private static final long START_ID = 1L << 62;
 	
+	// the ids of the tiles are taken from a separate range
+	private static final long TILE_START_ID = START_ID + (1L << 61);
+
+	// the temporary ids of elements that are made in parallel
+	private static final long TEMP_START_ID = TILE_START_ID + (1L << 60);
+	
 	private static final AtomicLong fakeId = new AtomicLong(START_ID);
 
+	// the ids of the tile that is processed by the current thread
+	private static final ThreadLocal<AtomicLong> tileFakeId = new ThreadLocal<>();
+
 	private static long startId = START_ID;
 	
 	/**
@@ -33,13 +42,70 @@ public class FakeIdGenerator {
 		startId = firstFakeId;
 	}
 	
+	/**
+	 * Start a separate sequence of ids for the tile that is processed
+	 * by the current thread. The fake ids of a tile are then the same
+	 * regardless of the order in which the tiles are processed.
+	 * Must be followed by a call of {@link #endTile()} in the same thread.
+	 */
+	public static void startTile() {
+		tileFakeId.set(new AtomicLong(TILE_START_ID));
+	}
+
+	/**
+	 * Return to the global sequence of ids in the current thread.
+	 */
+	public static void endTile() {
+		tileFakeId.remove();
+	}
+	
+	/**
+	 * Run the task with a separate sequence of temporary ids in the current
+	 * thread. This is used when elements are made by tasks that run in
+	 * parallel. The temporary ids are replaced afterwards in a fixed order
+	 * of the tasks, see {@link #reserveFakeIds(long)}, so that the ids are
+	 * the same as if the tasks had run one after the other.
+	 * @param task the task
+	 * @return the number of ids that were made by the task
+	 */
+	public static long runWithTemporaryIds(Runnable task) {
+		AtomicLong old = tileFakeId.get();
+		AtomicLong ids = new AtomicLong(TEMP_START_ID);
+		tileFakeId.set(ids);
+		try {
+			task.run();
+		} finally {
+			if (old == null)
+				tileFakeId.remove();
+			else
+				tileFakeId.set(old);
+		}
+		return ids.get() - TEMP_START_ID;
+	}
+
+	/**
+	 * Take the given number of ids from the sequence of the current thread
+	 * for the temporary ids of a task.
+	 * @param count the number of ids made by the task
+	 * @return the value that must be added to a temporary id
+	 */
+	public static long reserveFakeIds(long count) {
+		AtomicLong ids = tileFakeId.get();
+		return (ids != null ? ids : fakeId).getAndAdd(count) - TEMP_START_ID;
+	}
+
+	public static boolean isTemporaryId(long id) {
+		return id > TEMP_START_ID;
+	}
+
 	/**
 	 * Retrieves a unique id that can be used to fake OSM ids.
 	 * 
 	 * @return a unique id
 	 */
 	public static long makeFakeId() {
-		long id = fakeId.incrementAndGet(); 
+		AtomicLong ids = tileFakeId.get();
+		long id = (ids != null ? ids : fakeId).incrementAndGet(); 
 //				if (4611686018427394038L == id){
 //					long dd = 4;
 //				}
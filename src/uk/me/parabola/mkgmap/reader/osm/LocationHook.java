@@ -13,9 +13,13 @@
 
 package uk.me.parabola.mkgmap.reader.osm;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.stream.IntStream;
 
 import uk.me.parabola.imgfmt.app.Area;
 import uk.me.parabola.imgfmt.app.Coord;
@@ -36,6 +40,9 @@ public class LocationHook extends OsmReadingHooksAdaptor {
 	private long cntNotFnd = 0;
 	private long cntwayNotFnd = 0;
 	
+	/** the number of points that are searched by one task */
+	private static final int CHUNK_SIZE = 1024;
+
 	private BoundaryGrid boundaryGrid;
 
 	private ElementSaver saver;
@@ -118,13 +125,12 @@ public class LocationHook extends OsmReadingHooksAdaptor {
 	 * Iterate over all elements for which the boundary assignment should be performed.
 	 */
 	private void processLocationRelevantElements() {
+		List<LocationJob> jobs = new ArrayList<>();
 		// process all nodes that might be converted to a garmin node (tagcount > 0)
 		for (Node node : saver.getNodes().values()) {
 			if (node.getTagCount() > 0) {
 				if (saver.getBoundingBox().contains(node.getLocation())){
-					processElem(node);
-					if (resultLog.isDebugEnabled())
-						resultLog.debug("N", node.getId(), locationTagsToString(node));
+					jobs.add(new LocationJob(node, node.getLocation()));
 				}
 			}
 		}
@@ -132,9 +138,8 @@ public class LocationHook extends OsmReadingHooksAdaptor {
 		// process  all ways that might be converted to a garmin way (tagcount > 0)
 		for (Way way : saver.getWays().values()) {
 			if (way.getTagCount() > 0) {
-				processElem(way);
-				if (resultLog.isDebugEnabled())
-					resultLog.debug("W", way.getId(), locationTagsToString(way));
+				// try the mid point of the way first
+				jobs.add(new LocationJob(way, getMidPoint(way)));
 			}
 		}
 		
@@ -146,69 +151,121 @@ public class LocationHook extends OsmReadingHooksAdaptor {
 				// check if the mp could be processed
 				Coord mpCenter = ((MultiPolygonRelation) r).getCofG();
 				if (mpCenter != null && saver.getBoundingBox().contains(mpCenter)){
-					// create a fake node for which the bounds information is collected
-					Node mpNode = new Node(r.getOriginalId(), mpCenter);
-					mpNode.setFakeId();
-					processElem(mpNode);
-					// copy the bounds tags back to the multipolygon
-					for (String boundsTag : BoundaryQuadTree.mkgmapTagsArray) {
-						String tagValue = mpNode.getTag(boundsTag);
-						if (tagValue != null) {
-							r.addTag(boundsTag, tagValue);
-						}
+					jobs.add(new LocationJob(r, mpCenter));
+				}
+			}
+		}
+
+		searchFirstPoints(jobs);
+
+		// assign the results in the original order of the elements
+		BoundaryGrid.Searcher searcher = boundaryGrid.getSearcher();
+		for (LocationJob job : jobs) {
+			if (job.searched)
+				++cntQTSearch;
+			if (job.elem instanceof Node){
+				assignTags(job.elem, job.tags);
+				if (resultLog.isDebugEnabled())
+					resultLog.debug("N", job.elem.getId(), locationTagsToString(job.elem));
+			} else if (job.elem instanceof Way){
+				Tags tags = job.tags;
+				if (tags == null){
+					tags = searchOtherPoints(searcher, (Way) job.elem);
+					if (tags == null)
+						++cntwayNotFnd;
+				}
+				assignTags(job.elem, tags);
+				if (resultLog.isDebugEnabled())
+					resultLog.debug("W", job.elem.getId(), locationTagsToString(job.elem));
+			} else {
+				Relation r = (Relation) job.elem;
+				// create a fake node for which the bounds information is collected
+				Node mpNode = new Node(r.getOriginalId(), job.point);
+				mpNode.setFakeId();
+				assignTags(mpNode, job.tags);
+				// copy the bounds tags back to the multipolygon
+				for (String boundsTag : BoundaryQuadTree.mkgmapTagsArray) {
+					String tagValue = mpNode.getTag(boundsTag);
+					if (tagValue != null) {
+						r.addTag(boundsTag, tagValue);
 					}
-					if (resultLog.isDebugEnabled())
-						resultLog.debug("R", r.getId(), locationTagsToString(r));
 				}
+				if (resultLog.isDebugEnabled())
+					resultLog.debug("R", r.getId(), locationTagsToString(r));
 			}
 		}
 	}
 
 	/**
-	 * Extract the location info and perform a test 
-	 * against the BoundaryGrid. If found, assign the tags.  
-	 * @param elem A way or Node
+	 * Search the first points of all elements. The points are sorted 
+	 * along a Z-order curve and searched in parallel chunks, so that
+	 * the points searched one after another are close to each other. 
+	 * @param jobs the elements and their points, the results are saved 
+	 * in them
 	 */
-	private void processElem(Element elem){
-		Tags tags = null;
+	private void searchFirstPoints(List<LocationJob> jobs) {
+		LocationJob[] sorted = jobs.toArray(new LocationJob[jobs.size()]);
+		Arrays.sort(sorted, Comparator.comparingLong(job -> job.key));
+		Area bbox = saver.getBoundingBox();
+		int numChunks = (sorted.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+		IntStream.range(0, numChunks).parallel().forEach(chunk -> {
+			BoundaryGrid.Searcher searcher = boundaryGrid.getSearcher();
+			int end = Math.min(sorted.length, (chunk + 1) * CHUNK_SIZE);
+			for (int i = chunk * CHUNK_SIZE; i < end; i++) {
+				LocationJob job = sorted[i];
+				if (bbox.contains(job.point)) {
+					job.searched = true;
+					job.tags = searcher.get(job.point);
+				}
+			}
+		});
+	}
 
-		if (elem instanceof Node){
-			Node node = (Node) elem;
-			tags = search(node.getLocation());
+	/**
+	 * Calculate the point of a way that is searched first.
+	 * @param way the way
+	 * @return the mid point of the way
+	 */
+	private static Coord getMidPoint(Way way) {
+		if (way.getPoints().size() == 2) {
+			return way.getPoints().get(0).makeBetweenPoint(way.getPoints().get(1), 0.5);
 		}
-		else if (elem instanceof Way){
-			Way way = (Way) elem;
-			// try the mid point of the way first
-			int middle = way.getPoints().size() / 2;
-			Coord midPoint;
-			if (way.getPoints().size() == 2) {
-				midPoint = way.getPoints().get(0).makeBetweenPoint(way.getPoints().get(1), 0.5);
-			} else {
-				midPoint = way.getPoints().get(middle);
-			}
-			tags = search(midPoint);
-			if (tags == null){
-				// try 1st point next
-				tags = search(way.getPoints().get(0));
-			}
-			if (tags == null){
-				// try last point next
-				tags = search(way.getPoints().get(way.getPoints().size()-1));
-			}
-			if (tags == null){
-				// still not found, try rest
-				for (int i = 1; i < way.getPoints().size()-1; i++){
-					if (i == middle)
-						continue;
-					tags = search(way.getPoints().get(i));
-					if (tags != null) 
-						break;
-				}
+		return way.getPoints().get(way.getPoints().size() / 2);
+	}
+
+	/**
+	 * Search the points of a way when the mid point was not found.  
+	 * @param searcher the searcher
+	 * @param way the way
+	 * @return location relevant tags or null
+	 */
+	private Tags searchOtherPoints(BoundaryGrid.Searcher searcher, Way way){
+		int middle = way.getPoints().size() / 2;
+		// try 1st point next
+		Tags tags = search(searcher, way.getPoints().get(0));
+		if (tags == null){
+			// try last point next
+			tags = search(searcher, way.getPoints().get(way.getPoints().size()-1));
+		}
+		if (tags == null){
+			// still not found, try rest
+			for (int i = 1; i < way.getPoints().size()-1; i++){
+				if (i == middle)
+					continue;
+				tags = search(searcher, way.getPoints().get(i));
+				if (tags != null) 
+					break;
 			}
-			if (tags == null)
-				++cntwayNotFnd;
 		}
+		return tags;
+	}
 
+	/**
+	 * Assign the tags found in the BoundaryGrid. 
+	 * @param elem A way or Node
+	 * @param tags the found tags or null
+	 */
+	private void assignTags(Element elem, Tags tags){
 		if (tags == null){
 			++cntNotFnd;
 		}
@@ -226,18 +283,53 @@ public class LocationHook extends OsmReadingHooksAdaptor {
 	
 	/**
 	 * perform search in grid and maintain statistic counter
+	 * @param searcher the searcher
 	 * @param co a point that is to be searched
 	 * @return location relevant tags or null
 	 */
-	private Tags search(Coord co){
+	private Tags search(BoundaryGrid.Searcher searcher, Coord co){
 		if (saver.getBoundingBox().contains(co)){
 			++cntQTSearch;
-			return boundaryGrid.get(co);
+			return searcher.get(co);
 		}
 		else 
 			return null;
 	}
-			
+
+	/**
+	 * Calculate the position of a point on a Z-order curve. 
+	 * @param co the point
+	 * @return the key, points with near keys are close to each other 
+	 */
+	private static long mortonKey(Coord co) {
+		int lat = co.getLatitude() + (1 << 23);
+		int lon = co.getLongitude() + (1 << 23);
+		long key = 0;
+		for (int i = 0; i < 25; i++) {
+			key |= (long) ((lon >> i) & 1) << (2 * i);
+			key |= (long) ((lat >> i) & 1) << (2 * i + 1);
+		}
+		return key;
+	}
+
+	/**
+	 * An element for which the location tags are searched, the first point
+	 * to search and the result.
+	 */
+	private static final class LocationJob {
+		private final Element elem;
+		private final Coord point;
+		private final long key;
+		private boolean searched;
+		private Tags tags;
+
+		LocationJob(Element elem, Coord point) {
+			this.elem = elem;
+			this.point = point;
+			this.key = mortonKey(point);
+		}
+	}
+
 	/**
 	 * Debugging:
 	 * Create a string with location relevant tags ordered by admin_level.
@@ -30,6 +30,7 @@ import uk.me.parabola.imgfmt.Utils;
 import uk.me.parabola.imgfmt.app.Coord;
 import uk.me.parabola.log.Logger;
 import uk.me.parabola.mkgmap.reader.osm.MultiPolygonRelation.JoinedWay;
+import uk.me.parabola.util.HoleCutter;
 import uk.me.parabola.util.Java2DConverter;
 
 /**
@@ -44,6 +45,7 @@ public class MultiPolygonCutter {
 	private static final Logger log = Logger.getLogger(MultiPolygonCutter.class);
 	private final MultiPolygonRelation rel;
 	private final Area tileArea;
+	private final uk.me.parabola.imgfmt.app.Area tileBounds;
 
 	/**
 	 * Create cutter for a given MP-relation and tile
@@ -51,8 +53,22 @@ public class MultiPolygonCutter {
 	 * @param tileArea the java area of the tile
 	 */
 	public MultiPolygonCutter(MultiPolygonRelation multiPolygonRelation, Area tileArea) {
+		this(multiPolygonRelation, tileArea, null);
+	}
+
+	/**
+	 * Create cutter for a given MP-relation and tile that tries to use
+	 * the {@link HoleCutter} first. The java area is only used when the
+	 * {@link HoleCutter} cannot handle the polygons.
+	 * @param multiPolygonRelation the MP-relation
+	 * @param tileArea the java area of the tile
+	 * @param tileBounds the bounds of the tile, null to disable the {@link HoleCutter}
+	 */
+	public MultiPolygonCutter(MultiPolygonRelation multiPolygonRelation, Area tileArea,
+			uk.me.parabola.imgfmt.app.Area tileBounds) {
 		rel = multiPolygonRelation;
 		this.tileArea = tileArea;
+		this.tileBounds = tileBounds;
 	}
 
 	/**
@@ -76,6 +92,15 @@ public class MultiPolygonCutter {
 			return Collections.singletonList(outerWay);
 		}
 
+		if (tileBounds != null) {
+			List<Way> cuttedOuterPolygon = cutWithHoleCutter(outerPolygon, innerPolygons);
+			if (cuttedOuterPolygon != null)
+				return cuttedOuterPolygon;
+			if (log.isDebugEnabled()) {
+				log.debug("Cannot cut holes in way", outerPolygon.getId(), "with integer cutter, using java area");
+			}
+		}
+
 		// use the java.awt.geom.Area class because it's a quick
 		// implementation of what's needed
 
@@ -238,31 +263,64 @@ public class MultiPolygonCutter {
 		for (Area area : finishedAreas) {
 			Way w = singularAreaToWay(area, rel.getOriginalId());
 			if (w != null) {
-				w.setFakeId();
-				// make sure that equal coords are changed to identical coord instances
-				// this allows merging in the ShapeMerger
-				int n = w.getPoints().size();
-				for (int i = 0; i < n; i++){
-					Coord p = w.getPoints().get(i);
-					long key = Utils.coord2Long(p);
-					Coord replacement = commonCoordMap.get(key);
-					if (replacement == null)
-						commonCoordMap.put(key, p);
-					else {
-						assert p.highPrecEquals(replacement);
-						w.getPoints().set(i, replacement);
-					}
-				}
-				w.copyTags(outerPolygon);
-				cuttedOuterPolygon.add(w);
-				if (log.isDebugEnabled()) {
-					log.debug("Way", outerPolygon.getId(), "splitted to way", w.getId());
-				}
+				addCuttedWay(w, outerPolygon, commonCoordMap, cuttedOuterPolygon);
 			}
 		}
 
 		return cuttedOuterPolygon;
 	}
+
+	/**
+	 * Cut out the inner polygons with the {@link HoleCutter}.
+	 * @return the list of polygons or null if the polygons cannot be handled
+	 */
+	private List<Way> cutWithHoleCutter(Way outerPolygon, List<Way> innerPolygons) {
+		List<List<Coord>> holes = new ArrayList<>(innerPolygons.size());
+		for (Way innerPolygon : innerPolygons) {
+			holes.add(innerPolygon.getPoints());
+		}
+		List<List<Coord>> shapes = new HoleCutter(tileBounds).cut(outerPolygon.getPoints(), holes);
+		if (shapes == null)
+			return null;
+		List<Way> cuttedOuterPolygon = new ArrayList<>(shapes.size());
+		Long2ObjectOpenHashMap<Coord> commonCoordMap = new Long2ObjectOpenHashMap<>();
+		for (List<Coord> points : shapes) {
+			Way w = new Way(rel.getOriginalId(), new ArrayList<>(points));
+			addCuttedWay(w, outerPolygon, commonCoordMap, cuttedOuterPolygon);
+		}
+		return cuttedOuterPolygon;
+	}
+
+	/**
+	 * Add a polygon to the result list.
+	 * @param w the polygon
+	 * @param outerPolygon the outer polygon, the tags are copied from it
+	 * @param commonCoordMap used to make sure that equal coords are identical
+	 * @param cuttedOuterPolygon the result list
+	 */
+	private static void addCuttedWay(Way w, Way outerPolygon, Long2ObjectOpenHashMap<Coord> commonCoordMap,
+			List<Way> cuttedOuterPolygon) {
+		w.setFakeId();
+		// make sure that equal coords are changed to identical coord instances
+		// this allows merging in the ShapeMerger
+		int n = w.getPoints().size();
+		for (int i = 0; i < n; i++){
+			Coord p = w.getPoints().get(i);
+			long key = Utils.coord2Long(p);
+			Coord replacement = commonCoordMap.get(key);
+			if (replacement == null)
+				commonCoordMap.put(key, p);
+			else {
+				assert p.highPrecEquals(replacement);
+				w.getPoints().set(i, replacement);
+			}
+		}
+		w.copyTags(outerPolygon);
+		cuttedOuterPolygon.add(w);
+		if (log.isDebugEnabled()) {
+			log.debug("Way", outerPolygon.getId(), "splitted to way", w.getId());
+		}
+	}
 	
 	private static CutPoint calcNextCutPoint(AreaCutData areaData) {
 		if (areaData.innerAreas == null || areaData.innerAreas.isEmpty()) {
@@ -13,7 +13,6 @@
 
 package uk.me.parabola.mkgmap.reader.osm;
 
-import java.awt.Polygon;
 import java.awt.Rectangle;
 import java.awt.geom.Area;
 import java.awt.geom.Line2D;
@@ -40,7 +39,9 @@ import java.util.logging.Level;
 
 import uk.me.parabola.imgfmt.app.Coord;
 import uk.me.parabola.log.Logger;
+import uk.me.parabola.util.EdgeGridPolygon;
 import uk.me.parabola.util.Java2DConverter;
+import uk.me.parabola.util.RectangleIndex;
 
 /**
  * Representation of an OSM Multipolygon Relation.<br/>
@@ -59,7 +60,7 @@ public class MultiPolygonRelation extends Relation {
 	/** A tag that is set with value true on each polygon that is created by the mp processing */
 	public static final String MP_CREATED_TAG = "mkgmap:mp_created";
 	
-	private final Map<Long, Way> tileWayMap;
+	private Map<Long, Way> tileWayMap;
 	private final Map<Long, String> roleMap = new HashMap<>();
  
 	private Map<Long, Way> mpPolygons = new LinkedHashMap<>();
@@ -77,6 +78,7 @@ public class MultiPolygonRelation extends Relation {
 
 	private final uk.me.parabola.imgfmt.app.Area tileBounds;
 	private Area tileArea;
+	private boolean useHoleCutter;
 	
 	private Coord cOfG = null;
 	
@@ -148,6 +150,16 @@ public class MultiPolygonRelation extends Relation {
 	public Coord getCofG() {
 		return cOfG;
 	}
+
+	/**
+	 * Use the integer based {@link uk.me.parabola.util.HoleCutter} to cut out
+	 * the inner polygons. The java area is still used for polygons which
+	 * intersect each other.
+	 * @param useHoleCutter true to enable the integer based cutter
+	 */
+	public void setUseHoleCutter(boolean useHoleCutter) {
+		this.useHoleCutter = useHoleCutter;
+	}
 	
 	/**
 	 * Retrieves the mp role of the given element.
@@ -991,7 +1003,12 @@ public class MultiPolygonRelation extends Relation {
 						innerWays.add(polygonHoleStatus.polygon);
 					}
 
-					MultiPolygonCutter cutter = new MultiPolygonCutter(this, tileArea);
+					MultiPolygonCutter cutter;
+					if (useHoleCutter && !intersectingPolygons.contains(currentPolygon.polygon)
+							&& Collections.disjoint(intersectingPolygons, innerWays))
+						cutter = new MultiPolygonCutter(this, tileArea, tileBounds);
+					else
+						cutter = new MultiPolygonCutter(this, tileArea);
 					singularOuterPolygons = cutter.cutOutInnerPolygons(currentPolygon.polygon, innerWays);
 				}
 				
@@ -1385,6 +1402,14 @@ public class MultiPolygonRelation extends Relation {
 			finishedMatrix.add(matrixRow);
 		}
 
+		// use an index of the bounding boxes to find the polygons
+		// which might be contained 
+		List<Rectangle> bounds = new ArrayList<>(polygonList.size());
+		for (JoinedWay jw : polygonList) {
+			bounds.add(jw.getBounds());
+		}
+		RectangleIndex boundsIndex = new RectangleIndex(bounds);
+
 		for (int rowIndex = 0; rowIndex < polygonList.size(); rowIndex++) {
 			JoinedWay potentialOuterPolygon = polygonList.get(rowIndex);
 			BitSet containsColumns = containsMatrix.get(rowIndex);
@@ -1394,11 +1419,11 @@ public class MultiPolygonRelation extends Relation {
 			// so use a lazy creation to improve performance
 			WayAndLazyPolygon lazyPotOuterPolygon = new WayAndLazyPolygon(potentialOuterPolygon);
 
-			// get all non calculated columns of the matrix
-			for (int colIndex = finishedCol.nextClearBit(0); colIndex >= 0
-					&& colIndex < polygonList.size(); colIndex = finishedCol
-					.nextClearBit(colIndex + 1)) {
-
+			// get all non calculated columns of the matrix, polygons with
+			// bounding boxes that don't intersect don't contain each other 
+			for (int colIndex : boundsIndex.query(potentialOuterPolygon.getBounds())) {
+				if (finishedCol.get(colIndex))
+					continue;
 				JoinedWay innerPolygon = polygonList.get(colIndex);
 
 				if (potentialOuterPolygon.getBounds().intersects(
@@ -1459,7 +1484,7 @@ public class MultiPolygonRelation extends Relation {
 	 */
 	private static class WayAndLazyPolygon {
 		private final JoinedWay way;
-		private Polygon polygon;
+		private EdgeGridPolygon polygon;
 		
 		public WayAndLazyPolygon(JoinedWay way) {
 			this.way = way;
@@ -1469,9 +1494,9 @@ public class MultiPolygonRelation extends Relation {
 			return this.way;
 		}
 
-		public final Polygon getPolygon() {
+		public final EdgeGridPolygon getPolygon() {
 			if (this.polygon == null) {
-				this.polygon = Java2DConverter.createHighPrecPolygon(this.way.getPoints());
+				this.polygon = new EdgeGridPolygon(this.way.getPoints());
 			}
 			return this.polygon;
 		}
@@ -1969,6 +1994,15 @@ public class MultiPolygonRelation extends Relation {
 		return tileWayMap;
 	}
 
+	/**
+	 * Change the map to which the ways created by {@link #processElements()}
+	 * are added. This allows to process the relation in a separate thread.
+	 * @param wayMap the new map
+	 */
+	void setTileWayMap(Map<Long, Way> wayMap) {
+		tileWayMap = wayMap;
+	}
+
 	protected Map<Long, Way> getMpPolygons() {
 		return mpPolygons;
 	}
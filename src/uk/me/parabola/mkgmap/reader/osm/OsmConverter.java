@@ -33,6 +33,19 @@ public interface OsmConverter {
 	 */
 	public void convertWay(Way way);
 
+	/**
+	 * Does the part of the conversion of the way that doesn't depend on
+	 * the other ways, so that it can run in another thread. The returned
+	 * task completes the conversion, the tasks must be run in the order
+	 * of the ways.
+	 *
+	 * @param way The OSM way.
+	 * @return the task that adds the results to the map
+	 */
+	public default Runnable resolveWay(Way way) {
+		return () -> convertWay(way);
+	}
+
 	/**
 	 * Takes a node (that has its own identity) and converts it from the OSM
 	 * type to the Garmin map type.
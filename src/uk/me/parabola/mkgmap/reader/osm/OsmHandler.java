@@ -14,6 +14,7 @@
 package uk.me.parabola.mkgmap.reader.osm;
 
 import java.io.InputStream;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
@@ -35,6 +36,7 @@ public abstract class OsmHandler {
 
 	private Map<String,Set<String>> deletedTags;
 	private Map<String, String> usedTags;
+	private BitSet usedNodeTagKeys;
 
 	/** Pattern for values containing fixme, fix_me etc. */
 	private static final Pattern FIXME_PATTERN = Pattern.compile("(?i)fix[ _]?+me");
@@ -89,6 +91,27 @@ public abstract class OsmHandler {
 		}
 	}
 
+	/**
+	 * This sets the tags that can make a difference for a node.
+	 *
+	 * A node that has none of these tags can't be converted to a point and is
+	 * not used by the hooks, so only its coordinate is saved.  In many
+	 * files there are lots of nodes with tags that are only used for ways.
+	 *
+	 * @param used The tags, null to save all nodes with tags.
+	 */
+	public void setUsedNodeTags(Set<String> used) {
+		if (used == null) {
+			usedNodeTagKeys = null;
+			return;
+		}
+		usedNodeTagKeys = new BitSet();
+		for (String s : used) {
+			if (s != null)
+				usedNodeTagKeys.set(TagDict.getInstance().xlate(s));
+		}
+	}
+
 	/**
 	 * Some tags are dropped at the input stage.  We drop tags that are not going
 	 * to be used and there is also an option to provide a file containing tags to
@@ -142,6 +165,26 @@ public abstract class OsmHandler {
 		this.hooks = plugin;
 	}
 
+	/**
+	 * Common actions to take when a node with tags has been read.
+	 * It is saved unless none of its tags is used for nodes.
+	 * @param node The node that was read.
+	 */
+	protected void addNode(Node node) {
+		if (usedNodeTagKeys != null && !hasUsedNodeTag(node))
+			return;
+		saver.addNode(node);
+		hooks.onAddNode(node);
+	}
+
+	private boolean hasUsedNodeTag(Node node) {
+		for (Map.Entry<Short, String> tag : node.getFastTagEntryIterator()) {
+			if (usedNodeTagKeys.get(tag.getKey()))
+				return true;
+		}
+		return false;
+	}
+
 	/**
 	 * Common actions to take when creating a new way.
 	 * Reset some state and create the Way object.
@@ -50,6 +50,7 @@ import uk.me.parabola.mkgmap.reader.osm.bin.OsmBinHandler;
 import uk.me.parabola.mkgmap.reader.osm.o5m.O5mBinHandler;
 import uk.me.parabola.mkgmap.reader.osm.xml.OsmXmlHandler;
 import uk.me.parabola.util.EnhancedProperties;
+import uk.me.parabola.util.PhaseStats;
 
 /**
  * Base class for OSM map sources.  It exists so that more than
@@ -78,6 +79,7 @@ public class OsmMapDataSource extends MapperBasedMapDataSource implements Loadab
 	};
 	protected OsmConverter converter;
 	private final Set<String> usedTags = new HashSet<>();
+	private Set<String> usedNodeTags;
 	protected ElementSaver elementSaver;
 	protected OsmReadingHooks osmReadingHooks;
 	private static final LocalDateTime now = LocalDateTime.now();
@@ -149,14 +151,14 @@ public class OsmMapDataSource extends MapperBasedMapDataSource implements Loadab
 	@Override
 	public void load(String name, boolean addBackground) throws FileNotFoundException, FormatException {
 		InputStream is = Utils.openFile(name);
-		parse(is, name);
+		PhaseStats.run("parse", () -> parse(is, name));
 		elementSaver.finishLoading();
 
-		osmReadingHooks.end();
+		PhaseStats.run("hooks", () -> osmReadingHooks.end());
 		osmReadingHooks = null;
 		
 		// now convert the saved elements
-		elementSaver.convert(getConverter());
+		PhaseStats.run("style", () -> elementSaver.convert(getConverter()));
 		
 		if (addBackground)
 			addBackground();
@@ -235,6 +237,7 @@ public class OsmMapDataSource extends MapperBasedMapDataSource implements Loadab
 		handler.setHooks(osmReadingHooks);
 
 		handler.setUsedTags(getUsedTags());
+		handler.setUsedNodeTags(usedNodeTags);
 
 		String deleteTagsFileName = getConfig().getProperty("delete-tags-file");
 		if(deleteTagsFileName != null) {
@@ -284,6 +287,8 @@ public class OsmMapDataSource extends MapperBasedMapDataSource implements Loadab
 			hooks = chain;
 		}
 		usedTags.addAll(hooks.getUsedTags());
+		if (usedNodeTags != null)
+			usedNodeTags.addAll(hooks.getUsedTags());
 		return hooks;
 	}
 
@@ -337,6 +342,13 @@ public class OsmMapDataSource extends MapperBasedMapDataSource implements Loadab
 
 		usedTags.addAll(style.getUsedTags());
 		usedTags.addAll(NameFinder.getNameTags(props));
+		usedNodeTags = style.getUsedNodeTags();
+		if (usedNodeTags != null) {
+			usedNodeTags.addAll(NameFinder.getNameTags(props));
+			// the element saver marks the coords of nodes with a fixme tag
+			usedNodeTags.add("fixme");
+			usedNodeTags.add("FIXME");
+		}
 		converter = new StyledConverter(style, mapper, props);
 	}
 
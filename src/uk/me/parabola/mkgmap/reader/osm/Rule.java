@@ -16,6 +16,8 @@
  */
 package uk.me.parabola.mkgmap.reader.osm;
 
+import uk.me.parabola.mkgmap.osmstyle.eval.EvalContext;
+
 /**
  * A rule takes an element and returns the correct garmin type for it.
  * Implementations can be simple or complex as needed.
@@ -38,12 +40,11 @@ public interface Rule {
 	 * Given the element return the garmin type that should be used to
 	 * represent it.
 	 *
-	 * @param cacheId
+	 * @param ctx holds the cached values of the current thread
 	 * @param el The element as read from an OSM xml file in 'tag' format.
 	 * @param result The resolved Garmin type that will go into the map.
-	 * @return
 	 */
-	public int resolveType(int cacheId, Element el, TypeResult result);
+	public void resolveType(EvalContext ctx, Element el, TypeResult result);
 	
 	/**
 	 * Sets the finalize rules that are executed when 
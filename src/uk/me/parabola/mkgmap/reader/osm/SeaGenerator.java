@@ -49,6 +49,7 @@ import uk.me.parabola.mkgmap.general.LineClipper;
 import uk.me.parabola.mkgmap.osmstyle.StyleImpl;
 import uk.me.parabola.util.EnhancedProperties;
 import uk.me.parabola.util.Java2DConverter;
+import uk.me.parabola.util.PhaseStats;
 
 /**
  * Code to generate sea polygons from the coastline ways.
@@ -816,6 +817,10 @@ public class SeaGenerator extends OsmReadingHooksAdaptor {
 	 * All done, process the saved shoreline information and construct the polygons.
 	 */
 	public void end() {
+		PhaseStats.run("sea", () -> createSea());
+	}
+
+	private void createSea() {
 		// precompiled sea has highest priority
 		// if it is set do not perform any other algorithm
 		if (precompSeaDir != null) {
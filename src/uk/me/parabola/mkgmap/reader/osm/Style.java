@@ -74,6 +74,14 @@ public interface Style {
 	 * Get the tags that are used by this style.
 	 */
 	public Set<String> getUsedTags();
+
+	/**
+	 * Get the tags that can make a difference when a node is converted.
+	 * A node that has none of these tags is never converted to a point.
+	 * @return The tags or null if the point rules might match any node,
+	 * because they use tags that are added while the map is built.
+	 */
+	public Set<String> getUsedNodeTags();
 	
 	/**
 	 * Report statistics for rule expressions. 
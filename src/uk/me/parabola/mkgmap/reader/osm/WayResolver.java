@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.reader.osm;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import uk.me.parabola.imgfmt.MapFailedException;
+import uk.me.parabola.log.Logger;
+
+/**
+ * Runs the first stage of the way conversion ({@link OsmConverter#resolveWay(Way)})
+ * in a separate thread. The tasks that complete the conversion are handed
+ * over in a bounded queue and run by the thread that calls
+ * {@link #addResults()}, in the order of the ways.
+ * <p>
+ * The ways are removed from the collection once they are resolved.
+ */
+class WayResolver {
+	private static final Logger log = Logger.getLogger(WayResolver.class);
+
+	private static final int QUEUE_SIZE = 1000;
+	private static final Runnable END = () -> {};
+
+	private final BlockingQueue<Runnable> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+	private final Thread thread;
+	private volatile Throwable error;
+
+	WayResolver(OsmConverter converter, Collection<Way> ways) {
+		String tag = log.threadTag();
+		thread = new Thread(() -> {
+			log.threadTag(tag);
+			try {
+				Iterator<Way> wayIter = ways.iterator();
+				while (wayIter.hasNext()) {
+					queue.put(converter.resolveWay(wayIter.next()));
+					wayIter.remove();
+				}
+			} catch (InterruptedException e) {
+				// the conversion was stopped
+				return;
+			} catch (Throwable t) {
+				error = t;
+			}
+			try {
+				queue.put(END);
+			} catch (InterruptedException e) {
+				// the conversion was stopped
+			}
+		}, Thread.currentThread().getName() + "-ways");
+		thread.setDaemon(true);
+	}
+
+	void start() {
+		thread.start();
+	}
+
+	/**
+	 * Stop resolving the ways when {@link #addResults()} will not be called,
+	 * for example because the conversion of the nodes failed.
+	 */
+	void stop() {
+		thread.interrupt();
+	}
+
+	/**
+	 * Run the tasks of all ways. Returns when all ways are converted.
+	 */
+	void addResults() {
+		boolean finished = false;
+		try {
+			for (;;) {
+				Runnable task = queue.take();
+				if (task == END)
+					break;
+				task.run();
+			}
+			finished = true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MapFailedException("Interrupted while converting the ways");
+		} finally {
+			if (!finished)
+				thread.interrupt();
+		}
+		if (error instanceof RuntimeException)
+			throw (RuntimeException) error;
+		if (error instanceof Error)
+			throw (Error) error;
+		if (error != null)
+			throw new MapFailedException("Failed to convert the ways", error);
+	}
+}
@@ -103,8 +103,7 @@ public class OsmBinHandler extends OsmHandler {
 							node.addTagFromRawOSM(key, val);
 					}
 
-					saver.addNode(node);
-					hooks.onAddNode(node);
+					addNode(node);
 				}
 			}
 		}
@@ -145,8 +144,7 @@ public class OsmBinHandler extends OsmHandler {
 
 					if (ntags > 0) {
 						// If there are tags, then we save a proper node for it.
-						saver.addNode(node);
-						hooks.onAddNode(node);
+						addNode(node);
 					}
 				}
 			}
@@ -12,6 +12,8 @@
  */
 package uk.me.parabola.mkgmap.reader.osm.boundary;
 
+import java.io.File;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -33,6 +35,7 @@ public class BoundaryGrid {
 
 	private final uk.me.parabola.imgfmt.app.Area searchBbox;
 	private final BoundaryQuadTree[][] grid;
+	private final MappedBoundaryTree[][] mappedGrid;
 	private final boolean [][]emptyMessagePrinted;
 	private final int minLat;
 	private final int minLon;
@@ -59,6 +62,7 @@ public class BoundaryGrid {
 		int dimLat = (gridMaxLat - minLat) / BoundaryUtil.RASTER + 1;
 		int dimLon = (gridMaxLon - minLon) / BoundaryUtil.RASTER + 1;
 		grid = new BoundaryQuadTree[dimLat][dimLon];
+		mappedGrid = new MappedBoundaryTree[dimLat][dimLon];
 		emptyMessagePrinted = new boolean[dimLat][dimLon];
 		this.searchBbox = bbox;
 
@@ -77,30 +81,96 @@ public class BoundaryGrid {
 			return null;
 		int gridLat = (co.getLatitude() - minLat) / BoundaryUtil.RASTER;
 		int gridLon = (co.getLongitude() - minLon) / BoundaryUtil.RASTER;
+		if (mappedGrid[gridLat][gridLon] != null)
+			return mappedGrid[gridLat][gridLon].get(co);
 		if (grid[gridLat][gridLon] == null){
-			if (emptyMessagePrinted[gridLat][gridLon] == false){
-				emptyMessagePrinted[gridLat][gridLon] = true;
-				int keyLat = BoundaryUtil.getSplitBegin(co.getLatitude());
-				int keyLon = BoundaryUtil.getSplitBegin(co.getLongitude());
-				log.warn("no precompiled boundary information available for raster tile", BoundaryUtil.getKey(keyLat,keyLon));
-			}
+			warnMissing(gridLat, gridLon, co);
 			return null;
 		}
 		else
 			return grid[gridLat][gridLon].get(co);
 	}
 
+	private void warnMissing(int gridLat, int gridLon, Coord co) {
+		if (emptyMessagePrinted[gridLat][gridLon] == false){
+			emptyMessagePrinted[gridLat][gridLon] = true;
+			int keyLat = BoundaryUtil.getSplitBegin(co.getLatitude());
+			int keyLon = BoundaryUtil.getSplitBegin(co.getLongitude());
+			log.warn("no precompiled boundary information available for raster tile", BoundaryUtil.getKey(keyLat,keyLon));
+		}
+	}
+
+	/**
+	 * Searches points in the grid with the searchers of the trees, so
+	 * that neighbouring points are found faster. Different threads can 
+	 * use different searchers at the same time.
+	 */
+	public class Searcher {
+		private final BoundaryQuadTree.Searcher[][] searchers = new BoundaryQuadTree.Searcher[grid.length][grid[0].length];
+		private final MappedBoundaryTree.Searcher[][] mappedSearchers = new MappedBoundaryTree.Searcher[grid.length][grid[0].length];
+
+		/**
+		 * Returns the location relevant tags for a given point 
+		 * @param co the coords of the point
+		 * @return the same result as {@link BoundaryGrid#get(Coord)}
+		 */
+		public Tags get(Coord co) {
+			if (!searchBbox.contains(co))
+				return null;
+			int gridLat = (co.getLatitude() - minLat) / BoundaryUtil.RASTER;
+			int gridLon = (co.getLongitude() - minLon) / BoundaryUtil.RASTER;
+			if (mappedGrid[gridLat][gridLon] != null){
+				MappedBoundaryTree.Searcher searcher = mappedSearchers[gridLat][gridLon];
+				if (searcher == null){
+					searcher = mappedGrid[gridLat][gridLon].getSearcher();
+					mappedSearchers[gridLat][gridLon] = searcher;
+				}
+				return searcher.get(co);
+			}
+			if (grid[gridLat][gridLon] == null){
+				warnMissing(gridLat, gridLon, co);
+				return null;
+			}
+			BoundaryQuadTree.Searcher searcher = searchers[gridLat][gridLon];
+			if (searcher == null){
+				searcher = grid[gridLat][gridLon].getSearcher();
+				searchers[gridLat][gridLon] = searcher;
+			}
+			return searcher.get(co);
+		}
+	}
+
+	/**
+	 * @return a new searcher for this grid
+	 */
+	public Searcher getSearcher() {
+		return new Searcher();
+	}
+
 	/**
 	 * Fill the grid. Calculate the names of the *.bnd files that 
 	 * may be needed. For each file, try to create a BoundaryQuadTree.
-	 * Save each tree to its place in the grid. 
+	 * Save each tree to its place in the grid. Files in MAPPED_DATA_FORMAT
+	 * in a directory are mapped into memory instead.
 	 * 
 	 * @param boundaryDir
 	 *            Directory or a *.zip file with bnd files
 	 */
 	private void init(String boundaryDirName){
 		List<String> requiredFileNames = BoundaryUtil.getRequiredBoundaryFileNames(searchBbox);
-		Map<String,BoundaryQuadTree> trees = BoundaryUtil.loadQuadTrees(boundaryDirName, requiredFileNames, searchBbox, props);
+		File boundaryDir = new File(boundaryDirName);
+		Map<String,MappedBoundaryTree> mappedTrees = new HashMap<>();
+		Map<String,BoundaryQuadTree> trees;
+		if (boundaryDir.isDirectory())
+			trees = BoundaryUtil.loadTrees(boundaryDir, requiredFileNames, searchBbox, props, mappedTrees);
+		else
+			trees = BoundaryUtil.loadQuadTrees(boundaryDirName, requiredFileNames, searchBbox, props);
+		for (Entry<String,MappedBoundaryTree> entry: mappedTrees.entrySet()) {
+			uk.me.parabola.imgfmt.app.Area fileBbox = BoundaryUtil.getBbox(entry.getKey());
+			int gridLat = (fileBbox.getMinLat() - minLat) / BoundaryUtil.RASTER;
+			int gridLon = (fileBbox.getMinLong() - minLon) / BoundaryUtil.RASTER;
+			mappedGrid[gridLat][gridLon] = entry.getValue();
+		}
 		for (Entry<String,BoundaryQuadTree> entry: trees.entrySet()) {
 			uk.me.parabola.imgfmt.app.Area fileBbox = BoundaryUtil.getBbox(entry.getKey());
 			int gridLat = (fileBbox.getMinLat() - minLat) / BoundaryUtil.RASTER;
@@ -21,6 +21,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * The class merges two directories with precompiled bounds files. Both directory may contain files covering
@@ -60,12 +61,10 @@ public class BoundaryMerger {
 		ListIterator<String> fl1Iter = fl1.listIterator();
 		ListIterator<String> fl2Iter = fl2.listIterator();
 		
-		BoundarySaver bSave = new BoundarySaver(targetDir, BoundarySaver.QUADTREE_DATA_FORMAT);
-		bSave.setCreateEmptyFiles(false);
-		
 		List<File> copy = new ArrayList<File>();
+		List<String> merge = new ArrayList<>();
 		
-		int processed = 0;
+		AtomicInteger processed = new AtomicInteger();
 		int all = fl1.size()+fl2.size();
 		
 		while (fl1Iter.hasNext() || fl2Iter.hasNext()) {
@@ -85,32 +84,45 @@ public class BoundaryMerger {
 					copy.add(new File(dir2,f2));
 					fl1Iter.previous();
 				} else {
-					BoundaryQuadTree bqt1 = BoundaryUtil.loadQuadTree(dir1.getAbsolutePath(), f1);
-					if (bqt1 == null){
-						System.err.println("Failed to load quadtree for " + dir1.getAbsolutePath() + f1);
-						System.exit(-1);
-					}
-					BoundaryQuadTree bqt2 = BoundaryUtil.loadQuadTree(dir2.getAbsolutePath(), f2);
-					if (bqt2 == null){
-						System.err.println("Failed to load quadtree for " + dir2.getAbsolutePath() + f2);
-						System.exit(-1);
-					}
-					
-					bqt1.merge(bqt2);
-					bSave.saveQuadTree(bqt1, f1);
-					processed += 2;
-					System.out.println(processed+"/"+all+" processed");
+					merge.add(f1);
 				}
 			}
 		}
-		bSave.end();
+
+		// the files are independent, merge them in parallel
+		merge.parallelStream().forEach(f -> {
+			mergeFile(dir1, dir2, f, targetDir);
+			System.out.println(processed.addAndGet(2)+"/"+all+" processed");
+		});
 		
 		for (File f: copy) {
 			copy(f, targetDir);
-			processed++;
-			System.out.println(processed+"/"+all+" processed");
+			System.out.println(processed.incrementAndGet()+"/"+all+" processed");
 		}
 	}
+
+	/**
+	 * Merges the file with the given name in the two directories 
+	 * and saves the result in the target directory.
+	 */
+	private static void mergeFile(File dir1, File dir2, String fileName, File targetDir) {
+		BoundaryQuadTree bqt1 = BoundaryUtil.loadQuadTree(dir1.getAbsolutePath(), fileName);
+		if (bqt1 == null){
+			System.err.println("Failed to load quadtree for " + dir1.getAbsolutePath() + fileName);
+			System.exit(-1);
+		}
+		BoundaryQuadTree bqt2 = BoundaryUtil.loadQuadTree(dir2.getAbsolutePath(), fileName);
+		if (bqt2 == null){
+			System.err.println("Failed to load quadtree for " + dir2.getAbsolutePath() + fileName);
+			System.exit(-1);
+		}
+		
+		bqt1.merge(bqt2);
+		BoundarySaver bSave = new BoundarySaver(targetDir, BoundarySaver.QUADTREE_DATA_FORMAT);
+		bSave.setCreateEmptyFiles(false);
+		bSave.saveQuadTree(bqt1, fileName);
+		bSave.end();
+	}
 	
 	/**
 	 * @param args
@@ -12,9 +12,17 @@
  */
 package uk.me.parabola.mkgmap.reader.osm.boundary;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
@@ -35,8 +43,17 @@ import uk.me.parabola.mkgmap.reader.osm.LocationHook;
 public class BoundaryPreprocessor implements Runnable {
 	private static final Logger log = Logger.getLogger(BoundaryPreprocessor.class);
 
+	/** the file in the bounds directory with the fingerprints of the raw data of each bounds file */
+	private static final String FINGERPRINT_FILE = "fingerprints.txt";
+
 	private String boundaryFilename;
 	private String outDir;
+	/** {@code true}: only the bounds files with changed raw data are recreated */
+	private boolean incremental;
+	/** the format of the created bounds files */
+	private String dataFormat = BoundarySaver.QUADTREE_DATA_FORMAT;
+	/** the fingerprints of the raw data of each bounds file */
+	private Map<String, Long> fingerprints;
 	private ExecutorService threadPool;
 	private final BlockingQueue<Future<Object>> remainingTasks = new LinkedBlockingQueue<>();
 
@@ -69,9 +86,38 @@ public class BoundaryPreprocessor implements Runnable {
 			this.threadPool = null;
 	}
 
+	/**
+	 * Sets the incremental mode. The raw data is written to a temporary
+	 * directory and compared with the fingerprints of the previous run, only
+	 * the bounds files with changed data are recreated.
+	 * @param incremental {@code true} enables the incremental mode
+	 */
+	public void setIncremental(boolean incremental) {
+		this.incremental = incremental;
+	}
+
+	/**
+	 * Sets the format of the bounds files. 
+	 * @param mapped {@code true}: create files in the MAPPED_DATA_FORMAT which
+	 * can be used without parsing the areas, else in the QUADTREE_DATA_FORMAT
+	 */
+	public void setMapped(boolean mapped) {
+		this.dataFormat = mapped ? BoundarySaver.MAPPED_DATA_FORMAT : BoundarySaver.QUADTREE_DATA_FORMAT;
+	}
+
 	public void run() {
 		long t1 = System.currentTimeMillis();
-		boolean prepOK = createRawData();
+		File rawDir = new File(outDir);
+		if (incremental) {
+			rawDir = new File(outDir, "raw.tmp");
+			// remove the leftovers of an aborted run
+			File[] oldFiles = rawDir.listFiles();
+			if (oldFiles != null) {
+				for (File f : oldFiles)
+					f.delete();
+			}
+		}
+		boolean prepOK = createRawData(rawDir);
 		long t2 = System.currentTimeMillis();
 		log.info("BoundaryPreparer pass 1 took", (t2-t1), "ms");
 
@@ -79,16 +125,21 @@ public class BoundaryPreprocessor implements Runnable {
 			System.err.println("Boundary creation failed.");
 			return;
 		}
-		workoutBoundaryRelations();
+		List<String> boundsFileNames;
+		if (incremental)
+			boundsFileNames = updateBoundsDirectory(rawDir);
+		else 
+			boundsFileNames = BoundaryUtil.getBoundaryDirContent(this.outDir);
+		workoutBoundaryRelations(boundsFileNames);
 	}
 
 	/**
 	 * Parse OSM data and create boundaries. Distribute the boundaries on a grid
 	 * with a fixed raster. 
+	 * @param boundsDirectory the directory for the raw data
 	 * @return true if data was successfully written, else false
 	 */
-	private boolean createRawData(){
-		File boundsDirectory = new File(outDir);
+	private boolean createRawData(File boundsDirectory){
 		BoundarySaver saver = new BoundarySaver(boundsDirectory, BoundarySaver.RAW_DATA_FORMAT);
 		OsmBoundaryDataSource dataSource = new OsmBoundaryDataSource();
 		dataSource.setBoundarySaver(saver);
@@ -105,26 +156,115 @@ public class BoundaryPreprocessor implements Runnable {
 		saver.setBbox(dataSource.getBounds());
 		log.info("Finished loading", boundaryFilename);
 		saver.end();
+		fingerprints = saver.getFingerprints();
 		return true;
 	}
+
+	/**
+	 * Moves the raw files with changed fingerprints from the temporary 
+	 * directory to the bounds directory and removes the bounds files that
+	 * no longer contain boundaries.
+	 * @param rawDir the directory with the raw data
+	 * @return the names of the bounds files that have to be recreated
+	 */
+	private List<String> updateBoundsDirectory(File rawDir) {
+		File boundsDir = new File(outDir);
+		Map<String, Long> previous = readFingerprints(boundsDir);
+		// the fingerprints are written again when all files are recreated
+		new File(boundsDir, FINGERPRINT_FILE).delete();
+
+		List<String> changed = new ArrayList<>();
+		for (String name : BoundaryUtil.getBoundaryDirContent(rawDir.getPath())) {
+			String key = name.substring("bounds_".length(), name.length() - ".bnd".length());
+			File rawFile = new File(rawDir, name);
+			File boundsFile = new File(boundsDir, name);
+			Long prevFingerprint = previous.remove(key);
+			if (prevFingerprint != null && prevFingerprint.equals(fingerprints.get(key)) && boundsFile.exists()) {
+				// the boundaries are unchanged, keep the old file
+				rawFile.delete();
+				continue;
+			}
+			boundsFile.delete();
+			if (!rawFile.renameTo(boundsFile)) {
+				log.error("Cannot move", rawFile, "to", boundsFile);
+				continue;
+			}
+			changed.add(name);
+		}
+		// remove the files of raster cells without boundaries
+		for (String key : previous.keySet()) {
+			new File(boundsDir, "bounds_" + key + ".bnd").delete();
+		}
+		rawDir.delete();
+		log.info("Incremental mode:", changed.size(), "bounds files changed,", previous.size(), "removed");
+		return changed;
+	}
+
+	private static Map<String, Long> readFingerprints(File boundsDir) {
+		Map<String, Long> prints = new HashMap<>();
+		File file = new File(boundsDir, FINGERPRINT_FILE);
+		if (!file.exists())
+			return prints;
+		try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] parts = line.split(";");
+				if (parts.length == 2)
+					prints.put(parts[0], Long.parseUnsignedLong(parts[1], 16));
+			}
+		} catch (IOException | NumberFormatException exp) {
+			log.error("Cannot read", file, exp);
+			prints.clear();
+		}
+		return prints;
+	}
+
+	private void writeFingerprints() {
+		if (fingerprints == null)
+			return;
+		File file = new File(outDir, FINGERPRINT_FILE);
+		try (PrintWriter writer = new PrintWriter(file)) {
+			for (Entry<String, Long> e : fingerprints.entrySet()) {
+				writer.format("%s;%x\n", e.getKey(), e.getValue());
+			}
+		} catch (IOException exp) {
+			log.error("Cannot write", file, exp);
+		}
+	}
 	
 	
 	public static void main(String[] args) {
-		if (args[0].equals("--help") || args.length != 2) {
+		boolean incremental = false;
+		boolean mapped = false;
+		int argOffset = 0;
+		while (argOffset < args.length) {
+			if (args[argOffset].equals("--incremental"))
+				incremental = true;
+			else if (args[argOffset].equals("--mapped"))
+				mapped = true;
+			else 
+				break;
+			argOffset++;
+		}
+		if (args.length == 0 || args[0].equals("--help") || args.length != 2 + argOffset) {
 			System.err.println("Usage:");
-			System.err.println("java -cp mkgmap.jar uk.me.parabola.mkgmap.reader.osm.boundary.BoundaryPreprocessor <inputfile> <boundsdir>");
+			System.err.println("java -cp mkgmap.jar uk.me.parabola.mkgmap.reader.osm.boundary.BoundaryPreprocessor [--incremental] [--mapped] <inputfile> <boundsdir>");
+			System.err.println(" --incremental: Recreate only the files with changed boundaries in an existing <boundsdir>");
+			System.err.println(" --mapped: Create the files in a format that is memory mapped by mkgmap");
 			System.err.println(" <inputfile>: File containing boundary data (OSM, PBF or O5M format)");
 			System.err.println(" <boundsdir>: Directory in which the preprocessed bounds files are created");
 
 			System.exit(-1);
 		}
 		
-		String inputFile = args[0];
-		String outputDir = args[1];
+		String inputFile = args[argOffset];
+		String outputDir = args[argOffset + 1];
 		
 		long t1 = System.currentTimeMillis();
 		
 		BoundaryPreprocessor p = new BoundaryPreprocessor(inputFile, outputDir);
+		p.setIncremental(incremental);
+		p.setMapped(mapped);
 		try {
 			p.runPreprocessing();
 		} catch (InterruptedException exp) {
@@ -140,16 +280,15 @@ public class BoundaryPreprocessor implements Runnable {
 	/**
 	 * Reworks all bounds files of the given directory so that all boundaries
 	 * are applied with the information with which boundary they intersect.<br/>
-	 * The files are rewritten in the QUADTREE_DATA_FORMAT which is used in the 
-	 * LocationHook.
+	 * The files are rewritten in the QUADTREE_DATA_FORMAT or MAPPED_DATA_FORMAT 
+	 * which are used in the LocationHook.
+	 * @param boundsFileNames the names of the files to rework
 	 */
-	private void workoutBoundaryRelations() {
-		List<String> boundsFileNames = BoundaryUtil.getBoundaryDirContent(this.outDir);
-				
+	private void workoutBoundaryRelations(List<String> boundsFileNames) {
 		for (String boundsFileName : boundsFileNames) {
 			// start workers that rework the boundary files and add the 
 			// quadtree information
-			addWorker(new QuadTreeWorker(this.outDir, boundsFileName));
+			addWorker(new QuadTreeWorker(this.outDir, boundsFileName, dataFormat));
 		}
 	}
 
@@ -177,6 +316,7 @@ public class BoundaryPreprocessor implements Runnable {
 			// there is no thread pool so run it in the same thread and wait for
 			// its completion
 			run();
+			writeFingerprints();
 		} else {
 
 			// start the preparer
@@ -197,6 +337,7 @@ public class BoundaryPreprocessor implements Runnable {
 				task.get();
 			}
 			
+			writeFingerprints();
 			// stop thread pool
 			threadPool.shutdown();
 		}
@@ -205,10 +346,12 @@ public class BoundaryPreprocessor implements Runnable {
 	class QuadTreeWorker implements Callable<String> {
 		private final String boundsDir;
 		private final String boundsFilename;
+		private final String dataFormat;
 		
-		public QuadTreeWorker(String boundsDir, String boundsFilename) {
+		public QuadTreeWorker(String boundsDir, String boundsFilename, String dataFormat) {
 			this.boundsDir = boundsDir;
 			this.boundsFilename = boundsFilename;
+			this.dataFormat = dataFormat;
 		}
 		
 		@Override
@@ -219,7 +362,7 @@ public class BoundaryPreprocessor implements Runnable {
 			long dt = System.currentTimeMillis() - t1;
 			log.info("splitting", boundsFilename, "took", dt, "ms");
 			if (bqt != null){
-				BoundarySaver saver = new BoundarySaver(new File(boundsDir), BoundarySaver.QUADTREE_DATA_FORMAT);
+				BoundarySaver saver = new BoundarySaver(new File(boundsDir), dataFormat);
 				saver.setCreateEmptyFiles(false);
 
 				saver.saveQuadTree(bqt, boundsFilename); 		
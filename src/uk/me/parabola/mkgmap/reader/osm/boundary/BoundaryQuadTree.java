@@ -33,6 +33,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ForkJoinTask;
 import java.util.regex.Pattern;
 
 import uk.me.parabola.imgfmt.app.Coord;
@@ -61,6 +62,10 @@ public class BoundaryQuadTree {
 	private static final boolean DO_CLIP = true;
 	private static final boolean DO_NOT_CLIP = false;
 	
+	// the sub trees of nodes with a lower depth are split and merged in parallel 
+	private static final int PARALLEL_DEPTH = 3;
+	private static volatile boolean parallel = true;
+	
 	// maps the "normal" tags of the boundaries that are saved in this tree to
 	// the boundaryId
 	private final HashMap<String, Tags> boundaryTags = new LinkedHashMap<>();
@@ -119,6 +124,31 @@ public class BoundaryQuadTree {
 	}
 	
 	
+	/**
+	 * Create a quadtree with the data of a tree in MAPPED_DATA_FORMAT.
+	 * @param mappedTree the tree
+	 * @param fileBbox	The bounding box for the quadTree 
+	 * @param props if not null, use it to set location names
+	 */
+	public BoundaryQuadTree(MappedBoundaryTree mappedTree,
+			uk.me.parabola.imgfmt.app.Area fileBbox, EnhancedProperties props) {
+		preparedLocationInfo = new LinkedHashMap<> ();
+		preparer = new BoundaryLocationPreparer(props);
+		assert fileBbox != null: "parameter fileBbox must not be null";
+		this.bbox = new Rectangle(fileBbox.getMinLong(), fileBbox.getMinLat(),
+				fileBbox.getMaxLong() - fileBbox.getMinLong(), fileBbox.getMaxLat()
+				- fileBbox.getMinLat());
+		this.bbox_key = BoundaryUtil.getKey(this.bbox.y, this.bbox.x);
+		root = new Node(this.bbox);
+		
+		boundaryTags.putAll(mappedTree.getTagsMap());
+		prepareLocationInfo();
+		mappedTree.visitElements((treePath, id, refs, area) -> {
+			if (area.isEmpty() == false)
+				root.add(area, refs, id, treePath);
+		});
+	}
+	
 	/**
 	 * Create a quadtree for a given bounding box and a list of boundaries.
 	 * Involves costly calculations to split the areas.
@@ -156,6 +186,15 @@ public class BoundaryQuadTree {
 		root.split("_");
 	}
 
+	/**
+	 * Enable or disable the parallel splitting and merging of the sub trees.
+	 * The results don't depend on this setting.
+	 * @param parallel {@code true}: use the common fork/join pool
+	 */
+	public static void setParallel(boolean parallel) {
+		BoundaryQuadTree.parallel = parallel;
+	}
+
 	/**
 	 * Return location relevant Tags for the point defined by Coord 
 	 * @param co the point
@@ -183,6 +222,51 @@ public class BoundaryQuadTree {
 		return res;
 	}
 
+	/**
+	 * Searches points in the tree. A searcher remembers the last visited 
+	 * leaf and starts there if the next point lies inside of it. This 
+	 * helps when the points are searched in the order of their position.
+	 * A searcher must not be used by more than one thread at the same time.
+	 */
+	public class Searcher {
+		private Node lastLeaf;
+
+		/**
+		 * Return location relevant Tags for the point defined by Coord 
+		 * @param co the point
+		 * @return the same result as {@link BoundaryQuadTree#get(Coord)}
+		 */
+		public Tags get(Coord co){
+			Tags res = search(co);
+			if (res == null && bbox.contains(co.getLongitude(),co.getLatitude())){
+				// see BoundaryQuadTree.get()
+				res = search(new Coord(co.getLatitude()-1, co.getLongitude()));
+				if (res == null)
+					res = search(new Coord(co.getLatitude()  , co.getLongitude()-1));
+				if (res == null)
+					res = search(new Coord(co.getLatitude()+1, co.getLongitude()));
+				if (res == null)
+					res = search(new Coord(co.getLatitude()  , co.getLongitude()+1));
+			}
+			return res;
+		}
+
+		private Tags search(Coord co){
+			// the leaves don't overlap, so no other leaf can contain a point 
+			// that is inside of the last leaf and not on its border 
+			if (lastLeaf != null && lastLeaf.bounds.insideBoundary(co))
+				return lastLeaf.getInLeaf(co);
+			return root.get(co, this);
+		}
+	}
+
+	/**
+	 * @return a new searcher for this tree
+	 */
+	public Searcher getSearcher(){
+		return new Searcher();
+	}
+
 	/**
 	 * Return a map with boundary IDs and the related tags.    
 	 * @return the map. It is a LinkedHashMap, the order is created with 
@@ -264,6 +348,20 @@ public class BoundaryQuadTree {
 		root.save(stream, "_");
 	}
 
+	/**
+	 * Save the BoundaryQuadTree to an open stream. The format is MAPPED_DATA_FORMAT.
+	 * @param stream
+	 * @throws IOException
+	 */
+	public void saveMapped(OutputStream stream)throws IOException{
+		MappedBoundaryTree.Writer writer = new MappedBoundaryTree.Writer();
+		for (Entry<String,Tags> entry : boundaryTags.entrySet()){
+			writer.addBoundary(entry.getKey(), entry.getValue());
+		}
+		root.saveMapped(writer, writer.addNode(root.bounds));
+		writer.write(stream);
+	}
+
 	/**
 	 * Sort the boundary-Tags-Map so that zip-code-only boundaries appear first, followed by
 	 * admin_level-11,10,9,...2
@@ -459,6 +557,33 @@ public class BoundaryQuadTree {
 			}
 		}
 
+		/**
+		 * Travel through the tree, add the nodes and all usable areas of all 
+		 * leaves to the writer for the MAPPED_DATA_FORMAT
+		 * @param writer the writer
+		 * @param idx the index of this node in the writer
+		 */
+		private void saveMapped(MappedBoundaryTree.Writer writer, int idx){
+			if (isLeaf){
+				if (nodes != null){
+					for (NodeElem nodeElem :nodes){
+						if (nodeElem.isValid())
+							writer.addElement(idx, nodeElem.boundaryId, nodeElem.locationDataSrc, nodeElem.getArea());
+					}
+				}
+			}
+			else {
+				int first = writer.addNode(childs[0].bounds);
+				for (int i = 1; i < 4; i++){
+					writer.addNode(childs[i].bounds);
+				}
+				writer.setFirstChild(idx, first);
+				for (int i = 0; i < 4; i++){
+					childs[i].saveMapped(writer, first + i);
+				}
+			}
+		}
+
 		/**
 		 * Return boundary names relevant for the point defined by Coord 
 		 * @param co the point
@@ -501,24 +626,26 @@ public class BoundaryQuadTree {
 		 * The returned Tags must not be modified by the caller.   
 		 */
 		private Tags get(Coord co/*, String treePath*/){
+			return get(co, null);
+		}
+
+		/**
+		 * Return location relevant Tags for the point defined by Coord 
+		 * @param co the point
+		 * @param searcher if not null, the visited leaves are saved in it 
+		 * @return a reference to the internal Tags or null if the point was not found. 
+		 */
+		private Tags get(Coord co, Searcher searcher){
 			if (this.bounds.contains(co) == false)
 				return null;
 			if (isLeaf){
-				if (nodes == null || nodes.size() == 0)
-					return null;
-				int lon = co.getLongitude();
-				int lat = co.getLatitude();
-				for (NodeElem nodeElem: nodes){
-					if (nodeElem.tagMask > 0){	
-						if (nodeElem.getArea().contains(lon,lat)){
-							return nodeElem.locTags;
-						}
-					}
-				}
+				if (searcher != null)
+					searcher.lastLeaf = this;
+				return getInLeaf(co);
 			}
 			else {
 				for (int i = 0; i < 4; i++){
-					Tags res = childs[i].get(co/*, treePath+i*/);
+					Tags res = childs[i].get(co, searcher);
 					if (res != null) 
 						return res; 
 				}
@@ -526,6 +653,26 @@ public class BoundaryQuadTree {
 			return null;
 		}
 
+		/**
+		 * Search the point in the areas of this leaf.
+		 * @param co the point
+		 * @return a reference to the internal Tags or null if the point was not found. 
+		 */
+		private Tags getInLeaf(Coord co){
+			if (nodes == null || nodes.size() == 0)
+				return null;
+			int lon = co.getLongitude();
+			int lat = co.getLatitude();
+			for (NodeElem nodeElem: nodes){
+				if (nodeElem.tagMask > 0){	
+					if (nodeElem.getArea().contains(lon,lat)){
+						return nodeElem.locTags;
+					}
+				}
+			}
+			return null;
+		}
+
 		/**
 		 * Debugging helper: Print node Tags and maybe create gpx
 		 * @param prefix identifies the calling routine
@@ -651,6 +798,17 @@ public class BoundaryQuadTree {
 		 */
 		private void mergeNodes(Node other, String treePath){
 			if (!this.isLeaf && !other.isLeaf){
+				if (parallel && depth < PARALLEL_DEPTH){
+					List<ForkJoinTask<?>> tasks = new ArrayList<>(4);
+					for (int i = 0; i < 4; i++){
+						Node child = childs[i];
+						Node otherChild = other.childs[i];
+						String childPath = treePath + i;
+						tasks.add(ForkJoinTask.adapt(() -> child.mergeNodes(otherChild, childPath)));
+					}
+					ForkJoinTask.invokeAll(tasks);
+					return;
+				}
 				for (int i = 0; i < 4; i++){
 					childs[i].mergeNodes(other.childs[i], treePath+i);
 				}
@@ -999,6 +1157,9 @@ public class BoundaryQuadTree {
 				// subject to tuning
 				if (depth >= 5 || nodes.size() <= 7 || bounds.getHeight() < 10 || bounds.getWidth() < 10  ){
 					makeDistinct(treePath);
+					// create the remaining areas now, searches must not modify the tree
+					for (NodeElem nodeElem : nodes)
+						nodeElem.getArea();
 					return ;
 				}
 
@@ -1014,7 +1175,17 @@ public class BoundaryQuadTree {
 				// return memory to GC
 				nodes = null;
 			}
-			// finally try splitting the sub trees
+			// finally try splitting the sub trees, they are independent
+			if (parallel && depth < PARALLEL_DEPTH){
+				List<ForkJoinTask<?>> tasks = new ArrayList<>(4);
+				for (int i = 0; i < 4; i++){
+					Node child = childs[i];
+					String childPath = treePath + i;
+					tasks.add(ForkJoinTask.adapt(() -> child.split(childPath)));
+				}
+				ForkJoinTask.invokeAll(tasks);
+				return;
+			}
 			for (int i = 0; i < 4; i++){
 				childs[i].split(treePath+i);
 			}
@@ -1116,57 +1287,8 @@ public class BoundaryQuadTree {
 		 * @param boundary
 		 */
 		private void calcLocTags(){
-			locTags = new Tags();
-			tagMask = 0;
-			BoundaryLocationInfo bInfo  = preparedLocationInfo.get(boundaryId);
-			if (bInfo == null){
-				log.error("unknown boundaryId " + boundaryId);
-				return;
-			}
-			if (bInfo.getZip() != null){
-				locTags.put("mkgmap:postcode",bInfo.getZip());
-			}
-			
-			if (bInfo.getAdmLevel() != BoundaryLocationPreparer.UNSET_ADMIN_LEVEL){
-				locTags.put(BoundaryQuadTree.mkgmapTagsArray[bInfo.getAdmLevel()-1], bInfo.getName());
-			}
-			if (locTags.size() == 0 && bInfo.getName() != null) {
-				locTags.put("mkgmap:other", bInfo.getName());
-			}
-			if (locationDataSrc != null && locationDataSrc.isEmpty() == false){
-				// the common format of refInfo is 
-				// 2:r19884;4:r20039;6:r998818
-				String[] relBounds = locationDataSrc.split(Pattern.quote(";"));
-				for (String relBound : relBounds) {
-					String[] relParts = relBound.split(Pattern.quote(":"));
-					if (relParts.length != 2) {
-						log.error("Wrong format. Value: " + locationDataSrc);
-						continue;
-					}
-					BoundaryLocationInfo addInfo = preparedLocationInfo.get(relParts[1]);
-					if (addInfo == null) {
-						log.warn("Referenced boundary not known:", relParts[1]);
-						continue;
-					}
-
-					int addAdmLevel = addInfo.getAdmLevel();
-					String addAdmName = null;
-					if (addAdmLevel != BoundaryLocationPreparer.UNSET_ADMIN_LEVEL){
-						addAdmName = addInfo.getName();
-					}
-					String addZip = addInfo.getZip();
-
-					if (addAdmName != null){
-						if (locTags.get(BoundaryQuadTree.mkgmapTagsArray[addAdmLevel-1]) == null)
-							locTags.put(BoundaryQuadTree.mkgmapTagsArray[addAdmLevel-1], addAdmName);
-					}
-					if (addZip != null){
-						if (locTags.get("mkgmap:postcode") == null)
-							locTags.put("mkgmap:postcode", addZip);
-					}
-				}
-			}
-			tagMask = calcLocationTagsMask();
+			locTags = calcLocationTags(preparedLocationInfo, boundaryId, locationDataSrc);
+			tagMask = calcLocationTagsMask(locTags);
 		}
 		
 		/**
@@ -1243,20 +1365,6 @@ public class BoundaryQuadTree {
 		}
 
 
-		/**
-		 * calculate a handy short value that represents the available location tags
-		 * @return a bit mask, a bit with value 1 means the corresponding entry in {@link locationTagNames } 
-		 * is available
-		 */
-		private short calcLocationTagsMask(){
-			short res = 0;
-			for (int i = 0; i < mkgmapTagsArray.length; i++){
-				if (locTags.get(mkgmapTagsArray[i] ) != null)
-					res |= (1 << i);
-			}
-			return res;
-		}
-		
 		/**
 		 * For debugging: Save the area in gpx format
 		 * @param desc used as directory name  
@@ -1340,6 +1448,81 @@ public class BoundaryQuadTree {
 	}
 
 	
+	/**
+	 * Calculate the tags that are location relevant for an area of a boundary.
+	 * @param preparedLocationInfo the location info of all boundaries
+	 * @param boundaryId the boundary id
+	 * @param locationDataSrc the ids of the other boundaries that share the area or null
+	 * @return the location relevant tags
+	 */
+	static Tags calcLocationTags(Map<String, BoundaryLocationInfo> preparedLocationInfo,
+			String boundaryId, String locationDataSrc){
+		Tags locTags = new Tags();
+		BoundaryLocationInfo bInfo  = preparedLocationInfo.get(boundaryId);
+		if (bInfo == null){
+			log.error("unknown boundaryId " + boundaryId);
+			return locTags;
+		}
+		if (bInfo.getZip() != null){
+			locTags.put("mkgmap:postcode",bInfo.getZip());
+		}
+		
+		if (bInfo.getAdmLevel() != BoundaryLocationPreparer.UNSET_ADMIN_LEVEL){
+			locTags.put(BoundaryQuadTree.mkgmapTagsArray[bInfo.getAdmLevel()-1], bInfo.getName());
+		}
+		if (locTags.size() == 0 && bInfo.getName() != null) {
+			locTags.put("mkgmap:other", bInfo.getName());
+		}
+		if (locationDataSrc != null && locationDataSrc.isEmpty() == false){
+			// the common format of refInfo is 
+			// 2:r19884;4:r20039;6:r998818
+			String[] relBounds = locationDataSrc.split(Pattern.quote(";"));
+			for (String relBound : relBounds) {
+				String[] relParts = relBound.split(Pattern.quote(":"));
+				if (relParts.length != 2) {
+					log.error("Wrong format. Value: " + locationDataSrc);
+					continue;
+				}
+				BoundaryLocationInfo addInfo = preparedLocationInfo.get(relParts[1]);
+				if (addInfo == null) {
+					log.warn("Referenced boundary not known:", relParts[1]);
+					continue;
+				}
+
+				int addAdmLevel = addInfo.getAdmLevel();
+				String addAdmName = null;
+				if (addAdmLevel != BoundaryLocationPreparer.UNSET_ADMIN_LEVEL){
+					addAdmName = addInfo.getName();
+				}
+				String addZip = addInfo.getZip();
+
+				if (addAdmName != null){
+					if (locTags.get(BoundaryQuadTree.mkgmapTagsArray[addAdmLevel-1]) == null)
+						locTags.put(BoundaryQuadTree.mkgmapTagsArray[addAdmLevel-1], addAdmName);
+				}
+				if (addZip != null){
+					if (locTags.get("mkgmap:postcode") == null)
+						locTags.put("mkgmap:postcode", addZip);
+				}
+			}
+		}
+		return locTags;
+	}
+	
+	/**
+	 * calculate a handy short value that represents the available location tags
+	 * @return a bit mask, a bit with value 1 means the corresponding entry in {@link locationTagNames } 
+	 * is available
+	 */
+	static short calcLocationTagsMask(Tags locTags){
+		short res = 0;
+		for (int i = 0; i < mkgmapTagsArray.length; i++){
+			if (locTags.get(mkgmapTagsArray[i] ) != null)
+				res |= (1 << i);
+		}
+		return res;
+	}
+
 	/***
 	 * Used to sort BoundaryLocationInfo. Input are boundaryIds.
 	 * @author gerd
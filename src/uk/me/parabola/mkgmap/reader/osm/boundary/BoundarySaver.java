@@ -44,6 +44,7 @@ public class BoundarySaver {
 	public static final String LEGACY_DATA_FORMAT = ""; // legacy code just wrote the svn release or "svn"
 	public static final String RAW_DATA_FORMAT = "RAW";
 	public static final String QUADTREE_DATA_FORMAT = "QUADTREE";
+	public static final String MAPPED_DATA_FORMAT = "MAPPED";
 	public static final int CURRENT_RECORD_ID = 1;
 	
 	public static final double RESET_DELTA = Double.POSITIVE_INFINITY; 
@@ -52,6 +53,8 @@ public class BoundarySaver {
 	private final String dataFormat;
 	private uk.me.parabola.imgfmt.app.Area bbox;
 	private final HashSet<String> writtenFileNames;
+	/** fingerprint of the raw data written for each key */
+	private final Map<String, Long> fingerprints = new HashMap<>();
 
 	private int minLat = Integer.MAX_VALUE;
 	private int minLong = Integer.MAX_VALUE;
@@ -116,7 +119,10 @@ public class BoundarySaver {
 		try {
 			StreamInfo streamInfo = getStream(key);
 			if (streamInfo != null && streamInfo.isOpen()) {
-				bqt.save(streamInfo.stream);
+				if (dataFormat == MAPPED_DATA_FORMAT)
+					bqt.saveMapped(streamInfo.stream);
+				else 
+					bqt.save(streamInfo.stream);
 				writtenFileNames.add(boundsFileName);
 			}
 		} catch (Exception exp) {
@@ -301,7 +307,7 @@ public class BoundarySaver {
 		try {
 			StreamInfo streamInfo = getStream(filekey);
 			if (streamInfo != null && streamInfo.isOpen()) {
-				writeRawFormat(streamInfo.stream, shape, tags, id);
+				writeRawFormat(streamInfo.stream, filekey, shape, tags, id);
 			}
 		} catch (Exception exp) {
 			log.error("Cannot write boundary: " + exp, exp);
@@ -315,15 +321,16 @@ public class BoundarySaver {
 	/**
 	 * Save the elements of a boundary to a stream.
 	 * @param stream the already opened OutputStream
+	 * @param filekey the string that identifies the lower left corner
 	 * @param shape the shape that describes the area of the boundary
 	 * @param tags the tags of the boundary
 	 * @param id the boundary id
 	 */
-	private void writeRawFormat(OutputStream stream, Shape shape, Tags tags,
+	private void writeRawFormat(OutputStream stream, String filekey, Shape shape, Tags tags,
 			String id) {
 		ByteArrayOutputStream oneItemStream = new ByteArrayOutputStream();
 		DataOutputStream dos = new DataOutputStream(oneItemStream);
-		if (dataFormat == QUADTREE_DATA_FORMAT) {
+		if (dataFormat == QUADTREE_DATA_FORMAT || dataFormat == MAPPED_DATA_FORMAT) {
 			log.error("wrong format for write, must use BoundaryQuadTree.save() ");
 			System.exit(1);
 		}
@@ -371,6 +378,8 @@ public class BoundarySaver {
 			dOutStream.write(data);
 			dOutStream.flush();
 
+			addFingerprint(filekey, outBBox, data);
+
 		} catch (IOException exp) {
 			log.error(exp.toString());
 		}
@@ -378,6 +387,32 @@ public class BoundarySaver {
 		
 	}
 	
+	/**
+	 * Add a written boundary block to the fingerprint of the file. The
+	 * fingerprint doesn't depend on the order of the blocks.
+	 */
+	private void addFingerprint(String filekey, uk.me.parabola.imgfmt.app.Area bbox, byte[] data) {
+		// 64 bit FNV-1a hash
+		long hash = 0xcbf29ce484222325L;
+		int[] bounds = { bbox.getMinLat(), bbox.getMinLong(), bbox.getMaxLat(), bbox.getMaxLong() };
+		for (int v : bounds) {
+			hash = (hash ^ v) * 0x100000001b3L;
+		}
+		for (byte b : data) {
+			hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+		}
+		fingerprints.merge(filekey, hash, Long::sum);
+	}
+
+	/**
+	 * Retrieve the fingerprints of the raw data that was written, two files
+	 * with equal fingerprints contain the same boundaries.
+	 * @return map with the key of each written file and its fingerprint
+	 */
+	public Map<String, Long> getFingerprints() {
+		return fingerprints;
+	}
+
 	/**
 	 * Write area to stream with Double precision. The coordinates
 	 * are saved as varying length doubles with delta coding. 
@@ -20,12 +20,20 @@ import java.awt.geom.PathIterator;
 import java.awt.geom.Rectangle2D;
 import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -57,6 +65,7 @@ public class BoundaryUtil {
 	private static final int UNKNOWN_DATA_FORMAT = 0;
 	private static final int RAW_DATA_FORMAT_V1 = 2;
 	private static final int QUADTREE_DATA_FORMAT_V1 = 3;
+	private static final int MAPPED_DATA_FORMAT_V1 = 4;
 	public static final double MIN_DIMENSION = 0.0000001;
 	/**
 	 * Calculate the polygons that describe the area.
@@ -452,59 +461,9 @@ public class BoundaryUtil {
 			String fname,
 			uk.me.parabola.imgfmt.app.Area searchBbox, 
 			EnhancedProperties props)throws IOException{
-		BoundaryQuadTree bqt = null;
-		uk.me.parabola.imgfmt.app.Area qtBbox = getBbox(fname);
 		try (DataInputStream inpStream = new DataInputStream(new BufferedInputStream(stream, 1024 * 1024))){
 			try {
-				// 1st read the mkgmap release the boundary file is created by
-				String mkgmapRel = "?";
-				String firstId = inpStream.readUTF();
-				if ("BND".equals(firstId) == false){
-					throw new FormatException("Unsupported boundary data type "+firstId);
-				}
-
-				int format = UNKNOWN_DATA_FORMAT;
-				long createTime = inpStream.readLong();
-				int headerLength = inpStream.readInt();
-				byte[] header = new byte[headerLength];
-				int bytesRead = 0;
-				while (bytesRead < headerLength) {
-					int nBytes = inpStream.read(header, bytesRead, headerLength-bytesRead);
-					if (nBytes<0) {
-						throw new IOException("Cannot read header with size "+headerLength);
-					}
-					bytesRead += nBytes;
-				}
-					
-				ByteArrayInputStream rawHeaderStream = new ByteArrayInputStream(header);
-				DataInputStream headerStream =new DataInputStream(rawHeaderStream);
-				String dataFormat = (rawHeaderStream.available() > 0 ? headerStream.readUTF() : "RAW");
-				int recordVersion = (rawHeaderStream.available() > 0 ? headerStream.readInt() : RAW_DATA_FORMAT_V1);
-				mkgmapRel = (rawHeaderStream.available() > 0 ? headerStream.readUTF() : "unknown");
-				
-				if ("RAW".equals(dataFormat) && recordVersion == 1)
-					format = RAW_DATA_FORMAT_V1;
-				else if ("QUADTREE".equals(dataFormat) && recordVersion == 1)
-					format = QUADTREE_DATA_FORMAT_V1;
-
-				if (log.isDebugEnabled()) {
-					log.debug("File created by mkgmap release",mkgmapRel,"at",new Date(createTime));
-				}
-				
-				switch (format) {
-				case QUADTREE_DATA_FORMAT_V1:
-					bqt = new BoundaryQuadTree(inpStream, qtBbox, searchBbox, props);
-					break;
-				case RAW_DATA_FORMAT_V1:
-					List<Boundary> boundaryList = readStreamRawFormat(inpStream, fname,searchBbox);
-					if (boundaryList == null || boundaryList.isEmpty())
-						return null;
-					boundaryList = mergePostalCodes(boundaryList);
-					bqt = new BoundaryQuadTree(qtBbox, boundaryList, props);
-					break;
-				default:
-					throw new FormatException("Unsupported boundary file format: "+format);
-				}
+				return readQuadTree(inpStream, readHeader(inpStream).format, fname, searchBbox, props);
 			} catch (EOFException exp) {
 				// it's always thrown at the end of the file
 				//				log.error("Got EOF at the end of the file");
@@ -513,7 +472,146 @@ public class BoundaryUtil {
 				log.error("Failed to read boundary file " + fname + " " + exp.getMessage());
 			} 
 		} 
-		return bqt;
+		return null;
+	}
+
+	/**
+	 * Read the data that follows the header of a *.bnd file into a BoundaryQuadTree.
+	 * @param inpStream the stream, positioned after the header
+	 * @param format the format given in the header
+	 * @param fname the file name of the corresponding *.bnd file
+	 * @param searchBbox a bounding box or null. If not null, area info outside of this
+	 * bounding box is ignored. 
+	 * @param props properties to be used or null 
+	 * @return the new BoundaryQuadTree or null if the file contains no boundaries
+	 * @throws IOException
+	 */
+	private static BoundaryQuadTree readQuadTree(DataInputStream inpStream, int format,
+			String fname,
+			uk.me.parabola.imgfmt.app.Area searchBbox, 
+			EnhancedProperties props) throws IOException {
+		uk.me.parabola.imgfmt.app.Area qtBbox = getBbox(fname);
+		switch (format) {
+		case QUADTREE_DATA_FORMAT_V1:
+			return new BoundaryQuadTree(inpStream, qtBbox, searchBbox, props);
+		case MAPPED_DATA_FORMAT_V1:
+			ByteArrayOutputStream data = new ByteArrayOutputStream();
+			byte[] buf = new byte[64 * 1024];
+			int nBytes;
+			while ((nBytes = inpStream.read(buf)) > 0)
+				data.write(buf, 0, nBytes);
+			MappedBoundaryTree mappedTree = new MappedBoundaryTree(ByteBuffer.wrap(data.toByteArray()), props);
+			return new BoundaryQuadTree(mappedTree, qtBbox, props);
+		case RAW_DATA_FORMAT_V1:
+			List<Boundary> boundaryList = readStreamRawFormat(inpStream, fname,searchBbox);
+			if (boundaryList == null || boundaryList.isEmpty())
+				return null;
+			boundaryList = mergePostalCodes(boundaryList);
+			return new BoundaryQuadTree(qtBbox, boundaryList, props);
+		default:
+			throw new FormatException("Unsupported boundary file format: "+format);
+		}
+	}
+	
+	/**
+	 * The common header of the *.bnd files.
+	 */
+	private static class BndHeader {
+		int format = UNKNOWN_DATA_FORMAT;
+		/** the number of bytes of the header */
+		int size;
+	}
+	
+	/**
+	 * Read the header of a *.bnd file and detect the format of the data.
+	 * @param inpStream the stream, positioned at the start of the file
+	 * @return the header
+	 * @throws IOException
+	 */
+	private static BndHeader readHeader(DataInputStream inpStream) throws IOException {
+		// 1st read the mkgmap release the boundary file is created by
+		String mkgmapRel = "?";
+		String firstId = inpStream.readUTF();
+		if ("BND".equals(firstId) == false){
+			throw new FormatException("Unsupported boundary data type "+firstId);
+		}
+
+		BndHeader bndHeader = new BndHeader();
+		long createTime = inpStream.readLong();
+		int headerLength = inpStream.readInt();
+		byte[] header = new byte[headerLength];
+		int bytesRead = 0;
+		while (bytesRead < headerLength) {
+			int nBytes = inpStream.read(header, bytesRead, headerLength-bytesRead);
+			if (nBytes<0) {
+				throw new IOException("Cannot read header with size "+headerLength);
+			}
+			bytesRead += nBytes;
+		}
+			
+		ByteArrayInputStream rawHeaderStream = new ByteArrayInputStream(header);
+		DataInputStream headerStream =new DataInputStream(rawHeaderStream);
+		String dataFormat = (rawHeaderStream.available() > 0 ? headerStream.readUTF() : "RAW");
+		int recordVersion = (rawHeaderStream.available() > 0 ? headerStream.readInt() : RAW_DATA_FORMAT_V1);
+		mkgmapRel = (rawHeaderStream.available() > 0 ? headerStream.readUTF() : "unknown");
+		
+		if ("RAW".equals(dataFormat) && recordVersion == 1)
+			bndHeader.format = RAW_DATA_FORMAT_V1;
+		else if ("QUADTREE".equals(dataFormat) && recordVersion == 1)
+			bndHeader.format = QUADTREE_DATA_FORMAT_V1;
+		else if ("MAPPED".equals(dataFormat) && recordVersion == 1)
+			bndHeader.format = MAPPED_DATA_FORMAT_V1;
+		// "BND" as UTF string, creation time, header length and header
+		bndHeader.size = 2 + 3 + 8 + 4 + headerLength;
+
+		if (log.isDebugEnabled()) {
+			log.debug("File created by mkgmap release",mkgmapRel,"at",new Date(createTime));
+		}
+		return bndHeader;
+	}
+
+	/**
+	 * Load the *.bnd files of a directory. Files in MAPPED_DATA_FORMAT are
+	 * mapped into memory, the other files are read into a BoundaryQuadTree.
+	 * The header of each file is read only once.
+	 * @param boundaryDir the directory with the *.bnd files
+	 * @param boundaryFileNames the list of *.bnd file names
+	 * @param searchBbox null or a bounding box. Data outside of this box is ignored.
+	 * @param props null or the properties to be used for the locator
+	 * @param mappedTrees receives the trees of the files in MAPPED_DATA_FORMAT
+	 * @return a map with quadtrees of the other files which can be empty
+	 */
+	public static Map<String,BoundaryQuadTree> loadTrees(File boundaryDir,
+			List<String> boundaryFileNames,
+			uk.me.parabola.imgfmt.app.Area searchBbox, EnhancedProperties props,
+			Map<String,MappedBoundaryTree> mappedTrees) {
+		Map<String,BoundaryQuadTree> trees = new HashMap<>();
+		for (String boundaryFileName : boundaryFileNames) {
+			File boundaryFile = new File(boundaryDir, boundaryFileName);
+			if (!boundaryFile.exists())
+				continue;
+			log.info("loading boundary file:", boundaryFileName);
+			try (FileChannel channel = FileChannel.open(boundaryFile.toPath(), StandardOpenOption.READ);
+					DataInputStream inpStream = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 1024 * 1024))) {
+				BndHeader header = readHeader(inpStream);
+				if (header.format == MAPPED_DATA_FORMAT_V1) {
+					// the mapping stays valid after the channel is closed
+					MappedByteBuffer buf = channel.map(MapMode.READ_ONLY, header.size, channel.size() - header.size);
+					mappedTrees.put(boundaryFileName, new MappedBoundaryTree(buf, props));
+				} else {
+					BoundaryQuadTree bqt = readQuadTree(inpStream, header.format, boundaryFileName, searchBbox, props);
+					if (bqt != null)
+						trees.put(boundaryFileName, bqt);
+				}
+			} catch (EOFException exp) {
+				// it's always thrown at the end of the file
+			} catch (FormatException | BufferUnderflowException exp) {
+				log.error("Failed to read boundary file " + boundaryFile + " " + exp.getMessage());
+			} catch (IOException exp) {
+				log.error("Cannot load boundary file " +  boundaryFile + "." + exp);
+			}
+		}
+		return trees;
 	}
 	
 	/**
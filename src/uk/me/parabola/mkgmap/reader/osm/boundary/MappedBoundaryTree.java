@@ -0,0 +1,564 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.reader.osm.boundary;
+
+import java.awt.Rectangle;
+import java.awt.geom.Area;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import uk.me.parabola.imgfmt.app.Coord;
+import uk.me.parabola.mkgmap.reader.osm.Tags;
+import uk.me.parabola.util.EnhancedProperties;
+
+/**
+ * A read only boundary quadtree that works directly on the data of a file
+ * in MAPPED_DATA_FORMAT, normally a memory mapped file. Only the string table
+ * and the boundary tags are parsed when the tree is created, the nodes and
+ * the areas are read from the buffer by the lookups.
+ * <p>
+ * The data that follows the common header of the *.bnd files has these
+ * sections, all values are big-endian ints unless noted otherwise:
+ * <ul>
+ * <li>strings: number of strings, then for each string the number of bytes
+ * followed by the UTF-8 bytes</li>
+ * <li>boundaries: number of boundaries, then for each boundary the string
+ * index of the id, the number of tags and the string indexes of the
+ * key/value pairs</li>
+ * <li>nodes: number of nodes, then {@link #NODE_SIZE} ints for each node:
+ * minLat, minLon, maxLat, maxLon, index of the first of the four children
+ * (-1 for a leaf), index of the first element and number of elements.
+ * The root is node 0.</li>
+ * <li>elements: number of elements, then {@link #ELEM_SIZE} ints for each
+ * element: boundary index, string index of the refs (-1 if none), the
+ * bounding box minX, minY, maxX, maxY in high precision map units (see
+ * {@link Coord#getHighPrecLat()}), start and end of the rings and start
+ * of the coordinates</li>
+ * <li>rings: number of ints, then the number of points of each ring</li>
+ * <li>coordinates: number of doubles, then the x/y pairs of all rings as
+ * doubles in map units. The closing edge of a ring is implicit.</li>
+ * </ul>
+ * The coordinates are stored as they are returned by the path iterator of
+ * the area, the clipped edges of the areas in the leaves don't have to be
+ * on the grid of the map units. So the lookups give the same results as
+ * those of the {@link BoundaryQuadTree}, also for points on the edges.
+ */
+public class MappedBoundaryTree {
+	public static final int NODE_SIZE = 7;
+	public static final int ELEM_SIZE = 9;
+
+	private static final int N_MIN_LAT = 0;
+	private static final int N_MIN_LON = 1;
+	private static final int N_MAX_LAT = 2;
+	private static final int N_MAX_LON = 3;
+	private static final int N_CHILD = 4;
+	private static final int N_FIRST_ELEM = 5;
+	private static final int N_NUM_ELEMS = 6;
+
+	private static final int E_BOUNDARY = 0;
+	private static final int E_REFS = 1;
+	private static final int E_MIN_X = 2;
+	private static final int E_MIN_Y = 3;
+	private static final int E_MAX_X = 4;
+	private static final int E_MAX_Y = 5;
+	private static final int E_RING_START = 6;
+	private static final int E_RING_END = 7;
+	private static final int E_COORD_START = 8;
+
+	private final String[] strings;
+	private final String[] boundaryIds;
+	private final Map<String, Tags> boundaryTags = new LinkedHashMap<>();
+	private final Map<String, BoundaryLocationInfo> preparedLocationInfo = new HashMap<>();
+	private final IntBuffer nodes;
+	private final IntBuffer elems;
+	private final IntBuffer rings;
+	private final DoubleBuffer coords;
+	private final Rectangle bbox;
+
+	// the location tags of the elements, calculated when they are needed
+	private final LocTags[] elemTags;
+
+	/** the location tags of an element and their mask */
+	private static final class LocTags {
+		private final Tags tags;
+		private final short tagMask;
+
+		LocTags(Tags tags) {
+			this.tags = tags;
+			this.tagMask = BoundaryQuadTree.calcLocationTagsMask(tags);
+		}
+	}
+
+	/**
+	 * Create the tree for the data that follows the header of a *.bnd file.
+	 * @param buf the data, the position must be the start of the string table
+	 * @param props if not null, use it to set location names
+	 */
+	public MappedBoundaryTree(ByteBuffer buf, EnhancedProperties props) {
+		buf.order(ByteOrder.BIG_ENDIAN);
+		strings = new String[buf.getInt()];
+		for (int i = 0; i < strings.length; i++) {
+			byte[] bytes = new byte[buf.getInt()];
+			buf.get(bytes);
+			strings[i] = new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		BoundaryLocationPreparer preparer = new BoundaryLocationPreparer(props);
+		boundaryIds = new String[buf.getInt()];
+		for (int i = 0; i < boundaryIds.length; i++) {
+			String id = strings[buf.getInt()];
+			Tags tags = new Tags();
+			int noOfTags = buf.getInt();
+			for (int j = 0; j < noOfTags; j++) {
+				String key = strings[buf.getInt()];
+				tags.put(key, strings[buf.getInt()]);
+			}
+			boundaryIds[i] = id;
+			boundaryTags.put(id, tags);
+			preparedLocationInfo.put(id, preparer.parseTags(tags));
+		}
+
+		nodes = sliceInts(buf, buf.getInt() * NODE_SIZE);
+		int numElems = buf.getInt();
+		elems = sliceInts(buf, numElems * ELEM_SIZE);
+		rings = sliceInts(buf, buf.getInt());
+		coords = sliceDoubles(buf, buf.getInt());
+
+		elemTags = new LocTags[numElems];
+		int minLat = nodes.get(N_MIN_LAT);
+		int minLon = nodes.get(N_MIN_LON);
+		bbox = new Rectangle(minLon, minLat, nodes.get(N_MAX_LON) - minLon, nodes.get(N_MAX_LAT) - minLat);
+	}
+
+	private static IntBuffer sliceInts(ByteBuffer buf, int numInts) {
+		ByteBuffer part = buf.slice();
+		part.order(ByteOrder.BIG_ENDIAN);
+		part.limit(numInts * 4);
+		buf.position(buf.position() + numInts * 4);
+		return part.asIntBuffer();
+	}
+
+	private static DoubleBuffer sliceDoubles(ByteBuffer buf, int numDoubles) {
+		ByteBuffer part = buf.slice();
+		part.order(ByteOrder.BIG_ENDIAN);
+		part.limit(numDoubles * 8);
+		buf.position(buf.position() + numDoubles * 8);
+		return part.asDoubleBuffer();
+	}
+
+	/**
+	 * Return location relevant Tags for the point defined by Coord
+	 * @param co the point
+	 * @return a reference to the internal Tags or null if the point was not found.
+	 * The returned Tags must not be modified by the caller.
+	 * @see BoundaryQuadTree#get(Coord)
+	 */
+	public Tags get(Coord co) {
+		return getSearcher().get(co);
+	}
+
+	/**
+	 * Searches points in the tree. A searcher remembers the last visited
+	 * leaf and starts there if the next point lies inside of it.
+	 * A searcher must not be used by more than one thread at the same time.
+	 * @see BoundaryQuadTree.Searcher
+	 */
+	public class Searcher {
+		private int lastLeaf = -1;
+
+		/**
+		 * Return location relevant Tags for the point defined by Coord
+		 * @param co the point
+		 * @return the same result as {@link MappedBoundaryTree#get(Coord)}
+		 */
+		public Tags get(Coord co) {
+			Tags res = search(co);
+			if (res == null && bbox.contains(co.getLongitude(), co.getLatitude())) {
+				// we did not find the point, probably it lies on a boundary and
+				// the clauses regarding insideness of areas make it "invisible"
+				// try again a few other nearby points
+				res = search(new Coord(co.getLatitude() - 1, co.getLongitude()));
+				if (res == null)
+					res = search(new Coord(co.getLatitude(), co.getLongitude() - 1));
+				if (res == null)
+					res = search(new Coord(co.getLatitude() + 1, co.getLongitude()));
+				if (res == null)
+					res = search(new Coord(co.getLatitude(), co.getLongitude() + 1));
+			}
+			return res;
+		}
+
+		private Tags search(Coord co) {
+			// the leaves don't overlap, so no other leaf can contain a point
+			// that is inside of the last leaf and not on its border
+			if (lastLeaf >= 0 && insideLeaf(lastLeaf, co))
+				return getInLeaf(lastLeaf, co);
+			return get(0, co);
+		}
+
+		private Tags get(int node, Coord co) {
+			int pos = node * NODE_SIZE;
+			int latHp = co.getHighPrecLat();
+			int lonHp = co.getHighPrecLon();
+			if (latHp < nodes.get(pos + N_MIN_LAT) << Coord.DELTA_SHIFT
+					|| latHp > nodes.get(pos + N_MAX_LAT) << Coord.DELTA_SHIFT
+					|| lonHp < nodes.get(pos + N_MIN_LON) << Coord.DELTA_SHIFT
+					|| lonHp > nodes.get(pos + N_MAX_LON) << Coord.DELTA_SHIFT)
+				return null;
+			int child = nodes.get(pos + N_CHILD);
+			if (child < 0) {
+				lastLeaf = node;
+				return getInLeaf(node, co);
+			}
+			for (int i = 0; i < 4; i++) {
+				Tags res = get(child + i, co);
+				if (res != null)
+					return res;
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * @return a new searcher for this tree
+	 */
+	public Searcher getSearcher() {
+		return new Searcher();
+	}
+
+	private boolean insideLeaf(int node, Coord co) {
+		int pos = node * NODE_SIZE;
+		int latHp = co.getHighPrecLat();
+		int lonHp = co.getHighPrecLon();
+		return latHp > nodes.get(pos + N_MIN_LAT) << Coord.DELTA_SHIFT
+				&& latHp < nodes.get(pos + N_MAX_LAT) << Coord.DELTA_SHIFT
+				&& lonHp > nodes.get(pos + N_MIN_LON) << Coord.DELTA_SHIFT
+				&& lonHp < nodes.get(pos + N_MAX_LON) << Coord.DELTA_SHIFT;
+	}
+
+	private Tags getInLeaf(int node, Coord co) {
+		int pos = node * NODE_SIZE;
+		int first = nodes.get(pos + N_FIRST_ELEM);
+		int end = first + nodes.get(pos + N_NUM_ELEMS);
+		// like the BoundaryQuadTree, search with the map unit position
+		int lon = co.getLongitude();
+		int lat = co.getLatitude();
+		for (int elem = first; elem < end; elem++) {
+			LocTags locTags = getLocTags(elem);
+			if (locTags.tagMask > 0 && contains(elem, lon, lat))
+				return locTags.tags;
+		}
+		return null;
+	}
+
+	/**
+	 * Calculate the location tags of an element when they are needed the
+	 * first time. Different threads might calculate them at the same time,
+	 * the results are equal.
+	 */
+	private LocTags getLocTags(int elem) {
+		LocTags locTags = elemTags[elem];
+		if (locTags == null) {
+			int pos = elem * ELEM_SIZE;
+			int refsIdx = elems.get(pos + E_REFS);
+			locTags = new LocTags(BoundaryQuadTree.calcLocationTags(preparedLocationInfo,
+					boundaryIds[elems.get(pos + E_BOUNDARY)], refsIdx < 0 ? null : strings[refsIdx]));
+			elemTags[elem] = locTags;
+		}
+		return locTags;
+	}
+
+	/**
+	 * Test if a point is inside the area of an element. Uses the same rules
+	 * as {@link Area#contains(double, double)}.
+	 */
+	private boolean contains(int elem, int x, int y) {
+		int pos = elem * ELEM_SIZE;
+		// the bounding box is rounded outwards, so this is only a quick check
+		int xHp = x << Coord.DELTA_SHIFT;
+		int yHp = y << Coord.DELTA_SHIFT;
+		if (xHp < elems.get(pos + E_MIN_X) || yHp < elems.get(pos + E_MIN_Y)
+				|| xHp > elems.get(pos + E_MAX_X) || yHp > elems.get(pos + E_MAX_Y))
+			return false;
+		int crossings = 0;
+		int first = elems.get(pos + E_COORD_START);
+		int ringEnd = elems.get(pos + E_RING_END);
+		for (int ring = elems.get(pos + E_RING_START); ring < ringEnd; ring++) {
+			int last = first + 2 * (rings.get(ring) - 1);
+			double x0 = coords.get(last);
+			double y0 = coords.get(last + 1);
+			for (int p = first; p <= last; p += 2) {
+				double x1 = coords.get(p);
+				double y1 = coords.get(p + 1);
+				if (crosses(x, y, x0, y0, x1, y1))
+					crossings++;
+				x0 = x1;
+				y0 = y1;
+			}
+			first = last + 2;
+		}
+		return (crossings & 1) == 1;
+	}
+
+	/**
+	 * Check if the ray from the point to the right crosses the edge.
+	 * Horizontal edges are ignored, the top end point of an edge
+	 * belongs to it, the bottom end point doesn't.
+	 */
+	private static boolean crosses(double x, double y, double x0, double y0, double x1, double y1) {
+		if (y0 == y1)
+			return false;
+		double xt, yt, xb, yb;
+		if (y0 < y1) {
+			xt = x0; yt = y0; xb = x1; yb = y1;
+		} else {
+			xt = x1; yt = y1; xb = x0; yb = y0;
+		}
+		if (y < yt || y >= yb)
+			return false;
+		if (x >= Math.max(xt, xb))
+			return false;
+		if (x < Math.min(xt, xb))
+			return true;
+		double xslope = (xb - xt) / (yb - yt);
+		return x < xt + (y - yt) * xslope;
+	}
+
+	/**
+	 * @return the tags of all boundaries in the tree
+	 */
+	public Map<String, Tags> getTagsMap() {
+		return new LinkedHashMap<>(boundaryTags);
+	}
+
+	/**
+	 * Receives the elements of the tree.
+	 */
+	public interface ElementVisitor {
+		/**
+		 * @param treePath the position of the element in the tree, see {@link BoundaryQuadTree}
+		 * @param boundaryId the boundary id
+		 * @param refs the ids of the other boundaries that share the area or null
+		 * @param area the area in map units
+		 */
+		void visit(String treePath, String boundaryId, String refs, Area area);
+	}
+
+	/**
+	 * Create the areas of all elements and pass them to the visitor.
+	 * Used to convert the tree into a {@link BoundaryQuadTree}.
+	 * @param visitor the visitor
+	 */
+	public void visitElements(ElementVisitor visitor) {
+		visitElements(visitor, 0, "");
+	}
+
+	private void visitElements(ElementVisitor visitor, int node, String treePath) {
+		int pos = node * NODE_SIZE;
+		int child = nodes.get(pos + N_CHILD);
+		if (child >= 0) {
+			for (int i = 0; i < 4; i++)
+				visitElements(visitor, child + i, treePath + i);
+			return;
+		}
+		int first = nodes.get(pos + N_FIRST_ELEM);
+		int end = first + nodes.get(pos + N_NUM_ELEMS);
+		for (int elem = first; elem < end; elem++) {
+			int epos = elem * ELEM_SIZE;
+			Path2D.Double path = new Path2D.Double(PathIterator.WIND_NON_ZERO, 1024);
+			int p = elems.get(epos + E_COORD_START);
+			int ringEnd = elems.get(epos + E_RING_END);
+			for (int ring = elems.get(epos + E_RING_START); ring < ringEnd; ring++) {
+				int numPoints = rings.get(ring);
+				for (int i = 0; i < numPoints; i++, p += 2) {
+					double x = coords.get(p);
+					double y = coords.get(p + 1);
+					if (i == 0)
+						path.moveTo(x, y);
+					else
+						path.lineTo(x, y);
+				}
+				path.closePath();
+			}
+			int refsIdx = elems.get(epos + E_REFS);
+			visitor.visit(treePath, boundaryIds[elems.get(epos + E_BOUNDARY)],
+					refsIdx < 0 ? null : strings[refsIdx], new Area(path));
+		}
+	}
+
+	/**
+	 * Collects the data of a {@link BoundaryQuadTree} and writes it in
+	 * MAPPED_DATA_FORMAT.
+	 */
+	static class Writer {
+		private final Map<String, Integer> stringIndex = new LinkedHashMap<>();
+		private final Map<String, Integer> boundaryIndex = new HashMap<>();
+		private final IntArrayList boundaryData = new IntArrayList();
+		private final IntArrayList nodeData = new IntArrayList();
+		private final IntArrayList elemData = new IntArrayList();
+		private final IntArrayList ringData = new IntArrayList();
+		private double[] coordData = new double[1024];
+		private int numCoords;
+		private int numBoundaries;
+
+		private int getStringIndex(String s) {
+			Integer idx = stringIndex.get(s);
+			if (idx == null) {
+				idx = stringIndex.size();
+				stringIndex.put(s, idx);
+			}
+			return idx;
+		}
+
+		/**
+		 * Add a boundary and its tags.
+		 * @param id the boundary id
+		 * @param tags the tags
+		 */
+		void addBoundary(String id, Tags tags) {
+			boundaryIndex.put(id, numBoundaries++);
+			boundaryData.add(getStringIndex(id));
+			boundaryData.add(tags.size());
+			Iterator<Entry<String, String>> tagIter = tags.entryIterator();
+			while (tagIter.hasNext()) {
+				Entry<String, String> tag = tagIter.next();
+				boundaryData.add(getStringIndex(tag.getKey()));
+				boundaryData.add(getStringIndex(tag.getValue()));
+			}
+		}
+
+		/**
+		 * Add a node without children and elements.
+		 * @param bounds the bounding box of the node
+		 * @return the index of the node
+		 */
+		int addNode(uk.me.parabola.imgfmt.app.Area bounds) {
+			int idx = nodeData.size() / NODE_SIZE;
+			nodeData.add(bounds.getMinLat());
+			nodeData.add(bounds.getMinLong());
+			nodeData.add(bounds.getMaxLat());
+			nodeData.add(bounds.getMaxLong());
+			nodeData.add(-1);
+			nodeData.add(0);
+			nodeData.add(0);
+			return idx;
+		}
+
+		/**
+		 * Set the first of the four children of a node. The children must be
+		 * added directly after each other.
+		 */
+		void setFirstChild(int node, int child) {
+			nodeData.set(node * NODE_SIZE + N_CHILD, child);
+		}
+
+		/**
+		 * Add an element to a leaf. The elements of a leaf must be added
+		 * directly after each other.
+		 * @param node the index of the leaf
+		 * @param boundaryId the boundary id
+		 * @param refs the ids of the other boundaries that share the area or null
+		 * @param area the area in map units
+		 */
+		void addElement(int node, String boundaryId, String refs, Area area) {
+			Integer bIdx = boundaryIndex.get(boundaryId);
+			if (bIdx == null) {
+				addBoundary(boundaryId, new Tags());
+				bIdx = boundaryIndex.get(boundaryId);
+			}
+			int ringStart = ringData.size();
+			int coordStart = numCoords;
+			double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+			double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+			double[] res = new double[6];
+			for (PathIterator pit = area.getPathIterator(null); !pit.isDone(); pit.next()) {
+				int type = pit.currentSegment(res);
+				if (type == PathIterator.SEG_CLOSE)
+					continue;
+				if (type == PathIterator.SEG_MOVETO)
+					ringData.add(0);
+				if (numCoords + 2 > coordData.length)
+					coordData = Arrays.copyOf(coordData, coordData.length * 2);
+				coordData[numCoords++] = res[0];
+				coordData[numCoords++] = res[1];
+				int ring = ringData.size() - 1;
+				ringData.set(ring, ringData.getInt(ring) + 1);
+				minX = Math.min(minX, res[0]);
+				minY = Math.min(minY, res[1]);
+				maxX = Math.max(maxX, res[0]);
+				maxY = Math.max(maxY, res[1]);
+			}
+			double factor = 1 << Coord.DELTA_SHIFT;
+			int elem = elemData.size() / ELEM_SIZE;
+			elemData.add(bIdx);
+			elemData.add(refs == null ? -1 : getStringIndex(refs));
+			elemData.add((int) Math.floor(minX * factor));
+			elemData.add((int) Math.floor(minY * factor));
+			elemData.add((int) Math.ceil(maxX * factor));
+			elemData.add((int) Math.ceil(maxY * factor));
+			elemData.add(ringStart);
+			elemData.add(ringData.size());
+			elemData.add(coordStart);
+			int numPos = node * NODE_SIZE + N_NUM_ELEMS;
+			if (nodeData.getInt(numPos) == 0)
+				nodeData.set(node * NODE_SIZE + N_FIRST_ELEM, elem);
+			nodeData.set(numPos, nodeData.getInt(numPos) + 1);
+		}
+
+		/**
+		 * Write the collected data.
+		 * @param stream the stream, positioned after the header
+		 * @throws IOException
+		 */
+		void write(OutputStream stream) throws IOException {
+			DataOutputStream dos = new DataOutputStream(stream);
+			dos.writeInt(stringIndex.size());
+			for (String s : stringIndex.keySet()) {
+				byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+				dos.writeInt(bytes.length);
+				dos.write(bytes);
+			}
+			dos.writeInt(numBoundaries);
+			for (int i = 0; i < boundaryData.size(); i++)
+				dos.writeInt(boundaryData.getInt(i));
+			writeInts(dos, nodeData, NODE_SIZE);
+			writeInts(dos, elemData, ELEM_SIZE);
+			writeInts(dos, ringData, 1);
+			dos.writeInt(numCoords);
+			for (int i = 0; i < numCoords; i++)
+				dos.writeDouble(coordData[i]);
+			dos.flush();
+		}
+
+		private static void writeInts(DataOutputStream dos, IntArrayList data, int recordSize) throws IOException {
+			dos.writeInt(data.size() / recordSize);
+			for (int i = 0; i < data.size(); i++)
+				dos.writeInt(data.getInt(i));
+		}
+	}
+}
@@ -224,8 +224,7 @@ public class O5mBinHandler extends OsmHandler{
 			readTags(node);
 			if (node.getTagCount() > 0){
 				// If there are tags, then we save a proper node for it.
-				saver.addNode(node);
-				hooks.onAddNode(node);
+				addNode(node);
 			}
 		}
 	}
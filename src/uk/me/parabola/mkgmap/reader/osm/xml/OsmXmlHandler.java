@@ -206,10 +206,8 @@ public class OsmXmlHandler extends OsmHandler {
 			if (mode == MODE_NODE) {
 				if (qName.equals("node")) {
 					mode = 0;
-					if (currentNode != null) {
-						saver.addNode(currentNode);
-						hooks.onAddNode(currentNode);
-					}
+					if (currentNode != null)
+						addNode(currentNode);
 					currentElementId = 0;
 					currentNode = null;
 				}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.reader.polish;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import uk.me.parabola.imgfmt.app.Coord;
+
+/**
+ * Parse the coordinates of a Data line like (51.123,-0.5),(51.2,-0.6)
+ * without regular expressions.
+ * <p>
+ * The numbers are converted to exactly the same value as with
+ * {@link Double#parseDouble(String)}: the digits are collected in a long
+ * and divided by a power of ten, both are exact doubles and the division
+ * is correctly rounded. Numbers with too many digits or an exponent are
+ * not handled, then null is returned and the caller must use the slower
+ * way.
+ */
+class CoordParser {
+	// the largest long that is an exact double
+	private static final long MAX_MANTISSA = (1L << 53) - 1;
+
+	private static final double[] POWERS_OF_TEN = {
+			1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22,
+	};
+
+	private final String value;
+	private int pos;
+
+	private CoordParser(String value) {
+		this.value = value;
+	}
+
+	/**
+	 * @param value The value of a Data line.
+	 * @return The coordinates, or null if the value has a format that
+	 * is not handled here.
+	 */
+	static List<Coord> parse(String value) {
+		return new CoordParser(value).parseList();
+	}
+
+	/**
+	 * @param value A number.
+	 * @return The number, or NaN if it has a format that is not handled here.
+	 */
+	static double parseDouble(String value) {
+		CoordParser parser = new CoordParser(value);
+		double d = parser.parseNumber();
+		return parser.pos == value.length() ? d : Double.NaN;
+	}
+
+	private List<Coord> parseList() {
+		List<Coord> coords = new ArrayList<>();
+		while (true) {
+			if (!expect('('))
+				return null;
+			double lat = parseNumber();
+			if (Double.isNaN(lat) || !expect(','))
+				return null;
+			double lon = parseNumber();
+			if (Double.isNaN(lon) || !expect(')'))
+				return null;
+			coords.add(new Coord(lat, lon));
+
+			skipSpaces();
+			if (pos == value.length())
+				return coords;
+			if (value.charAt(pos) != ',')
+				return null;
+			pos++;
+			skipSpaces();
+		}
+	}
+
+	private boolean expect(char c) {
+		if (pos < value.length() && value.charAt(pos) == c) {
+			pos++;
+			return true;
+		}
+		return false;
+	}
+
+	private void skipSpaces() {
+		while (pos < value.length() && value.charAt(pos) == ' ')
+			pos++;
+	}
+
+	/**
+	 * @return The number, or NaN if it can't be read exactly.
+	 */
+	private double parseNumber() {
+		skipSpaces();
+		boolean negative = false;
+		if (pos < value.length()) {
+			char c = value.charAt(pos);
+			if (c == '-' || c == '+') {
+				negative = c == '-';
+				pos++;
+			}
+		}
+
+		long mantissa = 0;
+		int numDigits = 0;
+		int fractionDigits = 0;
+		boolean havePoint = false;
+		for (; pos < value.length(); pos++) {
+			char c = value.charAt(pos);
+			if (c >= '0' && c <= '9') {
+				int d = c - '0';
+				if (mantissa > (MAX_MANTISSA - d) / 10)
+					return Double.NaN;
+				mantissa = mantissa * 10 + d;
+				numDigits++;
+				if (havePoint)
+					fractionDigits++;
+			} else if (c == '.' && !havePoint) {
+				havePoint = true;
+			} else
+				break;
+		}
+		if (numDigits == 0 || fractionDigits >= POWERS_OF_TEN.length)
+			return Double.NaN;
+		skipSpaces();
+
+		double d = mantissa / POWERS_OF_TEN[fractionDigits];
+		return negative ? -d : d;
+	}
+}
@@ -35,6 +35,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import uk.me.parabola.imgfmt.FormatException;
 import uk.me.parabola.imgfmt.Utils;
@@ -93,6 +94,9 @@ public class PolishMapDataSource extends MapperBasedMapDataSource implements Loa
 	private char elevUnits;
 	private static final double METERS_TO_FEET = 3.2808399;
 
+	// the number of lines whose coordinates are parsed together in parallel
+	private static final int BATCH_LINES = 10000;
+
 	private int lineNo;
 
 	private boolean havePolygon4B;
@@ -100,6 +104,9 @@ public class PolishMapDataSource extends MapperBasedMapDataSource implements Loa
 	// Use to decode labels if they are not in cp1252
 	private CharsetDecoder dec;
 
+	// the coordinates of the current line if they were parsed in advance
+	private List<Coord> parsedCoords;
+
 	Long2ObjectOpenHashMap<Coord> coordMap = new Long2ObjectOpenHashMap<>();
 	public boolean isFileSupported(String name) {
 		// Supported if the extension is .mp
@@ -122,18 +129,12 @@ public class PolishMapDataSource extends MapperBasedMapDataSource implements Loa
 
         BufferedReader in = new BufferedReader(reader);
 		try {
-			String line;
-			while ((line = in.readLine()) != null) {
-				++lineNo;
-				line = line.trim();
-				if (line.isEmpty() || line.charAt(0) == ';')
-					continue;
-				if (line.toUpperCase().startsWith("[END"))
-					endSection();
-				else if (line.charAt(0) == '[')
-					sectionStart(line);
-				else
-					processLine(line);
+			if (getConfig().getProperty("parallel-mp-parsing", false))
+				readInBatches(in);
+			else {
+				String line;
+				while ((line = in.readLine()) != null)
+					processRawLine(line);
 			}
 
             // Add all restrictions to the map after reading the full map.
@@ -150,6 +151,70 @@ public class PolishMapDataSource extends MapperBasedMapDataSource implements Loa
 		coordMap = null;
 	}
 
+	/**
+	 * Read the file in batches of lines. The coordinates in the Data lines
+	 * of a batch are parsed in parallel, then the lines are processed in
+	 * the order of the file.
+	 *
+	 * @param in The input file.
+	 */
+	private void readInBatches(BufferedReader in) throws IOException {
+		List<String> lines = new ArrayList<>(BATCH_LINES);
+		boolean more = true;
+		while (more) {
+			lines.clear();
+			String line;
+			while ((line = in.readLine()) != null) {
+				lines.add(line);
+				if (lines.size() == BATCH_LINES)
+					break;
+			}
+			more = line != null;
+
+			List<List<Coord>> coords = lines.parallelStream()
+					.map(PolishMapDataSource::parseDataLine)
+					.collect(Collectors.toList());
+			for (int i = 0; i < lines.size(); i++) {
+				parsedCoords = coords.get(i);
+				processRawLine(lines.get(i));
+			}
+			parsedCoords = null;
+		}
+	}
+
+	/**
+	 * Parse the coordinates if the line is a Data line.
+	 * @param line The raw line from the input file.
+	 * @return The coordinates or null.
+	 */
+	private static List<Coord> parseDataLine(String line) {
+		line = line.trim();
+		if (!line.startsWith("Data") && !line.startsWith("Origin"))
+			return null;
+		int pos = line.indexOf('=');
+		if (pos < 0)
+			return null;
+		return CoordParser.parse(line.substring(pos + 1).trim());
+	}
+
+	/**
+	 * Process a line of the file, it can be a section header or a line of
+	 * a section.
+	 * @param line The raw line from the input file.
+	 */
+	private void processRawLine(String line) {
+		++lineNo;
+		line = line.trim();
+		if (line.isEmpty() || line.charAt(0) == ';')
+			return;
+		if (line.toUpperCase().startsWith("[END"))
+			endSection();
+		else if (line.charAt(0) == '[')
+			sectionStart(line);
+		else
+			processLine(line);
+	}
+
 	public LevelInfo[] mapLevels() {
 		if (levels == null) {
 			// If it has not been set then supply some defaults.
@@ -419,15 +484,19 @@ public class PolishMapDataSource extends MapperBasedMapDataSource implements Loa
 	}
 
 	private List<Coord> coordsFromString(String value) {
-		String[] ords = value.split("\\) *, *\\(");
-		List<Coord> points = new ArrayList<>();
+		List<Coord> points = parsedCoords != null ? parsedCoords : CoordParser.parse(value);
+		if (points == null) {
+			points = new ArrayList<>();
+			for (String s : value.split("\\) *, *\\("))
+				points.add(parseCoord(s));
+		}
 
-		for (String s : ords) {
-			Coord co = makeCoord(s);
+		for (int i = 0; i < points.size(); i++) {
+			Coord co = uniqueCoord(points.get(i));
+			points.set(i, co);
 			if (log.isDebugEnabled())
 				log.debug(" L: ", co);
 			mapper.addToBounds(co);
-			points.add(co);
 		}
 		log.debug(points.size() + " points from " + value);
 		return points;
@@ -688,6 +757,17 @@ public class PolishMapDataSource extends MapperBasedMapDataSource implements Loa
 	 * @return The coordinate value.
 	 */
 	private Coord makeCoord(String value) {
+		List<Coord> coords = parsedCoords != null ? parsedCoords : CoordParser.parse(value);
+		return uniqueCoord(coords != null ? coords.get(0) : parseCoord(value));
+	}
+
+	/**
+	 * Parse a coordinate, used when the value has a format that is not
+	 * handled by the {@link CoordParser}.
+	 * @param value A string representing a lat,long pair.
+	 * @return A new coordinate.
+	 */
+	private static Coord parseCoord(String value) {
 		String[] fields = value.split("[(,)]");
 
 		int i = 0;
@@ -696,7 +776,14 @@ public class PolishMapDataSource extends MapperBasedMapDataSource implements Loa
 
 		Double f1 = Double.valueOf(fields[i]);
 		Double f2 = Double.valueOf(fields[i+1]);
-		Coord co = new Coord(f1, f2);
+		return new Coord(f1, f2);
+	}
+
+	/**
+	 * @param co A coordinate.
+	 * @return The first coordinate with the same position that was read.
+	 */
+	private Coord uniqueCoord(Coord co) {
 		long key = Utils.coord2Long(co);
 		Coord co2 = coordMap.get(key);
 		if (co2 != null)
@@ -15,6 +15,7 @@ package uk.me.parabola.mkgmap.sea.optional;
 
 import java.awt.Rectangle;
 import java.awt.geom.Area;
+import java.awt.geom.Path2D;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -79,6 +80,8 @@ public class PrecompSeaGenerator {
 	private boolean usePbfFormat;
 	/** Number of tiles generated by one full reading of the shapefile. Higher numbers require more memory. */
 	private int tilesPerCycle;
+	/** {@code true}: the shapefile is read only once, the polygons of each tile are stored in temporary files */
+	private boolean singlePass;
 
 	public PrecompSeaGenerator(File shapeFile, String shapeCRS, File outputDir)
 			throws NoSuchAuthorityCodeException, FactoryException {
@@ -100,6 +103,18 @@ public class PrecompSeaGenerator {
 		this.usePbfFormat = usePbf;
 	}
 
+	/**
+	 * Sets the flag if the shapefile should be read only once. The land
+	 * polygons are clipped to the tiles and stored in temporary files
+	 * in the output directory, so that the shapefile does not have to be
+	 * read again for each cycle of tiles.
+	 * @param singlePass {@code true} read the shapefile once; {@code false}
+	 * read the shapefile once per cycle of tiles
+	 */
+	public void setSinglePass(boolean singlePass) {
+		this.singlePass = singlePass;
+	}
+
 	/**
 	 * Retrieves the transformation that is necessary to transform the 
 	 * data from the shape file to WGS84. 
@@ -199,12 +214,21 @@ public class PrecompSeaGenerator {
 	 * @return the polygon converted to an {@link Area} object.
 	 */
 	private Area convertToArea(Geometry geometry) {
+		return new Area(convertToPath(geometry));
+	}
+
+	/**
+	 * Converts the given geometry to a {@link Path2D} object.
+	 * @param geometry a polygon as {@link Geometry} object
+	 * @return the polygon converted to a {@link Path2D} object.
+	 */
+	private Path2D convertToPath(Geometry geometry) {
 		Coordinate[] c = geometry.getCoordinates();
 		List<Coord> points = new ArrayList<>(c.length);
 		for (int n = 0; n < c.length; n++) {
 			points.add(new Coord(c[n].y, c[n].x));
 		}
-		return Java2DConverter.createArea(points);
+		return Java2DConverter.createPath2D(points);
 	}
 
 	
@@ -225,7 +249,7 @@ public class PrecompSeaGenerator {
 
 			Rectangle mergeBounds = new Rectangle(bounds.getMinLong(),
 					bounds.getMinLat(), bounds.getWidth(), bounds.getHeight());
-			String tileKey = bounds.getMinLat() + "_" + bounds.getMinLong();
+			String tileKey = PrecompSeaSpool.getTileKey(bounds.getMinLat(), bounds.getMinLong());
 
 			PrecompSeaMerger merger = new PrecompSeaMerger(mergeBounds,
 					tileKey, tilesCountdown, saveQueue);
@@ -254,26 +278,53 @@ public class PrecompSeaGenerator {
 		shapeIterator = null;
 	}
 
-	public void runSeaGeneration() throws MismatchedDimensionException,
-			TransformException, IOException, InterruptedException {
-		createShapefileAccess();
+	/**
+	 * Reads the land polygon of a feature of the shapefile.
+	 * @param feature a feature of the shapefile
+	 * @return the polygon with WGS84 projection or {@code null} if the 
+	 * feature does not contain a usable polygon
+	 */
+	private Geometry readLandPolygon(Feature feature) {
+		GeometryAttribute geom = feature.getDefaultGeometryProperty();
+		Geometry poly = (Geometry) geom.getValue();
+		if (poly == null){
+			return null;
+		}
 
-		// get all tiles that need to be processed
-		List<uk.me.parabola.imgfmt.app.Area> remainingTiles = getTiles();
+		Geometry wgs84Poly;
+		try {
+			wgs84Poly = transformToWGS84(poly);
+		} catch (Exception exp) {
+			System.err.println(exp);
+			return null;
+		}
 
-		// initialize the count down so that it is possible to get the 
-		// information when all tiles are finished
-		CountDownLatch tilesCountdown = new CountDownLatch(remainingTiles.size());
-		
-		// start a printer that outputs how many tiles still need to be
-		// processed
-		new ProgressPrinter(tilesCountdown).start();
+		if (wgs84Poly.getNumGeometries() != 1) {
+			// only simple polygons are supported by now
+			// maybe this could be changed in future?
+			System.err.println("Polygon from shapefile has "
+					+ wgs84Poly.getNumGeometries()
+					+ " geometries. Only one geometry is supported.");
+			System.err.println("Skip polygon.");
+			return null;
+		}
 
-		// start the saver thread that stores the tiles to disc and creates
-		// the index file
-		PrecompSeaSaver precompSaver = new PrecompSeaSaver(outputDir, usePbfFormat);
-		new Thread(precompSaver, "SaveThread").start();
+		Geometry bounds = wgs84Poly.getEnvelope();
+		if (bounds.isEmpty()) {
+			System.err.println("Empty or non polygon: " + bounds);
+			return null;
+		}
+		return wgs84Poly.getGeometryN(0);
+	}
 
+	/**
+	 * Reads the shapefile once per cycle of {@link #tilesPerCycle} tiles 
+	 * and passes the polygons to the mergers of the tiles of the cycle.
+	 */
+	private void runCycles(List<uk.me.parabola.imgfmt.app.Area> remainingTiles,
+			CountDownLatch tilesCountdown,
+			BlockingQueue<Entry<String, List<Way>>> saveQueue)
+			throws InterruptedException {
 		// perform several cycles which is necessary to reduce memory
 		// requirements
 		while (remainingTiles.isEmpty() == false) {
@@ -287,7 +338,7 @@ public class PrecompSeaGenerator {
 
 
 			// create the mergers that merge the data of one tile
-			List<PrecompSeaMerger> mergers = createMergers(tiles, tilesCountdown, precompSaver.getQueue());
+			List<PrecompSeaMerger> mergers = createMergers(tiles, tilesCountdown, saveQueue);
 
 			// create an overall area for a simple check if a polygon read from the
 			// shape file intersects one of the currently processed sea tiles
@@ -305,67 +356,40 @@ public class PrecompSeaGenerator {
 
 			// read all polygons from the shape file and add them to the queues of the
 			// merger threads
-			Geometry wgs84Poly = null;
 			while (shapeIterator.hasNext()) {
-				Feature feature = shapeIterator.next();
-				GeometryAttribute geom = feature.getDefaultGeometryProperty();
-				Geometry poly = (Geometry) geom.getValue();
-				if (poly == null){
-					continue;
-				}
-
-				try {
-					wgs84Poly = transformToWGS84(poly);
-				} catch (Exception exp) {
-					System.err.println(exp);
+				Geometry landPoly = readLandPolygon(shapeIterator.next());
+				if (landPoly == null) {
 					continue;
 				}
-
-				if (wgs84Poly.getNumGeometries() != 1) {
-					// only simple polygons are supported by now
-					// maybe this could be changed in future?
-					System.err.println("Polygon from shapefile has "
-							+ wgs84Poly.getNumGeometries()
-							+ " geometries. Only one geometry is supported.");
-					System.err.println("Skip polygon.");
-					continue;
-				}
-
-				Geometry bounds = wgs84Poly.getEnvelope();
-				if (bounds.isEmpty()) {
-					System.err.println("Empty or non polygon: " + bounds);
-				} else {
-					Area polyBounds = convertToArea(bounds);
-
-					// easy check if the polygon is used by any tile that is
-					// currently processed
-					if (polyBounds.intersects(tileArea.getBounds2D())) {
-						
-						// yes it touches at least one tile => convert it to 
-						// a java.awt.geom.Area object
-						Area polyAsArea = convertToArea(wgs84Poly.getGeometryN(0));
-						
-						// go through all current merger threads and add the 
-						// polygon to the queues of them
-						for (PrecompSeaMerger mThread : mergers) {
-							if (mThread.getTileBounds().intersects(polyAsArea.getBounds2D())) {
-								try {
-									mThread.getQueue().put(polyAsArea);
-								} catch (InterruptedException exp) {
-									exp.printStackTrace();
-								}
+				Area polyBounds = convertToArea(landPoly.getEnvelope());
+
+				// easy check if the polygon is used by any tile that is
+				// currently processed
+				if (polyBounds.intersects(tileArea.getBounds2D())) {
+					
+					// yes it touches at least one tile => convert it to 
+					// a java.awt.geom.Area object
+					Area polyAsArea = convertToArea(landPoly);
+					
+					// go through all current merger threads and add the 
+					// polygon to the queues of them
+					for (PrecompSeaMerger mThread : mergers) {
+						if (mThread.getTileBounds().intersects(polyAsArea.getBounds2D())) {
+							try {
+								mThread.getQueue().put(polyAsArea);
+							} catch (InterruptedException exp) {
+								exp.printStackTrace();
 							}
 						}
 					}
+				}
 
-					numPolygon++;
-					if ((numPolygon) % 50000 == 0
-							|| System.currentTimeMillis() - lastInfo > 30000) {
-						// print out the current number of polygons already processed
-						System.out.println("Worked out " + (numPolygon) + " polygons");
-						lastInfo = System.currentTimeMillis();
-					}
-
+				numPolygon++;
+				if ((numPolygon) % 50000 == 0
+						|| System.currentTimeMillis() - lastInfo > 30000) {
+					// print out the current number of polygons already processed
+					System.out.println("Worked out " + (numPolygon) + " polygons");
+					lastInfo = System.currentTimeMillis();
 				}
 			}
 			closeShapefile();
@@ -385,6 +409,89 @@ public class PrecompSeaGenerator {
 				Thread.sleep(50L);
 			}
 		}
+	}
+
+	/**
+	 * Reads the shapefile once, the polygons are clipped to the tiles 
+	 * and stored in temporary files. After that the tiles are merged in
+	 * parallel, {@link #tilesPerCycle} tiles at a time.
+	 */
+	private void runSinglePass(List<uk.me.parabola.imgfmt.app.Area> remainingTiles,
+			CountDownLatch tilesCountdown,
+			BlockingQueue<Entry<String, List<Way>>> saveQueue)
+			throws IOException, InterruptedException {
+		PrecompSeaSpool spool = new PrecompSeaSpool(new File(outputDir, "spool"));
+
+		openShapefile();
+		int numPolygon = 0;
+		long lastInfo = System.currentTimeMillis();
+		while (shapeIterator.hasNext()) {
+			Geometry landPoly = readLandPolygon(shapeIterator.next());
+			if (landPoly == null) {
+				continue;
+			}
+			spool.add(convertToPath(landPoly));
+
+			numPolygon++;
+			if ((numPolygon) % 50000 == 0
+					|| System.currentTimeMillis() - lastInfo > 30000) {
+				System.out.println("Worked out " + (numPolygon) + " polygons");
+				lastInfo = System.currentTimeMillis();
+			}
+		}
+		closeShapefile();
+		spool.flush();
+
+		System.out.println("Reading shapefile finished");
+
+		while (remainingTiles.isEmpty() == false) {
+			List<uk.me.parabola.imgfmt.app.Area> tiles = remainingTiles.subList(0,
+					Math.min(tilesPerCycle, remainingTiles.size()));
+			List<PrecompSeaMerger> mergers = createMergers(tiles, tilesCountdown, saveQueue);
+			tiles.clear();
+
+			for (PrecompSeaMerger m : mergers) {
+				m.getQueue().addAll(spool.read(m.getMergeData().getKey()));
+				m.signalInputComplete();
+				service.execute(m);
+			}
+
+			// Wait until not more than twice the number of tiles per cycle
+			// are waiting for processing. 
+			while (tilesCountdown.getCount() > remainingTiles.size()
+					+ 2*tilesPerCycle) {
+				Thread.sleep(50L);
+			}
+		}
+		spool.delete();
+	}
+
+	public void runSeaGeneration() throws MismatchedDimensionException,
+			TransformException, IOException, InterruptedException {
+		createShapefileAccess();
+
+		// get all tiles that need to be processed
+		List<uk.me.parabola.imgfmt.app.Area> remainingTiles = getTiles();
+
+		// initialize the count down so that it is possible to get the 
+		// information when all tiles are finished
+		CountDownLatch tilesCountdown = new CountDownLatch(remainingTiles.size());
+		
+		// start a printer that outputs how many tiles still need to be
+		// processed
+		new ProgressPrinter(tilesCountdown).start();
+
+		// start the saver thread that stores the tiles to disc and creates
+		// the index file
+		PrecompSeaSaver precompSaver = new PrecompSeaSaver(outputDir, usePbfFormat);
+		new Thread(precompSaver, "SaveThread").start();
+
+		if (singlePass) {
+			runSinglePass(remainingTiles, tilesCountdown, precompSaver.getQueue());
+		} else {
+			runCycles(remainingTiles, tilesCountdown, precompSaver.getQueue());
+		}
+
 		// wait until all tiles have been merged
 		tilesCountdown.await();
 		// wait until the saver for the tiles is finished
@@ -401,6 +508,7 @@ public class PrecompSeaGenerator {
 		File shapeFile = new File(args[0]);
 		String shapeCRS = args[1];
 		File outputDir = new File(args[2]);
+		boolean singlePass = args.length > 3 && "single-pass".equals(args[3]);
 
 		if (shapeFile.exists() == false) {
 			throw new FileNotFoundException("File "+shapeFile+" does not exist.");
@@ -411,6 +519,7 @@ public class PrecompSeaGenerator {
 		
 		PrecompSeaGenerator seaGenerator = new PrecompSeaGenerator(shapeFile,
 				shapeCRS, outputDir);
+		seaGenerator.setSinglePass(singlePass);
 		seaGenerator.runSeaGeneration();
 
 		System.out.println("Generation took "+(System.currentTimeMillis()-t1)+" ms");
@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+
+package uk.me.parabola.mkgmap.sea.optional;
+
+import java.awt.Shape;
+import java.awt.geom.Area;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Rectangle2D;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import uk.me.parabola.mkgmap.reader.osm.SeaGenerator;
+import uk.me.parabola.util.ShapeSplitter;
+
+/**
+ * Collects the land polygons for each precompiled sea tile. Each polygon
+ * is clipped to the tiles it intersects, the pieces are buffered in memory
+ * and appended to one file per tile when the buffers get too large. This
+ * allows to read the shapefile only once for all tiles.
+ */
+class PrecompSeaSpool {
+	/** the maximum number of bytes that are kept in memory */
+	private static final int MAX_BUFFERED = 64 * 1024 * 1024;
+
+	private final File spoolDir;
+	private final Map<String, ByteArrayOutputStream> buffers = new HashMap<>();
+	private long buffered;
+
+	public PrecompSeaSpool(File spoolDir) {
+		this.spoolDir = spoolDir;
+		spoolDir.mkdirs();
+	}
+
+	/**
+	 * Calculate the key of the tile with the given lower left corner.
+	 */
+	public static String getTileKey(int lat, int lon) {
+		return lat + "_" + lon;
+	}
+
+	/**
+	 * Clips the polygon to all tiles that it intersects and stores the pieces.
+	 * @param polygon a land polygon in map units
+	 * @throws IOException if the pieces cannot be written
+	 */
+	public void add(Shape polygon) throws IOException {
+		Rectangle2D bounds = polygon.getBounds2D();
+		int minLon = SeaGenerator.getPrecompTileStart((int) Math.floor(bounds.getMinX()));
+		int minLat = SeaGenerator.getPrecompTileStart((int) Math.floor(bounds.getMinY()));
+		for (int lon = minLon; lon < bounds.getMaxX(); lon += SeaGenerator.PRECOMP_RASTER) {
+			// clip to the column first, so that a large polygon is not clipped
+			// completely for each tile
+			Rectangle2D column = new Rectangle2D.Double(lon, minLat, SeaGenerator.PRECOMP_RASTER,
+					bounds.getMaxY() - minLat + 1);
+			Path2D.Double columnPart = ShapeSplitter.clipShape(polygon, column);
+			if (columnPart == null)
+				continue;
+			Rectangle2D columnBounds = columnPart.getBounds2D();
+			int startLat = SeaGenerator.getPrecompTileStart((int) Math.floor(columnBounds.getMinY()));
+			for (int lat = startLat; lat < columnBounds.getMaxY(); lat += SeaGenerator.PRECOMP_RASTER) {
+				Rectangle2D tile = new Rectangle2D.Double(lon, lat, SeaGenerator.PRECOMP_RASTER,
+						SeaGenerator.PRECOMP_RASTER);
+				Path2D.Double piece = ShapeSplitter.clipShape(columnPart, tile);
+				if (piece != null)
+					write(getTileKey(lat, lon), piece);
+			}
+		}
+		if (buffered > MAX_BUFFERED)
+			flush();
+	}
+
+	private void write(String tileKey, Path2D.Double piece) throws IOException {
+		ByteArrayOutputStream buf = buffers.get(tileKey);
+		if (buf == null) {
+			buf = new ByteArrayOutputStream(1024);
+			buffers.put(tileKey, buf);
+		}
+		int before = buf.size();
+		DataOutputStream out = new DataOutputStream(buf);
+		List<double[]> parts = new ArrayList<>();
+		double[] coords = new double[6];
+		double[] points = new double[16];
+		int num = 0;
+		for (PathIterator pit = piece.getPathIterator(null); !pit.isDone(); pit.next()) {
+			int type = pit.currentSegment(coords);
+			if (type == PathIterator.SEG_CLOSE) {
+				if (num > 0)
+					parts.add(Arrays.copyOf(points, num));
+				num = 0;
+				continue;
+			}
+			if (type == PathIterator.SEG_MOVETO && num > 0) {
+				parts.add(Arrays.copyOf(points, num));
+				num = 0;
+			}
+			if (num + 2 > points.length)
+				points = Arrays.copyOf(points, points.length * 2);
+			points[num++] = coords[0];
+			points[num++] = coords[1];
+		}
+		if (num > 0)
+			parts.add(Arrays.copyOf(points, num));
+
+		out.writeInt(parts.size());
+		for (double[] part : parts) {
+			out.writeInt(part.length / 2);
+			for (double d : part)
+				out.writeDouble(d);
+		}
+		out.flush();
+		buffered += buf.size() - before;
+	}
+
+	/**
+	 * Appends all buffered pieces to the files of the tiles.
+	 * @throws IOException if a file cannot be written
+	 */
+	public void flush() throws IOException {
+		for (Entry<String, ByteArrayOutputStream> e : buffers.entrySet()) {
+			try (FileOutputStream out = new FileOutputStream(getFile(e.getKey()), true)) {
+				e.getValue().writeTo(out);
+			}
+		}
+		buffers.clear();
+		buffered = 0;
+	}
+
+	private File getFile(String tileKey) {
+		return new File(spoolDir, tileKey + ".bin");
+	}
+
+	/**
+	 * Reads the pieces of a tile and removes its file. All pieces must be
+	 * flushed before.
+	 * @param tileKey the key of the tile
+	 * @return the land pieces of the tile, an empty list if there is no land
+	 * @throws IOException if the file cannot be read
+	 */
+	public List<Area> read(String tileKey) throws IOException {
+		List<Area> pieces = new ArrayList<>();
+		File f = getFile(tileKey);
+		if (!f.exists())
+			return pieces;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f)))) {
+			while (true) {
+				int numParts;
+				try {
+					numParts = in.readInt();
+				} catch (EOFException e) {
+					break;
+				}
+				Path2D.Double path = new Path2D.Double();
+				for (int i = 0; i < numParts; i++) {
+					int numPoints = in.readInt();
+					for (int j = 0; j < numPoints; j++) {
+						double x = in.readDouble();
+						double y = in.readDouble();
+						if (j == 0)
+							path.moveTo(x, y);
+						else
+							path.lineTo(x, y);
+					}
+					path.closePath();
+				}
+				pieces.add(new Area(path));
+			}
+		}
+		f.delete();
+		return pieces;
+	}
+
+	/**
+	 * Removes the spool directory. All tiles must have been read before.
+	 */
+	public void delete() {
+		File[] files = spoolDir.listFiles();
+		if (files != null) {
+			for (File f : files)
+				f.delete();
+		}
+		spoolDir.delete();
+	}
+}
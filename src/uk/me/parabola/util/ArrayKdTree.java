@@ -0,0 +1,279 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import uk.me.parabola.imgfmt.app.Coord;
+
+/**
+ * A balanced kd-tree (2D) that is built once for a collection of points.
+ * The tree is stored in arrays: the median of each range is the node,
+ * the points before and after it are the left and right subtrees. The
+ * levels alternate between latitude and longitude, starting with
+ * latitude.
+ * <p>
+ * The distance is the one calculated by
+ * {@link Coord#distanceInDegreesSquared(Coord)}. If two points have the
+ * same distance, the one that comes first in the collection is used.
+ * The tree doesn't change when the locations of the points change.
+ */
+public class ArrayKdTree<T extends Locatable> {
+	private final Object[] points;
+	private final int[] order;
+	private final double[] lat;
+	private final double[] lon;
+	// the largest absolute latitude of all points
+	private final double maxAbsLat;
+
+	/**
+	 * Create the tree.
+	 * @param toAdd the points
+	 */
+	public ArrayKdTree(Collection<T> toAdd) {
+		int n = toAdd.size();
+		double[] allLat = new double[n];
+		double[] allLon = new double[n];
+		Object[] all = toAdd.toArray();
+		double max = 0;
+		for (int i = 0; i < n; i++) {
+			Coord co = ((Locatable) all[i]).getLocation();
+			allLat[i] = co.getLatDegrees();
+			allLon[i] = co.getLonDegrees();
+			max = Math.max(max, Math.abs(allLat[i]));
+		}
+		maxAbsLat = max;
+
+		int[] perm = new int[n];
+		for (int i = 0; i < n; i++)
+			perm[i] = i;
+		build(perm, allLat, allLon, 0, n, true);
+
+		points = new Object[n];
+		order = perm;
+		lat = new double[n];
+		lon = new double[n];
+		for (int i = 0; i < n; i++) {
+			points[i] = all[perm[i]];
+			lat[i] = allLat[perm[i]];
+			lon[i] = allLon[perm[i]];
+		}
+	}
+
+	public int size() {
+		return points.length;
+	}
+
+	/**
+	 * Move the median of the range to its middle, the smaller points
+	 * before it and the larger after it, then continue with both halves.
+	 */
+	private static void build(int[] perm, double[] allLat, double[] allLon, int lo, int hi, boolean useLat) {
+		while (hi - lo > 1) {
+			int mid = (lo + hi) >>> 1;
+			select(perm, useLat ? allLat : allLon, lo, hi - 1, mid);
+			build(perm, allLat, allLon, lo, mid, !useLat);
+			lo = mid + 1;
+			useLat = !useLat;
+		}
+	}
+
+	/**
+	 * Partially sort the range so that the element at position k is the
+	 * one that would be there if the range was sorted by value and index.
+	 */
+	private static void select(int[] perm, double[] values, int left, int right, int k) {
+		while (right > left) {
+			int pivotPos = partition(perm, values, left, right, (left + right) >>> 1);
+			if (pivotPos == k)
+				return;
+			if (k < pivotPos)
+				right = pivotPos - 1;
+			else
+				left = pivotPos + 1;
+		}
+	}
+
+	private static int partition(int[] perm, double[] values, int left, int right, int pivotPos) {
+		int pivot = perm[pivotPos];
+		swap(perm, pivotPos, right);
+		int store = left;
+		for (int i = left; i < right; i++) {
+			if (isLess(values, perm[i], pivot)) {
+				swap(perm, i, store);
+				store++;
+			}
+		}
+		swap(perm, store, right);
+		return store;
+	}
+
+	private static boolean isLess(double[] values, int i1, int i2) {
+		return values[i1] < values[i2] || values[i1] == values[i2] && i1 < i2;
+	}
+
+	private static void swap(int[] perm, int i, int j) {
+		int t = perm[i];
+		perm[i] = perm[j];
+		perm[j] = t;
+	}
+
+	/**
+	 * Same as {@link Coord#distanceInDegreesSquared(Coord)}.
+	 */
+	private double distance(int node, double qLat, double qLon) {
+		double latDiff = Math.abs(lat[node] - qLat);
+		if (latDiff > 90)
+			latDiff -= 180;
+		double longDiff = Math.abs(lon[node] - qLon);
+		if (longDiff > 180)
+			longDiff -= 360;
+		longDiff *= Math.cos(Math.PI / 180 * Math.abs((lat[node] + qLat) / 2));
+		return latDiff * latDiff + longDiff * longDiff;
+	}
+
+	/**
+	 * Searches for the point that has smallest distance to the given point.
+	 * @param p the point to search for
+	 * @return the point with shortest distance to <var>p</var> or null if the tree is empty
+	 */
+	@SuppressWarnings("unchecked")
+	public T findNextPoint(Locatable p) {
+		Nearest nearest = new Nearest(1, Double.MAX_VALUE);
+		search(nearest, p);
+		return nearest.size == 0 ? null : (T) points[nearest.nodes[0]];
+	}
+
+	/**
+	 * Searches for the points that have the smallest distance to the given point.
+	 * @param p the point to search for
+	 * @param k the number of points
+	 * @return up to <var>k</var> points, ordered by their distance to <var>p</var>
+	 */
+	public List<T> findNextPoints(Locatable p, int k) {
+		if (k <= 0)
+			return Collections.emptyList();
+		Nearest nearest = new Nearest(Math.min(k, points.length), Double.MAX_VALUE);
+		search(nearest, p);
+		return nearest.getPoints();
+	}
+
+	/**
+	 * Searches for all points within a given distance.
+	 * @param p the point to search for
+	 * @param maxDist the maximum distance in metres
+	 * @return the points, ordered by their distance to <var>p</var>
+	 */
+	public List<T> findPointsInRadius(Locatable p, double maxDist) {
+		// convert maxDist in meter to distanceInDegreesSquared
+		double maxDistSquared = Math.pow(maxDist * 360 / Coord.U, 2);
+		Nearest nearest = new Nearest(points.length, maxDistSquared);
+		search(nearest, p);
+		return nearest.getPoints();
+	}
+
+	private void search(Nearest nearest, Locatable p) {
+		Coord co = p.getLocation();
+		double qLat = co.getLatDegrees();
+		double qLon = co.getLonDegrees();
+		// the longitude difference is scaled with the cosine of the average
+		// latitude, this is the smallest possible factor for all points
+		double maxAvgLat = Math.min(90, (Math.abs(qLat) + maxAbsLat) / 2);
+		double minCos = Math.cos(Math.PI / 180 * maxAvgLat);
+		search(nearest, qLat, qLon, minCos, 0, points.length, true);
+	}
+
+	private void search(Nearest nearest, double qLat, double qLon, double minCos, int lo, int hi, boolean useLat) {
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			nearest.offer(mid, distance(mid, qLat, qLon));
+			double diff = useLat ? qLat - lat[mid] : qLon - lon[mid];
+			double bound = useLat ? diff * diff : diff * diff * minCos * minCos;
+			// search the side of the query point first, the other side
+			// only if it can contain a nearer point
+			if (diff < 0) {
+				search(nearest, qLat, qLon, minCos, lo, mid, !useLat);
+				lo = mid + 1;
+			} else {
+				search(nearest, qLat, qLon, minCos, mid + 1, hi, !useLat);
+				hi = mid;
+			}
+			if (bound > nearest.getMaxDist())
+				return;
+			useLat = !useLat;
+		}
+	}
+
+	/**
+	 * Collects the nearest nodes, ordered by distance and index.
+	 */
+	private class Nearest {
+		private final int capacity;
+		private final double maxDist;
+		private int[] nodes;
+		private double[] dists;
+		private int size;
+
+		Nearest(int capacity, double maxDist) {
+			this.capacity = capacity;
+			this.maxDist = maxDist;
+			nodes = new int[Math.min(capacity, 16)];
+			dists = new double[nodes.length];
+		}
+
+		/**
+		 * @return the distance that a point must not exceed to be added
+		 */
+		double getMaxDist() {
+			return size < capacity ? maxDist : dists[size - 1];
+		}
+
+		void offer(int node, double dist) {
+			if (dist > maxDist || capacity == 0)
+				return;
+			int pos = size;
+			while (pos > 0 && isBefore(node, dist, nodes[pos - 1], dists[pos - 1]))
+				pos--;
+			if (pos >= capacity)
+				return;
+			if (size == nodes.length && size < capacity) {
+				int newLength = (int) Math.min(capacity, 2L * nodes.length);
+				nodes = Arrays.copyOf(nodes, newLength);
+				dists = Arrays.copyOf(dists, newLength);
+			}
+			int last = Math.min(size, capacity - 1);
+			System.arraycopy(nodes, pos, nodes, pos + 1, last - pos);
+			System.arraycopy(dists, pos, dists, pos + 1, last - pos);
+			nodes[pos] = node;
+			dists[pos] = dist;
+			if (size < capacity)
+				size++;
+		}
+
+		private boolean isBefore(int node1, double dist1, int node2, double dist2) {
+			return dist1 < dist2 || dist1 == dist2 && order[node1] < order[node2];
+		}
+
+		@SuppressWarnings("unchecked")
+		List<T> getPoints() {
+			List<T> res = new ArrayList<>(size);
+			for (int node : Arrays.copyOf(nodes, size))
+				res.add((T) points[node]);
+			return res;
+		}
+	}
+}
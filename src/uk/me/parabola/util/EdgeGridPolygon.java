@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.util;
+
+import java.util.List;
+
+import uk.me.parabola.imgfmt.app.Coord;
+
+/**
+ * A polygon in high precision map units with a point-in-polygon test
+ * that gives the same results as {@link java.awt.Polygon#contains(double, double)}.
+ * The edges are sorted into horizontal strips, so that the test only
+ * has to look at the edges which span the strip of the point.
+ */
+public class EdgeGridPolygon {
+	/** polygons with fewer points are tested without strips */
+	private static final int MIN_POINTS_FOR_STRIPS = 32;
+
+	private final int[] xpoints;
+	private final int[] ypoints;
+	private final int npoints;
+	private int minX, minY, maxX, maxY;
+
+	private int numStrips;
+	private long height;
+	/** CSR arrays: the edges of strip i are stripEdges[stripStart[i] .. stripStart[i+1]-1] */
+	private int[] stripStart;
+	private int[] stripEdges;
+
+	/**
+	 * Create the polygon from the high precision coordinates of the points.
+	 * @param points the points, typically closed
+	 */
+	public EdgeGridPolygon(List<Coord> points) {
+		npoints = points.size();
+		xpoints = new int[npoints];
+		ypoints = new int[npoints];
+		minX = minY = Integer.MAX_VALUE;
+		maxX = maxY = Integer.MIN_VALUE;
+		for (int i = 0; i < npoints; i++) {
+			Coord co = points.get(i);
+			xpoints[i] = co.getHighPrecLon();
+			ypoints[i] = co.getHighPrecLat();
+			minX = Math.min(minX, xpoints[i]);
+			maxX = Math.max(maxX, xpoints[i]);
+			minY = Math.min(minY, ypoints[i]);
+			maxY = Math.max(maxY, ypoints[i]);
+		}
+		if (npoints >= MIN_POINTS_FOR_STRIPS)
+			createStrips();
+	}
+
+	private void createStrips() {
+		height = (long) maxY - minY + 1;
+		int strips = (int) Math.min(height, Math.min(npoints / 4, 4096));
+		while (strips > 1) {
+			// avoid too many entries when long edges span many strips
+			long entries = 0;
+			for (int i = 0; i < npoints; i++) {
+				int last = (i == 0) ? npoints - 1 : i - 1;
+				if (ypoints[i] != ypoints[last])
+					entries += stripOf(Math.max(ypoints[i], ypoints[last]) - 1, strips)
+							- stripOf(Math.min(ypoints[i], ypoints[last]), strips) + 1;
+			}
+			if (entries <= 8L * npoints)
+				break;
+			strips /= 2;
+		}
+		if (strips <= 1)
+			return;
+		numStrips = strips;
+		stripStart = new int[numStrips + 1];
+		for (int i = 0; i < npoints; i++) {
+			int last = (i == 0) ? npoints - 1 : i - 1;
+			if (ypoints[i] == ypoints[last])
+				continue;
+			int s1 = stripOf(Math.min(ypoints[i], ypoints[last]), numStrips);
+			int s2 = stripOf(Math.max(ypoints[i], ypoints[last]) - 1, numStrips);
+			for (int s = s1; s <= s2; s++)
+				stripStart[s + 1]++;
+		}
+		for (int s = 0; s < numStrips; s++)
+			stripStart[s + 1] += stripStart[s];
+		stripEdges = new int[stripStart[numStrips]];
+		int[] fill = new int[numStrips];
+		for (int i = 0; i < npoints; i++) {
+			int last = (i == 0) ? npoints - 1 : i - 1;
+			if (ypoints[i] == ypoints[last])
+				continue;
+			int s1 = stripOf(Math.min(ypoints[i], ypoints[last]), numStrips);
+			int s2 = stripOf(Math.max(ypoints[i], ypoints[last]) - 1, numStrips);
+			for (int s = s1; s <= s2; s++)
+				stripEdges[stripStart[s] + fill[s]++] = i;
+		}
+	}
+
+	private int stripOf(int y, int strips) {
+		return (int) (((long) y - minY) * strips / height);
+	}
+
+	/**
+	 * Test if a point is inside the polygon, see {@link java.awt.Polygon#contains(double, double)}.
+	 * @param x the high precision longitude
+	 * @param y the high precision latitude
+	 * @return true if the point is inside
+	 */
+	public boolean contains(int x, int y) {
+		// the bounding box of java.awt.Polygon excludes the max values
+		if (npoints <= 2 || x < minX || y < minY || x >= maxX || y >= maxY)
+			return false;
+		int hits = 0;
+		if (stripEdges == null) {
+			for (int i = 0; i < npoints; i++) {
+				if (crosses(i, x, y))
+					hits++;
+			}
+		} else {
+			int s = stripOf(y, numStrips);
+			for (int j = stripStart[s]; j < stripStart[s + 1]; j++) {
+				if (crosses(stripEdges[j], x, y))
+					hits++;
+			}
+		}
+		return (hits & 1) != 0;
+	}
+
+	/**
+	 * Check if the ray from the point to the east crosses the edge from
+	 * point i-1 to point i.
+	 */
+	private boolean crosses(int i, double x, double y) {
+		int last = (i == 0) ? npoints - 1 : i - 1;
+		int lastx = xpoints[last];
+		int lasty = ypoints[last];
+		int curx = xpoints[i];
+		int cury = ypoints[i];
+		if (cury == lasty)
+			return false;
+		int leftx;
+		if (curx < lastx) {
+			if (x >= lastx)
+				return false;
+			leftx = curx;
+		} else {
+			if (x >= curx)
+				return false;
+			leftx = lastx;
+		}
+		double test1, test2;
+		if (cury < lasty) {
+			if (y < cury || y >= lasty)
+				return false;
+			if (x < leftx)
+				return true;
+			test1 = x - curx;
+			test2 = y - cury;
+		} else {
+			if (y < lasty || y >= cury)
+				return false;
+			if (x < leftx)
+				return true;
+			test1 = x - lastx;
+			test2 = y - lasty;
+		}
+		return test1 < (test2 / (lasty - cury) * (lastx - curx));
+	}
+}
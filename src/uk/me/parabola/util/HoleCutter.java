@@ -0,0 +1,410 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import uk.me.parabola.imgfmt.Utils;
+import uk.me.parabola.imgfmt.app.Area;
+import uk.me.parabola.imgfmt.app.Coord;
+import uk.me.parabola.log.Logger;
+
+/**
+ * Cuts holes out of a polygon so that the result is a list of polygons
+ * without holes. All calculations are done with the high precision map
+ * units of the {@link Coord} instances, the polygons are divided with
+ * {@link ShapeSplitter#splitShapeWithHoles}. Each cut along a line of
+ * latitude or longitude goes through at least one hole, the parts of that
+ * hole become part of the outline of the resulting polygons.
+ *
+ * The input must be valid, that means the holes must be inside the outer
+ * polygon and must not overlap each other. The area of the result is
+ * compared with the expected area, so that the caller can use a more
+ * tolerant algorithm when this is not the case.
+ */
+public class HoleCutter {
+	private static final Logger log = Logger.getLogger(HoleCutter.class);
+
+	private final Area bounds;
+	private final Long2ObjectOpenHashMap<Coord> coordPool = new Long2ObjectOpenHashMap<>();
+
+	/**
+	 * @param bounds if not null, the result is clipped to these bounds
+	 */
+	public HoleCutter(Area bounds) {
+		this.bounds = bounds;
+	}
+
+	/**
+	 * Cut the holes out of the outer polygon.
+	 * @param outer the closed outer polygon
+	 * @param holes the closed holes
+	 * @return the list of closed polygons without holes or null if the
+	 * input is not valid.
+	 */
+	public List<List<Coord>> cut(List<Coord> outer, List<List<Coord>> holes) {
+		long outerArea = signedArea(outer);
+		if (outerArea == 0)
+			return null;
+		// the holes must have the opposite direction
+		List<List<Coord>> orientedHoles = new ArrayList<>(holes.size());
+		for (List<Coord> hole : holes) {
+			long holeArea = signedArea(hole);
+			if (holeArea == 0)
+				continue;
+			if (Long.signum(holeArea) == Long.signum(outerArea)) {
+				hole = new ArrayList<>(hole);
+				Collections.reverse(hole);
+			}
+			orientedHoles.add(hole);
+		}
+
+		long expected = Math.abs(clippedArea(outer));
+		for (List<Coord> hole : orientedHoles)
+			expected -= Math.abs(clippedArea(hole));
+
+		List<Piece> pieces = new ArrayList<>();
+		pieces.add(new Piece(outer, orientedHoles));
+		if (bounds != null && !isInside(pieces.get(0))) {
+			pieces = clip(pieces, bounds.getMinLat() << Coord.DELTA_SHIFT, false, true);
+			if (pieces != null)
+				pieces = clip(pieces, bounds.getMinLong() << Coord.DELTA_SHIFT, true, true);
+			if (pieces != null)
+				pieces = clip(pieces, bounds.getMaxLat() << Coord.DELTA_SHIFT, false, false);
+			if (pieces != null)
+				pieces = clip(pieces, bounds.getMaxLong() << Coord.DELTA_SHIFT, true, false);
+			if (pieces == null) {
+				log.info("rings are overlapping");
+				return null;
+			}
+		}
+
+		List<List<Coord>> result = new ArrayList<>();
+		long tolerance = 0;
+		ArrayDeque<Piece> toCut = new ArrayDeque<>(pieces);
+		while (!toCut.isEmpty()) {
+			Piece piece = toCut.poll();
+			if (piece.holes.isEmpty()) {
+				result.add(piece.outer);
+				continue;
+			}
+			List<List<Coord>> lessList = new ArrayList<>();
+			List<List<Coord>> lessHoles = new ArrayList<>();
+			List<List<Coord>> moreList = new ArrayList<>();
+			List<List<Coord>> moreHoles = new ArrayList<>();
+			boolean isLongitude = useLongitude(piece);
+			int dividingLine = calcDividingLine(piece, isLongitude);
+			tolerance += calcRoundingError(piece, dividingLine, isLongitude);
+			if (!ShapeSplitter.splitShapeWithHoles(piece.outer, piece.holes, dividingLine, isLongitude,
+					lessList, lessHoles, moreList, moreHoles, coordPool)) {
+				log.info("rings are overlapping");
+				return null;
+			}
+			if (lessHoles.size() + moreHoles.size() >= piece.holes.size()) {
+				log.info("cut line didn't divide any hole");
+				return null;
+			}
+			toCut.addAll(assignHoles(lessList, lessHoles));
+			toCut.addAll(assignHoles(moreList, moreHoles));
+		}
+
+		long area = 0;
+		for (List<Coord> shape : result)
+			area += Math.abs(signedArea(shape));
+		if (Math.abs(area - expected) > tolerance) {
+			log.info("area of cut polygons differs, expected", expected, "got", area);
+			return null;
+		}
+		return result;
+	}
+
+	/**
+	 * The points that are created on the dividing line are rounded, this
+	 * changes the area of the divided rings a little bit.
+	 * @return the maximum change of the area
+	 */
+	private static long calcRoundingError(Piece piece, int dividingLine, boolean isLongitude) {
+		long error = calcRoundingError(piece.outer, dividingLine, isLongitude);
+		for (List<Coord> hole : piece.holes)
+			error += calcRoundingError(hole, dividingLine, isLongitude);
+		return error;
+	}
+
+	private static long calcRoundingError(List<Coord> ring, int dividingLine, boolean isLongitude) {
+		long error = 0;
+		int lastAway = 0;
+		for (int i = 0; i < ring.size(); i++) {
+			Coord co = ring.get(i);
+			int away = isLongitude ? co.getHighPrecLon() : co.getHighPrecLat();
+			if (i > 0 && Integer.signum(away - dividingLine) * Integer.signum(lastAway - dividingLine) < 0)
+				error += Math.abs((long) away - lastAway);
+			lastAway = away;
+		}
+		return error;
+	}
+
+	/**
+	 * Calculate the area of a ring after clipping it to the bounds.
+	 * @return the area with the sign of the ring
+	 */
+	private long clippedArea(List<Coord> ring) {
+		if (bounds == null || isInside(new Piece(ring, Collections.<List<Coord>>emptyList())))
+			return signedArea(ring);
+		long area = 0;
+		for (List<Coord> part : ShapeSplitter.clipToBounds(ring, bounds, coordPool))
+			area += signedArea(part);
+		return area;
+	}
+
+	private boolean isInside(Piece piece) {
+		return piece.minLat >= bounds.getMinLat() << Coord.DELTA_SHIFT
+				&& piece.minLon >= bounds.getMinLong() << Coord.DELTA_SHIFT
+				&& piece.maxLat <= bounds.getMaxLat() << Coord.DELTA_SHIFT
+				&& piece.maxLon <= bounds.getMaxLong() << Coord.DELTA_SHIFT;
+	}
+
+	/**
+	 * Split all pieces with a line and keep one side.
+	 * @return the pieces on that side or null if rings are overlapping
+	 */
+	private List<Piece> clip(List<Piece> pieces, int dividingLine, boolean isLongitude, boolean keepMore) {
+		List<Piece> clipped = new ArrayList<>();
+		for (Piece piece : pieces) {
+			List<List<Coord>> shapes = new ArrayList<>();
+			List<List<Coord>> holes = new ArrayList<>();
+			boolean ok;
+			if (keepMore)
+				ok = ShapeSplitter.splitShapeWithHoles(piece.outer, piece.holes, dividingLine, isLongitude,
+						null, null, shapes, holes, coordPool);
+			else
+				ok = ShapeSplitter.splitShapeWithHoles(piece.outer, piece.holes, dividingLine, isLongitude,
+						shapes, holes, null, null, coordPool);
+			if (!ok)
+				return null;
+			clipped.addAll(assignHoles(shapes, holes));
+		}
+		return clipped;
+	}
+
+	/**
+	 * Find the shape that contains each hole.
+	 * @param shapes the shapes on one side of a dividing line
+	 * @param holes the holes on the same side which were not divided
+	 * @return the shapes with their holes
+	 */
+	private static List<Piece> assignHoles(List<List<Coord>> shapes, List<List<Coord>> holes) {
+		List<Piece> pieces = new ArrayList<>(shapes.size());
+		if (shapes.size() == 1) {
+			pieces.add(new Piece(shapes.get(0), holes));
+			return pieces;
+		}
+		for (List<Coord> shape : shapes)
+			pieces.add(new Piece(shape, new ArrayList<List<Coord>>()));
+		EdgeGridPolygon[] polygons = new EdgeGridPolygon[pieces.size()];
+		for (List<Coord> hole : holes) {
+			Piece holePiece = new Piece(hole, Collections.<List<Coord>>emptyList());
+			Piece found = null;
+			for (int i = 0; i < pieces.size() && found == null; i++) {
+				Piece piece = pieces.get(i);
+				if (!piece.containsBbox(holePiece))
+					continue;
+				if (polygons[i] == null)
+					polygons[i] = new EdgeGridPolygon(piece.outer);
+				if (isHoleInside(hole, piece.outer, polygons[i]))
+					found = piece;
+			}
+			if (found != null)
+				found.holes.add(hole);
+		}
+		return pieces;
+	}
+
+	/**
+	 * Test a point of the hole that is not a point of the shape.
+	 */
+	private static boolean isHoleInside(List<Coord> hole, List<Coord> shape, EdgeGridPolygon polygon) {
+		LongOpenHashSet shapePoints = new LongOpenHashSet(shape.size());
+		for (Coord co : shape)
+			shapePoints.add(Utils.coord2Long(co));
+		for (Coord co : hole) {
+			if (!shapePoints.contains(Utils.coord2Long(co)))
+				return polygon.contains(co.getHighPrecLon(), co.getHighPrecLat());
+		}
+		return false;
+	}
+
+	/**
+	 * Prefer to divide the longer side of the piece.
+	 */
+	private static boolean useLongitude(Piece piece) {
+		boolean isLongitude = (long) piece.maxLon - piece.minLon >= (long) piece.maxLat - piece.minLat;
+		if (countHoles(piece, isLongitude) == 0 && countHoles(piece, !isLongitude) > 0)
+			return !isLongitude;
+		return isLongitude;
+	}
+
+	/**
+	 * Calculate a dividing line that goes through as many holes as possible
+	 * and is not too far away from the middle of the piece. The line goes
+	 * through the inside of the bounding box of each counted hole, so it
+	 * divides these holes.
+	 */
+	private static int calcDividingLine(Piece piece, boolean isLongitude) {
+		int n = piece.holes.size();
+		int[] mins = new int[n];
+		int[] maxs = new int[n];
+		for (int i = 0; i < n; i++) {
+			Piece hole = new Piece(piece.holes.get(i), Collections.<List<Coord>>emptyList());
+			mins[i] = isLongitude ? hole.minLon : hole.minLat;
+			maxs[i] = isLongitude ? hole.maxLon : hole.maxLat;
+		}
+		Arrays.sort(mins);
+		Arrays.sort(maxs);
+		long middle = isLongitude ? ((long) piece.minLon + piece.maxLon) / 2 : ((long) piece.minLat + piece.maxLat) / 2;
+
+		int maxCount = 0;
+		int[] candidates = new int[2 * n];
+		int[] counts = new int[2 * n];
+		int numCandidates = 0;
+		for (int i = 0; i < n; i++) {
+			// the middle between the start of a hole and the next start or stop
+			int next = nextValue(mins, maxs, mins[i]);
+			if (next - mins[i] < 2)
+				continue;
+			int c = (int) (((long) mins[i] + next) / 2);
+			int count = countBetween(mins, maxs, c);
+			candidates[numCandidates] = c;
+			counts[numCandidates++] = count;
+			maxCount = Math.max(maxCount, count);
+		}
+		if (maxCount == 0) {
+			// only very small holes, a line through a point of the hole divides it
+			return mins[0];
+		}
+		int best = 0;
+		long bestDist = Long.MAX_VALUE;
+		for (int i = 0; i < numCandidates; i++) {
+			if (counts[i] * 2 < maxCount)
+				continue;
+			long dist = Math.abs(candidates[i] - middle);
+			if (dist < bestDist) {
+				bestDist = dist;
+				best = candidates[i];
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * @return the smallest start or stop value greater than v
+	 */
+	private static int nextValue(int[] mins, int[] maxs, int v) {
+		int next = Integer.MAX_VALUE;
+		int pos = upperBound(mins, v);
+		if (pos < mins.length)
+			next = mins[pos];
+		pos = upperBound(maxs, v);
+		if (pos < maxs.length)
+			next = Math.min(next, maxs[pos]);
+		return next;
+	}
+
+	/**
+	 * @return the number of holes with min &lt; c &lt; max
+	 */
+	private static int countBetween(int[] mins, int[] maxs, int c) {
+		return lowerBound(mins, c) - upperBound(maxs, c);
+	}
+
+	private static int countHoles(Piece piece, boolean isLongitude) {
+		int count = 0;
+		for (List<Coord> hole : piece.holes) {
+			Piece p = new Piece(hole, Collections.<List<Coord>>emptyList());
+			if (isLongitude ? p.maxLon - p.minLon >= 2 : p.maxLat - p.minLat >= 2)
+				count++;
+		}
+		return count;
+	}
+
+	/** @return the number of values &lt; v */
+	private static int lowerBound(int[] sorted, int v) {
+		int lo = 0, hi = sorted.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (sorted[mid] < v)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+	/** @return the number of values &lt;= v */
+	private static int upperBound(int[] sorted, int v) {
+		int lo = 0, hi = sorted.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (sorted[mid] <= v)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+	/**
+	 * Calculate twice the signed area of a closed ring.
+	 */
+	public static long signedArea(List<Coord> ring) {
+		long area = 0;
+		Coord last = null;
+		for (Coord co : ring) {
+			if (last != null)
+				area += (long) (last.getHighPrecLon() + co.getHighPrecLon()) * (last.getHighPrecLat() - co.getHighPrecLat());
+			last = co;
+		}
+		return area;
+	}
+
+	/**
+	 * An outer polygon with its holes and the bounding box of the outer polygon.
+	 */
+	private static class Piece {
+		final List<Coord> outer;
+		final List<List<Coord>> holes;
+		int minLat = Integer.MAX_VALUE, minLon = Integer.MAX_VALUE;
+		int maxLat = Integer.MIN_VALUE, maxLon = Integer.MIN_VALUE;
+
+		Piece(List<Coord> outer, List<List<Coord>> holes) {
+			this.outer = outer;
+			this.holes = holes;
+			for (Coord co : outer) {
+				minLat = Math.min(minLat, co.getHighPrecLat());
+				maxLat = Math.max(maxLat, co.getHighPrecLat());
+				minLon = Math.min(minLon, co.getHighPrecLon());
+				maxLon = Math.max(maxLon, co.getHighPrecLon());
+			}
+		}
+
+		boolean containsBbox(Piece other) {
+			return other.minLat >= minLat && other.maxLat <= maxLat
+					&& other.minLon >= minLon && other.maxLon <= maxLon;
+		}
+	}
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.util;
+
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Records the wall time, the CPU time and the allocated bytes of the
+ * named phases of a job, for example the processing of one tile.
+ * <p>
+ * The stats are collected per thread. The thread that runs the job calls
+ * {@link #start(String)} before and {@link #end()} after it, the whole
+ * job is reported as the phase "total". In between a phase is measured
+ * with
+ * <pre>
+ * PhaseStats.run("parse", () -> parse(is, name));
+ * </pre>
+ * The CPU time and the allocations of other threads that help with a
+ * phase are not included. Phases may be nested, the values of an inner
+ * phase are also part of the outer one. A phase that is entered more than
+ * once is reported once with the sum of the values. When no stats are
+ * collected in the current thread, a phase costs next to nothing.
+ */
+public class PhaseStats {
+	private static final ThreadLocal<PhaseStats> current = new ThreadLocal<>();
+	private static final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+	private static final Phase NO_PHASE = new Phase(null, null);
+
+	// the positions in the values of a phase
+	private static final int COUNT = 0;
+	private static final int WALL = 1;
+	private static final int CPU = 2;
+	private static final int ALLOC = 3;
+
+	private final String name;
+	private final Map<String, long[]> phases = new LinkedHashMap<>();
+	private final Phase total;
+
+	private PhaseStats(String name) {
+		this.name = name;
+		total = new Phase(this, "total");
+	}
+
+	/**
+	 * Start collecting stats in the current thread.
+	 * @param name The name of the job.
+	 * @return The stats of the job.
+	 */
+	public static PhaseStats start(String name) {
+		PhaseStats stats = new PhaseStats(name);
+		current.set(stats);
+		return stats;
+	}
+
+	/**
+	 * Stop collecting stats in the current thread.
+	 */
+	public static void end() {
+		PhaseStats stats = current.get();
+		if (stats != null)
+			stats.total.end();
+		current.remove();
+	}
+
+	/**
+	 * Run a phase in the current thread.
+	 * @param name The name of the phase.
+	 * @param task The work of the phase.
+	 */
+	public static void run(String name, Runnable task) {
+		Phase phase = phase(name);
+		try {
+			task.run();
+		} finally {
+			phase.end();
+		}
+	}
+
+	/**
+	 * Run a phase in the current thread that returns a result.
+	 * @param name The name of the phase.
+	 * @param task The work of the phase.
+	 * @return The result of the task.
+	 */
+	public static <T> T call(String name, Supplier<T> task) {
+		Phase phase = phase(name);
+		try {
+			return task.get();
+		} finally {
+			phase.end();
+		}
+	}
+
+	private static Phase phase(String name) {
+		PhaseStats stats = current.get();
+		if (stats == null)
+			return NO_PHASE;
+		return new Phase(stats, name);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Write the column names of {@link #write(PrintWriter)}.
+	 */
+	public static void writeHeader(PrintWriter pw) {
+		pw.println("job,phase,count,wall_ms,cpu_ms,allocated_bytes");
+	}
+
+	/**
+	 * Write one line in CSV format for each phase. A value that isn't
+	 * available is written as -1.
+	 */
+	public void write(PrintWriter pw) {
+		String job = name.contains(",") || name.contains("\"") ? '"' + name.replace("\"", "\"\"") + '"' : name;
+		for (Map.Entry<String, long[]> entry : phases.entrySet()) {
+			long[] values = entry.getValue();
+			pw.println(job + ',' + entry.getKey() + ',' + values[COUNT]
+					+ ',' + values[WALL] / 1_000_000
+					+ ',' + (values[CPU] < 0 ? -1 : values[CPU] / 1_000_000)
+					+ ',' + values[ALLOC]);
+		}
+	}
+
+	private static long getCpuTime() {
+		if (threadBean.isCurrentThreadCpuTimeSupported())
+			return threadBean.getCurrentThreadCpuTime();
+		return -1;
+	}
+
+	private static long getAllocatedBytes() {
+		if (threadBean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) threadBean;
+			if (bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled())
+				return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return -1;
+	}
+
+	/**
+	 * A running phase.
+	 */
+	private static final class Phase {
+		private final long[] values;
+		private final long wall;
+		private final long cpu;
+		private final long alloc;
+
+		private Phase(PhaseStats stats, String name) {
+			if (stats == null) {
+				values = null;
+				wall = cpu = alloc = 0;
+			} else {
+				// the phases are reported in the order in which they are first started
+				values = stats.phases.computeIfAbsent(name, k -> new long[4]);
+				wall = System.nanoTime();
+				cpu = getCpuTime();
+				alloc = getAllocatedBytes();
+			}
+		}
+
+		private void end() {
+			if (values == null)
+				return;
+			values[COUNT]++;
+			values[WALL] += System.nanoTime() - wall;
+			values[CPU] = cpu < 0 || values[CPU] < 0 ? -1 : values[CPU] + getCpuTime() - cpu;
+			values[ALLOC] = alloc < 0 || values[ALLOC] < 0 ? -1 : values[ALLOC] + getAllocatedBytes() - alloc;
+		}
+	}
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.util;
+
+import java.awt.Rectangle;
+import java.util.Arrays;
+import java.util.List;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+/**
+ * A static R-tree for rectangles. The tree is bulk loaded with the
+ * sort-tile-recursive algorithm and stored in primitive arrays.
+ * The rectangles are identified by their position in the list that
+ * was used to create the index.
+ */
+public class RectangleIndex {
+	private static final int NODE_SIZE = 16;
+
+	/** minX, minY, maxX, maxY for all entries of all levels, leaves first */
+	private final int[] boxes;
+	/** the rectangle ids for the leaf entries */
+	private final int[] ids;
+	/** start of each level in {@link #boxes}, counted in entries */
+	private final int[] levelStart;
+
+	/**
+	 * Create the index.
+	 * @param rectangles the rectangles, the borders are treated as inclusive
+	 */
+	public RectangleIndex(List<Rectangle> rectangles) {
+		int n = rectangles.size();
+		ids = sortTileRecursive(rectangles);
+
+		// calculate the number of entries for all levels
+		IntArrayList starts = new IntArrayList();
+		int total = 0;
+		int levelSize = n;
+		do {
+			starts.add(total);
+			total += levelSize;
+			levelSize = (levelSize + NODE_SIZE - 1) / NODE_SIZE;
+		} while (starts.size() == 1 || total - starts.getInt(starts.size() - 1) > 1);
+		starts.add(total);
+		levelStart = starts.toIntArray();
+
+		boxes = new int[total * 4];
+		for (int i = 0; i < n; i++) {
+			Rectangle r = rectangles.get(ids[i]);
+			boxes[i * 4] = r.x;
+			boxes[i * 4 + 1] = r.y;
+			boxes[i * 4 + 2] = r.x + r.width;
+			boxes[i * 4 + 3] = r.y + r.height;
+		}
+		for (int level = 1; level + 1 < levelStart.length; level++) {
+			int childStart = levelStart[level - 1];
+			int childEnd = levelStart[level];
+			for (int node = levelStart[level]; node < levelStart[level + 1]; node++) {
+				int first = childStart + (node - levelStart[level]) * NODE_SIZE;
+				int last = Math.min(first + NODE_SIZE, childEnd);
+				int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
+				int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+				for (int c = first; c < last; c++) {
+					minX = Math.min(minX, boxes[c * 4]);
+					minY = Math.min(minY, boxes[c * 4 + 1]);
+					maxX = Math.max(maxX, boxes[c * 4 + 2]);
+					maxY = Math.max(maxY, boxes[c * 4 + 3]);
+				}
+				boxes[node * 4] = minX;
+				boxes[node * 4 + 1] = minY;
+				boxes[node * 4 + 2] = maxX;
+				boxes[node * 4 + 3] = maxY;
+			}
+		}
+	}
+
+	/**
+	 * Sort the rectangles into vertical slices by the x value of their
+	 * centre and each slice by the y value.
+	 * @return the ids of the rectangles in the sorted order
+	 */
+	private static int[] sortTileRecursive(List<Rectangle> rectangles) {
+		int n = rectangles.size();
+		long[] keys = new long[n];
+		for (int i = 0; i < n; i++) {
+			Rectangle r = rectangles.get(i);
+			keys[i] = ((long) (r.x + r.width / 2) << 32) | i;
+		}
+		Arrays.sort(keys);
+		int numLeaves = (n + NODE_SIZE - 1) / NODE_SIZE;
+		int sliceSize = (int) Math.ceil(Math.sqrt(numLeaves)) * NODE_SIZE;
+		int[] sorted = new int[n];
+		for (int start = 0; start < n; start += sliceSize) {
+			int end = Math.min(start + sliceSize, n);
+			long[] slice = new long[end - start];
+			for (int i = start; i < end; i++) {
+				int id = (int) keys[i];
+				Rectangle r = rectangles.get(id);
+				slice[i - start] = ((long) (r.y + r.height / 2) << 32) | id;
+			}
+			Arrays.sort(slice);
+			for (int i = start; i < end; i++)
+				sorted[i] = (int) slice[i - start];
+		}
+		return sorted;
+	}
+
+	/**
+	 * Find the rectangles which intersect or touch the given rectangle.
+	 * @param r the rectangle, the borders are treated as inclusive
+	 * @return the ids of the found rectangles in ascending order
+	 */
+	public int[] query(Rectangle r) {
+		IntArrayList found = new IntArrayList();
+		if (ids.length == 0)
+			return new int[0];
+		int minX = r.x, minY = r.y, maxX = r.x + r.width, maxY = r.y + r.height;
+		int top = levelStart.length - 2;
+		int[] stack = new int[(top + 1) * NODE_SIZE * 2];
+		int sp = 0;
+		stack[sp++] = top;
+		stack[sp++] = levelStart[top];
+		while (sp > 0) {
+			int node = stack[--sp];
+			int level = stack[--sp];
+			if (boxes[node * 4] > maxX || boxes[node * 4 + 1] > maxY
+					|| boxes[node * 4 + 2] < minX || boxes[node * 4 + 3] < minY)
+				continue;
+			if (level == 0) {
+				found.add(ids[node]);
+				continue;
+			}
+			int first = levelStart[level - 1] + (node - levelStart[level]) * NODE_SIZE;
+			int last = Math.min(first + NODE_SIZE, levelStart[level]);
+			for (int c = first; c < last; c++) {
+				stack[sp++] = level - 1;
+				stack[sp++] = c;
+			}
+		}
+		int[] res = found.toIntArray();
+		Arrays.sort(res);
+		return res;
+	}
+}
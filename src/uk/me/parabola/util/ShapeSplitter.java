@@ -324,11 +324,32 @@ Eventually maybe can be used instead of some of the above and elsewhere
 	private static void processLineList(List<MergeCloseHelper> lineInfo, List<List<Coord>> origList, long fullArea) {
 		if (origList == null) // never wanted this side
 			return;
+		if (!prepareLineList(lineInfo, origList, fullArea))
+			return;
+		if (lineInfo.size() == 1) { // simple poly that crossed once and back
+			MergeCloseHelper firstLine = lineInfo.get(0);
+			firstLine.setMoreInfo(0);
+			firstLine.closeAppend(origList, true);
+			return;
+		}
+		// Above were the simple cases - probably 99% of calls.
+		nestLines(lineInfo, origList, Long.signum(fullArea));
+	} // processLineList
+
+	/**
+	 * Service routine for processLineList. Handles a ring that never crossed the line and
+	 * joins the first and last line of a ring that did.
+	 * @param lineInfo list of lines of one ring, modified
+	 * @param untouchedList list to which the ring is appended if it didn't cross the line
+	 * @param fullArea of the ring. used for handling of last line segment
+	 * @return true if lineInfo contains lines that start and end on the dividing line
+	 */
+	private static boolean prepareLineList(List<MergeCloseHelper> lineInfo, List<List<Coord>> untouchedList, long fullArea) {
 		MergeCloseHelper firstLine = lineInfo.get(0);
 		if (lineInfo.size() == 1) { // single shape that never crossed line
 			if (!firstLine.points.isEmpty()) // all on this side
-				firstLine.closeAppend(origList, false);
-			return;
+				firstLine.closeAppend(untouchedList, false);
+			return false;
 		}
 		// look at last item in list of lines
 		MergeCloseHelper lastLine = lineInfo.get(lineInfo.size()-1);
@@ -338,15 +359,17 @@ Eventually maybe can be used instead of some of the above and elsewhere
 			// so first element is really the end of the last
 			lastLine.combineFirstIntoLast(firstLine, fullArea);
 			lineInfo.remove(0);
-			firstLine = lineInfo.get(0);
 		}
-		if (lineInfo.size() == 1) { // simple poly that crossed once and back
-			firstLine.setMoreInfo(0);
-			firstLine.closeAppend(origList, true);
-			return;
-		}
-		// Above were the simple cases - probably 99% of calls.
+		return true;
+	} // prepareLineList
 
+	/**
+	 * Service routine for processLineList.
+	 * @param lineInfo list of lines that start and end on the dividing line
+	 * @param origList list of shapes to which we append new shapes formed from above
+	 * @param fullAreaSign sign of the area of the orig polygon
+	 */
+	private static void nestLines(List<MergeCloseHelper> lineInfo, List<List<Coord>> origList, int fullAreaSign) {
 		// splitShape has generated a list of lines that start and end on the dividing line.
 		// These lines don't cross. Order them by their lowest point on the divider, but note which
 		// direction they go. The first (and last) line must define a shape. Starting with this
@@ -355,7 +378,6 @@ Eventually maybe can be used instead of some of the above and elsewhere
 		// handle any shapes enclosed. Repeat until we reach the end of the enclosing
 		// space.
 
-		final int fullAreaSign = Long.signum(fullArea);
 		// check and set any missing directions based on signs of full/area
 		boolean someDirectionsNotSet = false;
 		int areaDirection = 0;
@@ -394,7 +416,7 @@ Eventually maybe can be used instead of some of the above and elsewhere
 
 		int dummy = doLines(0, Integer.MAX_VALUE, null, lineInfo, origList);
 		assert dummy == lineInfo.size();
-	} // processLineList
+	} // nestLines
 
 	private static List<Coord> startLine(List<MergeCloseHelper> lineInfo) {
 		MergeCloseHelper thisLine = new MergeCloseHelper();
@@ -555,16 +577,93 @@ Eventually maybe can be used instead of some of the above and elsewhere
 				      List<List<Coord>> lessList, List<List<Coord>> moreList,
 				      Long2ObjectOpenHashMap<Coord> coordPool) {
 
-		List<MergeCloseHelper> newLess = null, newMore = null;
+		List<MergeCloseHelper> newLess = lessList == null ? null : new ArrayList<>();
+		List<MergeCloseHelper> newMore = moreList == null ? null : new ArrayList<>();
+		long fullArea = splitRing(coords, dividingLine, isLongitude, newLess, newMore, coordPool);
+		processLineList(newLess, lessList, fullArea);
+		processLineList(newMore, moreList, fullArea);
+	} // splitShape
+
+	/**
+	 * split a shape with holes with a line. The parts of holes that are cut by the line
+	 * are added to the parts of the outer shape, so the resulting shapes don't need
+	 * these holes any more.
+	 * @param outer the outer shape. Must be closed.
+	 * @param holes the holes. Must be closed, inside outer, not overlapping and have
+	 * the opposite direction to outer.
+	 * @param dividingLine the line in high precision.
+	 * @param isLongitude true if above is line of longitude, false if latitude.
+	 * @param lessList list of shapes to which we append new shapes on lower/left side of line.
+	 * @param lessHoles list to which we append the holes on lower/left side that were not cut.
+	 * @param moreList list of shapes to which we append new shapes on upper/right side of line.
+	 * @param moreHoles list to which we append the holes on upper/right side that were not cut.
+	 * @param coordPool if not null, hashmap for created coordinates. Will all be on the line.
+	 * @return false if the parts of the rings cross each other, the result is not usable then.
+	 */
+	public static boolean splitShapeWithHoles(List<Coord> outer, List<List<Coord>> holes, int dividingLine,
+			boolean isLongitude, List<List<Coord>> lessList, List<List<Coord>> lessHoles,
+			List<List<Coord>> moreList, List<List<Coord>> moreHoles, Long2ObjectOpenHashMap<Coord> coordPool) {
+		List<MergeCloseHelper> allLess = lessList == null ? null : new ArrayList<>();
+		List<MergeCloseHelper> allMore = moreList == null ? null : new ArrayList<>();
+		int fullAreaSign = 0;
+		for (int i = -1; i < holes.size(); i++) {
+			List<Coord> ring = i < 0 ? outer : holes.get(i);
+			List<MergeCloseHelper> newLess = lessList == null ? null : new ArrayList<>();
+			List<MergeCloseHelper> newMore = moreList == null ? null : new ArrayList<>();
+			long ringArea = splitRing(ring, dividingLine, isLongitude, newLess, newMore, coordPool);
+			if (i < 0)
+				fullAreaSign = Long.signum(ringArea);
+			if (newLess != null && prepareLineList(newLess, i < 0 ? lessList : lessHoles, ringArea))
+				allLess.addAll(newLess);
+			if (newMore != null && prepareLineList(newMore, i < 0 ? moreList : moreHoles, ringArea))
+				allMore.addAll(newMore);
+		}
+		if (allLess != null && !allLess.isEmpty()) {
+			nestLines(allLess, lessList, fullAreaSign);
+			if (!isNested(allLess))
+				return false;
+		}
+		if (allMore != null && !allMore.isEmpty()) {
+			nestLines(allMore, moreList, fullAreaSign);
+			if (!isNested(allMore))
+				return false;
+		}
+		return true;
+	} // splitShapeWithHoles
+
+	/**
+	 * Check that the lines don't cross, that means two lines either enclose each other or
+	 * don't overlap on the dividing line. This is not the case when rings overlap.
+	 * @param lineInfo the list of lines, sorted by nestLines
+	 */
+	private static boolean isNested(List<MergeCloseHelper> lineInfo) {
+		int[] enclosing = new int[lineInfo.size()];
+		int depth = 0;
+		for (MergeCloseHelper thisLine : lineInfo) {
+			while (depth > 0 && enclosing[depth-1] <= thisLine.lowPoint)
+				depth--;
+			if (depth > 0 && thisLine.highPoint > enclosing[depth-1])
+				return false;
+			enclosing[depth++] = thisLine.highPoint;
+		}
+		return true;
+	} // isNested
+
+	/**
+	 * Service routine for splitShape. Splits one ring into lines that start and end
+	 * on the dividing line.
+	 * @param newLess if not null, list of lines for the lower/left side
+	 * @param newMore if not null, list of lines for the upper/right side
+	 * @return the area of the ring
+	 */
+	private static long splitRing(List<Coord> coords, int dividingLine, boolean isLongitude,
+				      List<MergeCloseHelper> newLess, List<MergeCloseHelper> newMore,
+				      Long2ObjectOpenHashMap<Coord> coordPool) {
 		List<Coord> lessPoly = null, morePoly = null;
-		if (lessList != null) {
-			newLess = new ArrayList<>();
+		if (newLess != null)
 			lessPoly = startLine(newLess);
-		}
-		if (moreList != null) {
-			newMore = new ArrayList<>();
+		if (newMore != null)
 			morePoly = startLine(newMore);
-		}
 		/**
 		 * trailXxx variables are the previous coordinate information.
 		 * leadXxx            are for the current coordinate
@@ -618,7 +717,7 @@ Eventually maybe can be used instead of some of the above and elsewhere
 					extraArea = (long)(lineAlong + leadAlong) * (dividingLine - leadAway);
 				}
 
-				if (lessList != null) {
+				if (newLess != null) {
 					if (leadRel < 0) { // this point required
 						if (trailRel >= 0) // previous not on this side, add line point
 							openLine(newLess, lineCoord, lineAlong, runningArea);
@@ -628,7 +727,7 @@ Eventually maybe can be used instead of some of the above and elsewhere
 				}
 
 				// identical to above except other way around
-				if (moreList != null) {
+				if (newMore != null) {
 					if (leadRel > 0) { // this point required
 						if (trailRel <= 0) // previous not on this side, add line point
 							openLine(newMore, lineCoord, lineAlong, runningArea);
@@ -644,9 +743,8 @@ Eventually maybe can be used instead of some of the above and elsewhere
 			trailAlong = leadAlong;
 			trailRel = leadRel;
 		} // for leadCoord
-		processLineList(newLess, lessList, runningArea);
-		processLineList(newMore, moreList, runningArea);
-	} // splitShape
+		return runningArea;
+	} // splitRing
 
 
 	/**
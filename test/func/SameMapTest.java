@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package func;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import uk.me.parabola.imgfmt.app.map.MapReader;
+import uk.me.parabola.imgfmt.app.trergn.Point;
+import uk.me.parabola.imgfmt.app.trergn.Polygon;
+import uk.me.parabola.imgfmt.app.trergn.Polyline;
+import uk.me.parabola.imgfmt.app.trergn.Zoom;
+import uk.me.parabola.mkgmap.main.Main;
+
+import func.lib.Args;
+import func.lib.TestUtils;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Options that only change the way the map is made must not change
+ * the map.
+ */
+public class SameMapTest extends Base {
+
+	@Test
+	public void testPipelinedConversion() throws IOException {
+		List<String> expected = makeMap();
+		assertFalse("map has elements", expected.isEmpty());
+		assertEquals(expected, makeMap("--pipelined-conversion"));
+	}
+
+	/**
+	 * Make the map of the standard test file and read the elements of all
+	 * levels back.
+	 * @param options The extra options.
+	 * @return A description of each element.
+	 */
+	private static List<String> makeMap(String... options) throws IOException {
+		TestUtils.deleteOutputFiles();
+		List<String> args = new ArrayList<>(Arrays.asList(Args.TEST_STYLE_ARG, "--preserve-element-order", "--route"));
+		args.addAll(Arrays.asList(options));
+		args.add(Args.TEST_RESOURCE_OSM + "uk-test-1.osm.gz");
+		Main.mainNoSystemExit(args.toArray(new String[0]));
+
+		List<String> elements = new ArrayList<>();
+		try (MapReader mr = new MapReader(Args.DEF_MAP_FILENAME)) {
+			for (Zoom zoom : mr.getLevels()) {
+				int level = zoom.getLevel();
+				for (Point p : mr.pointsForLevel(level, MapReader.WITH_EXT_TYPE_DATA))
+					elements.add(level + " " + p + " " + p.getLocation());
+				for (Polyline line : mr.linesForLevel(level))
+					elements.add(level + " " + line + " " + line.getPoints());
+				for (Polygon shape : mr.shapesForLevel(level, MapReader.WITH_EXT_TYPE_DATA))
+					elements.add(level + " " + shape + " " + shape.getPoints());
+			}
+		}
+		return elements;
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package main;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import uk.me.parabola.mkgmap.reader.osm.boundary.BoundaryQuadTree;
+import uk.me.parabola.mkgmap.reader.osm.boundary.BoundarySaver;
+import uk.me.parabola.mkgmap.reader.osm.boundary.BoundaryUtil;
+import uk.me.parabola.mkgmap.reader.osm.boundary.OsmBoundaryDataSource;
+
+/**
+ * Compare the time to build the boundary quadtrees of all raster cells
+ * with one thread and with parallel cells and sub trees. Use the
+ * boundaries of a country or a larger region as input.
+ *
+ * Usage: BoundaryQuadTreeBenchmark boundaries.osm.pbf [runs]
+ */
+public class BoundaryQuadTreeBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1) {
+			System.err.println("Usage: BoundaryQuadTreeBenchmark boundaries.osm.pbf [runs]");
+			return;
+		}
+		int runs = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+		// create the raw data like the BoundaryPreprocessor
+		File rawDir = new File(System.getProperty("java.io.tmpdir"), "bnd-benchmark-" + System.nanoTime());
+		BoundarySaver saver = new BoundarySaver(rawDir, BoundarySaver.RAW_DATA_FORMAT);
+		OsmBoundaryDataSource dataSource = new OsmBoundaryDataSource();
+		dataSource.setBoundarySaver(saver);
+		long start = System.nanoTime();
+		dataSource.load(args[0], false);
+		saver.setBbox(dataSource.getBounds());
+		saver.end();
+		List<String> names = BoundaryUtil.getBoundaryDirContent(rawDir.getPath());
+		System.out.println("Raw data for " + names.size() + " cells created in "
+				+ (System.nanoTime() - start) / 1000000 + "ms");
+
+		try {
+			for (int run = 0; run < runs; run++) {
+				for (boolean parallel : new boolean[] { false, true }) {
+					BoundaryQuadTree.setParallel(parallel);
+					start = System.nanoTime();
+					Map<String, Integer> result;
+					if (parallel) {
+						result = names.parallelStream().collect(Collectors.toMap(n -> n, n -> countAreas(rawDir, n)));
+					} else {
+						result = names.stream().collect(Collectors.toMap(n -> n, n -> countAreas(rawDir, n)));
+					}
+					long ms = (System.nanoTime() - start) / 1000000;
+					int areas = result.values().stream().mapToInt(Integer::intValue).sum();
+					System.out.println("Run " + run + (parallel ? " parallel:   " : " sequential: ") + ms
+							+ "ms, " + areas + " areas");
+				}
+			}
+		} finally {
+			for (String name : names)
+				new File(rawDir, name).delete();
+			rawDir.delete();
+		}
+	}
+
+	private static int countAreas(File rawDir, String name) {
+		BoundaryQuadTree bqt = BoundaryUtil.loadQuadTree(rawDir.getPath(), name);
+		if (bqt == null)
+			return 0;
+		return bqt.getAreas().values().stream().mapToInt(List::size).sum();
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package main;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import uk.me.parabola.imgfmt.Utils;
+import uk.me.parabola.imgfmt.app.Area;
+import uk.me.parabola.mkgmap.reader.osm.ElementSaver;
+import uk.me.parabola.mkgmap.reader.osm.MultiPolygonRelation;
+import uk.me.parabola.mkgmap.reader.osm.OsmReadingHooksAdaptor;
+import uk.me.parabola.mkgmap.reader.osm.Relation;
+import uk.me.parabola.mkgmap.reader.osm.Way;
+import uk.me.parabola.mkgmap.reader.osm.xml.OsmXmlHandler;
+import uk.me.parabola.util.EnhancedProperties;
+import uk.me.parabola.util.HoleCutter;
+
+/**
+ * Compare the timings of the multipolygon processing with the java area
+ * based cutter and the integer based hole cutter, using the multipolygons
+ * of an OSM file.
+ *
+ * Usage: MultiPolygonCutterTest file.osm [runs]
+ */
+public class MultiPolygonCutterTest {
+
+	/**
+	 * Keeps the multipolygon relations without processing them.
+	 */
+	private static class CollectingSaver extends ElementSaver {
+		private final List<Relation> relations = new ArrayList<>();
+
+		public CollectingSaver(EnhancedProperties args) {
+			super(args);
+		}
+
+		public Relation createMultiPolyRelation(Relation rel) {
+			relations.add(rel);
+			return rel;
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1) {
+			System.err.println("Usage: MultiPolygonCutterTest file.osm [runs]");
+			return;
+		}
+		int runs = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+		CollectingSaver saver = new CollectingSaver(new EnhancedProperties());
+		OsmXmlHandler handler = new OsmXmlHandler();
+		handler.setElementSaver(saver);
+		handler.setHooks(new OsmReadingHooksAdaptor());
+		try (InputStream is = Utils.openFile(args[0])) {
+			handler.parse(is);
+		}
+		Area bbox = saver.getBoundingBox();
+		System.out.println("Multipolygons: " + saver.relations.size() + ", bounding box " + bbox);
+
+		for (int run = 0; run < runs; run++) {
+			for (boolean useHoleCutter : new boolean[] { false, true }) {
+				Map<Long, Way> wayMap = new HashMap<>(saver.getWays());
+				int waysBefore = wayMap.size();
+				long start = System.nanoTime();
+				for (Relation rel : saver.relations) {
+					MultiPolygonRelation mpRel = new MultiPolygonRelation(rel, wayMap, bbox);
+					mpRel.setUseHoleCutter(useHoleCutter);
+					mpRel.processElements();
+				}
+				long ms = (System.nanoTime() - start) / 1000000;
+				// the area of the created polygons should be nearly equal
+				double area = 0;
+				for (Way w : wayMap.values()) {
+					if (!saver.getWays().containsKey(w.getId()) && w.hasIdenticalEndPoints())
+						area += Math.abs(HoleCutter.signedArea(w.getPoints())) / 2.0;
+				}
+				System.out.println("Run " + run + (useHoleCutter ? " integer cutter: " : " java area:      ")
+						+ ms + "ms, " + (wayMap.size() - waysBefore) + " polygons, area " + area);
+			}
+		}
+	}
+}
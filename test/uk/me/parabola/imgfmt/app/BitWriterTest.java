@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.imgfmt.app;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BitWriterTest {
+
+	@Test
+	public void testBitOrder() {
+		BitWriter bw = new BitWriter();
+		bw.put1(true);
+		bw.putn(0x18, 5);
+		bw.putn(0xf, 4);
+		bw.putn(0x709c, 16);
+		assertEquals(26, bw.getBitPosition());
+		assertEquals(4, bw.getLength());
+		byte[] bytes = bw.getBytes();
+		assertEquals((byte) 0xf1, bytes[0]);
+		assertEquals(0x73, bytes[1]);
+		assertEquals((byte) 0xc2, bytes[2]);
+		assertEquals(0x1, bytes[3]);
+	}
+
+	@Test
+	public void testWriteReadRandom() {
+		Random random = new Random(42);
+		int num = 5000;
+		int[] widths = new int[num];
+		int[] values = new int[num];
+		BitWriter bw = new BitWriter();
+		for (int i = 0; i < num; i++) {
+			widths[i] = 1 + random.nextInt(23);
+			values[i] = random.nextInt() & ((1 << widths[i]) - 1);
+			if (widths[i] == 1)
+				bw.put1(values[i] == 1);
+			else
+				bw.putn(values[i], widths[i]);
+			if (i % 1000 == 0) {
+				// reading the bytes must not change the stream
+				bw.getBytes();
+			}
+		}
+		BitReader br = new BitReader(bw.getBytes());
+		for (int i = 0; i < num; i++)
+			assertEquals(values[i], br.get(widths[i]));
+		assertEquals(bw.getBitPosition(), br.getBitPosition());
+		assertEquals((bw.getBitPosition() + 7) / 8, bw.getLength());
+	}
+}
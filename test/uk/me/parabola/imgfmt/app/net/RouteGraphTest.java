@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.imgfmt.app.net;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import uk.me.parabola.imgfmt.app.CoordNode;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RouteGraphTest {
+
+	/**
+	 * The groups are the same as those calculated by each node.
+	 */
+	@Test
+	public void testCalcGroups() {
+		Random random = new Random(7);
+		for (int run = 0; run < 20; run++) {
+			List<RouteNode> nodes = new ArrayList<>();
+			for (int i = 0; i < 300; i++)
+				nodes.add(new RouteNode(new CoordNode(i * 100, i * 50, i + 1, false, false)));
+			for (int r = 0; r < 200; r++) {
+				RoadDef road = new RoadDef(r, "road " + r);
+				road.setRoadClass(random.nextInt(5));
+				RouteNode prev = nodes.get(random.nextInt(nodes.size()));
+				int len = 1 + random.nextInt(5);
+				for (int i = 0; i < len; i++) {
+					RouteNode next = nodes.get(random.nextInt(nodes.size()));
+					addArc(road, prev, next);
+					addArc(road, next, prev);
+					prev = next;
+				}
+			}
+
+			byte[] groups = new RouteGraph(nodes).calcGroups();
+			assertEquals(nodes.size(), groups.length);
+			for (int i = 0; i < groups.length; i++)
+				assertEquals("node " + i, nodes.get(i).getGroup(), groups[i]);
+		}
+	}
+
+	/**
+	 * The indirect arcs are not used.
+	 */
+	@Test
+	public void testIndirectArcs() {
+		RouteNode n1 = new RouteNode(new CoordNode(0, 0, 1, false, false));
+		RouteNode n2 = new RouteNode(new CoordNode(100, 0, 2, false, false));
+		RoadDef minor = new RoadDef(1, "minor");
+		minor.setRoadClass(1);
+		RoadDef major = new RoadDef(2, "major");
+		major.setRoadClass(4);
+		addArc(minor, n1, n2);
+		addArc(major, n1, n2).setIndirect();
+
+		List<RouteNode> nodes = new ArrayList<>();
+		nodes.add(n1);
+		nodes.add(n2);
+		byte[] groups = new RouteGraph(nodes).calcGroups();
+		assertEquals(1, groups[0]);
+		assertEquals(-1, groups[1]);
+	}
+
+	/**
+	 * An indirect arc is added from the start of a road to the node where
+	 * it meets a major road, directly after the direct arc.
+	 */
+	@Test
+	public void testAddArcsToMajorRoads() {
+		List<RouteNode> nodes = new ArrayList<>();
+		for (int i = 0; i < 4; i++)
+			nodes.add(new RouteNode(new CoordNode(i * 100, 0, i + 1, false, false)));
+		RoadDef road = new RoadDef(1, "road");
+		road.setRoadClass(2);
+		road.setNode(nodes.get(0));
+		for (int i = 0; i + 1 < 4; i++) {
+			addArc(road, nodes.get(i), nodes.get(i + 1)).setForward();
+			addArc(road, nodes.get(i + 1), nodes.get(i));
+		}
+		// two minor roads at the first three nodes, two major roads at the last
+		int id = 10;
+		for (int i = 0; i < 4; i++) {
+			for (int k = 0; k < 2; k++) {
+				RoadDef other = new RoadDef(id, "other " + id);
+				other.setRoadClass(i < 3 ? 0 : 3);
+				RouteNode node = new RouteNode(new CoordNode(i * 100, 100 + k * 100, id, false, false));
+				nodes.add(node);
+				addArc(other, nodes.get(i), node).setForward();
+				addArc(other, node, nodes.get(i));
+				id++;
+			}
+		}
+
+		RouteGraph graph = new RouteGraph(nodes);
+		byte[] groups = graph.calcGroups();
+		for (int i = 0; i < groups.length; i++)
+			nodes.get(i).setGroup(groups[i]);
+		graph.addArcsToMajorRoads();
+
+		// the first two nodes get an arc to the last node
+		for (int i = 0; i < 2; i++) {
+			List<RouteArc> arcs = nodes.get(i).getArcs();
+			int direct = i == 0 ? 0 : 1;
+			assertTrue(arcs.get(direct).isDirect());
+			assertTrue(arcs.get(direct).isForward());
+			RouteArc arc = arcs.get(direct + 1);
+			assertFalse(arc.isDirect());
+			assertTrue(arc.isForward());
+			assertSame(road, arc.getRoadDef());
+			assertSame(nodes.get(3), arc.getDest());
+			// measured from the target node of the direct arc
+			assertEquals(10 * (2 - i), arc.getLengthInMeter(), 0);
+		}
+		for (int i = 2; i < nodes.size(); i++) {
+			for (RouteArc arc : nodes.get(i).getArcs())
+				assertTrue(arc.isDirect());
+		}
+	}
+
+	private static RouteArc addArc(RoadDef road, RouteNode source, RouteNode dest) {
+		RouteArc arc = new RouteArc(road, source, dest, 0, 0, 10, 10, 10, 0);
+		source.addArc(arc);
+		return arc;
+	}
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+
+package uk.me.parabola.mkgmap.filters;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import uk.me.parabola.imgfmt.app.Coord;
+import uk.me.parabola.mkgmap.general.LevelInfo;
+import uk.me.parabola.mkgmap.general.MapLine;
+
+/**
+ * Test for the {@link ProgressiveSimplifier}.
+ */
+public class ProgressiveSimplifierTest {
+	private static final double ERROR = 2.6;
+
+	private static MapLine createLine() {
+		List<Coord> points = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			points.add(new Coord(1000 + (i % 7) * 3, 1000 + i * 5));
+		}
+		MapLine line = new MapLine();
+		line.setPoints(points);
+		line.setMinResolution(16);
+		return line;
+	}
+
+	private static List<Coord> direct(List<Coord> points, int res) {
+		List<Coord> rounded = RoundCoordsFilter.round(points, 24 - res, false);
+		return DouglasPeuckerFilter.reduce(rounded, ERROR * (1 << (24 - res)));
+	}
+
+	@Test
+	public void testUnregistered() {
+		LevelInfo[] levels = LevelInfo.createFromString(LevelInfo.DEFAULT_LEVELS);
+		ProgressiveSimplifier simplifier = new ProgressiveSimplifier(levels, ERROR, false);
+		MapLine line = createLine();
+		assertSame(line.getPoints(), simplifier.getPoints(line, 24));
+		assertEquals(direct(line.getPoints(), 20), simplifier.getPoints(line, 20));
+	}
+
+	@Test
+	public void testProgressive() {
+		LevelInfo[] levels = LevelInfo.createFromString(LevelInfo.DEFAULT_LEVELS);
+		ProgressiveSimplifier simplifier = new ProgressiveSimplifier(levels, ERROR, false);
+		MapLine line = createLine();
+		simplifier.register(Collections.singletonList(line));
+
+		// levels are processed from the lowest resolution
+		List<Coord> res16 = simplifier.getPoints(line, 16);
+		List<Coord> res18 = simplifier.getPoints(line, 18);
+		List<Coord> res20 = simplifier.getPoints(line, 20);
+		List<Coord> res22 = simplifier.getPoints(line, 22);
+
+		assertEquals(direct(line.getPoints(), 22), res22);
+		assertEquals(direct(res22, 20), res20);
+		assertEquals(direct(res20, 18), res18);
+		assertEquals(direct(res18, 16), res16);
+
+		// the cached results are used only once
+		assertNotSame(res20, simplifier.getPoints(line, 20));
+	}
+}
@@ -427,6 +427,56 @@ public class ShapeMergeFilterTest {
 		testVariants("test two w-shaped", points1, points2, 1, 16);
 	}
 
+	/**
+	 * a grid of squares with two types, each type forms a checkerboard
+	 * pattern of shapes which only touch at corners, plus a row of 
+	 * squares that share edges
+	 */
+	@Test
+	public void testGrid(){
+		for (boolean parallel : new boolean[] { false, true }) {
+			List<MapShape> shapes = new ArrayList<>();
+			for (int lat = 0; lat < 40; lat += 10) {
+				for (int lon = 0; lon < 40; lon += 10) {
+					MapShape ms = new MapShape(shapes.size() + 1);
+					ms.setType(((lat + lon) / 10) % 2 == 0 ? 1 : 2);
+					ms.setMinResolution(22);
+					ms.setPoints(square(lat, lon, 10));
+					shapes.add(ms);
+				}
+			}
+			for (int lon = 0; lon < 40; lon += 5) {
+				MapShape ms = new MapShape(shapes.size() + 1);
+				ms.setType(3);
+				ms.setMinResolution(22);
+				ms.setPoints(square(50, lon, 5));
+				shapes.add(ms);
+			}
+			ShapeMergeFilter smf = new ShapeMergeFilter(24, false, parallel);
+			List<MapShape> res = smf.merge(shapes);
+			// each type is merged into one shape
+			int numType3 = 0;
+			for (MapShape ms : res) {
+				if (ms.getType() == 3) {
+					numType3++;
+					assertEquals(5, ms.getPoints().size());
+				}
+			}
+			assertEquals(1, numType3);
+			assertEquals(3, res.size());
+		}
+	}
+
+	private List<Coord> square(int lat, int lon, int size) {
+		List<Coord> points = new ArrayList<>();
+		points.add(getPoint(lat, lon));
+		points.add(getPoint(lat + size, lon));
+		points.add(getPoint(lat + size, lon + size));
+		points.add(getPoint(lat, lon + size));
+		points.add(points.get(0));
+		return points;
+	}
+
 	/**
 	 * Test all variants regarding clockwise/ccw direction and positions of the points 
 	 * in the list and the order of shapes. 
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.general;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MapAddressTest {
+
+	@Test
+	public void testNoAddress() {
+		MapPoint p = new MapPoint();
+		assertNull(p.getAddress());
+		assertNull(p.getCity());
+		assertNull(p.getName());
+		assertEquals(0, p.numLabels());
+		p.setZip(null);
+		assertNull(p.getAddress());
+	}
+
+	@Test
+	public void testSetFields() {
+		MapPoint p = new MapPoint();
+		p.setCity("Town");
+		p.setPhone("0049 123");
+		p.setIsIn("abc");
+		assertEquals("Town", p.getCity());
+		assertEquals("+49 123", p.getPhone());
+		assertEquals("ABC", p.getIsIn());
+		assertNull(p.getStreet());
+
+		p.setCity(null);
+		p.setIsIn("");
+		p.setIsIn(null);
+		assertNull(p.getCity());
+		assertEquals("", p.getIsIn());
+	}
+
+	@Test
+	public void testCopyOnWrite() {
+		MapPoint p1 = new MapPoint();
+		p1.setCountry("GBR");
+		p1.setCity("Town");
+		MapPoint p2 = p1.copy();
+		assertSame(p1.getAddress(), p2.getAddress());
+
+		p2.setCity("Other");
+		assertEquals("Town", p1.getCity());
+		assertEquals("Other", p2.getCity());
+		assertEquals("GBR", p2.getCountry());
+
+		p2.setCity("Town");
+		assertEquals(p1.getAddress(), p2.getAddress());
+		assertEquals(p1.getAddress().hashCode(), p2.getAddress().hashCode());
+	}
+
+	@Test
+	public void testLabels() {
+		MapLine l1 = new MapLine();
+		l1.add2Name("second");
+		assertNull(l1.getName());
+		assertEquals("second", l1.getLabels()[1]);
+
+		MapLine l2 = new MapLine();
+		assertEquals(4, l2.getLabels().length);
+		assertNull(l2.getLabels()[1]);
+
+		// an element without labels doesn't share its labels with others
+		l2.getLabels()[0] = "changed";
+		assertNull(l2.getName());
+		assertNull(new MapLine().getLabels()[0]);
+	}
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TileSchedulerTest {
+	private static final double PER_BYTE = TileScheduler.INITIAL_HEAP_PER_BYTE;
+
+	private final List<Long> started = Collections.synchronizedList(new ArrayList<>());
+	private final FakeHeap heap = new FakeHeap();
+
+	/**
+	 * The largest job is started first.
+	 */
+	@Test
+	public void testLargestFirst() throws Exception {
+		TileScheduler scheduler = new TileScheduler(0, 1, Long.MAX_VALUE, heap);
+		TestJob j10 = add(scheduler, 10);
+		TestJob j30 = add(scheduler, 30);
+		TestJob j20 = add(scheduler, 20);
+
+		scheduler.startJobs();
+		j30.awaitStart();
+		assertFalse(scheduler.isShutdown());
+		j30.finish();
+		scheduler.startJobs();
+		j20.awaitStart();
+		j20.finish();
+		scheduler.startJobs();
+		j10.awaitStart();
+		assertTrue("all jobs started", scheduler.isShutdown());
+		j10.finish();
+
+		assertEquals(Arrays.asList(30L, 20L, 10L), started);
+		assertEquals(1, scheduler.getMaxRunning());
+	}
+
+	/**
+	 * A smaller job is started next to a large one when it fits in the budget.
+	 */
+	@Test
+	public void testBudget() throws Exception {
+		TileScheduler scheduler = new TileScheduler(0, 4, (long) (25 * PER_BYTE), heap);
+		TestJob j20 = add(scheduler, 20);
+		TestJob j10 = add(scheduler, 10);
+		TestJob j5 = add(scheduler, 5);
+		TestJob j3 = add(scheduler, 3);
+
+		scheduler.startJobs();
+		j20.awaitStart();
+		j5.awaitStart();
+		assertEquals(new HashSet<>(Arrays.asList(20L, 5L)), new HashSet<>(started));
+
+		j20.finish();
+		scheduler.startJobs();
+		j10.awaitStart();
+		j3.awaitStart();
+		assertTrue("all jobs started", scheduler.isShutdown());
+		j5.finish();
+		j10.finish();
+		j3.finish();
+		assertEquals(3, scheduler.getMaxRunning());
+	}
+
+	/**
+	 * The estimate is replaced by the measured heap usage.
+	 */
+	@Test
+	public void testMeasuredHeap() throws Exception {
+		TileScheduler scheduler = new TileScheduler(0, 4, (long) (10 * PER_BYTE), heap);
+		List<TestJob> jobs = new ArrayList<>();
+		for (int i = 0; i < 4; i++)
+			jobs.add(add(scheduler, 10));
+
+		scheduler.startJobs();
+		jobs.get(0).awaitStart();
+		Thread.sleep(50);
+		assertEquals(1, started.size());
+
+		// the job needed a quarter of the estimate
+		heap.peak = (long) (10 * PER_BYTE / 4);
+		jobs.get(0).finish();
+		scheduler.startJobs();
+		for (TestJob job : jobs)
+			job.awaitStart();
+		assertEquals(3, scheduler.getMaxRunning());
+		for (TestJob job : jobs)
+			job.finish();
+	}
+
+	/**
+	 * No more jobs are started while the heap in use is above the budget.
+	 */
+	@Test
+	public void testLiveHeap() throws Exception {
+		TileScheduler scheduler = new TileScheduler(0, 2, (long) (100 * PER_BYTE), heap);
+		TestJob j1 = add(scheduler, 1);
+		TestJob j2 = add(scheduler, 2);
+		TestJob j3 = add(scheduler, 3);
+
+		scheduler.startJobs();
+		j3.awaitStart();
+		j2.awaitStart();
+
+		heap.live = (long) (100 * PER_BYTE);
+		j3.finish();
+		scheduler.startJobs();
+		Thread.sleep(50);
+		assertEquals(2, started.size());
+
+		heap.live = 0;
+		j2.finish();
+		scheduler.startJobs();
+		j1.awaitStart();
+		j1.finish();
+	}
+
+	/**
+	 * The thread pool is shut down when the only job is started.
+	 */
+	@Test
+	public void testSingleJob() throws Exception {
+		TileScheduler scheduler = new TileScheduler(0, 4, Long.MAX_VALUE, heap);
+		TestJob job = add(scheduler, 100);
+		scheduler.startJobs();
+		assertTrue(scheduler.isShutdown());
+		job.finish();
+		assertEquals(1, scheduler.getMaxRunning());
+	}
+
+	/**
+	 * With a fixed number of jobs they are all handed to the thread pool,
+	 * largest first.
+	 */
+	@Test
+	public void testMaxJobs() throws Exception {
+		TileScheduler scheduler = new TileScheduler(1, 4, 1, heap);
+		List<TestJob> jobs = new ArrayList<>();
+		for (long size : new long[] {1, 3, 2})
+			jobs.add(add(scheduler, size));
+		scheduler.startJobs();
+		assertTrue(scheduler.isShutdown());
+		for (TestJob job : jobs)
+			job.latch.countDown();
+		for (TestJob job : jobs)
+			job.task.get(10, TimeUnit.SECONDS);
+
+		assertEquals(Arrays.asList(3L, 2L, 1L), started);
+		assertEquals(1, scheduler.getMaxRunning());
+	}
+
+	private TestJob add(TileScheduler scheduler, long size) {
+		TestJob job = new TestJob(size);
+		scheduler.add(job.task, size);
+		return job;
+	}
+
+	private class TestJob {
+		private final CountDownLatch startLatch = new CountDownLatch(1);
+		private final CountDownLatch latch = new CountDownLatch(1);
+		private final FutureTask<String> task;
+
+		TestJob(long size) {
+			task = new FutureTask<>(() -> {
+				started.add(size);
+				startLatch.countDown();
+				latch.await();
+				return "done";
+			});
+		}
+
+		void awaitStart() throws InterruptedException {
+			assertTrue("job started", startLatch.await(10, TimeUnit.SECONDS));
+		}
+
+		void finish() throws Exception {
+			latch.countDown();
+			task.get(10, TimeUnit.SECONDS);
+		}
+	}
+
+	private static class FakeHeap implements TileScheduler.HeapMonitor {
+		private volatile long live;
+		private volatile long peak;
+
+		public long getLiveHeap() {
+			return live;
+		}
+
+		public long getPeakHeap() {
+			return peak;
+		}
+
+		public void resetPeak() {
+		}
+	}
+}
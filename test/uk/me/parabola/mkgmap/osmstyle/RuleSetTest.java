@@ -184,6 +184,26 @@ public class RuleSetTest {
 		assertNotNull("chain of commands", type);
 	}
 
+	/**
+	 * Rules with a type that can be reached from tags with a key prefix,
+	 * also through rules that only change tags.
+	 */
+	@Test
+	public void testTypedRulesForKeyPrefix() {
+		RuleSet rs = makeRuleSet("mkgmap:a=1 {set b=1}" +
+				"c=1 [0x1]");
+		assertFalse(rs.hasTypedRulesForKeyPrefix("mkgmap:"));
+
+		rs = makeRuleSet("mkgmap:a=1 {set b=1}" +
+				"b=1 [0x1]");
+		assertTrue(rs.hasTypedRulesForKeyPrefix("mkgmap:"));
+
+		rs = makeRuleSet("c=1 {set d=1}" +
+				"mkgmap:a=* {set b=1} [0x2]");
+		assertTrue(rs.hasTypedRulesForKeyPrefix("mkgmap:"));
+		assertFalse(rs.hasTypedRulesForKeyPrefix("x:"));
+	}
+
 	/**
 	 * Append to a variable in the correct order as in the rule set.
 	 */
@@ -18,9 +18,17 @@ package uk.me.parabola.mkgmap.osmstyle;
 
 import java.io.FileNotFoundException;
 import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import uk.me.parabola.mkgmap.reader.osm.Style;
 import uk.me.parabola.mkgmap.reader.osm.StyleInfo;
+import uk.me.parabola.util.EnhancedProperties;
 
 import org.junit.Test;
 
@@ -94,6 +102,66 @@ public class StyleImplTest {
 		if (style != null) style= null; // pseudo use the value to calm down FindBugs
 	}
 
+	/**
+	 * A style is only read once for the same style options.
+	 */
+	@Test
+	public void testReadStyleCached() {
+		EnhancedProperties props = new EnhancedProperties();
+		props.setProperty("style-file", STYLE_LOC);
+		props.setProperty("style", "simple");
+		Style style = StyleImpl.readStyle(props);
+		assertSame(style, StyleImpl.readStyle(props));
+		assertSame(style.getLineRules(), style.getLineRules());
+
+		props.setProperty("style-option", "car");
+		assertNotSame(style, StyleImpl.readStyle(props));
+
+		props.setProperty("style", "derived");
+		assertNotSame(style, StyleImpl.readStyle(props));
+	}
+
+	/**
+	 * The styles are read again in the next run.
+	 */
+	@Test
+	public void testClearStyleCache() {
+		EnhancedProperties props = new EnhancedProperties();
+		props.setProperty("style-file", STYLE_LOC);
+		props.setProperty("style", "simple");
+		Style style = StyleImpl.readStyle(props);
+		StyleImpl.clearStyleCache();
+		assertNotSame(style, StyleImpl.readStyle(props));
+	}
+
+	/**
+	 * The tile threads share one style, the rules are prepared by the
+	 * first thread that uses them.
+	 */
+	@Test
+	public void testSharedStyle() throws Exception {
+		Set<String> expected = new StyleImpl(STYLE_LOC, "simple").getUsedNodeTags();
+		int nThreads = 8;
+		ExecutorService pool = Executors.newFixedThreadPool(nThreads);
+		try {
+			for (int i = 0; i < 20; i++) {
+				final StyleImpl style = new StyleImpl(STYLE_LOC, "simple");
+				List<Callable<Set<String>>> tasks = new ArrayList<>();
+				for (int t = 0; t < nThreads; t++) {
+					tasks.add(() -> {
+						Set<String> tags = style.getUsedNodeTags();
+						assertNotNull(style.getNodeRules());
+						return tags;
+					});
+				}
+				for (Future<Set<String>> f : pool.invokeAll(tasks))
+					assertEquals(expected, f.get());
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
 	private void printStyle(StyleImpl in) {
 		in.dumpToFile(new OutputStreamWriter(System.out));
 	}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.reader.osm;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import uk.me.parabola.imgfmt.app.Coord;
+import uk.me.parabola.mkgmap.reader.osm.xml.OsmXmlHandler;
+import uk.me.parabola.util.EnhancedProperties;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ElementSaverTest {
+
+	/**
+	 * The ways made by --parallel-multipolygons are the same as without
+	 * the option, with the same ids and in the same order. Some of the
+	 * multipolygons share their member ways.
+	 */
+	@Test
+	public void testParallelMultiPolygons() throws Exception {
+		String osm = makeOsm(30);
+		List<String> expected = loadWays(osm, false);
+		List<String> result = loadWays(osm, true);
+		assertTrue("ways were created", expected.size() > 100);
+		assertEquals(expected, result);
+	}
+
+	/**
+	 * Relations that share a way directly or through other relations are
+	 * in one group.
+	 */
+	@Test
+	public void testGroupBySharedWays() {
+		Way[] ways = new Way[6];
+		for (int i = 0; i < ways.length; i++)
+			ways[i] = new Way(i + 1);
+		List<Relation> relations = new ArrayList<>();
+		relations.add(relation(ways[0], ways[1]));
+		relations.add(relation(ways[2]));
+		relations.add(relation(ways[3], new Node(1, new Coord(51.0, 0.0))));
+		relations.add(relation(ways[1], ways[4]));
+		relations.add(relation(ways[5], ways[3]));
+		relations.add(relation(ways[4]));
+		relations.add(relation());
+
+		List<List<Integer>> groups = ElementSaver.groupBySharedWays(relations);
+		assertEquals(Arrays.asList(Arrays.asList(0, 3, 5), Arrays.asList(1), Arrays.asList(2, 4), Arrays.asList(6)),
+				groups);
+	}
+
+	private static Relation relation(Element... members) {
+		Relation rel = new GeneralRelation(1);
+		for (Element el : members)
+			rel.addElement("outer", el);
+		return rel;
+	}
+
+	/**
+	 * Read the OSM data and describe the ways in the way map.
+	 */
+	private static List<String> loadWays(String osm, boolean parallel) throws Exception {
+		EnhancedProperties props = new EnhancedProperties();
+		props.setProperty("preserve-element-order", "");
+		if (parallel)
+			props.setProperty("parallel-multipolygons", "");
+		ElementSaver saver = new ElementSaver(props);
+		OsmXmlHandler handler = new OsmXmlHandler();
+		handler.setElementSaver(saver);
+		handler.setHooks(new OsmReadingHooksAdaptor());
+
+		FakeIdGenerator.startTile();
+		try {
+			handler.parse(new ByteArrayInputStream(osm.getBytes(StandardCharsets.UTF_8)));
+			saver.finishLoading();
+		} finally {
+			FakeIdGenerator.endTile();
+		}
+
+		List<String> ways = new ArrayList<>();
+		for (Map.Entry<Long, Way> entry : saver.getWays().entrySet()) {
+			Way way = entry.getValue();
+			Map<String, String> tags = new TreeMap<>();
+			for (Map.Entry<String, String> tag : way.getTagEntryIterator())
+				tags.put(tag.getKey(), tag.getValue());
+			StringBuilder sb = new StringBuilder();
+			sb.append(entry.getKey()).append(' ').append(way.getId()).append(' ').append(way.getOriginalId());
+			sb.append(' ').append(tags);
+			for (Coord co : way.getPoints())
+				sb.append(' ').append(co.getHighPrecLat()).append('/').append(co.getHighPrecLon());
+			ways.add(sb.toString());
+		}
+		return ways;
+	}
+
+	/**
+	 * Make a row of squares with a hole. Each square is the outer way of a
+	 * multipolygon, every third square is also used by a second
+	 * multipolygon. Every fourth outer ring is made of two open ways.
+	 */
+	private static String makeOsm(int count) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("<?xml version='1.0' encoding='UTF-8'?>\n<osm version='0.6'>\n");
+		StringBuilder ways = new StringBuilder();
+		StringBuilder rels = new StringBuilder();
+		long nodeId = 1;
+		for (int i = 0; i < count; i++) {
+			double lon = i * 0.01;
+			long first = nodeId;
+			// the outer square and the hole
+			double[][] corners = {
+					{51.0, lon}, {51.0, lon + 0.008}, {51.008, lon + 0.008}, {51.008, lon},
+					{51.002, lon + 0.002}, {51.002, lon + 0.005}, {51.005, lon + 0.005}, {51.005, lon + 0.002},
+			};
+			for (double[] c : corners)
+				sb.append(String.format(Locale.ROOT, "<node id='%d' lat='%.7f' lon='%.7f'/>\n", nodeId++, c[0], c[1]));
+
+			if (i % 4 == 1) {
+				ways.append(way(1000 + i, first, first + 1, first + 2));
+				ways.append(way(1500 + i, first + 2, first + 3, first));
+			} else {
+				ways.append(way(1000 + i, first, first + 1, first + 2, first + 3, first));
+			}
+			ways.append(way(2000 + i, first + 4, first + 5, first + 6, first + 7, first + 4));
+
+			rels.append("<relation id='").append(3000 + i).append("'>\n");
+			rels.append(member(1000 + i, "outer"));
+			if (i % 4 == 1)
+				rels.append(member(1500 + i, "outer"));
+			rels.append(member(2000 + i, "inner"));
+			rels.append("<tag k='type' v='multipolygon'/>\n<tag k='landuse' v='forest'/>\n</relation>\n");
+
+			if (i % 3 == 0) {
+				rels.append("<relation id='").append(4000 + i).append("'>\n");
+				rels.append(member(1000 + i, "outer"));
+				rels.append("<tag k='type' v='multipolygon'/>\n<tag k='natural' v='wood'/>\n</relation>\n");
+			}
+		}
+		sb.append(ways).append(rels).append("</osm>\n");
+		return sb.toString();
+	}
+
+	private static String way(long id, long... nodes) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("<way id='").append(id).append("'>\n");
+		for (long node : nodes)
+			sb.append("<nd ref='").append(node).append("'/>\n");
+		if (id % 7 == 0)
+			sb.append("<tag k='building' v='yes'/>\n");
+		sb.append("</way>\n");
+		return sb.toString();
+	}
+
+	private static String member(long id, String role) {
+		return "<member type='way' ref='" + id + "' role='" + role + "'/>\n";
+	}
+}
@@ -77,4 +77,38 @@ public class ElementTest {
 		assertEquals("", el.getTag("g"));
 		assertEquals("", el.getTag("h"));
 	}
+
+	/**
+	 * Elements made with temporary ids get the ids that they would have
+	 * got without them.
+	 */
+	@Test
+	public void testReplaceTemporaryId() {
+		Way[] ways = new Way[3];
+		long count1 = FakeIdGenerator.runWithTemporaryIds(() -> {
+			ways[0] = new Way(1);
+			ways[0].setFakeId();
+			ways[1] = new Way(2);
+			ways[1].setFakeId();
+		});
+		long count2 = FakeIdGenerator.runWithTemporaryIds(() -> {
+			ways[2] = new Way(3);
+			ways[2].setFakeId();
+		});
+		assertEquals(2, count1);
+		assertEquals(1, count2);
+		assertTrue(FakeIdGenerator.isTemporaryId(ways[0].getId()));
+
+		long next = FakeIdGenerator.makeFakeId();
+		long offset = FakeIdGenerator.reserveFakeIds(count1);
+		ways[0].replaceTemporaryId(offset);
+		ways[1].replaceTemporaryId(offset);
+		ways[2].replaceTemporaryId(FakeIdGenerator.reserveFakeIds(count2));
+
+		assertEquals(next + 1, ways[0].getId());
+		assertEquals(next + 2, ways[1].getId());
+		assertEquals(next + 3, ways[2].getId());
+		assertEquals(2, ways[1].getOriginalId());
+		assertEquals(next + 4, FakeIdGenerator.makeFakeId());
+	}
 }
@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.reader.osm.boundary;
+
+import java.awt.Polygon;
+import java.awt.Rectangle;
+import java.awt.geom.Area;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import uk.me.parabola.imgfmt.app.Coord;
+import uk.me.parabola.mkgmap.reader.osm.Tags;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MappedBoundaryTreeTest {
+	private static final String FILE_NAME = "bounds_0_0.bnd";
+	private static final int STEP = 250;
+
+	private static BoundaryQuadTree quadTree;
+	private static MappedBoundaryTree mappedTree;
+
+	@BeforeClass
+	public static void createTrees() throws IOException {
+		quadTree = new BoundaryQuadTree(BoundaryUtil.getBbox(FILE_NAME), createBoundaries(), null);
+		ByteArrayOutputStream data = new ByteArrayOutputStream();
+		quadTree.saveMapped(data);
+		mappedTree = new MappedBoundaryTree(ByteBuffer.wrap(data.toByteArray()), null);
+	}
+
+	/**
+	 * Overlapping boundaries with diagonal edges and a hole, the vertices
+	 * are on the grid of the tested points.
+	 */
+	private static List<Boundary> createBoundaries() {
+		List<Boundary> boundaries = new ArrayList<>();
+		boundaries.add(boundary("r1", "2", "Country",
+				new Area(new Rectangle(STEP, STEP, 190 * STEP, 190 * STEP))));
+		boundaries.add(boundary("r2", "4", "West",
+				new Area(polygon(STEP, STEP, 100 * STEP, STEP, 60 * STEP, 191 * STEP, STEP, 191 * STEP))));
+		boundaries.add(boundary("r3", "4", "East",
+				new Area(polygon(100 * STEP, STEP, 191 * STEP, STEP, 191 * STEP, 191 * STEP, 60 * STEP, 191 * STEP))));
+		Area withHole = new Area(polygon(20 * STEP, 20 * STEP, 150 * STEP, 40 * STEP, 130 * STEP, 170 * STEP, 30 * STEP, 120 * STEP));
+		withHole.subtract(new Area(polygon(70 * STEP, 70 * STEP, 110 * STEP, 80 * STEP, 90 * STEP, 110 * STEP)));
+		boundaries.add(boundary("r4", "6", "County", withHole));
+		boundaries.add(boundary("r5", "8", "Town",
+				new Area(polygon(80 * STEP, 130 * STEP, 95 * STEP, 120 * STEP, 110 * STEP, 135 * STEP, 95 * STEP, 150 * STEP))));
+		return boundaries;
+	}
+
+	private static Boundary boundary(String id, String adminLevel, String name, Area area) {
+		Tags tags = new Tags();
+		tags.put("boundary", "administrative");
+		tags.put("admin_level", adminLevel);
+		tags.put("name", name);
+		return new Boundary(area, tags, id);
+	}
+
+	private static Polygon polygon(int... xy) {
+		Polygon polygon = new Polygon();
+		for (int i = 0; i < xy.length; i += 2)
+			polygon.addPoint(xy[i], xy[i + 1]);
+		return polygon;
+	}
+
+	/**
+	 * The lookups give the same tags as the BoundaryQuadTree that was
+	 * written, also for points on the edges and vertices.
+	 */
+	@Test
+	public void testLookups() {
+		MappedBoundaryTree.Searcher searcher = mappedTree.getSearcher();
+		int found = 0;
+		for (int lat = 0; lat <= 200 * STEP; lat += STEP) {
+			for (int lon = 0; lon <= 200 * STEP; lon += STEP) {
+				Coord co = new Coord(lat, lon);
+				String expected = String.valueOf(quadTree.get(co));
+				assertEquals(co.toString(), expected, String.valueOf(mappedTree.get(co)));
+				assertEquals(co.toString(), expected, String.valueOf(searcher.get(co)));
+				if (!"null".equals(expected))
+					found++;
+			}
+		}
+		assertTrue(found > 100 * 100);
+	}
+
+	/**
+	 * The tree can be converted back into a BoundaryQuadTree.
+	 */
+	@Test
+	public void testConvert() {
+		BoundaryQuadTree converted = new BoundaryQuadTree(mappedTree, BoundaryUtil.getBbox(FILE_NAME), null);
+		assertEquals(quadTree.getTagsMap().keySet(), converted.getTagsMap().keySet());
+		for (int lat = STEP / 2; lat <= 200 * STEP; lat += STEP) {
+			for (int lon = STEP / 2; lon <= 200 * STEP; lon += STEP) {
+				Coord co = new Coord(lat, lon);
+				assertEquals(co.toString(), String.valueOf(quadTree.get(co)), String.valueOf(converted.get(co)));
+			}
+		}
+	}
+
+	/**
+	 * Files in MAPPED_DATA_FORMAT in a directory are mapped, the other
+	 * files are read into a BoundaryQuadTree.
+	 */
+	@Test
+	public void testLoadTrees() throws IOException {
+		for (String format : Arrays.asList(BoundarySaver.MAPPED_DATA_FORMAT, BoundarySaver.QUADTREE_DATA_FORMAT)) {
+			File dir = Files.createTempDirectory("mkgmap-test").toFile();
+			try {
+				BoundarySaver saver = new BoundarySaver(dir, format);
+				saver.saveQuadTree(quadTree, FILE_NAME);
+				saver.end();
+
+				Map<String, MappedBoundaryTree> mappedTrees = new HashMap<>();
+				Map<String, BoundaryQuadTree> trees = BoundaryUtil.loadTrees(dir,
+						Arrays.asList(FILE_NAME, "bounds_0_50000.bnd"), null, null, mappedTrees);
+				Coord co = new Coord(125 * STEP, 90 * STEP);
+				if (format == BoundarySaver.MAPPED_DATA_FORMAT) {
+					assertEquals(Collections.singleton(FILE_NAME), mappedTrees.keySet());
+					assertTrue(trees.isEmpty());
+					assertEquals(quadTree.get(co).toString(), mappedTrees.get(FILE_NAME).get(co).toString());
+				} else {
+					assertEquals(Collections.singleton(FILE_NAME), trees.keySet());
+					assertTrue(mappedTrees.isEmpty());
+					assertEquals(quadTree.get(co).toString(), trees.get(FILE_NAME).get(co).toString());
+				}
+				// the tools read both formats into a BoundaryQuadTree
+				BoundaryQuadTree loaded = BoundaryUtil.loadQuadTree(dir.getPath(), FILE_NAME);
+				assertEquals(quadTree.get(co).toString(), loaded.get(co).toString());
+			} finally {
+				for (File file : dir.listFiles())
+					file.delete();
+				dir.delete();
+			}
+		}
+	}
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.reader.polish;
+
+import java.util.List;
+import java.util.Random;
+
+import uk.me.parabola.imgfmt.app.Coord;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CoordParserTest {
+
+	/**
+	 * The numbers that are handled give exactly the same double as
+	 * Double.parseDouble().
+	 */
+	@Test
+	public void testSameAsParseDouble() {
+		String[] values = {
+				"0", "-0", "+0", "51", "-51", "+51", "51.5", "-0.5", "+0.5",
+				".5", "-.5", "5.", "-5.", "0.1", "0.3", "179.999999", "-89.99999999",
+				"51.1234567", "1.00000000000000", "0.000000000000000000001",
+				"51.12345678901234", "9007199254740991", "0.9007199254740991",
+				"123456789012345", "12.3456789012345", "1.234567890123456",
+		};
+		for (String s : values)
+			checkSame(s, true);
+	}
+
+	@Test
+	public void testRandomNumbers() {
+		Random random = new Random(42);
+		for (int i = 0; i < 100000; i++) {
+			int intDigits = random.nextInt(4);
+			int fractionDigits = random.nextInt(16 - intDigits);
+			StringBuilder sb = new StringBuilder();
+			if (random.nextBoolean())
+				sb.append('-');
+			for (int d = 0; d < intDigits; d++)
+				sb.append((char) ('0' + random.nextInt(10)));
+			sb.append('.');
+			for (int d = 0; d < fractionDigits; d++)
+				sb.append((char) ('0' + random.nextInt(10)));
+			if (intDigits + fractionDigits == 0)
+				sb.append('0');
+			checkSame(sb.toString(), true);
+		}
+	}
+
+	/**
+	 * Numbers with too many digits are left to Double.parseDouble().
+	 */
+	@Test
+	public void testTooManyDigits() {
+		checkSame("51.123456789012345", false);
+		checkSame("51.1234567890123456", false);
+		checkSame("12345678901234567", false);
+		// more than 22 fraction digits
+		checkSame("0.00000000000000000000001", false);
+		checkSame("0.000000000000000000000000000005", false);
+	}
+
+	@Test
+	public void testNotNumbers() {
+		for (String s : new String[] {"", ".", "-", "+", "-.", "1e5", "1.5e-3", "0x10", "1.2.3", "1,5", "\t1"})
+			assertTrue(s, Double.isNaN(CoordParser.parseDouble(s)));
+	}
+
+	@Test
+	public void testParseList() {
+		List<Coord> coords = CoordParser.parse("(51.5,-0.5),(51.6,-0.4), ( 51.7 , -0.3 )");
+		assertNotNull(coords);
+		assertEquals(3, coords.size());
+		assertEquals(new Coord(51.5, -0.5), coords.get(0));
+		assertEquals(new Coord(51.6, -0.4), coords.get(1));
+		assertEquals(new Coord(51.7, -0.3), coords.get(2));
+		assertEquals(1, CoordParser.parse("(+51.5,.5)").size());
+	}
+
+	/**
+	 * The values that must be read in the old way.
+	 */
+	@Test
+	public void testFallback() {
+		String[] values = {
+				"(51.5e0,-0.5)", "(51.5,-5E-1)", "(51.5,\t-0.5)", "(51.5,-0.5)\t", "(51.5,-0.5),",
+				"(51.5,-0.5),,(51.6,-0.4)", "51.5,-0.5", "(51.5,-0.5", "(51.5;-0.5)", "(51.5)", "",
+				"(51.123456789012345,-0.5)",
+		};
+		for (String s : values)
+			assertNull(s, CoordParser.parse(s));
+	}
+
+	private static void checkSame(String s, boolean handled) {
+		double d = CoordParser.parseDouble(s);
+		if (Double.isNaN(d)) {
+			assertFalse(s + " should be handled", handled);
+			return;
+		}
+		assertTrue(s + " should not be handled", handled);
+		assertEquals(s, Double.doubleToRawLongBits(Double.parseDouble(s)), Double.doubleToRawLongBits(d));
+	}
+}
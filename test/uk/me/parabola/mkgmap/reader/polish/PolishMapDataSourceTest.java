@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.reader.polish;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import uk.me.parabola.imgfmt.app.Coord;
+import uk.me.parabola.mkgmap.general.MapLine;
+import uk.me.parabola.mkgmap.general.MapPoint;
+import uk.me.parabola.mkgmap.general.MapShape;
+import uk.me.parabola.util.EnhancedProperties;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PolishMapDataSourceTest {
+	// the ways in which the coordinates are written, the last ones are read
+	// without the CoordParser
+	private static final String[] COORD_FORMATS = {
+			"(%s,%s)", "( %s , %s )", "(%se0,%s)", "(%s,\t%s)", "(%s00000000000000,%s)",
+	};
+
+	/**
+	 * The file is read in the same way with --parallel-mp-parsing. It has
+	 * more lines than a batch and some points are shared.
+	 */
+	@Test
+	public void testParallelParsing() throws IOException {
+		File file = File.createTempFile("mkgmap-test", ".mp");
+		try {
+			writeTestFile(file, 4000);
+			List<String> expected = readElements(file, false);
+			assertTrue(expected.size() > 8000);
+			assertEquals(expected, readElements(file, true));
+		} finally {
+			file.delete();
+		}
+	}
+
+	private static void writeTestFile(File file, int count) throws IOException {
+		try (Writer w = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.ISO_8859_1)) {
+			w.write("[IMG ID]\nID=63240001\nName=test\nLevels=2\nLevel0=24\nLevel1=20\n[END-IMG ID]\n\n");
+			for (int i = 0; i < count; i++) {
+				String lat = String.valueOf(51 + i / 1000.0);
+				String lon = String.valueOf(-0.5 + (i % 100) / 7.0);
+				String next = String.valueOf(51 + (i + 1) / 1000.0);
+				String coord = format(i, lat, lon);
+				w.write("[POI]\nType=0x2f00\nLabel=poi " + i + "\nData0=" + coord + "\n[END]\n\n");
+				w.write("[POLYLINE]\nType=0x" + Integer.toHexString(1 + i % 6) + "\nLabel=line " + i + "\n");
+				w.write("Data" + i % 2 + "=" + coord + "," + format(i + 1, next, lon) + ",(" + next + ",0.25)\n[END]\n\n");
+				if (i % 10 == 0) {
+					w.write("[POLYGON]\nType=0x4e\nData0=(" + lat + ",1),(" + next + ",1),(" + next + ",1.5)," + coord + "\n[END]\n\n");
+				}
+			}
+		}
+	}
+
+	private static String format(int i, String lat, String lon) {
+		return String.format(COORD_FORMATS[i % COORD_FORMATS.length], lat, lon);
+	}
+
+	/**
+	 * Read the file and describe its elements. The points that are the
+	 * same object are numbered in the order in which they are first seen.
+	 */
+	private static List<String> readElements(File file, boolean parallel) throws IOException {
+		EnhancedProperties props = new EnhancedProperties();
+		if (parallel)
+			props.setProperty("parallel-mp-parsing", "");
+		PolishMapDataSource src = new PolishMapDataSource();
+		src.config(props);
+		src.load(file.getPath(), false);
+
+		Map<Coord, Integer> ids = new IdentityHashMap<>();
+		List<String> elements = new ArrayList<>();
+		for (MapPoint p : src.getPoints())
+			elements.add(p.getType() + " " + p.getName() + " " + describe(p.getLocation(), ids));
+		for (MapLine line : src.getLines())
+			elements.add(line.getType() + " " + line.getName() + " " + line.getMinResolution() + " " + describe(line.getPoints(), ids));
+		for (MapShape shape : src.getShapes())
+			elements.add(shape.getType() + " " + describe(shape.getPoints(), ids));
+		return elements;
+	}
+
+	private static String describe(List<Coord> points, Map<Coord, Integer> ids) {
+		StringBuilder sb = new StringBuilder();
+		for (Coord co : points)
+			sb.append(describe(co, ids)).append(' ');
+		return sb.toString();
+	}
+
+	private static String describe(Coord co, Map<Coord, Integer> ids) {
+		Integer id = ids.computeIfAbsent(co, k -> ids.size());
+		return co.getHighPrecLat() + "/" + co.getHighPrecLon() + "#" + id;
+	}
+}
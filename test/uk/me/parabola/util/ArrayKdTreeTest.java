@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import uk.me.parabola.imgfmt.app.Coord;
+import uk.me.parabola.mkgmap.general.MapPoint;
+
+import static org.junit.Assert.*;
+
+public class ArrayKdTreeTest {
+
+	private static List<MapPoint> createPoints(Random random, int num) {
+		List<MapPoint> points = new ArrayList<>();
+		for (int i = 0; i < num; i++) {
+			MapPoint p = new MapPoint();
+			if (i > 0 && random.nextInt(10) == 0) {
+				// same location as another point
+				p.setLocation(points.get(random.nextInt(i)).getLocation());
+			} else {
+				p.setLocation(new Coord(2500000 + random.nextInt(20000), random.nextInt(20000)));
+			}
+			points.add(p);
+		}
+		return points;
+	}
+
+	/**
+	 * Sort the points by distance like the tree does.
+	 */
+	private static List<MapPoint> sortByDistance(List<MapPoint> points, Coord co) {
+		List<MapPoint> sorted = new ArrayList<>(points);
+		// the sort is stable, so points with equal distance keep their order
+		Collections.sort(sorted, Comparator.comparingDouble(p -> p.getLocation().distanceInDegreesSquared(co)));
+		return sorted;
+	}
+
+	@Test
+	public void testEmpty() {
+		ArrayKdTree<MapPoint> t = new ArrayKdTree<>(new ArrayList<MapPoint>());
+		MapPoint toFind = new MapPoint();
+		toFind.setLocation(new Coord(10, 10));
+		assertNull(t.findNextPoint(toFind));
+		assertTrue(t.findNextPoints(toFind, 3).isEmpty());
+		assertTrue(t.findPointsInRadius(toFind, 1000).isEmpty());
+	}
+
+	@Test
+	public void testFindNextPoint() {
+		Random random = new Random(4711);
+		List<MapPoint> points = createPoints(random, 2000);
+		ArrayKdTree<MapPoint> t = new ArrayKdTree<>(points);
+		assertEquals(points.size(), t.size());
+		MapPoint toFind = new MapPoint();
+		for (int i = 0; i < 2000; i++) {
+			Coord co = new Coord(2495000 + random.nextInt(30000), -5000 + random.nextInt(30000));
+			toFind.setLocation(co);
+			assertSame(sortByDistance(points, co).get(0), t.findNextPoint(toFind));
+		}
+		// the points of the tree, equal locations return the first point
+		for (MapPoint p : points) {
+			assertSame(sortByDistance(points, p.getLocation()).get(0), t.findNextPoint(p));
+		}
+	}
+
+	@Test
+	public void testFindNextPoints() {
+		Random random = new Random(42);
+		List<MapPoint> points = createPoints(random, 500);
+		ArrayKdTree<MapPoint> t = new ArrayKdTree<>(points);
+		MapPoint toFind = new MapPoint();
+		for (int i = 0; i < 500; i++) {
+			Coord co = new Coord(2495000 + random.nextInt(30000), -5000 + random.nextInt(30000));
+			toFind.setLocation(co);
+			int k = 1 + random.nextInt(20);
+			assertEquals(sortByDistance(points, co).subList(0, k), t.findNextPoints(toFind, k));
+		}
+		assertEquals(points.size(), t.findNextPoints(toFind, 1000).size());
+	}
+
+	@Test
+	public void testFindPointsInRadius() {
+		Random random = new Random(1);
+		List<MapPoint> points = createPoints(random, 500);
+		ArrayKdTree<MapPoint> t = new ArrayKdTree<>(points);
+		MapPoint toFind = new MapPoint();
+		for (int i = 0; i < 500; i++) {
+			Coord co = new Coord(2495000 + random.nextInt(30000), -5000 + random.nextInt(30000));
+			toFind.setLocation(co);
+			double maxDist = random.nextInt(20000);
+			double maxDistSquared = Math.pow(maxDist * 360 / Coord.U, 2);
+			List<MapPoint> expected = new ArrayList<>();
+			for (MapPoint p : sortByDistance(points, co)) {
+				if (p.getLocation().distanceInDegreesSquared(co) <= maxDistSquared)
+					expected.add(p);
+			}
+			assertEquals(expected, t.findPointsInRadius(toFind, maxDist));
+		}
+	}
+}
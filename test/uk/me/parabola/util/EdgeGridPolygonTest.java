@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.Polygon;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import uk.me.parabola.imgfmt.app.Coord;
+
+public class EdgeGridPolygonTest {
+
+	/**
+	 * Compare the results with java.awt.Polygon for a star shaped polygon 
+	 * with many points.
+	 */
+	@Test
+	public void testSameAsPolygon() {
+		Random random = new Random(42);
+		List<Coord> points = new ArrayList<>();
+		int n = 500;
+		for (int i = 0; i < n; i++) {
+			double angle = 2 * Math.PI * i / n;
+			double r = 1000 + random.nextInt(800);
+			points.add(Coord.makeHighPrecCoord((int) (r * Math.sin(angle)), (int) (r * Math.cos(angle))));
+		}
+		points.add(points.get(0));
+		Polygon polygon = Java2DConverter.createHighPrecPolygon(points);
+		EdgeGridPolygon egp = new EdgeGridPolygon(points);
+		for (int i = 0; i < 20000; i++) {
+			int x = random.nextInt(4000) - 2000;
+			int y = random.nextInt(4000) - 2000;
+			assertEquals(polygon.contains(x, y), egp.contains(x, y));
+		}
+		// points of the polygon
+		for (Coord co : points) {
+			int x = co.getHighPrecLon();
+			int y = co.getHighPrecLat();
+			assertEquals(polygon.contains(x, y), egp.contains(x, y));
+		}
+	}
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import uk.me.parabola.imgfmt.app.Area;
+import uk.me.parabola.imgfmt.app.Coord;
+
+/**
+ * Tests for {@link HoleCutter}.
+ */
+public class HoleCutterTest {
+
+	/**
+	 * Create a closed rectangle in map units.
+	 */
+	private static List<Coord> rectangle(int minLat, int minLon, int maxLat, int maxLon) {
+		Coord start = new Coord(minLat, minLon);
+		return new ArrayList<>(Arrays.asList(start, new Coord(minLat, maxLon),
+				new Coord(maxLat, maxLon), new Coord(maxLat, minLon), start));
+	}
+
+	/** area of a rectangle in map units in the units of {@link HoleCutter#signedArea(List)} */
+	private static long area(int height, int width) {
+		return 2L * (height << Coord.DELTA_SHIFT) * (width << Coord.DELTA_SHIFT);
+	}
+
+	private static long totalArea(List<List<Coord>> shapes) {
+		long area = 0;
+		for (List<Coord> shape : shapes) {
+			assertTrue(shape.get(0).highPrecEquals(shape.get(shape.size() - 1)));
+			area += Math.abs(HoleCutter.signedArea(shape));
+		}
+		return area;
+	}
+
+	private static void assertNotInside(List<List<Coord>> shapes, int lat, int lon) {
+		for (List<Coord> shape : shapes) {
+			EdgeGridPolygon polygon = new EdgeGridPolygon(shape);
+			assertFalse(polygon.contains(lon << Coord.DELTA_SHIFT, lat << Coord.DELTA_SHIFT));
+		}
+	}
+
+	@Test
+	public void testSingleHole() {
+		List<Coord> outer = rectangle(0, 0, 100, 100);
+		List<List<Coord>> holes = new ArrayList<>();
+		holes.add(rectangle(40, 40, 60, 60));
+		List<List<Coord>> res = new HoleCutter(null).cut(outer, holes);
+		assertNotNull(res);
+		assertEquals(2, res.size());
+		assertEquals(area(100, 100) - area(20, 20), totalArea(res));
+		assertNotInside(res, 50, 50);
+	}
+
+	@Test
+	public void testManyHolesClipped() {
+		List<Coord> outer = rectangle(0, 0, 1000, 1000);
+		List<List<Coord>> holes = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			for (int j = 0; j < 10; j++) {
+				int lat = 20 + i * 100;
+				int lon = 20 + j * 100;
+				// alternate the direction of the holes
+				List<Coord> hole = rectangle(lat, lon, lat + 50, lon + 30);
+				if ((i + j) % 2 == 0)
+					java.util.Collections.reverse(hole);
+				holes.add(hole);
+			}
+		}
+		// the bounds cut through some holes
+		Area bounds = new Area(40, 140, 840, 940);
+		List<List<Coord>> res = new HoleCutter(bounds).cut(outer, holes);
+		assertNotNull(res);
+
+		long expected = area(800, 800);
+		for (int i = 0; i < 10; i++) {
+			for (int j = 0; j < 10; j++) {
+				int minLat = Math.max(40, 20 + i * 100), maxLat = Math.min(840, 70 + i * 100);
+				int minLon = Math.max(140, 20 + j * 100), maxLon = Math.min(940, 50 + j * 100);
+				if (minLat < maxLat && minLon < maxLon)
+					expected -= area(maxLat - minLat, maxLon - minLon);
+			}
+		}
+		assertEquals(expected, totalArea(res));
+		for (List<Coord> shape : res) {
+			for (Coord co : shape) {
+				assertTrue(co.getLatitude() >= 40 && co.getLatitude() <= 840);
+				assertTrue(co.getLongitude() >= 140 && co.getLongitude() <= 940);
+			}
+		}
+		assertNotInside(res, 245, 335);
+	}
+
+	@Test
+	public void testConcaveOuter() {
+		// a U shaped outer with a hole in each arm
+		Coord start = new Coord(0, 0);
+		List<Coord> outer = new ArrayList<>(Arrays.asList(start, new Coord(0, 300), new Coord(300, 300),
+				new Coord(300, 200), new Coord(100, 200), new Coord(100, 100), new Coord(300, 100),
+				new Coord(300, 0), start));
+		List<List<Coord>> holes = new ArrayList<>();
+		holes.add(rectangle(150, 20, 250, 80));
+		holes.add(rectangle(150, 220, 250, 280));
+		holes.add(rectangle(20, 120, 80, 180));
+		List<List<Coord>> res = new HoleCutter(null).cut(outer, holes);
+		assertNotNull(res);
+		long expected = area(300, 300) - area(200, 100) - 2 * area(100, 60) - area(60, 60);
+		assertEquals(expected, totalArea(res));
+		assertNotInside(res, 200, 50);
+		assertNotInside(res, 200, 250);
+		assertNotInside(res, 50, 150);
+	}
+
+	@Test
+	public void testOverlappingHoles() {
+		List<Coord> outer = rectangle(0, 0, 100, 100);
+		List<List<Coord>> holes = new ArrayList<>();
+		holes.add(rectangle(20, 20, 60, 60));
+		holes.add(rectangle(40, 40, 80, 80));
+		assertNull(new HoleCutter(null).cut(outer, holes));
+	}
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.util;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PhaseStatsTest {
+
+	@After
+	public void tearDown() {
+		PhaseStats.end();
+	}
+
+	/**
+	 * Each phase is reported once with the number of times it was run,
+	 * the whole job as the phase total.
+	 */
+	@Test
+	public void testPhases() {
+		PhaseStats stats = PhaseStats.start("job");
+		PhaseStats.run("parse", () -> {});
+		assertEquals("x", PhaseStats.call("style", () -> "x"));
+		PhaseStats.run("parse", () -> PhaseStats.run("inner", () -> {}));
+		PhaseStats.end();
+
+		List<String[]> lines = lines(stats);
+		assertEquals(4, lines.size());
+		assertPhase(lines.get(0), "total", 1);
+		assertPhase(lines.get(1), "parse", 2);
+		assertPhase(lines.get(2), "style", 1);
+		assertPhase(lines.get(3), "inner", 1);
+	}
+
+	/**
+	 * A phase that throws an exception is still recorded.
+	 */
+	@Test
+	public void testException() {
+		PhaseStats stats = PhaseStats.start("job");
+		try {
+			PhaseStats.run("fail", () -> {
+				throw new IllegalStateException();
+			});
+			fail("exception expected");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		PhaseStats.end();
+
+		List<String[]> lines = lines(stats);
+		assertEquals(2, lines.size());
+		assertPhase(lines.get(1), "fail", 1);
+	}
+
+	/**
+	 * Without stats in the current thread the tasks are just run.
+	 */
+	@Test
+	public void testNoStats() {
+		int[] count = new int[1];
+		PhaseStats.run("parse", () -> count[0]++);
+		assertEquals(Integer.valueOf(2), PhaseStats.call("style", () -> ++count[0]));
+
+		PhaseStats stats = PhaseStats.start("job");
+		PhaseStats.end();
+		assertEquals(1, lines(stats).size());
+	}
+
+	private static void assertPhase(String[] line, String phase, int count) {
+		assertEquals("job", line[0]);
+		assertEquals(phase, line[1]);
+		assertEquals(count, Integer.parseInt(line[2]));
+	}
+
+	private static List<String[]> lines(PhaseStats stats) {
+		StringWriter sw = new StringWriter();
+		try (PrintWriter pw = new PrintWriter(sw)) {
+			stats.write(pw);
+		}
+		List<String[]> lines = new ArrayList<>();
+		for (String line : sw.toString().split("\\R"))
+			lines.add(line.split(","));
+		return lines;
+	}
+}
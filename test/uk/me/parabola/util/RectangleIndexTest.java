@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2026.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.util;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class RectangleIndexTest {
+
+	/**
+	 * Compare the results of the R-tree with a simple loop.
+	 */
+	@Test
+	public void testRectangleIndex() {
+		Random random = new Random(42);
+		List<Rectangle> rectangles = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			rectangles.add(new Rectangle(random.nextInt(10000), random.nextInt(10000), random.nextInt(500), random.nextInt(500)));
+		}
+		RectangleIndex index = new RectangleIndex(rectangles);
+		for (int i = 0; i < 200; i++) {
+			Rectangle r = new Rectangle(random.nextInt(10000), random.nextInt(10000), random.nextInt(2000), random.nextInt(2000));
+			List<Integer> expected = new ArrayList<>();
+			for (int j = 0; j < rectangles.size(); j++) {
+				Rectangle o = rectangles.get(j);
+				if (o.x <= r.x + r.width && r.x <= o.x + o.width && o.y <= r.y + r.height && r.y <= o.y + o.height)
+					expected.add(j);
+			}
+			int[] exp = new int[expected.size()];
+			for (int j = 0; j < exp.length; j++)
+				exp[j] = expected.get(j);
+			assertArrayEquals(exp, index.query(r));
+		}
+	}
+}